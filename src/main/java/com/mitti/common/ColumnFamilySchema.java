@@ -0,0 +1,37 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Column family settings applied by the schema manager when it creates
+ *         or alters the table of an entity. Families without this annotation
+ *         get the HBase defaults.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.TYPE)
+@Repeatable(value = ColumnFamilySchemas.class)
+public @interface ColumnFamilySchema {
+
+	String family();
+
+	BloomType bloomFilter() default BloomType.ROW;
+
+	Compression.Algorithm compression() default Compression.Algorithm.NONE;
+
+	DataBlockEncoding dataBlockEncoding() default DataBlockEncoding.NONE;
+
+	int blockSize() default HConstants.DEFAULT_BLOCKSIZE;
+
+	int ttlSeconds() default HConstants.FOREVER;
+}
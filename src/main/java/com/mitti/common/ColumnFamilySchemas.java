@@ -0,0 +1,18 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Container of repeated {@link ColumnFamilySchema} annotations
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.TYPE)
+public @interface ColumnFamilySchemas {
+
+	ColumnFamilySchema[] value();
+}
@@ -0,0 +1,20 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Compresses values of the annotated field (or every column value of
+ *         an annotated dynamic column family map) whose encoded size exceeds
+ *         the threshold.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface Compressed {
+
+	int thresholdBytes() default 1024;
+}
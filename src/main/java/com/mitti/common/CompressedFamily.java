@@ -0,0 +1,21 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Compresses values of all fixed and dynamic columns of the listed
+ *         column families whose encoded size exceeds the threshold.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.TYPE)
+public @interface CompressedFamily {
+
+	String[] families();
+
+	int thresholdBytes() default 1024;
+}
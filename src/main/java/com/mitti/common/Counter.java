@@ -0,0 +1,19 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Marks a long/Long entity field as an HBase counter. Counter columns
+ *         are stored as 8 byte longs so that they can be atomically
+ *         incremented on the region server.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface Counter {
+
+}
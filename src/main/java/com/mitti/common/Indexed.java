@@ -0,0 +1,21 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Maintains a secondary index on a fixed (non counter) entity field.
+ *         Index entries are kept in the companion table
+ *         &lt;table&gt;_idx_&lt;field&gt; keyed by the stored field value, so
+ *         ranges follow the byte order of the stored string. Range lookups
+ *         are rejected for non String fields, equality lookups work for all.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface Indexed {
+
+}
@@ -0,0 +1,40 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Declares how the row keys of an entity are distributed so that its
+ *         table can be created with pre-split regions.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.TYPE)
+public @interface PreSplit {
+
+	int regions();
+
+	KeyDistribution distribution();
+
+	/**
+	 * Row keys whose leading characters are uniformly distributed over the
+	 * given alphabet, e.g. hashed or salted keys
+	 */
+	enum KeyDistribution {
+
+		HEX("0123456789abcdef"), DECIMAL("0123456789");
+
+		private final String alphabet;
+
+		private KeyDistribution(String alphabet) {
+			this.alphabet = alphabet;
+		}
+
+		public String getAlphabet() {
+			return alphabet;
+		}
+	}
+}
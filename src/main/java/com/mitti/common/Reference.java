@@ -0,0 +1,28 @@
+package com.mitti.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Marks an entity field holding the row key of an entity stored in
+ *         another table, so that the referenced entities of many rows can be
+ *         loaded together with HbaseDriver.loadReferences.
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = ElementType.FIELD)
+public @interface Reference {
+
+	/*
+	 * table (without the driver table prefix) holding the referenced rows
+	 */
+	String table();
+
+	/*
+	 * entity class of the referenced rows
+	 */
+	Class<?> entity();
+}
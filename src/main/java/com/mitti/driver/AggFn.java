@@ -0,0 +1,11 @@
+package com.mitti.driver;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Aggregation functions supported by
+ *         {@link HbaseDriver#aggregate(String, Class, String, AggFn, org.apache.hadoop.hbase.filter.Filter)}
+ */
+public enum AggFn {
+	COUNT, SUM, MIN, MAX, AVG
+}
@@ -0,0 +1,72 @@
+package com.mitti.driver;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Streaming accumulator for numeric column values. Partial
+ *         aggregations computed per region are merged into a single result.
+ */
+class Aggregation {
+
+	private long count;
+	private double sum;
+	private double sumOfSquares;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	void add(double value) {
+		count++;
+		sum += value;
+		sumOfSquares += value * value;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	void merge(Aggregation other) {
+		count += other.count;
+		sum += other.sum;
+		sumOfSquares += other.sumOfSquares;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	double getSum() {
+		return sum;
+	}
+
+	double getSumOfSquares() {
+		return sumOfSquares;
+	}
+
+	Double result(AggFn aggFn) {
+
+		if (aggFn == AggFn.COUNT) {
+			return (double) count;
+		}
+
+		if (count == 0) {
+			return null;
+		}
+
+		switch (aggFn) {
+		case SUM:
+			return sum;
+		case MIN:
+			return min;
+		case MAX:
+			return max;
+		case AVG:
+			return sum / count;
+		default:
+			throw new IllegalArgumentException("Unsupported Aggregation Function: " + aggFn);
+		}
+	}
+}
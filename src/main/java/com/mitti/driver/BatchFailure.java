@@ -0,0 +1,54 @@
+package com.mitti.driver;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         One entity of a batch which was not written, with the cause of its
+ *         last failure.
+ */
+public class BatchFailure<T extends KVPersistable> {
+
+	public enum Stage {
+		// entity could not be turned into mutations, it was never sent
+		MAPPING,
+		// mutations of the entity were rejected or timed out
+		WRITE,
+		// whether the row exists could not be checked, it was never sent
+		EXISTENCE_CHECK
+	}
+
+	private final T entity;
+	private final String row_key;
+	private final Stage stage;
+	private final Throwable cause;
+
+	BatchFailure(T entity, String row_key, Stage stage, Throwable cause) {
+		this.entity = entity;
+		this.row_key = row_key;
+		this.stage = stage;
+		this.cause = cause;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	public String getRow_key() {
+		return row_key;
+	}
+
+	public Stage getStage() {
+		return stage;
+	}
+
+	public Throwable getCause() {
+		return cause;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchFailure [row_key=" + row_key + ", stage=" + stage + ", cause=" + cause + "]";
+	}
+}
@@ -0,0 +1,76 @@
+package com.mitti.driver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Outcome of a batch write: the entities written and, for the rest,
+ *         why they were not. Only the failed entities need to be resubmitted.
+ *         Entities skipped on purpose (addIfAbsent rows which already exist)
+ *         are neither written nor failed.
+ */
+public class BatchResult<T extends KVPersistable> {
+
+	private final List<T> succeeded = new ArrayList<T>();
+	private final List<BatchFailure<T>> failures = new ArrayList<BatchFailure<T>>();
+	private final List<T> skipped = new ArrayList<T>();
+	private int attempts;
+
+	void addSuccess(T entity) {
+		succeeded.add(entity);
+	}
+
+	void addFailure(BatchFailure<T> failure) {
+		failures.add(failure);
+	}
+
+	void addSkipped(T entity) {
+		skipped.add(entity);
+	}
+
+	void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+	public List<T> getSucceeded() {
+		return Collections.unmodifiableList(succeeded);
+	}
+
+	public List<BatchFailure<T>> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	public List<T> getSkipped() {
+		return Collections.unmodifiableList(skipped);
+	}
+
+	public List<T> getFailedEntities() {
+		List<T> failedEntities = new ArrayList<T>();
+		for (BatchFailure<T> failure : failures) {
+			failedEntities.add(failure.getEntity());
+		}
+		return failedEntities;
+	}
+
+	/*
+	 * Number of write attempts made, retries included
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult [succeeded=" + succeeded.size() + ", failed=" + failures.size() + ", skipped="
+				+ skipped.size() + ", attempts=" + attempts + "]";
+	}
+}
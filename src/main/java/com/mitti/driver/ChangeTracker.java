@@ -0,0 +1,95 @@
+package com.mitti.driver;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Keeps a snapshot of the decoded field values of entities loaded
+ *         through the driver, so that a later update can write only the
+ *         columns that changed. Entities are held weakly and compared by
+ *         identity, so untouched entities are garbage collected as usual.
+ */
+class ChangeTracker {
+
+	private static final String ROW_KEY = "row_key";
+
+	private final Map<EntityReference, Map<String, Object>> snapshots = new HashMap<EntityReference, Map<String, Object>>();
+	private final ReferenceQueue<Object> collectedEntities = new ReferenceQueue<Object>();
+
+	@SuppressWarnings("unchecked")
+	<T extends KVPersistable> void snapshot(T entity, Collection<FieldMapping<T>> fields) {
+
+		Map<String, Object> fieldValues = new HashMap<String, Object>();
+		fieldValues.put(ROW_KEY, entity.getRow_key());
+		for (FieldMapping<T> field : fields) {
+			Object value = field.get(entity);
+			if (value instanceof Map) {
+				// dynamic column families are copied as callers mutate them in place
+				value = new HashMap<String, String>((Map<String, String>) value);
+			}
+			fieldValues.put(field.getName(), value);
+		}
+		synchronized (snapshots) {
+			expungeCollected();
+			snapshots.put(new EntityReference(entity, collectedEntities), fieldValues);
+		}
+	}
+
+	Map<String, Object> getSnapshot(Object entity) {
+		synchronized (snapshots) {
+			expungeCollected();
+			return snapshots.get(new EntityReference(entity, null));
+		}
+	}
+
+	void forget(Object entity) {
+		synchronized (snapshots) {
+			expungeCollected();
+			snapshots.remove(new EntityReference(entity, null));
+		}
+	}
+
+	private void expungeCollected() {
+		for (Object collected = collectedEntities.poll(); collected != null; collected = collectedEntities.poll()) {
+			snapshots.remove(collected);
+		}
+	}
+
+	/*
+	 * Weak key comparing entities by identity, as entities may override
+	 * equals/hashCode. A collected entity's key only equals itself.
+	 */
+	private static class EntityReference extends WeakReference<Object> {
+
+		private final int hashCode;
+
+		EntityReference(Object entity, ReferenceQueue<Object> queue) {
+			super(entity, queue);
+			this.hashCode = System.identityHashCode(entity);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof EntityReference)) {
+				return false;
+			}
+			Object entity = get();
+			return entity != null && entity == ((EntityReference) other).get();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.mitti.driver;
+
+import java.io.IOException;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Persists how far a consumer has read the changes of a table. The
+ *         checkpoint is the exclusive upper bound (cell timestamp in millis)
+ *         of the last successful incremental scan.
+ */
+public interface CheckpointStore {
+
+	/**
+	 * @return last saved checkpoint or null if the consumer never polled the
+	 *         table
+	 */
+	Long getCheckpoint(String table, String consumer) throws IOException;
+
+	void saveCheckpoint(String table, String consumer, long timestamp) throws IOException;
+}
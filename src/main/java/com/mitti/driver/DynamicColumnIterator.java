@@ -0,0 +1,121 @@
+package com.mitti.driver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Streams the columns of a dynamic column family of one row. The row
+ *         is read by a scan returning partial results of a bounded number of
+ *         cells, so only one batch of columns is held at a time. The scanner
+ *         is closed once the last column was returned, or by close() when
+ *         the iteration is abandoned.
+ */
+public class DynamicColumnIterator implements Iterator<Entry<String, String>>, Closeable {
+
+	/*
+	 * Called with every batch of cells received, before it is iterated
+	 */
+	interface BatchListener {
+		void batchFetched(Result result);
+	}
+
+	private final Table table;
+	private final ResultScanner scanner;
+	private final Set<String> fixedColumns;
+	private final int compressionThreshold;
+	private final BatchListener batchListener;
+
+	private Cell[] cells = new Cell[0];
+	private int position;
+	private Entry<String, String> next;
+	private boolean closed;
+
+	DynamicColumnIterator(Table table, ResultScanner scanner, Set<String> fixedColumns, int compressionThreshold,
+			BatchListener batchListener) {
+		this.table = table;
+		this.scanner = scanner;
+		this.fixedColumns = fixedColumns;
+		this.compressionThreshold = compressionThreshold;
+		this.batchListener = batchListener;
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		while (next == null && !closed) {
+
+			if (position < cells.length) {
+				Cell cell = cells[position++];
+				String column = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(),
+						cell.getQualifierLength());
+				// fixed fields stored in the same family are not part of the
+				// dynamic columns
+				if (!fixedColumns.contains(column)) {
+					next = new SimpleImmutableEntry<String, String>(column,
+							Bytes.toString(ValueCompression.decompress(CellUtil.cloneValue(cell), compressionThreshold)));
+				}
+				continue;
+			}
+
+			try {
+				Result result = scanner.next();
+				if (result == null) {
+					close();
+				} else {
+					batchListener.batchFetched(result);
+					cells = result.isEmpty() ? new Cell[0] : result.rawCells();
+					position = 0;
+				}
+			} catch (IOException e) {
+				closeQuietly();
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Entry<String, String> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Entry<String, String> column = next;
+		next = null;
+		return column;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			try {
+				scanner.close();
+			} finally {
+				table.close();
+			}
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			// the read failure is what gets reported
+		}
+	}
+}
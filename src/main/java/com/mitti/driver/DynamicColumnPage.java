@@ -0,0 +1,39 @@
+package com.mitti.driver;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         One page of the columns of a dynamic column family, in qualifier
+ *         order. The next page starts at nextColumn, which is null once the
+ *         last page was read.
+ */
+public class DynamicColumnPage {
+
+	private final Map<String, String> columns;
+	private final String nextColumn;
+
+	DynamicColumnPage(Map<String, String> columns, String nextColumn) {
+		this.columns = columns;
+		this.nextColumn = nextColumn;
+	}
+
+	public Map<String, String> getColumns() {
+		return Collections.unmodifiableMap(columns);
+	}
+
+	public String getNextColumn() {
+		return nextColumn;
+	}
+
+	public boolean hasNext() {
+		return nextColumn != null;
+	}
+
+	@Override
+	public String toString() {
+		return "DynamicColumnPage [columns=" + columns.size() + ", nextColumn=" + nextColumn + "]";
+	}
+}
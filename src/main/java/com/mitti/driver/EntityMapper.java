@@ -0,0 +1,53 @@
+package com.mitti.driver;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Describes how an entity is mapped to HBase columns. The annotation
+ *         processor generates a subclass named
+ *         {@code <Entity>_EntityMapper} next to each entity at build time; the
+ *         driver falls back to {@link ReflectiveEntityMapper} when there is
+ *         none.
+ */
+public abstract class EntityMapper<T extends KVPersistable> {
+
+	public static final String GENERATED_MAPPER_SUFFIX = "_EntityMapper";
+
+	private volatile Map<String, FieldMapping<T>> fieldMappingsByName;
+
+	public abstract Class<T> getEntityClass();
+
+	public abstract T newInstance();
+
+	/**
+	 * @return mappings of all persisted fields except row_key
+	 */
+	public abstract List<FieldMapping<T>> getFieldMappings();
+
+	/**
+	 * @return fields listed in the @DynamicColumnFamily annotation of the
+	 *         entity
+	 */
+	public abstract String[] getDynamicColumnFamilyFields();
+
+	public Map<String, FieldMapping<T>> getFieldMappingsByName() {
+
+		Map<String, FieldMapping<T>> mappingsByName = fieldMappingsByName;
+		if (mappingsByName == null) {
+			mappingsByName = new HashMap<String, FieldMapping<T>>();
+			for (FieldMapping<T> fieldMapping : getFieldMappings()) {
+				mappingsByName.put(fieldMapping.getName(), fieldMapping);
+			}
+			mappingsByName = Collections.unmodifiableMap(mappingsByName);
+			fieldMappingsByName = mappingsByName;
+		}
+		return mappingsByName;
+	}
+}
@@ -0,0 +1,47 @@
+package com.mitti.driver;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Resolves and caches the mapper of each entity class: the mapper
+ *         generated at build time when present, reflection otherwise.
+ */
+final class EntityMappers {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EntityMappers.class);
+
+	private static final ConcurrentMap<Class<?>, EntityMapper<?>> MAPPERS = new ConcurrentHashMap<Class<?>, EntityMapper<?>>();
+
+	private EntityMappers() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T extends KVPersistable> EntityMapper<T> forClass(Class<T> entityClass) {
+		return (EntityMapper<T>) MAPPERS.computeIfAbsent(entityClass, c -> load(entityClass));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends KVPersistable> EntityMapper<T> load(Class<T> entityClass) {
+
+		String mapperClassName = entityClass.getName() + EntityMapper.GENERATED_MAPPER_SUFFIX;
+		try {
+			Class<?> mapperClass = Class.forName(mapperClassName, true, entityClass.getClassLoader());
+			if (EntityMapper.class.isAssignableFrom(mapperClass)) {
+				return (EntityMapper<T>) mapperClass.newInstance();
+			}
+		} catch (ClassNotFoundException e) {
+			// no mapper generated for this entity
+		} catch (ReflectiveOperationException | LinkageError e) {
+			LOGGER.warn("Generated mapper could not be loaded, falling back to reflection: " + mapperClassName, e);
+		}
+		return new ReflectiveEntityMapper<T>(entityClass);
+	}
+}
@@ -0,0 +1,138 @@
+package com.mitti.driver;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Value estimated from a sample with approximate 95% confidence
+ *         bounds. Bounds are infinite where the sample says nothing about
+ *         them (e.g. how much lower the true minimum may be).
+ */
+public class Estimate {
+
+	private static final double Z_95 = 1.96;
+
+	private final double value;
+	private final double lowerBound;
+	private final double upperBound;
+	private final long sampleSize;
+
+	Estimate(double value, double lowerBound, double upperBound, long sampleSize) {
+		this.value = value;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+		this.sampleSize = sampleSize;
+	}
+
+	/*
+	 * Rows were sampled independently with the given probability and count
+	 * of them matched. With no match the upper bound follows the rule of
+	 * three.
+	 */
+	static Estimate ofSampledCount(long count, double probability) {
+		if (count == 0) {
+			return new Estimate(0, 0, Math.min(3 / probability, Double.MAX_VALUE), 0);
+		}
+		double value = count / probability;
+		double standardError = Math.sqrt(count * (1 - probability)) / probability;
+		return new Estimate(value, Math.max(count, value - Z_95 * standardError), value + Z_95 * standardError,
+				count);
+	}
+
+	/*
+	 * Horvitz-Thompson estimate of a sum over independently sampled rows
+	 */
+	static Estimate ofSampledSum(Aggregation aggregation, double probability) {
+		double value = aggregation.getSum() / probability;
+		double standardError = Math.sqrt((1 - probability) * aggregation.getSumOfSquares()) / probability;
+		return new Estimate(value, value - Z_95 * standardError, value + Z_95 * standardError,
+				aggregation.getCount());
+	}
+
+	static Estimate ofSampledMean(Aggregation aggregation) {
+		long count = aggregation.getCount();
+		if (count == 0) {
+			return new Estimate(Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+		}
+		double mean = aggregation.getSum() / count;
+		if (count == 1) {
+			return new Estimate(mean, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 1);
+		}
+		double variance = Math.max(0, (aggregation.getSumOfSquares() - count * mean * mean) / (count - 1));
+		double standardError = Math.sqrt(variance / count);
+		return new Estimate(mean, mean - Z_95 * standardError, mean + Z_95 * standardError, count);
+	}
+
+	/*
+	 * A sampled minimum can only overestimate the true one, a sampled maximum
+	 * only underestimate it
+	 */
+	static Estimate ofSampledExtreme(Aggregation aggregation, AggFn aggFn) {
+		Double value = aggregation.result(aggFn);
+		if (value == null) {
+			return new Estimate(Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+		}
+		return aggFn == AggFn.MIN
+				? new Estimate(value, Double.NEGATIVE_INFINITY, value, aggregation.getCount())
+				: new Estimate(value, value, Double.POSITIVE_INFINITY, aggregation.getCount());
+	}
+
+	/*
+	 * Whole regions were sampled at random: the total is scaled from the mean
+	 * of the sampled regions with the finite population correction
+	 */
+	static Estimate ofSampledRegions(long[] regionCounts, int totalRegions) {
+
+		int sampledRegions = regionCounts.length;
+		long sampledCount = 0;
+		for (long regionCount : regionCounts) {
+			sampledCount += regionCount;
+		}
+		if (sampledRegions == 0) {
+			return new Estimate(Double.NaN, 0, Double.POSITIVE_INFINITY, 0);
+		}
+
+		double mean = (double) sampledCount / sampledRegions;
+		double value = mean * totalRegions;
+		if (sampledRegions >= totalRegions) {
+			return new Estimate(value, value, value, sampledCount);
+		}
+		if (sampledRegions == 1) {
+			return new Estimate(value, sampledCount, Double.POSITIVE_INFINITY, sampledCount);
+		}
+
+		double squaredDeviations = 0;
+		for (long regionCount : regionCounts) {
+			squaredDeviations += (regionCount - mean) * (regionCount - mean);
+		}
+		double variance = squaredDeviations / (sampledRegions - 1);
+		double standardError = totalRegions
+				* Math.sqrt((1 - (double) sampledRegions / totalRegions) * variance / sampledRegions);
+		return new Estimate(value, Math.max(sampledCount, value - Z_95 * standardError),
+				value + Z_95 * standardError, sampledCount);
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	public double getLowerBound() {
+		return lowerBound;
+	}
+
+	public double getUpperBound() {
+		return upperBound;
+	}
+
+	/*
+	 * Number of sampled rows the estimate is based on
+	 */
+	public long getSampleSize() {
+		return sampleSize;
+	}
+
+	@Override
+	public String toString() {
+		return "Estimate [value=" + value + ", lowerBound=" + lowerBound + ", upperBound=" + upperBound
+				+ ", sampleSize=" + sampleSize + "]";
+	}
+}
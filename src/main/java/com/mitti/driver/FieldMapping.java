@@ -0,0 +1,99 @@
+package com.mitti.driver;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Maps one entity field (following the columnfamily_column naming) to
+ *         its column family and column. Implementations either access the
+ *         field reflectively or call its getter/setter directly.
+ */
+public abstract class FieldMapping<T extends KVPersistable> {
+
+	private static final String UNDERSCORE = "_";
+
+	private final String name;
+	private final String family;
+	private final String column;
+	private final byte[] familyBytes;
+	private final byte[] columnBytes;
+	private final String typeName;
+	private final boolean counter;
+	private final int compressionThreshold;
+	private final boolean indexed;
+
+	/**
+	 * @param name
+	 *            field name
+	 * @param typeName
+	 *            simple name of the field type (int, Integer, String, Map ...)
+	 * @param counter
+	 *            whether the field is annotated with @Counter
+	 * @param compressionThreshold
+	 *            value size above which values are compressed, -1 for never
+	 */
+	protected FieldMapping(String name, String typeName, boolean counter, int compressionThreshold) {
+		this(name, typeName, counter, compressionThreshold, false);
+	}
+
+	/**
+	 * @param indexed
+	 *            whether the field is annotated with @Indexed
+	 */
+	protected FieldMapping(String name, String typeName, boolean counter, int compressionThreshold,
+			boolean indexed) {
+		this.name = name;
+		String[] familyAndColumn = name.split(UNDERSCORE, 2);
+		this.family = familyAndColumn[0];
+		this.column = familyAndColumn.length > 1 ? familyAndColumn[1] : null;
+		this.familyBytes = Bytes.toBytes(family);
+		this.columnBytes = column == null ? null : Bytes.toBytes(column);
+		this.typeName = typeName;
+		this.counter = counter;
+		this.compressionThreshold = compressionThreshold;
+		this.indexed = indexed;
+	}
+
+	public abstract Object get(T entity);
+
+	public abstract void set(T entity, Object value);
+
+	public String getName() {
+		return name;
+	}
+
+	public String getFamily() {
+		return family;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	public byte[] getFamilyBytes() {
+		return familyBytes;
+	}
+
+	public byte[] getColumnBytes() {
+		return columnBytes;
+	}
+
+	public String getTypeName() {
+		return typeName;
+	}
+
+	public boolean isCounter() {
+		return counter;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	public boolean isIndexed() {
+		return indexed;
+	}
+}
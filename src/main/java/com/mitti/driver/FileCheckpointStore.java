@@ -0,0 +1,58 @@
+package com.mitti.driver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Keeps checkpoints of all consumers in a local properties file. The
+ *         file is rewritten through a temporary file and an atomic rename so
+ *         that a crash never leaves a half written checkpoint behind.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+	private static final String KEY_SEPARATOR = "|";
+
+	private final Path checkpointFile;
+
+	public FileCheckpointStore(Path checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	@Override
+	public synchronized Long getCheckpoint(String table, String consumer) throws IOException {
+		String checkpoint = load().getProperty(table + KEY_SEPARATOR + consumer);
+		return checkpoint == null ? null : Long.valueOf(checkpoint);
+	}
+
+	@Override
+	public synchronized void saveCheckpoint(String table, String consumer, long timestamp) throws IOException {
+
+		Properties checkpoints = load();
+		checkpoints.setProperty(table + KEY_SEPARATOR + consumer, String.valueOf(timestamp));
+
+		Path absoluteFile = checkpointFile.toAbsolutePath();
+		Files.createDirectories(absoluteFile.getParent());
+		Path tempFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+		try (OutputStream out = Files.newOutputStream(tempFile)) {
+			checkpoints.store(out, null);
+		}
+		Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Properties load() throws IOException {
+		Properties checkpoints = new Properties();
+		if (Files.exists(checkpointFile)) {
+			try (InputStream in = Files.newInputStream(checkpointFile)) {
+				checkpoints.load(in);
+			}
+		}
+		return checkpoints;
+	}
+}
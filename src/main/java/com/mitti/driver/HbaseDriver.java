@@ -1,44 +1,83 @@
 package com.mitti.driver;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Consistency;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.RowMutations;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.ColumnPaginationFilter;
 import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
 import org.apache.hadoop.hbase.filter.FamilyFilter;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.QualifierFilter;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.javatuples.Pair;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.mitti.common.DynamicColumnFamily;
+import com.mitti.common.Reference;
+import com.mitti.driver.SecondaryIndexes.IndexMutations;
 import com.mitti.models.KVPersistable;
 
 /**
@@ -53,11 +92,49 @@ public class HbaseDriver {
 	private static final String EXCEPTION_OCCURED_WHILE_QUERYING_DATA = "Exception Occured While Querying Data: ";
 	private static final String EXCEPTION_OCCURED_WHILE_DELETING_DATA = "Exception Occured While Deleting Data: ";
 	private static final String ROW_KEY_NOT_DEFINED_FOR_ENTITY_CLASS = "Row Key not defined for entity class: ";
+	private static final String NO_COLUMN_TO_CHECK = "No column written to check the absence of row: ";
 	private static final String EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST = "Exception Occured While Inserting/Updating Data In list: ";
 	private static final String EXCEPTION_OCCURED_WHILE_CLOSING_TABLE = "Exception Occured While Closing Table: ";
 	private static final String EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA = "Exception Occured While Inserting/Updating Data: ";
 	private static final String UNDERSCORE = "_";
 	private static final String EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR = "Exception Occured While Building Object: ";
+	private static final String EXCEPTION_OCCURED_WHILE_AGGREGATING_DATA = "Exception Occured While Aggregating Data: ";
+	private static final String EXCEPTION_OCCURED_WHILE_INCREMENTING_DATA = "Exception Occured While Incrementing Data: ";
+	private static final String FIELD_NOT_AS_PER_NAMING_CONVENTION = "Field does not follow columnfamily_column naming convention: ";
+	private static final String UNSUPPORTED_AGGREGATION_FIELD = "Field is not a numeric column of entity class: ";
+	private static final String PARALLELISM_PROPERTY = "hbase.driver.parallelism";
+	private static final String TRACK_CHANGES_PROPERTY = "hbase.driver.trackchanges";
+	private static final String CHANGE_SCAN_LAG_PROPERTY = "hbase.driver.changescan.lag.ms";
+	private static final String HEDGE_DELAY_PROPERTY = "hbase.driver.hedge.delay.ms";
+	private static final String HEDGE_REPLICA_PROPERTY = "hbase.driver.hedge.replica";
+	private static final int PRIMARY_REPLICA_ID = 0;
+	private static final String EXCEPTION_OCCURED_WHILE_POLLING_CHANGES = "Exception Occured While Polling Changes: ";
+	private static final int AGGREGATION_SCAN_CACHING = 1000;
+	private static final String FIELD_NOT_INDEXED = "Field is not an @Indexed field of entity class: ";
+	private static final String FIELD_NOT_A_COUNTER = "Field is not a @Counter field of entity class: ";
+	private static final String EXCEPTION_OCCURED_WHILE_REBUILDING_INDEX = "Exception Occured While Rebuilding Index: ";
+	private static final int INDEX_LOOKUP_BATCH = 1000;
+	private static final String SLOW_QUERY_THRESHOLD_PROPERTY = "hbase.driver.slowquery.threshold.ms";
+	private static final String RETRY_BACKOFF_PROPERTY = "hbase.driver.retry.backoff.ms";
+	private static final String PIPELINED_SCAN_PROPERTY = "hbase.driver.scan.pipelined";
+	private static final String PIPELINE_BATCH_PROPERTY = "hbase.driver.scan.pipeline.batch";
+	private static final String PARALLEL_DECODE_THRESHOLD_PROPERTY = "hbase.driver.scan.parallel.decode.rows";
+	private static final String EXCEPTION_OCCURED_WHILE_COMMITTING_UNIT_OF_WORK = "Exception Occured While Committing Unit Of Work: ";
+	private static final String NOT_A_DYNAMIC_COLUMN_FAMILY_FIELD = "Field is not a dynamic column family field of entity class: ";
+	private static final String DYNAMIC_COLUMN_BATCH_PROPERTY = "hbase.driver.dynamic.column.batch";
+	private static final String INVALID_SAMPLING_FRACTION = "Sampling fraction must be within (0, 1]: ";
+	private static final String RESULT_SET_MEMORY_PROPERTY = "hbase.driver.resultset.memory.bytes";
+	private static final String RESULT_SET_SPILL_DIR_PROPERTY = "hbase.driver.resultset.spill.dir";
+	private static final String UNSUPPORTED_SORT_FIELD = "Field is not a numeric or String column of entity class: ";
+	private static final String NOT_A_REFERENCE_FIELD = "Field is not a @Reference field of entity class: ";
+	private static final String WARMUP_TABLES_PROPERTY = "hbase.driver.warmup.tables";
+	private static final String WARMUP_ENTITIES_PROPERTY = "hbase.driver.warmup.entities";
+	private static final String WARMUP_ROW_KEY = "warmup";
+	private static final String NOT_A_KVPERSISTABLE_CLASS = "Class does not implement KVPersistable: ";
+	private static final String EXCEPTION_OCCURED_WHILE_WARMING_UP = "Exception Occured While Warming Up: ";
+	private static final String SNAPSHOT_RESTORE_DIR_PROPERTY = "hbase.driver.snapshot.restore.dir";
+	private static final String EXCEPTION_OCCURED_WHILE_TAKING_SNAPSHOT = "Exception Occured While Taking Snapshot: ";
+	private static final String INDEX_TABLES_CACHE_PROPERTY = "hbase.driver.index.tables.cache.ms";
 
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -66,10 +143,27 @@ public class HbaseDriver {
 
 	private Properties environmentProperties;
 
+	private ExecutorService parallelExecutor;
+
+	private ChangeTracker changeTracker;
+
+	private ExecutorService hedgeExecutor;
+	private ExecutorService publisherExecutor;
+	private ExecutorService decodeExecutor;
+	private final ReplicaReadMetrics replicaReadMetrics = new ReplicaReadMetrics();
+	private final ThreadLocal<QueryProfile> lastQueryProfile = new ThreadLocal<QueryProfile>();
+	private final RequestThrottle requestThrottle;
+	private final ScanPipelineMetrics scanPipelineMetrics = new ScanPipelineMetrics();
+	// indexed fields found by index table name, with the time they expire at
+	private final ConcurrentMap<String, Pair<Long, List<String>>> indexTableFields = new ConcurrentHashMap<String, Pair<Long, List<String>>>();
+
 	public HbaseDriver(Connection connection, Properties env) {
 		this.connection = connection;
 		this.environmentProperties = env;
+		this.requestThrottle = new RequestThrottle(env);
 		initMaprDbPrefixIfrequired();
+		initChangeTrackingIfrequired();
+		initWarmUpIfrequired();
 	}
 
 	private void initMaprDbPrefixIfrequired() {
@@ -79,33 +173,145 @@ public class HbaseDriver {
 		}
 	}
 
+	private void initChangeTrackingIfrequired() {
+		Boolean trackChanges = Boolean.valueOf(environmentProperties.getProperty(TRACK_CHANGES_PROPERTY));
+		if (trackChanges) {
+			this.changeTracker = new ChangeTracker();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void initWarmUpIfrequired() {
+		String warmUpTables = environmentProperties.getProperty(WARMUP_TABLES_PROPERTY, "");
+		String warmUpEntities = environmentProperties.getProperty(WARMUP_ENTITIES_PROPERTY, "");
+		if (warmUpTables.trim().isEmpty() && warmUpEntities.trim().isEmpty()) {
+			return;
+		}
+
+		List<String> tables = new ArrayList<String>();
+		for (String table : warmUpTables.split(",")) {
+			if (!table.trim().isEmpty()) {
+				tables.add(table.trim());
+			}
+		}
+		List<Class<? extends KVPersistable>> entityClasses = new ArrayList<Class<? extends KVPersistable>>();
+		for (String entityClassName : warmUpEntities.split(",")) {
+			if (entityClassName.trim().isEmpty()) {
+				continue;
+			}
+			try {
+				Class<?> entityClass = Class.forName(entityClassName.trim(), true,
+						Thread.currentThread().getContextClassLoader());
+				if (!KVPersistable.class.isAssignableFrom(entityClass)) {
+					throw new IllegalArgumentException(NOT_A_KVPERSISTABLE_CLASS + entityClass.getName());
+				}
+				entityClasses.add((Class<? extends KVPersistable>) entityClass);
+			} catch (Exception e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_WARMING_UP + " Entity:" + entityClassName + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+		warmUp(tables, entityClasses);
+	}
+
+	/*
+	 * Prefetches the region locations of the tables into the connection's
+	 * meta cache, opens a handle on each table and builds the entity mappings
+	 * of the classes, so that the first requests do not pay for them. Errors
+	 * are logged per table/class. Returns the time taken in ms.
+	 */
+	public long warmUp(Collection<String> tables, Collection<Class<? extends KVPersistable>> entityClasses) {
+
+		long startNanos = System.nanoTime();
+		int regionLocations = 0;
+
+		for (String table : tables) {
+			TableName tableName = TableName.valueOf(tablePrefix + table);
+			try (RegionLocator regionLocator = connection.getRegionLocator(tableName);
+					Table tableHandle = connection.getTable(tableName)) {
+				regionLocations += regionLocator.getAllRegionLocations().size();
+			} catch (Exception e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_WARMING_UP + " Table:" + table + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		for (Class<? extends KVPersistable> entityClass : entityClasses) {
+			try {
+				warmUpEntity(entityClass);
+			} catch (Exception e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_WARMING_UP + " Entity:" + entityClass.getName() + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		logger.info("Warm up of " + tables.size() + " tables (" + regionLocations + " region locations) and "
+				+ entityClasses.size() + " entity classes took " + elapsedMillis + " ms");
+		return elapsedMillis;
+	}
+
+	/*
+	 * Builds the mapper and field lookups, and encodes a blank instance once
+	 * so that the classes involved in building a Put get loaded
+	 */
+	private <T extends KVPersistable> void warmUpEntity(Class<T> entityClass) throws Exception {
+		EntityMapper<T> entityMapper = EntityMappers.forClass(entityClass);
+		entityMapper.getFieldMappingsByName();
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+
+		T blank = entityMapper.newInstance();
+		blank.setRow_key(WARMUP_ROW_KEY);
+		prepareAndGetPut(blank, entityClass, groupedFamilyFieldsTuple.getValue0(),
+				groupedFamilyFieldsTuple.getValue1(), entityMapper.getFieldMappings(), WriteOptions.DEFAULT);
+	}
+
 	public <T extends KVPersistable> boolean addUpdate(T t, String queryTable, Class<T> entityClass) {
+		return addUpdate(t, queryTable, entityClass, WriteOptions.DEFAULT);
+	}
+
+	public <T extends KVPersistable> boolean addUpdate(T t, String queryTable, Class<T> entityClass,
+			WriteOptions writeOptions) {
 
 		/*
 		 * Checking if any dynamic cf grouping exists in the entity
 		 * 
 		 */
-		DynamicColumnFamily dynamicColumnFamilyFields = entityClass.getAnnotation(DynamicColumnFamily.class);
-		List<String> groupedFamilies = new LinkedList<String>();
-		List<String> groupedFields = new LinkedList<String>();
-		if (dynamicColumnFamilyFields != null) {
-			String[] groupedFieldsArr = dynamicColumnFamilyFields.fields();
-			for (String field : groupedFieldsArr) {
-				String family = field.split(UNDERSCORE, 2)[0];
-				groupedFamilies.add(family.toLowerCase());
-				groupedFields.add(field.toLowerCase());
-			}
-		}
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
 
-		List<Field> fields = getApplicableFields(entityClass);
+		List<FieldMapping<T>> fields = getApplicableFields(entityClass);
 		Table table = null;
 		boolean addUpdateDone = false;
 
 		try {
 
 			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
-			Put p = prepareAndGetPut(t, entityClass, groupedFamilies, groupedFields, fields);
-			table.put(p);
+			List<Mutation> mutations = prepareAndGetMutations(t, entityClass, groupedFamilies, groupedFields, fields,
+					writeOptions);
+			IndexMutations indexMutations = prepareIndexMutations(table, queryTable, entityClass,
+					Collections.singletonList(t), Collections.singletonList(mutations));
+			indexMutations.writeEntries(connection, tablePrefix);
+			requestThrottle.acquire(queryTable, ThrottledOperation.WRITE, 1, heapSize(mutations));
+			try {
+				if (mutations.size() > 1) {
+					// changed and cleared columns of a row are applied atomically
+					RowMutations rowMutations = new RowMutations(mutations.get(0).getRow());
+					rowMutations.add(mutations);
+					table.mutateRow(rowMutations);
+				} else if (mutations.size() == 1 && mutations.get(0) instanceof Put) {
+					table.put((Put) mutations.get(0));
+				} else if (mutations.size() == 1) {
+					table.delete((Delete) mutations.get(0));
+				}
+			} catch (IOException e) {
+				// the row was not written, its new entries would be orphans
+				indexMutations.removeEntries(connection, tablePrefix);
+				throw e;
+			}
+			indexMutations.removeStaleEntries(connection, tablePrefix);
+			refreshSnapshotIfTracked(t, entityClass);
 			addUpdateDone = true;
 		} catch (NullPointerException e) {
 			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA + " Table:" + queryTable + "\n"
@@ -126,413 +332,3292 @@ public class HbaseDriver {
 	}
 
 	public <T extends KVPersistable> boolean addUpdateAll(List<T> arrT, String queryTable, Class<T> entityClass) {
+		return addUpdateAll(arrT, queryTable, entityClass, 0).isSuccessful();
+	}
+
+	public <T extends KVPersistable> BatchResult<T> addUpdateAll(List<T> arrT, String queryTable,
+			Class<T> entityClass, int maxRetries) {
+		return addUpdateAll(arrT, queryTable, entityClass, maxRetries, WriteOptions.DEFAULT);
+	}
+
+	/*
+	 * Writes the entities and reports per entity failures instead of failing
+	 * the whole batch. Entities which could not be mapped are skipped and only
+	 * the rows rejected by the region servers are retried, up to maxRetries
+	 * times with exponential backoff starting at hbase.driver.retry.backoff.ms
+	 */
+	public <T extends KVPersistable> BatchResult<T> addUpdateAll(List<T> arrT, String queryTable,
+			Class<T> entityClass, int maxRetries, WriteOptions writeOptions) {
 
 		/*
 		 * Checking if any dynamic cf grouping exists in the entity
 		 * 
 		 */
-		DynamicColumnFamily dynamicColumnFamilyFields = entityClass.getAnnotation(DynamicColumnFamily.class);
-		List<String> groupedFamilies = new LinkedList<String>();
-		List<String> groupedFields = new LinkedList<String>();
-		if (dynamicColumnFamilyFields != null) {
-			String[] groupedFieldsArr = dynamicColumnFamilyFields.fields();
-			for (String field : groupedFieldsArr) {
-				String family = field.split(UNDERSCORE, 2)[0];
-				groupedFamilies.add(family.toLowerCase());
-				groupedFields.add(field.toLowerCase());
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+
+		List<FieldMapping<T>> fields = getApplicableFields(entityClass);
+
+		BatchResult<T> batchResult = new BatchResult<T>();
+		List<T> mappedEntities = new ArrayList<T>();
+		List<List<Mutation>> mappedMutations = new ArrayList<List<Mutation>>();
+		Map<String, List<Mutation>> rowMutations = new LinkedHashMap<String, List<Mutation>>();
+
+		// a mapping error only fails its own entity
+		for (T t : arrT) {
+			try {
+				List<Mutation> mutations = prepareAndGetMutations(t, entityClass, groupedFamilies, groupedFields,
+						fields, writeOptions);
+				mappedEntities.add(t);
+				mappedMutations.add(mutations);
+				rowMutations.computeIfAbsent(t.getRow_key(), k -> new ArrayList<Mutation>()).addAll(mutations);
+			} catch (Exception e) {
+				batchResult.addFailure(new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.MAPPING, e));
+				logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable
+						+ " Row Key:" + t.getRow_key() + "\n" + ExceptionUtils.getFullStackTrace(e) + "\nObject:\n"
+						+ t.toString());
 			}
 		}
 
-		List<Field> fields = getApplicableFields(entityClass);
-
 		Table table = null;
-		boolean addUpdateDone = false;
-		T currentT = null;
+		Map<String, Throwable> failedRows = new LinkedHashMap<String, Throwable>();
+		int attempts = 0;
+
 		try {
 
 			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
-			List<Put> allPuts = new ArrayList<Put>();
-			for (T t : arrT) {
-				currentT = t;
-				Put p = prepareAndGetPut(t, entityClass, groupedFamilies, groupedFields, fields);
-				allPuts.add(p);
+			IndexMutations indexMutations = prepareIndexMutations(table, queryTable, entityClass, mappedEntities,
+					mappedMutations);
+			indexMutations.writeEntries(connection, tablePrefix);
+
+			Set<String> writeRows = new LinkedHashSet<String>(rowMutations.keySet());
+			long backoffMillis = Long.parseLong(environmentProperties.getProperty(RETRY_BACKOFF_PROPERTY, "100"));
+
+			while (true) {
+
+				failedRows.clear();
+				try {
+					writeMutations(table, queryTable, writeRows, rowMutations, failedRows,
+							writeOptions.getBatchSize());
+				} catch (IOException e) {
+					for (String row_key : writeRows) {
+						failedRows.put(row_key, e);
+					}
+				}
+				attempts++;
+
+				if (failedRows.isEmpty() || attempts > maxRetries) {
+					break;
+				}
+				Thread.sleep(backoffMillis << (attempts - 1));
+				writeRows = new LinkedHashSet<String>(failedRows.keySet());
 			}
-			table.put(allPuts);
-			addUpdateDone = true;
-		} catch (NullPointerException e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable + "\n"
-					+ ExceptionUtils.getFullStackTrace(e) + "\nObject:\n" + currentT.toString());
+
+			Set<String> writtenRows = new LinkedHashSet<String>(rowMutations.keySet());
+			writtenRows.removeAll(failedRows.keySet());
+			indexMutations.forRows(writtenRows).removeStaleEntries(connection, tablePrefix);
+			indexMutations.forRows(failedRows.keySet()).removeEntries(connection, tablePrefix);
+
 		} catch (Exception e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
 			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
+			// nothing was written yet
+			if (attempts == 0) {
+				for (String row_key : rowMutations.keySet()) {
+					failedRows.put(row_key, e);
+				}
+			}
 		} finally {
 			try {
-				table.close();
+				if (table != null) {
+					table.close();
+				}
 			} catch (IOException e) {
 				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
 						+ ExceptionUtils.getFullStackTrace(e));
 			}
 		}
 
-		return addUpdateDone;
-	}
+		for (T t : mappedEntities) {
+			Throwable cause = failedRows.get(t.getRow_key());
+			if (cause == null) {
+				batchResult.addSuccess(t);
+				try {
+					refreshSnapshotIfTracked(t, entityClass);
+				} catch (Exception e) {
+					logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable
+							+ "\n" + ExceptionUtils.getFullStackTrace(e));
+				}
+			} else {
+				batchResult.addFailure(new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.WRITE, cause));
+				logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable
+						+ " Row Key:" + t.getRow_key() + " Cause:" + cause);
+			}
+		}
+		batchResult.setAttempts(attempts);
 
-	private <T extends KVPersistable> List<Field> getApplicableFields(Class<T> entityClass) {
-		Field[] allFields = entityClass.getDeclaredFields();
-		List<Field> fields = Arrays.stream(allFields).filter(f -> !(f.getName().equals(ROW_KEY)))
-				.collect(Collectors.toList());
-		fields.forEach(f -> f.setAccessible(true));
-		return fields;
+		return batchResult;
 	}
 
-	@SuppressWarnings("unchecked")
-	private <T extends KVPersistable> Put prepareAndGetPut(T t, Class<T> entityClass, List<String> groupedFamilies,
-			List<String> groupedFields, List<Field> fields)
-			throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+	/*
+	 * Rows are sent in chunks of batchSize rows (all at once for 0), puts of
+	 * a chunk before its deletes. Rows of which any mutation failed are
+	 * collected with the cause unpacked from RetriesExhaustedWithDetailsException
+	 */
+	private void writeMutations(Table table, String queryTable, Set<String> rowKeys,
+			Map<String, List<Mutation>> rowMutations, Map<String, Throwable> failedRows, int batchSize)
+			throws IOException {
+
+		List<Put> puts = new ArrayList<Put>();
+		List<Delete> deletes = new ArrayList<Delete>();
+		int chunkRows = 0;
+		for (String row_key : rowKeys) {
+			for (Mutation mutation : rowMutations.get(row_key)) {
+				if (mutation instanceof Put) {
+					puts.add((Put) mutation);
+				} else {
+					deletes.add((Delete) mutation);
+				}
+			}
+			if (batchSize > 0 && ++chunkRows == batchSize) {
+				writeMutationChunk(table, queryTable, puts, deletes, failedRows);
+				puts.clear();
+				deletes.clear();
+				chunkRows = 0;
+			}
+		}
+		if (!puts.isEmpty() || !deletes.isEmpty()) {
+			writeMutationChunk(table, queryTable, puts, deletes, failedRows);
+		}
+	}
 
-		Put p = null;
+	private void writeMutationChunk(Table table, String queryTable, List<Put> puts, List<Delete> deletes,
+			Map<String, Throwable> failedRows) throws IOException {
 
-		String row_key = t.getRow_key();
-		if (row_key != null) {
-			p = new Put(Bytes.toBytes(row_key.toString()));
-		} else {
-			throw new IllegalArgumentException(
-					ROW_KEY_NOT_DEFINED_FOR_ENTITY_CLASS + entityClass.getCanonicalName() + " Row Key:" + row_key);
+		try {
+			requestThrottle.acquire(queryTable, ThrottledOperation.WRITE, puts.size(), heapSize(puts));
+			table.put(puts);
+		} catch (RetriesExhaustedWithDetailsException e) {
+			collectFailedRows(e, failedRows);
+		}
+		if (!deletes.isEmpty()) {
+			try {
+				requestThrottle.acquire(queryTable, ThrottledOperation.DELETE, deletes.size(), heapSize(deletes));
+				table.delete(deletes);
+			} catch (RetriesExhaustedWithDetailsException e) {
+				collectFailedRows(e, failedRows);
+			}
 		}
+	}
 
-		for (Field field : fields) {
+	private long heapSize(List<? extends Mutation> mutations) {
+		long size = 0;
+		for (Mutation mutation : mutations) {
+			size += mutation.heapSize();
+		}
+		return size;
+	}
 
-			String fieldName = field.getName();
-			Object value = field.get(t);
+	private long getTotalSize(Result[] results) {
+		long size = 0;
+		for (Result result : results) {
+			size += Result.getTotalSizeOfCells(result);
+		}
+		return size;
+	}
 
-			if (value != null) {
-				String[] familyAndColumn = fieldName.split(UNDERSCORE, 2);
-				String family = familyAndColumn[0];
+	private void collectFailedRows(RetriesExhaustedWithDetailsException e, Map<String, Throwable> failedRows) {
+		for (int i = 0; i < e.getNumExceptions(); i++) {
+			failedRows.putIfAbsent(Bytes.toString(e.getRow(i).getRow()), e.getCause(i));
+		}
+	}
 
-				if (groupedFamilies.contains(family) && groupedFields.contains(fieldName)) {
-					Map<String, String> columnValuesMap = (Map<String, String>) value;
-					for (String columnName : columnValuesMap.keySet()) {
-						String columnValue = columnValuesMap.get(columnName);
-						p.addColumn(Bytes.toBytes(family), Bytes.toBytes(columnName), Bytes.toBytes(columnValue));
-					}
-				} else {
-					String column = familyAndColumn[1];
-					p.addColumn(Bytes.toBytes(family), Bytes.toBytes(column), Bytes.toBytes(value.toString()));
+	/*
+	 * Checks which rows exist with Table.exists, which returns no cell data,
+	 * in chunks of INDEX_LOOKUP_BATCH rows. Returns the result per row key in
+	 * the given order, an empty map on failure.
+	 */
+	public Map<String, Boolean> exists(String queryTable, List<String> rowKeys) {
+
+		Map<String, Boolean> existingRows = Collections.<String, Boolean>emptyMap();
+
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + queryTable))) {
+			Map<String, Boolean> checkedRows = new LinkedHashMap<String, Boolean>();
+			for (int from = 0; from < rowKeys.size(); from += INDEX_LOOKUP_BATCH) {
+				List<String> chunk = rowKeys.subList(from, Math.min(from + INDEX_LOOKUP_BATCH, rowKeys.size()));
+				boolean[] chunkExists = existsForIds(table, queryTable, chunk);
+				for (int i = 0; i < chunk.size(); i++) {
+					checkedRows.put(chunk.get(i), chunkExists[i]);
 				}
 			}
-
+			existingRows = checkedRows;
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
 		}
-		return p;
+
+		return existingRows;
 	}
 
-	public <T extends KVPersistable> boolean deleteByFilter(String queryTable, Class<T> entityClass, Filter filter) {
+	public <T extends KVPersistable> BatchResult<T> addIfAbsent(List<T> arrT, String queryTable,
+			Class<T> entityClass) {
+		return addIfAbsent(arrT, queryTable, entityClass, WriteOptions.DEFAULT);
+	}
 
-		Table table = null;
-		List<T> entities = query(queryTable, entityClass, filter);
-		boolean isDeleted = true;
+	/*
+	 * Writes only the entities whose row does not exist yet; the others are
+	 * reported as skipped, as are later entities with an already seen row
+	 * key. Rows are checked and then written chunk by chunk (batch size of
+	 * the options, INDEX_LOOKUP_BATCH by default). Check and write are not
+	 * atomic: a row created concurrently between both is overwritten, use
+	 * addIfAbsentAtomically when several writers insert the same rows.
+	 */
+	public <T extends KVPersistable> BatchResult<T> addIfAbsent(List<T> arrT, String queryTable,
+			Class<T> entityClass, WriteOptions writeOptions) {
 
-		try {
+		BatchResult<T> batchResult = new BatchResult<T>();
+		int chunkSize = writeOptions.getBatchSize() > 0 ? writeOptions.getBatchSize() : INDEX_LOOKUP_BATCH;
+		int attempts = 0;
 
-			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+		List<T> candidates = getInsertCandidates(arrT, entityClass, batchResult);
 
-			for (T t : entities) {
-				String row_key = null;
-				try {
-					row_key = t.getRow_key();
-					Delete delete = new Delete(Bytes.toBytes(row_key));
-					table.delete(delete);
-				} catch (Exception e) {
-					isDeleted = false;
-					logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
-							+ ExceptionUtils.getFullStackTrace(e));
-				}
-			}
-		} catch (Exception e) {
-			isDeleted = false;
-			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "\n" + ExceptionUtils.getFullStackTrace(e));
-		} finally {
-			try {
-				table.close();
-			} catch (IOException e) {
-				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
-						+ ExceptionUtils.getFullStackTrace(e));
-			}
-		}
+		int from = 0;
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + queryTable))) {
 
-		return isDeleted;
-	}
+			for (; from < candidates.size(); from += chunkSize) {
 
-	public boolean deleteById(String row_key, String queryTable) {
+				List<T> chunk = candidates.subList(from, Math.min(from + chunkSize, candidates.size()));
+				List<String> chunkRows = new ArrayList<String>(chunk.size());
+				for (T t : chunk) {
+					chunkRows.add(t.getRow_key());
+				}
 
-		Table table = null;
+				boolean[] chunkExists = null;
+				try {
+					chunkExists = existsForIds(table, queryTable, chunkRows);
+				} catch (IOException e) {
+					logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable
+							+ "\n" + ExceptionUtils.getFullStackTrace(e));
+					for (T t : chunk) {
+						batchResult.addFailure(
+								new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.EXISTENCE_CHECK, e));
+					}
+					continue;
+				}
 
-		boolean isDeleted = false;
-		try {
+				List<T> absent = new ArrayList<T>();
+				for (int i = 0; i < chunk.size(); i++) {
+					if (chunkExists[i]) {
+						batchResult.addSkipped(chunk.get(i));
+					} else {
+						absent.add(chunk.get(i));
+					}
+				}
+				if (absent.isEmpty()) {
+					continue;
+				}
 
-			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
-			Delete delete = new Delete(Bytes.toBytes(row_key));
-			table.delete(delete);
-			isDeleted = true;
-		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
+				BatchResult<T> chunkResult = addUpdateAll(absent, queryTable, entityClass, 0, writeOptions);
+				for (T t : chunkResult.getSucceeded()) {
+					batchResult.addSuccess(t);
+				}
+				for (BatchFailure<T> failure : chunkResult.getFailures()) {
+					batchResult.addFailure(failure);
+				}
+				attempts = Math.max(attempts, chunkResult.getAttempts());
+			}
+		} catch (IOException e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
-		} finally {
-			try {
-				table.close();
-			} catch (IOException e) {
-				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
-						+ ExceptionUtils.getFullStackTrace(e));
+			// the table could not be opened, no chunk was checked
+			for (T t : candidates.subList(Math.min(from, candidates.size()), candidates.size())) {
+				batchResult.addFailure(new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.EXISTENCE_CHECK, e));
 			}
 		}
+		batchResult.setAttempts(attempts);
 
-		return isDeleted;
+		return batchResult;
 	}
 
-	public boolean deleteColumnsById(String row_key, String queryTable, String columnFamily, String... columns) {
+	/*
+	 * Writes only the entities whose row does not exist yet, like
+	 * addIfAbsent, but checks and writes each row atomically with
+	 * checkAndMutate: of concurrent writers inserting the same row only one
+	 * succeeds, the others report it as skipped. The check is on the first
+	 * column the entity writes, a stored row without that column counts as
+	 * absent. Costs one RPC per row; index entries are written after the row
+	 * was inserted.
+	 */
+	public <T extends KVPersistable> BatchResult<T> addIfAbsentAtomically(List<T> arrT, String queryTable,
+			Class<T> entityClass, WriteOptions writeOptions) {
+
+		BatchResult<T> batchResult = new BatchResult<T>();
+		List<T> candidates = getInsertCandidates(arrT, entityClass, batchResult);
 
-		Table table = null;
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		List<FieldMapping<T>> fields = getApplicableFields(entityClass);
 
-		boolean isDeleted = false;
-		try {
+		int from = 0;
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + queryTable))) {
 
-			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
-			Delete delete = new Delete(Bytes.toBytes(row_key));
-			for (String column : columns) {
-				delete.addColumn(Bytes.toBytes(columnFamily), Bytes.toBytes(column));
+			for (; from < candidates.size(); from++) {
+
+				T t = candidates.get(from);
+				List<Mutation> mutations = null;
+				Cell checkedCell = null;
+				try {
+					mutations = prepareAndGetMutations(t, entityClass, groupedFamilies, groupedFields, fields,
+							writeOptions);
+					checkedCell = getFirstPutCell(mutations);
+					if (checkedCell == null) {
+						throw new IllegalArgumentException(NO_COLUMN_TO_CHECK + t.getRow_key());
+					}
+				} catch (Exception e) {
+					logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable
+							+ " Row Key:" + t.getRow_key() + "\n" + ExceptionUtils.getFullStackTrace(e));
+					batchResult.addFailure(new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.MAPPING, e));
+					continue;
+				}
+
+				try {
+					RowMutations rowMutations = new RowMutations(mutations.get(0).getRow());
+					rowMutations.add(mutations);
+					IndexMutations indexMutations = prepareIndexMutations(table, queryTable, entityClass,
+							Collections.singletonList(t), Collections.singletonList(mutations));
+					requestThrottle.acquire(queryTable, ThrottledOperation.WRITE, 1, heapSize(mutations));
+					boolean inserted = table.checkAndMutate(rowMutations.getRow(), CellUtil.cloneFamily(checkedCell))
+							.qualifier(CellUtil.cloneQualifier(checkedCell)).ifNotExists().thenMutate(rowMutations);
+					if (!inserted) {
+						batchResult.addSkipped(t);
+						continue;
+					}
+					// entries of a losing writer would point at a row it did not write
+					indexMutations.writeEntries(connection, tablePrefix);
+					batchResult.addSuccess(t);
+					refreshSnapshotIfTracked(t, entityClass);
+				} catch (Exception e) {
+					logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable
+							+ " Row Key:" + t.getRow_key() + "\n" + ExceptionUtils.getFullStackTrace(e));
+					batchResult.addFailure(new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.WRITE, e));
+				}
 			}
-			table.delete(delete);
-			isDeleted = true;
-		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
+		} catch (IOException e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA_IN_LIST + " Table:" + queryTable + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
-		} finally {
-			try {
-				table.close();
-			} catch (IOException e) {
-				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
-						+ ExceptionUtils.getFullStackTrace(e));
+			// the table could not be opened, no row was checked
+			for (T t : candidates.subList(Math.min(from, candidates.size()), candidates.size())) {
+				batchResult.addFailure(new BatchFailure<T>(t, t.getRow_key(), BatchFailure.Stage.EXISTENCE_CHECK, e));
 			}
 		}
+		batchResult.setAttempts(1);
 
-		return isDeleted;
+		return batchResult;
 	}
 
-	public <T extends KVPersistable> List<Map<String, Object>> query(String table, Class<T> entityClass, Filter filter,
-			String... columns) {
+	/*
+	 * Entities without row key fail, later entities with an already seen row
+	 * key are skipped
+	 */
+	private <T extends KVPersistable> List<T> getInsertCandidates(List<T> arrT, Class<T> entityClass,
+			BatchResult<T> batchResult) {
+
+		List<T> candidates = new ArrayList<T>();
+		Set<String> seenRows = new HashSet<String>();
+		for (T t : arrT) {
+			if (t.getRow_key() == null) {
+				batchResult.addFailure(new BatchFailure<T>(t, null, BatchFailure.Stage.MAPPING,
+						new IllegalArgumentException(ROW_KEY_NOT_DEFINED_FOR_ENTITY_CLASS + entityClass.getName())));
+			} else if (seenRows.add(t.getRow_key())) {
+				candidates.add(t);
+			} else {
+				batchResult.addSkipped(t);
+			}
+		}
+		return candidates;
+	}
 
-		/*
-		 * Checking if any dynamic cf grouping exists in the entity
-		 * 
-		 */
-		DynamicColumnFamily dynamicColumnFamilyFields = entityClass.getAnnotation(DynamicColumnFamily.class);
-		List<String> groupedFields = new LinkedList<String>();
-		if (dynamicColumnFamilyFields != null) {
-			String[] groupedFieldsArr = dynamicColumnFamilyFields.fields();
-			for (String field : groupedFieldsArr) {
-				groupedFields.add(field.toLowerCase());
+	private Cell getFirstPutCell(List<Mutation> mutations) {
+		for (Mutation mutation : mutations) {
+			if (mutation instanceof Put) {
+				for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+					if (!cells.isEmpty()) {
+						return cells.get(0);
+					}
+				}
 			}
 		}
+		return null;
+	}
 
-		FilterList topLevelFilter = new FilterList(FilterList.Operator.MUST_PASS_ALL);
-		topLevelFilter.addFilter(filter);
+	private boolean[] existsForIds(Table table, String queryTable, List<String> rowKeys) throws IOException {
+		List<Get> gets = new ArrayList<Get>(rowKeys.size());
+		for (String rowKey : rowKeys) {
+			gets.add(new Get(Bytes.toBytes(rowKey)));
+		}
+		requestThrottle.acquire(queryTable, ThrottledOperation.READ, gets.size(), 0);
+		return table.exists(gets);
+	}
 
-		List<Map<String, Object>> queryResults = Collections.<Map<String, Object>>emptyList();
+	public UnitOfWork newUnitOfWork() {
+		return new UnitOfWork(this);
+	}
 
-		try {
+	<T extends KVPersistable> List<Mutation> prepareMutations(T t, Class<T> entityClass)
+			throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		return prepareAndGetMutations(t, entityClass, groupedFamilyFieldsTuple.getValue0(),
+				groupedFamilyFieldsTuple.getValue1(), getApplicableFields(entityClass), WriteOptions.DEFAULT);
+	}
 
-			FilterList selectedColFilterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+	/*
+	 * Operations are grouped per table and each table is written with a
+	 * single batch, tables in parallel on the hbase.driver.parallelism pool
+	 */
+	UnitOfWorkResult commitUnitOfWork(List<UnitOfWorkOperation> operations) {
+
+		Map<String, List<UnitOfWorkOperation>> tableOperations = //
+				new LinkedHashMap<String, List<UnitOfWorkOperation>>();
+		for (UnitOfWorkOperation operation : operations) {
+			// operations which could not be prepared already carry their cause
+			if (operation.getCause() == null) {
+				tableOperations.computeIfAbsent(operation.getTable(), k -> new ArrayList<UnitOfWorkOperation>())
+						.add(operation);
+			}
+		}
 
-			for (String col : columns) {
+		if (tableOperations.size() == 1) {
+			Entry<String, List<UnitOfWorkOperation>> single = tableOperations.entrySet().iterator().next();
+			commitTableOperations(single.getKey(), single.getValue());
+		} else if (!tableOperations.isEmpty()) {
+
+			String priorityClass = requestThrottle.getPriorityClass();
+			Map<String, Future<?>> commits = new LinkedHashMap<String, Future<?>>();
+			for (Entry<String, List<UnitOfWorkOperation>> entry : tableOperations.entrySet()) {
+				commits.put(entry.getKey(), getParallelExecutor().submit(() -> {
+					requestThrottle.setPriorityClass(priorityClass);
+					commitTableOperations(entry.getKey(), entry.getValue());
+				}));
+			}
 
-				if (groupedFields.contains(col)) {
-					String family = col.split(UNDERSCORE, 2)[0];
-					FamilyFilter familyFilter = new FamilyFilter(CompareOp.EQUAL,
-							new BinaryComparator(Bytes.toBytes(family)));
-					selectedColFilterList.addFilter(familyFilter);
-				} else {
+			for (Entry<String, Future<?>> commit : commits.entrySet()) {
+				try {
+					commit.getValue().get();
+				} catch (Exception e) {
+					if (e instanceof InterruptedException) {
+						Thread.currentThread().interrupt();
+					}
+					logger.error(EXCEPTION_OCCURED_WHILE_COMMITTING_UNIT_OF_WORK + " Table:" + commit.getKey() + "\n"
+							+ ExceptionUtils.getFullStackTrace(e));
+					for (UnitOfWorkOperation operation : tableOperations.get(commit.getKey())) {
+						if (!operation.isSuccessful()) {
+							operation.failed(e);
+						}
+					}
+				}
+			}
+		}
+
+		for (UnitOfWorkOperation operation : operations) {
+			if (!operation.isSuccessful()) {
+				logger.error(EXCEPTION_OCCURED_WHILE_COMMITTING_UNIT_OF_WORK + " Table:" + operation.getTable()
+						+ " Row Key:" + operation.getRow_key() + " Operation:" + operation.getType() + " Cause:"
+						+ operation.getCause());
+			}
+		}
+		return new UnitOfWorkResult(operations);
+	}
+
+	/*
+	 * All mutations on a row form one action, as RowMutations when there is
+	 * more than one, so they are applied atomically. Every increment is an
+	 * action of its own.
+	 */
+	private void commitTableOperations(String queryTable, List<UnitOfWorkOperation> operations) {
+
+		Map<String, List<Mutation>> rowMutations = new LinkedHashMap<String, List<Mutation>>();
+		Map<String, List<UnitOfWorkOperation>> rowOperations = new LinkedHashMap<String, List<UnitOfWorkOperation>>();
+		List<UnitOfWorkOperation> increments = new ArrayList<UnitOfWorkOperation>();
+
+		for (UnitOfWorkOperation operation : operations) {
+			if (operation.getIncrement() != null) {
+				increments.add(operation);
+			} else if (operation.getMutations().isEmpty()) {
+				// a tracked entity without changes has nothing to write
+				operation.succeeded();
+			} else {
+				rowMutations.computeIfAbsent(operation.getRow_key(), k -> new ArrayList<Mutation>())
+						.addAll(operation.getMutations());
+				rowOperations.computeIfAbsent(operation.getRow_key(), k -> new ArrayList<UnitOfWorkOperation>())
+						.add(operation);
+			}
+		}
+
+		List<Row> actions = new ArrayList<Row>();
+		List<List<UnitOfWorkOperation>> actionOperations = new ArrayList<List<UnitOfWorkOperation>>();
+		int writes = 0;
+		int deletes = 0;
+		long writeBytes = 0;
+		long deleteBytes = 0;
+
+		try {
+
+			for (Entry<String, List<Mutation>> entry : rowMutations.entrySet()) {
+				List<Mutation> mutations = entry.getValue();
+				if (mutations.size() > 1) {
+					RowMutations mutationsOfRow = new RowMutations(mutations.get(0).getRow());
+					mutationsOfRow.add(mutations);
+					actions.add(mutationsOfRow);
+				} else {
+					actions.add(mutations.get(0));
+				}
+				actionOperations.add(rowOperations.get(entry.getKey()));
+
+				if (mutations.size() == 1 && mutations.get(0) instanceof Delete) {
+					deletes++;
+					deleteBytes += mutations.get(0).heapSize();
+				} else {
+					writes++;
+					writeBytes += heapSize(mutations);
+				}
+			}
+			for (UnitOfWorkOperation operation : increments) {
+				actions.add(operation.getIncrement());
+				actionOperations.add(Collections.singletonList(operation));
+				writes++;
+				writeBytes += operation.getIncrement().heapSize();
+			}
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_COMMITTING_UNIT_OF_WORK + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+			for (UnitOfWorkOperation operation : operations) {
+				operation.failed(e);
+			}
+			return;
+		}
+
+		Table table = null;
+		Object[] results = new Object[actions.size()];
+		Exception batchFailure = null;
+		List<IndexMutations> indexMutations = new ArrayList<IndexMutations>();
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			indexMutations = prepareIndexMutations(table, queryTable, operations);
+			for (IndexMutations entityIndexMutations : indexMutations) {
+				entityIndexMutations.writeEntries(connection, tablePrefix);
+			}
+
+			requestThrottle.acquire(queryTable, ThrottledOperation.WRITE, writes, writeBytes);
+			requestThrottle.acquire(queryTable, ThrottledOperation.DELETE, deletes, deleteBytes);
+			table.batch(actions, results);
+
+		} catch (RetriesExhaustedWithDetailsException e) {
+			// the failed actions carry their own cause in the results
+			batchFailure = e;
+		} catch (Exception e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			batchFailure = e;
+			logger.error(EXCEPTION_OCCURED_WHILE_COMMITTING_UNIT_OF_WORK + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				if (table != null) {
+					table.close();
+				}
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		Set<String> writtenRows = new LinkedHashSet<String>();
+		Set<String> failedRows = new LinkedHashSet<String>();
+
+		for (int i = 0; i < actions.size(); i++) {
+			Object result = results[i];
+			for (UnitOfWorkOperation operation : actionOperations.get(i)) {
+				if (result instanceof Result) {
+					operation.succeeded();
+					if (operation.getIncrement() != null) {
+						operation.setIncrementedValues(
+								getIncrementedValues((Result) result, incrementedFields(operation.getIncrement())));
+					}
+				} else {
+					operation.failed(result instanceof Throwable ? (Throwable) result : batchFailure);
+				}
+			}
+			if (!(actions.get(i) instanceof Increment)) {
+				(result instanceof Result ? writtenRows : failedRows).add(Bytes.toString(actions.get(i).getRow()));
+			}
+		}
+
+		try {
+			for (IndexMutations entityIndexMutations : indexMutations) {
+				entityIndexMutations.forRows(writtenRows).removeStaleEntries(connection, tablePrefix);
+				entityIndexMutations.forRows(failedRows).removeEntries(connection, tablePrefix);
+			}
+			for (UnitOfWorkOperation operation : operations) {
+				if (operation.isSuccessful() && operation.getEntity() != null) {
+					refreshSnapshotIfTracked(operation);
+				}
+			}
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_COMMITTING_UNIT_OF_WORK + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+	}
+
+	private Set<String> incrementedFields(Increment increment) {
+		Set<String> fields = new LinkedHashSet<String>();
+		for (List<Cell> cells : increment.getFamilyCellMap().values()) {
+			for (Cell cell : cells) {
+				fields.add(Bytes.toString(CellUtil.cloneFamily(cell)) + UNDERSCORE
+						+ Bytes.toString(CellUtil.cloneQualifier(cell)));
+			}
+		}
+		return fields;
+	}
+
+	/*
+	 * Index maintenance of the written entities, one multi-get per entity
+	 * class
+	 */
+	private List<IndexMutations> prepareIndexMutations(Table table, String queryTable,
+			List<UnitOfWorkOperation> operations) throws IOException {
+
+		Map<Class<?>, List<UnitOfWorkOperation>> classOperations = //
+				new LinkedHashMap<Class<?>, List<UnitOfWorkOperation>>();
+		for (UnitOfWorkOperation operation : operations) {
+			if (operation.getEntityClass() != null && !operation.getMutations().isEmpty()) {
+				classOperations.computeIfAbsent(operation.getEntityClass(), k -> new ArrayList<UnitOfWorkOperation>())
+						.add(operation);
+			}
+		}
+
+		List<IndexMutations> indexMutations = new ArrayList<IndexMutations>();
+		for (Entry<Class<?>, List<UnitOfWorkOperation>> entry : classOperations.entrySet()) {
+			indexMutations.add(prepareIndexMutations(table, queryTable, entry.getKey(), entry.getValue()));
+		}
+		return indexMutations;
+	}
+
+	/*
+	 * The entity is null for deletes
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends KVPersistable> IndexMutations prepareIndexMutations(Table table, String queryTable,
+			Class<?> entityClass, List<UnitOfWorkOperation> operations) throws IOException {
+		List<String> rowKeys = new ArrayList<String>();
+		List<T> entities = new ArrayList<T>();
+		List<List<Mutation>> entityMutations = new ArrayList<List<Mutation>>();
+		for (UnitOfWorkOperation operation : operations) {
+			rowKeys.add(operation.getRow_key());
+			entities.add((T) operation.getEntity());
+			entityMutations.add(operation.getMutations());
+		}
+		return prepareIndexMutations(table, queryTable, (Class<T>) entityClass, rowKeys, entities, entityMutations);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends KVPersistable> void refreshSnapshotIfTracked(UnitOfWorkOperation operation)
+			throws IllegalAccessException {
+		refreshSnapshotIfTracked((T) operation.getEntity(), (Class<T>) operation.getEntityClass());
+	}
+
+	private <T extends KVPersistable> List<FieldMapping<T>> getApplicableFields(Class<T> entityClass) {
+		return EntityMappers.forClass(entityClass).getFieldMappings();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends KVPersistable> Put prepareAndGetPut(T t, Class<T> entityClass, List<String> groupedFamilies,
+			List<String> groupedFields, List<FieldMapping<T>> fields, WriteOptions writeOptions)
+			throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+
+		Put p = null;
+
+		String row_key = t.getRow_key();
+		if (row_key != null) {
+			p = writeOptions.newPut(Bytes.toBytes(row_key.toString()));
+		} else {
+			throw new IllegalArgumentException(
+					ROW_KEY_NOT_DEFINED_FOR_ENTITY_CLASS + entityClass.getCanonicalName() + " Row Key:" + row_key);
+		}
+
+		for (FieldMapping<T> field : fields) {
+
+			String fieldName = field.getName();
+			Object value = field.get(t);
+
+			if (value != null) {
+				String[] familyAndColumn = fieldName.split(UNDERSCORE, 2);
+				String family = familyAndColumn[0];
+				int compressionThreshold = field.getCompressionThreshold();
+
+				if (groupedFamilies.contains(family) && groupedFields.contains(fieldName)) {
+					Map<String, String> columnValuesMap = (Map<String, String>) value;
+					for (String columnName : columnValuesMap.keySet()) {
+						String columnValue = columnValuesMap.get(columnName);
+						p.addColumn(Bytes.toBytes(family), Bytes.toBytes(columnName),
+								ValueCompression.compressIfLarger(Bytes.toBytes(columnValue), compressionThreshold));
+					}
+				} else {
+					String column = familyAndColumn[1];
+					p.addColumn(Bytes.toBytes(family), Bytes.toBytes(column), encodeValue(field, value));
+				}
+			}
+
+		}
+		return p;
+	}
+
+	/*
+	 * Entities loaded while change tracking is enabled are diffed against
+	 * their snapshot: only modified cells are written and fields set back to
+	 * null are deleted. All other entities are written as a full Put.
+	 */
+	private <T extends KVPersistable> List<Mutation> prepareAndGetMutations(T t, Class<T> entityClass,
+			List<String> groupedFamilies, List<String> groupedFields, List<FieldMapping<T>> fields,
+			WriteOptions writeOptions) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+
+		Map<String, Object> snapshot = changeTracker == null ? null : changeTracker.getSnapshot(t);
+
+		if (snapshot == null || !Objects.equals(snapshot.get(ROW_KEY), t.getRow_key())) {
+			List<Mutation> mutations = new ArrayList<Mutation>();
+			mutations.add(prepareAndGetPut(t, entityClass, groupedFamilies, groupedFields, fields, writeOptions));
+			return mutations;
+		}
+
+		return prepareAndGetChangedMutations(t, entityClass, groupedFamilies, groupedFields, fields, snapshot,
+				writeOptions);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends KVPersistable> List<Mutation> prepareAndGetChangedMutations(T t, Class<T> entityClass,
+			List<String> groupedFamilies, List<String> groupedFields, List<FieldMapping<T>> fields, Map<String, Object> snapshot,
+			WriteOptions writeOptions) throws IllegalAccessException {
+
+		byte[] row = Bytes.toBytes(t.getRow_key());
+		Put p = writeOptions.newPut(row);
+		Delete d = writeOptions.newDelete(row);
+
+		for (FieldMapping<T> field : fields) {
+
+			String fieldName = field.getName();
+			Object value = field.get(t);
+			Object previousValue = snapshot.get(fieldName);
+			String[] familyAndColumn = fieldName.split(UNDERSCORE, 2);
+			byte[] family = Bytes.toBytes(familyAndColumn[0]);
+			int compressionThreshold = field.getCompressionThreshold();
+
+			if (groupedFamilies.contains(familyAndColumn[0]) && groupedFields.contains(fieldName)) {
+
+				Map<String, String> columnValuesMap = (Map<String, String>) value;
+				Map<String, String> previousColumnValuesMap = (Map<String, String>) previousValue;
+
+				if (columnValuesMap != null) {
+					for (Entry<String, String> columnValue : columnValuesMap.entrySet()) {
+						String previousColumnValue = previousColumnValuesMap == null ? null
+								: previousColumnValuesMap.get(columnValue.getKey());
+						if (columnValue.getValue() == null) {
+							if (previousColumnValue != null) {
+								d.addColumns(family, Bytes.toBytes(columnValue.getKey()));
+							}
+						} else if (!columnValue.getValue().equals(previousColumnValue)) {
+							p.addColumn(family, Bytes.toBytes(columnValue.getKey()), ValueCompression
+									.compressIfLarger(Bytes.toBytes(columnValue.getValue()), compressionThreshold));
+						}
+					}
+				}
+
+				if (previousColumnValuesMap != null) {
+					for (String previousColumn : previousColumnValuesMap.keySet()) {
+						if (columnValuesMap == null || !columnValuesMap.containsKey(previousColumn)) {
+							d.addColumns(family, Bytes.toBytes(previousColumn));
+						}
+					}
+				}
+
+			} else if (!Objects.equals(value, previousValue)) {
+
+				byte[] column = Bytes.toBytes(familyAndColumn[1]);
+				if (value == null) {
+					d.addColumns(family, column);
+				} else {
+					p.addColumn(family, column, encodeValue(field, value));
+				}
+			}
+		}
+
+		List<Mutation> mutations = new ArrayList<Mutation>();
+		if (!p.isEmpty()) {
+			mutations.add(p);
+		}
+		if (!d.isEmpty()) {
+			mutations.add(d);
+		}
+		return mutations;
+	}
+
+	private <T extends KVPersistable> void refreshSnapshotIfTracked(T t, Class<T> entityClass)
+			throws IllegalAccessException {
+		if (changeTracker != null && changeTracker.getSnapshot(t) != null) {
+			changeTracker.snapshot(t, getApplicableFields(entityClass));
+		}
+	}
+
+	private <T extends KVPersistable> IndexMutations prepareIndexMutations(Table table, String queryTable,
+			Class<T> entityClass, List<T> entities, List<List<Mutation>> entityMutations) throws IOException {
+		List<String> rowKeys = new ArrayList<String>();
+		for (T t : entities) {
+			rowKeys.add(t.getRow_key());
+		}
+		return prepareIndexMutations(table, queryTable, entityClass, rowKeys, entities, entityMutations);
+	}
+
+	/*
+	 * Compares the indexed columns written or deleted by the mutations of each
+	 * row with their stored values, read in one multi-get. Entities are only
+	 * needed for rows written with a Put.
+	 */
+	private <T extends KVPersistable> IndexMutations prepareIndexMutations(Table table, String queryTable,
+			Class<T> entityClass, List<String> rowKeys, List<T> entities, List<List<Mutation>> entityMutations)
+			throws IOException {
+
+		IndexMutations indexMutations = new IndexMutations(queryTable, requestThrottle);
+		List<FieldMapping<T>> indexedFields = SecondaryIndexes.getIndexedFields(entityClass);
+		if (indexedFields.isEmpty()) {
+			return indexMutations;
+		}
+
+		List<Integer> changedEntities = new ArrayList<Integer>();
+		List<Get> gets = new ArrayList<Get>();
+		for (int i = 0; i < entities.size(); i++) {
+			if (touchesIndexedField(entityMutations.get(i), indexedFields)) {
+				Get get = new Get(Bytes.toBytes(rowKeys.get(i)));
+				for (FieldMapping<T> field : indexedFields) {
+					get.addColumn(field.getFamilyBytes(), field.getColumnBytes());
+				}
+				changedEntities.add(i);
+				gets.add(get);
+			}
+		}
+		if (gets.isEmpty()) {
+			return indexMutations;
+		}
+
+		Result[] storedResults = table.get(gets);
+		requestThrottle.acquire(queryTable, ThrottledOperation.READ, gets.size(), getTotalSize(storedResults));
+		for (int j = 0; j < changedEntities.size(); j++) {
+
+			String row_key = rowKeys.get(changedEntities.get(j));
+			T t = entities.get(changedEntities.get(j));
+			List<Mutation> mutations = entityMutations.get(changedEntities.get(j));
+
+			for (FieldMapping<T> field : indexedFields) {
+
+				byte[] storedBytes = storedResults[j].getValue(field.getFamilyBytes(), field.getColumnBytes());
+				String storedValue = storedBytes == null ? null
+						: Bytes.toString(ValueCompression.decompress(storedBytes, field.getCompressionThreshold()));
+				String indexTable = SecondaryIndexes.indexTable(queryTable, field.getName());
+
+				for (Mutation mutation : mutations) {
+					String newValue = null;
+					if (mutation instanceof Put && SecondaryIndexes.hasColumn((Put) mutation, field)) {
+						newValue = field.get(t).toString();
+						if (!newValue.equals(storedValue)) {
+							indexMutations.addEntry(indexTable, newValue, row_key);
+						}
+					}
+					boolean cleared = mutation instanceof Delete
+							&& SecondaryIndexes.hasColumn((Delete) mutation, field);
+					if (storedValue != null && (cleared || (newValue != null && !newValue.equals(storedValue)))) {
+						indexMutations.removeEntry(indexTable, storedValue, row_key);
+					}
+				}
+			}
+		}
+		return indexMutations;
+	}
+
+	private <T extends KVPersistable> boolean touchesIndexedField(List<Mutation> mutations,
+			List<FieldMapping<T>> indexedFields) {
+		for (Mutation mutation : mutations) {
+			for (FieldMapping<T> field : indexedFields) {
+				if ((mutation instanceof Put && SecondaryIndexes.hasColumn((Put) mutation, field))
+						|| (mutation instanceof Delete && SecondaryIndexes.hasColumn((Delete) mutation, field))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private byte[] encodeValue(FieldMapping<?> field, Object value) {
+		if (field.isCounter()) {
+			return Bytes.toBytes(((Number) value).longValue());
+		}
+		return ValueCompression.compressIfLarger(Bytes.toBytes(value.toString()), field.getCompressionThreshold());
+	}
+
+	private Object decodeValue(FieldMapping<?> field, byte[] value) {
+		if (field == null) {
+			return Bytes.toString(value);
+		}
+		if (field.isCounter()) {
+			return Bytes.toLong(value);
+		}
+		return Bytes.toString(ValueCompression.decompress(value, field.getCompressionThreshold()));
+	}
+
+	public <T extends KVPersistable> Long increment(String queryTable, String row_key, Class<T> entityClass,
+			String field, long delta) {
+
+		Map<String, Long> fieldDeltas = new HashMap<String, Long>();
+		fieldDeltas.put(field, delta);
+		Map<String, Long> incrementedValues = increment(queryTable, row_key, entityClass, fieldDeltas);
+		return incrementedValues == null ? null : incrementedValues.get(field);
+	}
+
+	/*
+	 * Only @Counter fields of the entity can be incremented, other fields are
+	 * not stored as 8 byte longs
+	 */
+	public <T extends KVPersistable> Map<String, Long> increment(String queryTable, String row_key,
+			Class<T> entityClass, Map<String, Long> fieldDeltas) {
+
+		Table table = null;
+		Map<String, Long> incrementedValues = null;
+
+		try {
+
+			Increment increment = prepareIncrement(row_key, entityClass, fieldDeltas);
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			requestThrottle.acquire(queryTable, ThrottledOperation.WRITE, 1, increment.heapSize());
+			Result result = table.increment(increment);
+
+			incrementedValues = getIncrementedValues(result, fieldDeltas.keySet());
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_INCREMENTING_DATA + "Row Key:" + row_key + " Table:" + queryTable
+					+ "\n" + ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				if (table != null) {
+					table.close();
+				}
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		return incrementedValues;
+	}
+
+	/*
+	 * All fields are incremented atomically in a single RPC
+	 */
+	<T extends KVPersistable> Increment prepareIncrement(String row_key, Class<T> entityClass,
+			Map<String, Long> fieldDeltas) {
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+		Increment increment = new Increment(Bytes.toBytes(row_key));
+		for (Entry<String, Long> fieldDelta : fieldDeltas.entrySet()) {
+			FieldMapping<T> field = fieldsMap.get(fieldDelta.getKey());
+			if (field == null || !field.isCounter() || field.getColumn() == null) {
+				throw new IllegalArgumentException(
+						FIELD_NOT_A_COUNTER + entityClass.getName() + " Field:" + fieldDelta.getKey());
+			}
+			increment.addColumn(field.getFamilyBytes(), field.getColumnBytes(), fieldDelta.getValue());
+		}
+		return increment;
+	}
+
+	private Map<String, Long> getIncrementedValues(Result result, Set<String> fields) {
+		Map<String, Long> incrementedValues = new HashMap<String, Long>();
+		for (String field : fields) {
+			String[] familyAndColumn = getFamilyAndColumn(field);
+			byte[] value = result.getValue(Bytes.toBytes(familyAndColumn[0]), Bytes.toBytes(familyAndColumn[1]));
+			incrementedValues.put(field, value == null ? null : Bytes.toLong(value));
+		}
+		return incrementedValues;
+	}
+
+	public <T extends KVPersistable> boolean checkAndUpdate(T t, String queryTable, Class<T> entityClass,
+			String expectedField, Object expectedValue) {
+
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		// counters are only changed through increment, a Put would overwrite concurrent increments
+		List<FieldMapping<T>> fields = new ArrayList<FieldMapping<T>>();
+		for (FieldMapping<T> field : getApplicableFields(entityClass)) {
+			if (!field.isCounter()) {
+				fields.add(field);
+			}
+		}
+
+		Table table = null;
+		boolean updateDone = false;
+
+		try {
+
+			String[] familyAndColumn = getFamilyAndColumn(expectedField);
+			FieldMapping<T> field = getFieldsMap(entityClass).get(expectedField);
+			Put p = prepareAndGetPut(t, entityClass, groupedFamilies, groupedFields, fields, WriteOptions.DEFAULT);
+
+			/*
+			 * Expected value is compared against the stored bytes, so it is
+			 * encoded the same way as on the write path. A null expected
+			 * value means the column must not exist yet.
+			 */
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			List<Mutation> mutations = Collections.<Mutation>singletonList(p);
+			IndexMutations indexMutations = prepareIndexMutations(table, queryTable, entityClass,
+					Collections.singletonList(t), Collections.singletonList(mutations));
+			indexMutations.writeEntries(connection, tablePrefix);
+			requestThrottle.acquire(queryTable, ThrottledOperation.WRITE, 1, p.heapSize());
+			Table.CheckAndMutateBuilder checkAndMutate = table
+					.checkAndMutate(p.getRow(), Bytes.toBytes(familyAndColumn[0]))
+					.qualifier(Bytes.toBytes(familyAndColumn[1]));
+			if (expectedValue == null) {
+				updateDone = checkAndMutate.ifNotExists().thenPut(p);
+			} else {
+				byte[] expectedBytes = field != null ? encodeValue(field, expectedValue)
+						: Bytes.toBytes(expectedValue.toString());
+				updateDone = checkAndMutate.ifEquals(expectedBytes).thenPut(p);
+			}
+			if (updateDone) {
+				indexMutations.removeStaleEntries(connection, tablePrefix);
+				refreshSnapshotIfTracked(t, entityClass);
+			} else {
+				indexMutations.removeEntries(connection, tablePrefix);
+			}
+		} catch (NullPointerException e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e) + "\nObject:\n" + t.toString());
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_INSERTING_UPDATING_DATA + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				if (table != null) {
+					table.close();
+				}
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		return updateDone;
+	}
+
+	private String[] getFamilyAndColumn(String field) {
+		String[] familyAndColumn = field.split(UNDERSCORE, 2);
+		if (familyAndColumn.length != 2 || familyAndColumn[0].isEmpty() || familyAndColumn[1].isEmpty()) {
+			throw new IllegalArgumentException(FIELD_NOT_AS_PER_NAMING_CONVENTION + field);
+		}
+		return familyAndColumn;
+	}
+
+	public <T extends KVPersistable> boolean deleteByFilter(String queryTable, Class<T> entityClass, Filter filter) {
+		return deleteByFilter(queryTable, entityClass, filter, WriteOptions.DEFAULT);
+	}
+
+	public <T extends KVPersistable> boolean deleteByFilter(String queryTable, Class<T> entityClass, Filter filter,
+			WriteOptions writeOptions) {
+
+		Table table = null;
+		List<T> entities = query(queryTable, entityClass, filter);
+		boolean isDeleted = true;
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+
+			List<FieldMapping<T>> indexedFields = SecondaryIndexes.getIndexedFields(entityClass);
+
+			for (T t : entities) {
+				String row_key = null;
+				try {
+					row_key = t.getRow_key();
+					Delete delete = writeOptions.newDelete(Bytes.toBytes(row_key));
+					requestThrottle.acquire(queryTable, ThrottledOperation.DELETE, 1, delete.heapSize());
+					table.delete(delete);
+
+					IndexMutations indexMutations = new IndexMutations(queryTable, requestThrottle);
+					for (FieldMapping<T> field : indexedFields) {
+						Object value = field.get(t);
+						if (value != null) {
+							indexMutations.removeEntry(SecondaryIndexes.indexTable(queryTable, field.getName()),
+									value.toString(), row_key);
+						}
+					}
+					indexMutations.removeStaleEntries(connection, tablePrefix);
+				} catch (Exception e) {
+					isDeleted = false;
+					logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
+							+ ExceptionUtils.getFullStackTrace(e));
+				}
+			}
+		} catch (Exception e) {
+			isDeleted = false;
+			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "\n" + ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				table.close();
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		return isDeleted;
+	}
+
+	public boolean deleteById(String row_key, String queryTable) {
+		return deleteById(row_key, queryTable, WriteOptions.DEFAULT);
+	}
+
+	public boolean deleteById(String row_key, String queryTable, WriteOptions writeOptions) {
+
+		Table table = null;
+
+		boolean isDeleted = false;
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			IndexMutations indexMutations = prepareIndexRemovals(table, queryTable, row_key, null);
+			Delete delete = writeOptions.newDelete(Bytes.toBytes(row_key));
+			requestThrottle.acquire(queryTable, ThrottledOperation.DELETE, 1, delete.heapSize());
+			table.delete(delete);
+			indexMutations.removeStaleEntries(connection, tablePrefix);
+			isDeleted = true;
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				table.close();
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		return isDeleted;
+	}
+
+	/*
+	 * Index tables of the table are looked up by name, as no entity class is
+	 * given, and the row's entries removed from them. Only the indexed columns
+	 * deleted by columnDelete are considered, all of them when it is null.
+	 */
+	private IndexMutations prepareIndexRemovals(Table table, String queryTable, String row_key,
+			Delete columnDelete) throws IOException {
+
+		IndexMutations indexMutations = new IndexMutations(queryTable, requestThrottle);
+
+		List<String> indexedFields = new ArrayList<String>();
+		for (String field : getIndexTableFields(queryTable)) {
+			String[] familyColumn = field.split(UNDERSCORE, 2);
+			if (columnDelete == null || SecondaryIndexes.hasColumn(columnDelete, Bytes.toBytes(familyColumn[0]),
+					Bytes.toBytes(familyColumn[1]))) {
+				indexedFields.add(field);
+			}
+		}
+		if (indexedFields.isEmpty()) {
+			return indexMutations;
+		}
+
+		Get get = new Get(Bytes.toBytes(row_key));
+		for (String field : indexedFields) {
+			String[] familyColumn = field.split(UNDERSCORE, 2);
+			get.addColumn(Bytes.toBytes(familyColumn[0]), Bytes.toBytes(familyColumn[1]));
+		}
+		Result storedResult = table.get(get);
+		requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1, Result.getTotalSizeOfCells(storedResult));
+		for (String field : indexedFields) {
+			String[] familyColumn = field.split(UNDERSCORE, 2);
+			byte[] storedBytes = storedResult.getValue(Bytes.toBytes(familyColumn[0]), Bytes.toBytes(familyColumn[1]));
+			if (storedBytes != null) {
+				// whether the field is compressed is not known, so both forms are removed
+				String indexTable = SecondaryIndexes.indexTable(queryTable, field);
+				indexMutations.removeEntry(indexTable, Bytes.toString(storedBytes), row_key);
+				byte[] decompressed = ValueCompression.decompress(storedBytes, 0);
+				if (decompressed != storedBytes) {
+					indexMutations.removeEntry(indexTable, Bytes.toString(decompressed), row_key);
+				}
+			}
+		}
+		return indexMutations;
+	}
+
+	/*
+	 * Also removes the row's entries from the secondary indexes of the entity
+	 */
+	public <T extends KVPersistable> boolean deleteById(String row_key, String queryTable, Class<T> entityClass) {
+		return deleteById(row_key, queryTable, entityClass, WriteOptions.DEFAULT);
+	}
+
+	public <T extends KVPersistable> boolean deleteById(String row_key, String queryTable, Class<T> entityClass,
+			WriteOptions writeOptions) {
+
+		Table table = null;
+
+		boolean isDeleted = false;
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+
+			IndexMutations indexMutations = new IndexMutations(queryTable, requestThrottle);
+			List<FieldMapping<T>> indexedFields = SecondaryIndexes.getIndexedFields(entityClass);
+			if (!indexedFields.isEmpty()) {
+				Get get = new Get(Bytes.toBytes(row_key));
+				for (FieldMapping<T> field : indexedFields) {
+					get.addColumn(field.getFamilyBytes(), field.getColumnBytes());
+				}
+				Result storedResult = table.get(get);
+				requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1,
+						Result.getTotalSizeOfCells(storedResult));
+				for (FieldMapping<T> field : indexedFields) {
+					byte[] storedBytes = storedResult.getValue(field.getFamilyBytes(), field.getColumnBytes());
+					if (storedBytes != null) {
+						indexMutations.removeEntry(SecondaryIndexes.indexTable(queryTable, field.getName()),
+								Bytes.toString(ValueCompression.decompress(storedBytes, field.getCompressionThreshold())),
+								row_key);
+					}
+				}
+			}
+
+			Delete delete = writeOptions.newDelete(Bytes.toBytes(row_key));
+			requestThrottle.acquire(queryTable, ThrottledOperation.DELETE, 1, delete.heapSize());
+			table.delete(delete);
+			indexMutations.removeStaleEntries(connection, tablePrefix);
+			isDeleted = true;
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				table.close();
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		return isDeleted;
+	}
+
+	public boolean deleteColumnsById(String row_key, String queryTable, String columnFamily, String... columns) {
+		return deleteColumnsById(row_key, queryTable, WriteOptions.DEFAULT, columnFamily, columns);
+	}
+
+	/*
+	 * With a timestamp in the options only the cell versions written at that
+	 * timestamp are deleted
+	 */
+	public boolean deleteColumnsById(String row_key, String queryTable, WriteOptions writeOptions,
+			String columnFamily, String... columns) {
+
+		Table table = null;
+
+		boolean isDeleted = false;
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			Delete delete = writeOptions.newDelete(Bytes.toBytes(row_key));
+			for (String column : columns) {
+				delete.addColumn(Bytes.toBytes(columnFamily), Bytes.toBytes(column));
+			}
+			// without columns the whole row is deleted
+			IndexMutations indexMutations = prepareIndexRemovals(table, queryTable, row_key,
+					columns.length == 0 ? null : delete);
+			requestThrottle.acquire(queryTable, ThrottledOperation.DELETE, 1, delete.heapSize());
+			table.delete(delete);
+			indexMutations.removeStaleEntries(connection, tablePrefix);
+			isDeleted = true;
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_DELETING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		} finally {
+			try {
+				table.close();
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + queryTable + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+
+		return isDeleted;
+	}
+
+	public <T extends KVPersistable> List<Map<String, Object>> query(String table, Class<T> entityClass, Filter filter,
+			String... columns) {
+
+		/*
+		 * Checking if any dynamic cf grouping exists in the entity
+		 * 
+		 */
+		List<String> groupedFields = getGroupedColumnFamiliesAndFields(entityClass).getValue1();
+
+		FilterList topLevelFilter = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+		topLevelFilter.addFilter(filter);
+
+		List<Map<String, Object>> queryResults = Collections.<Map<String, Object>>emptyList();
+
+		try {
+
+			FilterList selectedColFilterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+
+			for (String col : columns) {
+
+				if (groupedFields.contains(col)) {
+					String family = col.split(UNDERSCORE, 2)[0];
+					FamilyFilter familyFilter = new FamilyFilter(CompareOp.EQUAL,
+							new BinaryComparator(Bytes.toBytes(family)));
+					selectedColFilterList.addFilter(familyFilter);
+				} else {
+					ColumnPrefixFilter columnPrefixFilter = new ColumnPrefixFilter(Bytes.toBytes(col));
+					selectedColFilterList.addFilter(columnPrefixFilter);
+				}
+			}
+
+			topLevelFilter.addFilter(selectedColFilterList);
+
+			queryResults = queryColumnOrientedResultForAll(table, entityClass, topLevelFilter, columns);
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> List<Map<String, Object>> query(String table, Class<T> entityClass,
+			String... columns) {
+
+		/*
+		 * Checking if any dynamic cf grouping exists in the entity
+		 * 
+		 */
+		List<String> groupedFields = getGroupedColumnFamiliesAndFields(entityClass).getValue1();
+
+		List<Map<String, Object>> queryResults = Collections.<Map<String, Object>>emptyList();
+
+		try {
+
+			FilterList selectedColFilterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+
+			for (String col : columns) {
+
+				if (groupedFields.contains(col)) {
+					String family = col.split(UNDERSCORE, 2)[0];
+					FamilyFilter familyFilter = new FamilyFilter(CompareOp.EQUAL,
+							new BinaryComparator(Bytes.toBytes(family)));
+					selectedColFilterList.addFilter(familyFilter);
+				} else {
+					ColumnPrefixFilter columnPrefixFilter = new ColumnPrefixFilter(Bytes.toBytes(col));
+					selectedColFilterList.addFilter(columnPrefixFilter);
+				}
+			}
+
+			queryResults = queryColumnOrientedResultForAll(table, entityClass, selectedColFilterList, columns);
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> Map<String, Object> query(String row_key, String table, Class<T> entityClass,
+			String... columns) {
+
+		/*
+		 * Checking if any dynamic cf grouping exists in the entity
+		 * 
+		 */
+		List<String> groupedFields = getGroupedColumnFamiliesAndFields(entityClass).getValue1();
+
+		Map<String, Object> queryResults = null;
+
+		try {
+
+			FilterList selectedColFilterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+
+			for (String col : columns) {
+
+				if (groupedFields.contains(col)) {
+					String family = col.split(UNDERSCORE, 2)[0];
+					FamilyFilter familyFilter = new FamilyFilter(CompareOp.EQUAL,
+							new BinaryComparator(Bytes.toBytes(family)));
+					selectedColFilterList.addFilter(familyFilter);
+				} else {
 					ColumnPrefixFilter columnPrefixFilter = new ColumnPrefixFilter(Bytes.toBytes(col));
 					selectedColFilterList.addFilter(columnPrefixFilter);
 				}
 			}
 
-			topLevelFilter.addFilter(selectedColFilterList);
+			queryResults = queryColumnOrientedResultForId(row_key, table, entityClass, selectedColFilterList, columns);
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass) {
+
+		List<T> queryResults = Collections.<T>emptyList();
+
+		try {
+			queryResults = queryForAll(table, entityClass);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> T query(String row_key, String table, Class<T> entityClass) {
+
+		T queryResults = null;
+
+		try {
+			queryResults = queryForId(row_key, table, entityClass);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, Filter filter) {
+
+		List<T> queryResults = Collections.<T>emptyList();
+
+		try {
+			queryResults = queryForAll(table, entityClass, filter);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, Filter filter, String startRow) {
+
+		List<T> queryResults = Collections.<T>emptyList();
+
+		try {
+			queryResults = queryForAll(table, entityClass, filter, startRow);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> T query(String row_key, String table, Class<T> entityClass, Filter filter) {
+
+		T queryResults = null;
+
+		try {
+			queryResults = queryForId(row_key, table, entityClass, filter);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, FilterList filterlist) {
+
+		List<T> queryResults = Collections.<T>emptyList();
+
+		try {
+			queryResults = queryForAll(table, entityClass, filterlist);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, FilterList filterlist,
+			String startRow, String endRow) {
+
+		List<T> queryResults = Collections.<T>emptyList();
+
+		try {
+			queryResults = queryForAll(table, entityClass, filterlist, startRow, endRow);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public <T extends KVPersistable> T query(String row_key, String table, Class<T> entityClass,
+			FilterList filterlist) {
+
+		T queryResults = null;
+
+		try {
+			queryResults = queryForId(row_key, table, entityClass, filterlist);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	public long count(String table, Filter filter) {
+
+		long count = -1;
+
+		try {
+			/*
+			 * Only row keys are needed: with no filter the first cell of a row
+			 * is enough, otherwise the filter still has to see the cells it
+			 * matches against, so only the values are dropped
+			 */
+			Scan scan = new Scan();
+			scan.setCaching(AGGREGATION_SCAN_CACHING);
+			scan.setCacheBlocks(false);
+			if (filter == null) {
+				scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, new FirstKeyOnlyFilter(),
+						new KeyOnlyFilter()));
+			} else {
+				scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filter, new KeyOnlyFilter()));
+			}
+			count = countRows(table, scan);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_AGGREGATING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return count;
+	}
+
+	public <T extends KVPersistable> Double aggregate(String table, Class<T> entityClass, String field, AggFn aggFn,
+			Filter filter) {
+		return aggregate(table, entityClass, field, aggFn, filter, false);
+	}
+
+	public <T extends KVPersistable> Double aggregate(String table, Class<T> entityClass, String field, AggFn aggFn,
+			Filter filter, boolean regionParallel) {
+
+		Double aggregatedValue = null;
+
+		try {
+
+			String[] familyAndColumn = getNumericFamilyAndColumn(entityClass, field);
+			boolean counter = getFieldsMap(entityClass).get(field).isCounter();
+			byte[] family = Bytes.toBytes(familyAndColumn[0]);
+			byte[] qualifier = Bytes.toBytes(familyAndColumn[1]);
+
+			/*
+			 * Project only the aggregated column along with the columns the
+			 * filter needs to evaluate
+			 */
+			Scan scan = new Scan();
+			scan.setCaching(AGGREGATION_SCAN_CACHING);
+			scan.setCacheBlocks(false);
+			scan.addColumn(family, qualifier);
+			if (filter != null) {
+				addFilterColumns(scan, filter);
+				scan.setFilter(filter);
+			}
+
+			Aggregation aggregation = null;
+			if (regionParallel) {
+				aggregation = aggregateInParallel(table, scan, family, qualifier, counter);
+			} else {
+				aggregation = aggregateScan(table, scan, family, qualifier, counter);
+			}
+			aggregatedValue = aggregation.result(aggFn);
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_AGGREGATING_DATA + " Table:" + table + " Field:" + field + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return aggregatedValue;
+	}
+
+	public <T extends KVPersistable> List<T> topK(String table, Class<T> entityClass, Filter filter, String field,
+			int k, SortOrder order) {
+		return topK(table, entityClass, filter, field, k, order, false);
+	}
+
+	/*
+	 * The scan only returns the sort field (and the columns the filter needs)
+	 * and keeps the k first row keys in a bounded heap, one per region when
+	 * region parallel. Only the entities of those k rows are read, with a
+	 * multi-get. Rows without a value for the field are left out.
+	 */
+	public <T extends KVPersistable> List<T> topK(String table, Class<T> entityClass, Filter filter, String field,
+			int k, SortOrder order, boolean regionParallel) {
+
+		List<T> queryResults = Collections.<T>emptyList();
+
+		try {
+
+			FieldMapping<T> sortField = getSortField(entityClass, field);
+
+			Scan scan = new Scan();
+			scan.setCaching(AGGREGATION_SCAN_CACHING);
+			scan.setCacheBlocks(false);
+			scan.addColumn(sortField.getFamilyBytes(), sortField.getColumnBytes());
+			if (filter != null) {
+				addFilterColumns(scan, filter);
+				scan.setFilter(filter);
+			}
+
+			TopKCollector collector = null;
+			if (regionParallel) {
+				collector = collectTopKInParallel(table, scan, sortField, k, order);
+			} else {
+				collector = collectTopK(table, scan, sortField, k, order);
+			}
+			queryResults = queryForIds(table, entityClass, collector.getRowKeys());
+
+		} catch (Exception e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Field:" + field + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	/*
+	 * Reads a random fraction of the rows (RandomRowFilter, applied on the
+	 * region servers) and estimates the number of rows matching the filter
+	 */
+	public <T extends KVPersistable> SampleResult<T> sample(String table, Class<T> entityClass, Filter filter,
+			float fraction) {
+
+		SampleResult<T> sampleResult = null;
+
+		try {
+			Scan scan = new Scan();
+			scan.setCaching(20);
+			scan.setCacheBlocks(false);
+			scan.setFilter(getSamplingFilter(fraction, filter));
+
+			List<T> entities = queryForAll(table, entityClass, scan);
+			sampleResult = new SampleResult<T>(entities, fraction, Estimate.ofSampledCount(entities.size(), fraction));
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return sampleResult;
+	}
+
+	/*
+	 * Reads all rows of randomly chosen regions, in parallel, and scales the
+	 * number of matching rows by the fraction of regions read. Cheaper than
+	 * row sampling, which still has every region server read its rows, but
+	 * less accurate when rows are unevenly spread across regions.
+	 */
+	public <T extends KVPersistable> SampleResult<T> sampleRegions(String table, Class<T> entityClass,
+			Filter filter, int regions) {
+
+		SampleResult<T> sampleResult = null;
+
+		try {
+			Scan scan = new Scan();
+			scan.setCaching(20);
+			scan.setCacheBlocks(false);
+			if (filter != null) {
+				scan.setFilter(filter);
+			}
+
+			List<Scan> regionScans = new ArrayList<Scan>(
+					RegionScans.splitByRegion(connection, TableName.valueOf(tablePrefix + table), scan));
+			int totalRegions = regionScans.size();
+			Collections.shuffle(regionScans);
+			List<Scan> sampledScans = regionScans.subList(0, Math.min(regions, totalRegions));
+
+			String priorityClass = requestThrottle.getPriorityClass();
+			List<Future<List<T>>> regionResults = new ArrayList<Future<List<T>>>();
+			for (final Scan regionScan : sampledScans) {
+				regionResults.add(getParallelExecutor().submit(() -> {
+					requestThrottle.setPriorityClass(priorityClass);
+					return queryForAll(table, entityClass, regionScan);
+				}));
+			}
+
+			List<T> entities = new ArrayList<T>();
+			long[] regionCounts = new long[regionResults.size()];
+			for (int i = 0; i < regionResults.size(); i++) {
+				List<T> regionEntities = regionResults.get(i).get();
+				regionCounts[i] = regionEntities.size();
+				entities.addAll(regionEntities);
+			}
+
+			sampleResult = new SampleResult<T>(entities,
+					totalRegions == 0 ? 1 : (double) sampledScans.size() / totalRegions,
+					Estimate.ofSampledRegions(regionCounts, totalRegions));
+		} catch (Exception e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return sampleResult;
+	}
+
+	/*
+	 * Aggregates the numeric field over a random fraction of the rows; COUNT
+	 * and SUM are scaled up to the whole table
+	 */
+	public <T extends KVPersistable> Estimate estimateAggregate(String table, Class<T> entityClass, String field,
+			AggFn aggFn, Filter filter, float fraction) {
+
+		Estimate estimate = null;
+
+		try {
+
+			String[] familyAndColumn = getNumericFamilyAndColumn(entityClass, field);
+			boolean counter = getFieldsMap(entityClass).get(field).isCounter();
+			byte[] family = Bytes.toBytes(familyAndColumn[0]);
+			byte[] qualifier = Bytes.toBytes(familyAndColumn[1]);
+
+			Scan scan = new Scan();
+			scan.setCaching(AGGREGATION_SCAN_CACHING);
+			scan.setCacheBlocks(false);
+			scan.addColumn(family, qualifier);
+			if (filter != null) {
+				addFilterColumns(scan, filter);
+			}
+			scan.setFilter(getSamplingFilter(fraction, filter));
+
+			Aggregation aggregation = aggregateScan(table, scan, family, qualifier, counter);
+
+			switch (aggFn) {
+			case COUNT:
+				estimate = Estimate.ofSampledCount(aggregation.getCount(), fraction);
+				break;
+			case SUM:
+				estimate = Estimate.ofSampledSum(aggregation, fraction);
+				break;
+			case AVG:
+				estimate = Estimate.ofSampledMean(aggregation);
+				break;
+			default:
+				estimate = Estimate.ofSampledExtreme(aggregation, aggFn);
+			}
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_AGGREGATING_DATA + " Table:" + table + " Field:" + field + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return estimate;
+	}
+
+	/*
+	 * Rows are sampled before the filter so that the filter is only
+	 * evaluated on sampled rows
+	 */
+	private Filter getSamplingFilter(float fraction, Filter filter) {
+		if (!(fraction > 0 && fraction <= 1)) {
+			throw new IllegalArgumentException(INVALID_SAMPLING_FRACTION + fraction);
+		}
+		RandomRowFilter randomRowFilter = new RandomRowFilter(fraction);
+		return filter == null ? randomRowFilter
+				: new FilterList(FilterList.Operator.MUST_PASS_ALL, randomRowFilter, filter);
+	}
+
+	public <T extends KVPersistable> long scan(String table, Class<T> entityClass, Filter filter,
+			RowVisitor<T> visitor) {
+		return scan(table, entityClass, filter, visitor, false);
+	}
+
+	/*
+	 * Hands every matching row to the visitor in a single entity instance
+	 * that is reset and refilled per row (one instance per region when region
+	 * parallel, the visitor has to be thread safe then). Returns the number of
+	 * rows visited or -1 on failure.
+	 */
+	public <T extends KVPersistable> long scan(String table, Class<T> entityClass, Filter filter,
+			RowVisitor<T> visitor, boolean regionParallel) {
+
+		long visitedRows = -1;
+
+		try {
+
+			Scan scan = new Scan();
+			scan.setCaching(20);
+			if (filter != null) {
+				scan.setFilter(filter);
+			}
+
+			if (regionParallel) {
+				visitedRows = visitInParallel(table, entityClass, scan, visitor);
+			} else {
+				visitedRows = visitScan(table, entityClass, scan, visitor, new AtomicBoolean());
+			}
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return visitedRows;
+	}
+
+	private long countRows(String queryTable, Scan scan) throws IOException {
+
+		long count = 0;
+		Table table = null;
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			try (ResultScanner scanner = table.getScanner(scan)) {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					count++;
+				}
+			}
+		} finally {
+			if (table != null) {
+				table.close();
+			}
+		}
+		return count;
+	}
+
+	private Aggregation aggregateScan(String queryTable, Scan scan, byte[] family, byte[] qualifier,
+			boolean counter) throws IOException {
+
+		Aggregation aggregation = new Aggregation();
+		Table table = null;
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			try (ResultScanner scanner = table.getScanner(scan)) {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					byte[] value = result.getValue(family, qualifier);
+					if (value != null) {
+						aggregation.add(counter ? Bytes.toLong(value)
+								: ReusableEntityDecoder.parseDouble(value, 0, value.length));
+					}
+				}
+			}
+		} finally {
+			if (table != null) {
+				table.close();
+			}
+		}
+		return aggregation;
+	}
+
+	private Aggregation aggregateInParallel(final String queryTable, Scan scan, final byte[] family,
+			final byte[] qualifier, final boolean counter) throws IOException, InterruptedException, ExecutionException {
+
+		List<Scan> regionScans = RegionScans.splitByRegion(connection, TableName.valueOf(tablePrefix + queryTable),
+				scan);
+
+		String priorityClass = requestThrottle.getPriorityClass();
+
+		List<Future<Aggregation>> partials = new ArrayList<Future<Aggregation>>();
+		for (final Scan regionScan : regionScans) {
+			partials.add(getParallelExecutor().submit(() -> {
+				requestThrottle.setPriorityClass(priorityClass);
+				return aggregateScan(queryTable, regionScan, family, qualifier, counter);
+			}));
+		}
+
+		Aggregation aggregation = new Aggregation();
+		for (Future<Aggregation> partial : partials) {
+			aggregation.merge(partial.get());
+		}
+		return aggregation;
+	}
+
+	private <T extends KVPersistable> long visitScan(String queryTable, Class<T> entityClass, Scan scan,
+			RowVisitor<T> visitor, AtomicBoolean stopped) throws IOException {
+
+		EntityMapper<T> entityMapper = EntityMappers.forClass(entityClass);
+		ReusableEntityDecoder<T> decoder = new ReusableEntityDecoder<T>(entityMapper);
+		T entity = entityMapper.newInstance();
+
+		long visitedRows = 0;
+		Table table = null;
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			ScanProfiler profiler = newScanProfiler(queryTable, scan);
+			ResultScanner scanner = table.getScanner(scan);
+			try {
+				for (Result result = scanner.next(); result != null && !stopped.get(); result = scanner.next()) {
+					profiler.rowFetched();
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					try {
+						decoder.decode(result, entity);
+					} catch (Exception e) {
+						logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+								+ ExceptionUtils.getFullStackTrace(e));
+						continue;
+					}
+					profiler.rowDecoded();
+					visitedRows++;
+					if (!visitor.visit(entity)) {
+						stopped.set(true);
+					}
+				}
+			} finally {
+				scanner.close();
+				lastQueryProfile.set(profiler.finish(scanner.getScanMetrics(), visitedRows));
+			}
+		} finally {
+			if (table != null) {
+				table.close();
+			}
+		}
+		return visitedRows;
+	}
+
+	private <T extends KVPersistable> long visitInParallel(final String queryTable, final Class<T> entityClass,
+			Scan scan, final RowVisitor<T> visitor) throws IOException, InterruptedException, ExecutionException {
+
+		List<Scan> regionScans = RegionScans.splitByRegion(connection, TableName.valueOf(tablePrefix + queryTable),
+				scan);
+
+		// a visitor returning false stops the scans of all regions
+		final AtomicBoolean stopped = new AtomicBoolean();
+		String priorityClass = requestThrottle.getPriorityClass();
+
+		List<Future<Long>> partials = new ArrayList<Future<Long>>();
+		for (final Scan regionScan : regionScans) {
+			partials.add(getParallelExecutor().submit(() -> {
+				requestThrottle.setPriorityClass(priorityClass);
+				return visitScan(queryTable, entityClass, regionScan, visitor, stopped);
+			}));
+		}
+
+		long visitedRows = 0;
+		for (Future<Long> partial : partials) {
+			visitedRows += partial.get();
+		}
+		return visitedRows;
+	}
+
+	private <T extends KVPersistable> TopKCollector collectTopK(String queryTable, Scan scan,
+			FieldMapping<T> sortField, int k, SortOrder order) throws IOException {
+
+		TopKCollector collector = new TopKCollector(k, order);
+		Table table = null;
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			try (ResultScanner scanner = table.getScanner(scan)) {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					byte[] value = result.getValue(sortField.getFamilyBytes(), sortField.getColumnBytes());
+					if (value != null) {
+						collector.add(getSortKey(sortField, value), Bytes.toString(result.getRow()));
+					}
+				}
+			}
+		} finally {
+			if (table != null) {
+				table.close();
+			}
+		}
+		return collector;
+	}
+
+	private <T extends KVPersistable> TopKCollector collectTopKInParallel(final String queryTable, Scan scan,
+			final FieldMapping<T> sortField, final int k, final SortOrder order)
+			throws IOException, InterruptedException, ExecutionException {
+
+		List<Scan> regionScans = RegionScans.splitByRegion(connection, TableName.valueOf(tablePrefix + queryTable),
+				scan);
+		String priorityClass = requestThrottle.getPriorityClass();
+
+		List<Future<TopKCollector>> partials = new ArrayList<Future<TopKCollector>>();
+		for (final Scan regionScan : regionScans) {
+			partials.add(getParallelExecutor().submit(() -> {
+				requestThrottle.setPriorityClass(priorityClass);
+				return collectTopK(queryTable, regionScan, sortField, k, order);
+			}));
+		}
+
+		TopKCollector collector = new TopKCollector(k, order);
+		for (Future<TopKCollector> partial : partials) {
+			collector.merge(partial.get());
+		}
+		return collector;
+	}
+
+	private <T extends KVPersistable> FieldMapping<T> getSortField(Class<T> entityClass, String field) {
+
+		FieldMapping<T> sortField = getFieldsMap(entityClass).get(field);
+		if (sortField != null && sortField.getColumn() != null) {
+			switch (sortField.getTypeName()) {
+			case "String":
+			case "short":
+			case "Short":
+			case "int":
+			case "Integer":
+			case "long":
+			case "Long":
+			case "float":
+			case "Float":
+			case "double":
+			case "Double":
+				return sortField;
+			default:
+				break;
+			}
+		}
+		throw new IllegalArgumentException(UNSUPPORTED_SORT_FIELD + entityClass.getName() + " Field:" + field);
+	}
+
+	/*
+	 * Numbers are stored as strings, so they are compared by value rather
+	 * than by their bytes
+	 */
+	/*
+	 * Integral values are compared as longs, as doubles can not tell apart
+	 * longs above 2^53
+	 */
+	static Comparable<?> getSortKey(FieldMapping<?> sortField, byte[] value) {
+		if (sortField.isCounter()) {
+			return Bytes.toLong(value);
+		}
+		String stringValue = Bytes.toString(ValueCompression.decompress(value, sortField.getCompressionThreshold()));
+		switch (sortField.getTypeName()) {
+		case "String":
+			return stringValue;
+		case "short":
+		case "Short":
+		case "int":
+		case "Integer":
+		case "long":
+		case "Long":
+			return Long.valueOf(stringValue);
+		default:
+			return Double.valueOf(stringValue);
+		}
+	}
+
+	private <T extends KVPersistable> String[] getNumericFamilyAndColumn(Class<T> entityClass, String field) {
+
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+		FieldMapping<T> entityField = fieldsMap.get(field);
+
+		if (entityField == null || !field.contains(UNDERSCORE)) {
+			throw new IllegalArgumentException(UNSUPPORTED_AGGREGATION_FIELD + entityClass.getName() + " Field:" + field);
+		}
+
+		switch (entityField.getTypeName()) {
+		case "short":
+		case "Short":
+		case "int":
+		case "Integer":
+		case "long":
+		case "Long":
+		case "float":
+		case "Float":
+		case "double":
+		case "Double":
+			return field.split(UNDERSCORE, 2);
+		default:
+			throw new IllegalArgumentException(UNSUPPORTED_AGGREGATION_FIELD + entityClass.getName() + " Field:" + field);
+		}
+	}
+
+	/*
+	 * Column value filters are evaluated against the cells returned by the
+	 * scan, so the columns they refer to have to be part of the projection
+	 */
+	private void addFilterColumns(Scan scan, Filter filter) {
+
+		if (filter instanceof FilterList) {
+			for (Filter nestedFilter : ((FilterList) filter).getFilters()) {
+				addFilterColumns(scan, nestedFilter);
+			}
+		} else if (filter instanceof SingleColumnValueFilter) {
+			SingleColumnValueFilter columnValueFilter = (SingleColumnValueFilter) filter;
+			scan.addColumn(columnValueFilter.getFamily(), columnValueFilter.getQualifier());
+		}
+	}
+
+	private synchronized ExecutorService getParallelExecutor() {
+
+		if (parallelExecutor == null) {
+			int parallelism = Integer.parseInt(environmentProperties.getProperty(PARALLELISM_PROPERTY,
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			parallelExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+				Thread thread = new Thread(runnable, "mitti-hbase-parallel");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return parallelExecutor;
+	}
+
+	/*
+	 * Pipelined scans wait on their decode chunks and may themselves run on
+	 * the parallel pool (region sampled scans), so chunks are decoded on a
+	 * pool of their own. Decode tasks never wait on other tasks.
+	 */
+	private synchronized ExecutorService getDecodeExecutor() {
+
+		if (decodeExecutor == null) {
+			int parallelism = Integer.parseInt(environmentProperties.getProperty(PARALLELISM_PROPERTY,
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			decodeExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+				Thread thread = new Thread(runnable, "mitti-hbase-decode");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return decodeExecutor;
+	}
+
+	/*
+	 * Hedged reads block on RPCs, so they get their own pool instead of
+	 * competing with region parallel scans
+	 */
+	private synchronized ExecutorService getHedgeExecutor() {
+
+		if (hedgeExecutor == null) {
+			hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "mitti-hbase-hedge");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return hedgeExecutor;
+	}
+
+	/*
+	 * Subscriptions drain their scanner here, blocking on scanner RPCs and
+	 * running the subscriber's onNext, so the pool grows with the active
+	 * subscriptions and a slow subscriber does not hold up the others
+	 */
+	private synchronized ExecutorService getPublisherExecutor() {
+
+		if (publisherExecutor == null) {
+			publisherExecutor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "mitti-hbase-publisher");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return publisherExecutor;
+	}
+
+	/*
+	 * Shuts down the thread pools of region parallel scans, decoding, hedged
+	 * reads and publishers. Running tasks complete, publishers returned
+	 * before stop serving their subscribers. Using the driver afterwards
+	 * creates the pools anew. The connection is not closed, it belongs to the
+	 * caller.
+	 */
+	public synchronized void close() {
+		for (ExecutorService executor : Arrays.asList(parallelExecutor, decodeExecutor, hedgeExecutor,
+				publisherExecutor)) {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+		parallelExecutor = null;
+		decodeExecutor = null;
+		hedgeExecutor = null;
+		publisherExecutor = null;
+	}
+
+	/*
+	 * Profile of the last scan query issued by the calling thread, null if
+	 * none was issued yet
+	 */
+	public QueryProfile getLastQueryProfile() {
+		return lastQueryProfile.get();
+	}
+
+	private ScanProfiler newScanProfiler(String queryTable, Scan scan) {
+		long slowQueryThresholdMillis = Long
+				.parseLong(environmentProperties.getProperty(SLOW_QUERY_THRESHOLD_PROPERTY, "-1"));
+		return new ScanProfiler(queryTable, scan, slowQueryThresholdMillis);
+	}
+
+	/*
+	 * Tags the calling thread's requests with a priority class whose
+	 * hbase.driver.throttle.<priorityClass>.* rates apply, null for the
+	 * "default" class
+	 */
+	public void setPriorityClass(String priorityClass) {
+		requestThrottle.setPriorityClass(priorityClass);
+	}
+
+	public ThrottleMetrics getThrottleMetrics() {
+		return requestThrottle.getThrottleMetrics();
+	}
+
+	/*
+	 * Fetch and decode throughput of scans run with
+	 * hbase.driver.scan.pipelined=true
+	 */
+	public ScanPipelineMetrics getScanPipelineMetrics() {
+		return scanPipelineMetrics;
+	}
+
+	public ReplicaReadMetrics getReplicaReadMetrics() {
+		return replicaReadMetrics;
+	}
+
+	/*
+	 * Reads the row from its primary replica and, if the primary has not
+	 * answered within the hedge delay, also from a secondary replica. The
+	 * first answer wins.
+	 */
+	public <T extends KVPersistable> TimelineResult<T> queryTimeline(String row_key, String table,
+			Class<T> entityClass) {
+
+		TimelineResult<T> queryResult = null;
+
+		try {
+			queryResult = queryTimelineForId(row_key, table, entityClass);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResult;
+	}
+
+	/*
+	 * Scans with timeline consistency; switching a scanner over to replicas is
+	 * left to the HBase client (hbase.client.primaryCallTimeout.scan)
+	 */
+	public <T extends KVPersistable> List<TimelineResult<T>> queryTimeline(String table, Class<T> entityClass,
+			Filter filter) {
+
+		List<TimelineResult<T>> queryResults = Collections.<TimelineResult<T>>emptyList();
+
+		try {
+			Scan scan = new Scan();
+			scan.setCaching(20);
+			scan.setConsistency(Consistency.TIMELINE);
+			if (filter != null) {
+				scan.setFilter(filter);
+			}
+			queryResults = queryTimelineForAll(table, entityClass, scan);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return queryResults;
+	}
+
+	private <T extends KVPersistable> TimelineResult<T> queryTimelineForId(String row_key, String queryTable,
+			Class<T> entityClass) throws Exception {
+
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+
+		long hedgeDelayMillis = Long.parseLong(environmentProperties.getProperty(HEDGE_DELAY_PROPERTY, "10"));
+		int hedgeReplicaId = Integer.parseInt(environmentProperties.getProperty(HEDGE_REPLICA_PROPERTY, "1"));
+
+		replicaReadMetrics.recordRead();
+
+		ExecutorCompletionService<Result> completionService = new ExecutorCompletionService<Result>(
+				getHedgeExecutor());
+		List<Future<Result>> reads = new ArrayList<Future<Result>>();
+		requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1, 0);
+		reads.add(completionService.submit(() -> getReplicaResult(queryTable, row_key, PRIMARY_REPLICA_ID)));
+		int pendingReads = 1;
+		boolean hedged = false;
+
+		/*
+		 * Take the first successful answer; the replica is asked when the
+		 * primary is slower than the hedge delay or failed before it, and a
+		 * failed read only fails the query if the other read fails too
+		 */
+		Result result = null;
+		ExecutionException failure = null;
+		try {
+			Future<Result> completedRead = completionService.poll(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+			if (completedRead != null) {
+				pendingReads--;
+				try {
+					result = completedRead.get();
+				} catch (ExecutionException e) {
+					failure = e;
+				}
+			}
+
+			if (result == null) {
+				// the hedge is one more read on the region servers
+				requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1, 0);
+				reads.add(completionService.submit(() -> getReplicaResult(queryTable, row_key, hedgeReplicaId)));
+				pendingReads++;
+				hedged = true;
+				replicaReadMetrics.recordHedge();
+			}
+
+			while (result == null && pendingReads > 0) {
+				completedRead = completionService.take();
+				pendingReads--;
+				try {
+					result = completedRead.get();
+				} catch (ExecutionException e) {
+					failure = e;
+				}
+			}
+		} finally {
+			// the losing read is of no use any more
+			for (Future<Result> read : reads) {
+				read.cancel(true);
+			}
+		}
+
+		if (result == null) {
+			throw failure;
+		}
+		requestThrottle.acquire(queryTable, ThrottledOperation.READ, 0, Result.getTotalSizeOfCells(result));
+
+		if (hedged && result.isStale()) {
+			replicaReadMetrics.recordHedgeWin();
+		}
+		if (result.isStale()) {
+			replicaReadMetrics.recordStaleResult();
+		}
+
+		if (result.getMap() == null) {
+			logger.info(String.format(NO_MATCHING_RECORD_FOUND_BY_ID_IN_TABLE, row_key, queryTable));
+			return null;
+		}
+
+		List<T> queryResults = new ArrayList<T>();
+		prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults, null, result);
+		snapshotIfTracking(queryResults.get(0), entityClass);
+		return new TimelineResult<T>(queryResults.get(0), result.isStale(), hedged);
+	}
+
+	private Result getReplicaResult(String queryTable, String row_key, int replicaId) throws IOException {
+
+		Get getForId = new Get(Bytes.toBytes(row_key));
+		getForId.setConsistency(Consistency.TIMELINE);
+		getForId.setReplicaId(replicaId);
+
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + queryTable))) {
+			return table.get(getForId);
+		}
+	}
+
+	private <T extends KVPersistable> List<TimelineResult<T>> queryTimelineForAll(String queryTable,
+			Class<T> entityClass, Scan scan) throws IOException {
+
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+
+		List<TimelineResult<T>> queryResults = new ArrayList<TimelineResult<T>>();
+		List<T> rowResults = new ArrayList<T>(1);
+		Table table = null;
+
+		try {
+
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			try (ResultScanner scanner = table.getScanner(scan)) {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					replicaReadMetrics.recordRead();
+					if (result.isStale()) {
+						replicaReadMetrics.recordStaleResult();
+					}
+					try {
+						rowResults.clear();
+						prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, rowResults, table,
+								result);
+						queryResults.add(new TimelineResult<T>(rowResults.get(0), result.isStale(), false));
+					} catch (Exception e) {
+						logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+								+ ExceptionUtils.getFullStackTrace(e));
+					}
+				}
+			}
+		} finally {
+			if (table != null) {
+				table.close();
+			}
+		}
+		return queryResults;
+	}
+
+	/*
+	 * Reads up to limit columns of a row's dynamic column family field,
+	 * starting at fromColumn (null for the first page). The page is cut by a
+	 * ColumnPaginationFilter on the region server. Fixed field columns of the
+	 * same family are excluded ahead of it, so they neither count towards
+	 * the page nor end up as the next page's start column.
+	 */
+	public <T extends KVPersistable> DynamicColumnPage queryDynamicColumnPage(String row_key, String table,
+			Class<T> entityClass, String field, String fromColumn, int limit) {
+
+		DynamicColumnPage page = null;
+
+		try {
+
+			byte[] family = getDynamicFamily(entityClass, field);
+			Set<String> fixedColumns = getFixedColumns(entityClass, family);
+			Get get = new Get(Bytes.toBytes(row_key));
+			get.addFamily(family);
+
+			FilterList pageFilter = new FilterList(FilterList.Operator.MUST_PASS_ALL);
+			for (String fixedColumn : fixedColumns) {
+				pageFilter.addFilter(
+						new QualifierFilter(CompareOp.NOT_EQUAL, new BinaryComparator(Bytes.toBytes(fixedColumn))));
+			}
+			// one column more than the page tells where the next page starts
+			pageFilter.addFilter(fromColumn == null ? new ColumnPaginationFilter(limit + 1, 0)
+					: new ColumnPaginationFilter(limit + 1, Bytes.toBytes(fromColumn)));
+			get.setFilter(pageFilter);
+
+			Map<String, String> columns = queryDynamicColumnsForId(table, get, family, fixedColumns,
+					getDynamicCompressionThreshold(entityClass, field));
+			String nextColumn = null;
+			if (columns.size() > limit) {
+				Iterator<String> columnNames = columns.keySet().iterator();
+				for (int i = 0; i < limit; i++) {
+					columnNames.next();
+				}
+				nextColumn = columnNames.next();
+				columnNames.remove();
+			}
+			page = new DynamicColumnPage(columns, nextColumn);
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Row Key:" + row_key + " Field:"
+					+ field + "\n" + ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return page;
+	}
+
+	/*
+	 * Only the given columns of the dynamic column family are fetched
+	 */
+	public <T extends KVPersistable> Map<String, String> queryDynamicColumns(String row_key, String table,
+			Class<T> entityClass, String field, String... columns) {
+
+		Map<String, String> columnValues = null;
+
+		try {
+			byte[] family = getDynamicFamily(entityClass, field);
+			Get get = new Get(Bytes.toBytes(row_key));
+			for (String column : columns) {
+				get.addColumn(family, Bytes.toBytes(column));
+			}
+			columnValues = queryDynamicColumnsForId(table, get, family, getFixedColumns(entityClass, family),
+					getDynamicCompressionThreshold(entityClass, field));
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Row Key:" + row_key + " Field:"
+					+ field + "\n" + ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return columnValues;
+	}
+
+	/*
+	 * Only the columns of the dynamic column family starting with the prefix
+	 * are fetched
+	 */
+	public <T extends KVPersistable> Map<String, String> queryDynamicColumnsByPrefix(String row_key, String table,
+			Class<T> entityClass, String field, String prefix) {
+
+		Map<String, String> columnValues = null;
+
+		try {
+			byte[] family = getDynamicFamily(entityClass, field);
+			Get get = new Get(Bytes.toBytes(row_key));
+			get.addFamily(family);
+			get.setFilter(new ColumnPrefixFilter(Bytes.toBytes(prefix)));
+			columnValues = queryDynamicColumnsForId(table, get, family, getFixedColumns(entityClass, family),
+					getDynamicCompressionThreshold(entityClass, field));
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Row Key:" + row_key + " Field:"
+					+ field + "\n" + ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return columnValues;
+	}
+
+	/*
+	 * Only the columns of the dynamic column family with fromColumn <= column
+	 * < toColumn are fetched, null bounds are open
+	 */
+	public <T extends KVPersistable> Map<String, String> queryDynamicColumnRange(String row_key, String table,
+			Class<T> entityClass, String field, String fromColumn, String toColumn) {
+
+		Map<String, String> columnValues = null;
+
+		try {
+			byte[] family = getDynamicFamily(entityClass, field);
+			Get get = new Get(Bytes.toBytes(row_key));
+			get.addFamily(family);
+			get.setFilter(new ColumnRangeFilter(fromColumn == null ? null : Bytes.toBytes(fromColumn), true,
+					toColumn == null ? null : Bytes.toBytes(toColumn), false));
+			columnValues = queryDynamicColumnsForId(table, get, family, getFixedColumns(entityClass, family),
+					getDynamicCompressionThreshold(entityClass, field));
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Row Key:" + row_key + " Field:"
+					+ field + "\n" + ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return columnValues;
+	}
+
+	/*
+	 * Streams the columns of a row's dynamic column family field in batches
+	 * of hbase.driver.dynamic.column.batch cells (default 1000). The iterator
+	 * has to be closed if it is not read to the end.
+	 */
+	public <T extends KVPersistable> DynamicColumnIterator iterateDynamicColumns(String row_key, String table,
+			Class<T> entityClass, String field) {
+
+		DynamicColumnIterator columnIterator = null;
+		Table hTable = null;
+
+		try {
+
+			byte[] family = getDynamicFamily(entityClass, field);
+			int batch = Integer.parseInt(environmentProperties.getProperty(DYNAMIC_COLUMN_BATCH_PROPERTY, "1000"));
+
+			Scan scan = new Scan();
+			scan.withStartRow(Bytes.toBytes(row_key)).withStopRow(Bytes.toBytes(row_key), true);
+			scan.addFamily(family);
+			scan.setBatch(batch);
+			scan.setAllowPartialResults(true);
+			scan.setCaching(1);
+
+			hTable = connection.getTable(TableName.valueOf(tablePrefix + table));
+			ResultScanner scanner = hTable.getScanner(scan);
+			columnIterator = new DynamicColumnIterator(hTable, scanner, getFixedColumns(entityClass, family),
+					getDynamicCompressionThreshold(entityClass, field),
+					result -> requestThrottle.acquire(table, ThrottledOperation.SCAN, 0,
+							Result.getTotalSizeOfCells(result)));
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Row Key:" + row_key + " Field:"
+					+ field + "\n" + ExceptionUtils.getFullStackTrace(e));
+			try {
+				if (hTable != null) {
+					hTable.close();
+				}
+			} catch (IOException x) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + table + "\n"
+						+ ExceptionUtils.getFullStackTrace(x));
+			}
+		}
+
+		return columnIterator;
+	}
+
+	private Map<String, String> queryDynamicColumnsForId(String queryTable, Get get, byte[] family,
+			Set<String> fixedColumns, int compressionThreshold) throws IOException {
+
+		Map<String, String> columnValues = new LinkedHashMap<String, String>();
+
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + queryTable))) {
+			Result result = table.get(get);
+			requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1, Result.getTotalSizeOfCells(result));
+			NavigableMap<byte[], byte[]> familyMap = result.getFamilyMap(family);
+			if (familyMap != null) {
+				for (Entry<byte[], byte[]> column : familyMap.entrySet()) {
+					String columnName = Bytes.toString(column.getKey());
+					if (!fixedColumns.contains(columnName)) {
+						columnValues.put(columnName,
+								Bytes.toString(ValueCompression.decompress(column.getValue(), compressionThreshold)));
+					}
+				}
+			}
+		}
+		return columnValues;
+	}
+
+	private <T extends KVPersistable> byte[] getDynamicFamily(Class<T> entityClass, String field) {
+		for (String dynamicField : EntityMappers.forClass(entityClass).getDynamicColumnFamilyFields()) {
+			if (dynamicField.equalsIgnoreCase(field)) {
+				return Bytes.toBytes(dynamicField.split(UNDERSCORE, 2)[0]);
+			}
+		}
+		throw new IllegalArgumentException(NOT_A_DYNAMIC_COLUMN_FAMILY_FIELD + entityClass.getName() + " Field:" + field);
+	}
+
+	/*
+	 * Compression threshold of a dynamic column family field, -1 when its
+	 * values are not compressed
+	 */
+	private <T extends KVPersistable> int getDynamicCompressionThreshold(Class<T> entityClass, String field) {
+		for (FieldMapping<T> fieldMapping : EntityMappers.forClass(entityClass).getFieldMappings()) {
+			if (fieldMapping.getName().equalsIgnoreCase(field)) {
+				return fieldMapping.getCompressionThreshold();
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Columns of fixed fields which share the family of a dynamic field
+	 */
+	private <T extends KVPersistable> Set<String> getFixedColumns(Class<T> entityClass, byte[] family) {
+		Set<String> dynamicFields = new HashSet<String>();
+		for (String dynamicField : EntityMappers.forClass(entityClass).getDynamicColumnFamilyFields()) {
+			dynamicFields.add(dynamicField.toLowerCase());
+		}
+		Set<String> fixedColumns = new HashSet<String>();
+		for (FieldMapping<T> fieldMapping : getApplicableFields(entityClass)) {
+			if (fieldMapping.getColumn() != null && Bytes.equals(fieldMapping.getFamilyBytes(), family)
+					&& !dynamicFields.contains(fieldMapping.getName().toLowerCase())) {
+				fixedColumns.add(fieldMapping.getColumn());
+			}
+		}
+		return fixedColumns;
+	}
+
+	/*
+	 * Publishes rows matching the filter as they are requested by subscribers
+	 */
+	public <T extends KVPersistable> Publisher<T> publish(String table, Class<T> entityClass, Filter filter) {
+		Scan scan = new Scan();
+		scan.setCaching(20);
+		if (filter != null) {
+			scan.setFilter(filter);
+		}
+		return publish(table, entityClass, scan);
+	}
+
+	/*
+	 * The scan carries row range, projection and filter. Its caching is the
+	 * number of rows fetched per scanner RPC, the next RPC is only issued once
+	 * subscribers have requested the rows already fetched.
+	 */
+	public <T extends KVPersistable> Publisher<T> publish(String table, Class<T> entityClass, Scan scan) {
+
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+
+		// rows are fetched on publisher threads, throttled as the caller
+		String priorityClass = requestThrottle.getPriorityClass();
+
+		return new ScanPublisher<T>(connection, TableName.valueOf(tablePrefix + table), scan, result -> {
+
+			requestThrottle.setPriorityClass(priorityClass);
+			requestThrottle.acquire(table, ThrottledOperation.SCAN, 1, Result.getTotalSizeOfCells(result));
+
+			List<T> rowResults = new ArrayList<T>(1);
+			try {
+				prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, rowResults, null, result);
+			} catch (Exception e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+			return rowResults.isEmpty() ? null : rowResults.get(0);
+		}, getPublisherExecutor());
+	}
+
+	public <T extends KVPersistable> SpillableResultSet<T> queryResultSet(String table, Class<T> entityClass,
+			Filter filter) {
+		Scan scan = new Scan();
+		scan.setCaching(20);
+		if (filter != null) {
+			scan.setFilter(filter);
+		}
+		return queryResultSet(table, entityClass, scan);
+	}
+
+	/*
+	 * Rows are kept encoded: on heap up to hbase.driver.resultset.memory.bytes
+	 * (default 64MB), beyond that in memory mapped temp files under
+	 * hbase.driver.resultset.spill.dir (default java.io.tmpdir). Entities are
+	 * built when accessed, an access fails for a row which cannot be decoded.
+	 * Rows without cells are left out. The result set has to be closed to
+	 * delete its temp files.
+	 */
+	public <T extends KVPersistable> SpillableResultSet<T> queryResultSet(String table, Class<T> entityClass,
+			Scan scan) {
+
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+
+		long memoryBudget = Long.parseLong(environmentProperties.getProperty(RESULT_SET_MEMORY_PROPERTY,
+				String.valueOf(64L * 1024 * 1024)));
+		Path spillDirectory = Paths.get(environmentProperties.getProperty(RESULT_SET_SPILL_DIR_PROPERTY,
+				System.getProperty("java.io.tmpdir")));
+
+		SpillableResultSet<T> resultSet = new SpillableResultSet<T>(result -> {
+			List<T> rowResults = new ArrayList<T>(1);
+			prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, rowResults, null, result);
+			return rowResults.get(0);
+		}, memoryBudget, spillDirectory);
 
-			queryResults = queryColumnOrientedResultForAll(table, entityClass, topLevelFilter, columns);
+		Table hTable = null;
+
+		try {
+
+			hTable = connection.getTable(TableName.valueOf(tablePrefix + table));
+			ScanProfiler profiler = newScanProfiler(table, scan);
+			ResultScanner scanner = hTable.getScanner(scan);
+			try {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					profiler.rowFetched();
+					requestThrottle.acquire(table, ThrottledOperation.SCAN, 1, Result.getTotalSizeOfCells(result));
+					// decoding is left to the access, only rows without cells are skipped
+					if (result.isEmpty()) {
+						continue;
+					}
+					resultSet.add(result);
+					profiler.rowDecoded();
+				}
+			} finally {
+				scanner.close();
+				lastQueryProfile.set(profiler.finish(scanner.getScanMetrics(), resultSet.size()));
+			}
+			resultSet.seal();
 
 		} catch (Exception e) {
 			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
+			try {
+				resultSet.close();
+			} catch (IOException x) {
+				logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+						+ ExceptionUtils.getFullStackTrace(x));
+			}
+			resultSet = null;
+		} finally {
+			try {
+				if (hTable != null) {
+					hTable.close();
+				}
+			} catch (IOException e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_CLOSING_TABLE + " Table:" + table + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
 		}
 
-		return queryResults;
+		return resultSet;
 	}
 
-	public <T extends KVPersistable> List<Map<String, Object>> query(String table, Class<T> entityClass,
-			String... columns) {
+	public <T extends KVPersistable> List<T> querySnapshot(String table, Class<T> entityClass, Filter filter,
+			String snapshotName) {
+		return querySnapshot(table, entityClass, filter, snapshotName, false);
+	}
 
-		/*
-		 * Checking if any dynamic cf grouping exists in the entity
-		 * 
-		 */
-		DynamicColumnFamily dynamicColumnFamilyFields = entityClass.getAnnotation(DynamicColumnFamily.class);
-		List<String> groupedFields = new LinkedList<String>();
-		if (dynamicColumnFamilyFields != null) {
-			String[] groupedFieldsArr = dynamicColumnFamilyFields.fields();
-			for (String field : groupedFieldsArr) {
-				groupedFields.add(field.toLowerCase());
-			}
-		}
+	/*
+	 * Reads the rows from the HFiles of a table snapshot (taken first when
+	 * there is none with that name) instead of the region servers, so that
+	 * full table reads do not compete with serving traffic. Needs hbase-server
+	 * on the classpath and read access to hbase.rootdir. Regions are read in
+	 * parallel with regionParallel, the rows are returned in row key order.
+	 */
+	public <T extends KVPersistable> List<T> querySnapshot(String table, Class<T> entityClass, Filter filter,
+			String snapshotName, boolean regionParallel) {
 
-		List<Map<String, Object>> queryResults = Collections.<Map<String, Object>>emptyList();
+		List<T> queryResults = Collections.<T>emptyList();
 
 		try {
+			try (Admin admin = connection.getAdmin()) {
+				if (!SnapshotScans.snapshotExists(admin, snapshotName)) {
+					admin.snapshot(snapshotName, TableName.valueOf(tablePrefix + table));
+				}
+			}
 
-			FilterList selectedColFilterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+			Scan scan = new Scan();
+			scan.setCacheBlocks(false);
+			if (filter != null) {
+				scan.setFilter(filter);
+			}
 
-			for (String col : columns) {
+			String restoreBaseDir = environmentProperties.getProperty(SNAPSHOT_RESTORE_DIR_PROPERTY,
+					SnapshotScans.DEFAULT_RESTORE_DIR);
 
-				if (groupedFields.contains(col)) {
-					String family = col.split(UNDERSCORE, 2)[0];
-					FamilyFilter familyFilter = new FamilyFilter(CompareOp.EQUAL,
-							new BinaryComparator(Bytes.toBytes(family)));
-					selectedColFilterList.addFilter(familyFilter);
-				} else {
-					ColumnPrefixFilter columnPrefixFilter = new ColumnPrefixFilter(Bytes.toBytes(col));
-					selectedColFilterList.addFilter(columnPrefixFilter);
+			if (!regionParallel) {
+				try (ResultScanner scanner = SnapshotScans.open(connection.getConfiguration(), restoreBaseDir,
+						snapshotName, scan)) {
+					queryResults = decodeAll(entityClass, scanner);
+				}
+			} else {
+				try (SnapshotScans snapshotScans = SnapshotScans.restore(connection.getConfiguration(),
+						restoreBaseDir, snapshotName, scan)) {
+					List<Future<List<T>>> partials = new ArrayList<Future<List<T>>>();
+					for (final Scan regionScan : snapshotScans.getRegionScans()) {
+						partials.add(getParallelExecutor().submit(() -> {
+							try (ResultScanner scanner = snapshotScans.openRegion(regionScan)) {
+								return decodeAll(entityClass, scanner);
+							}
+						}));
+					}
+					List<T> regionResults = new ArrayList<T>();
+					for (Future<List<T>> partial : partials) {
+						regionResults.addAll(partial.get());
+					}
+					queryResults = regionResults;
 				}
 			}
-
-			queryResults = queryColumnOrientedResultForAll(table, entityClass, selectedColFilterList, columns);
-
 		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
-					+ ExceptionUtils.getFullStackTrace(e));
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Snapshot:" + snapshotName
+					+ "\n" + ExceptionUtils.getFullStackTrace(e));
 		}
 
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> Map<String, Object> query(String row_key, String table, Class<T> entityClass,
-			String... columns) {
+	/*
+	 * Takes a snapshot of the table for querySnapshot, replacing an existing
+	 * snapshot with the same name
+	 */
+	public boolean takeSnapshot(String table, String snapshotName) {
 
-		/*
-		 * Checking if any dynamic cf grouping exists in the entity
-		 * 
-		 */
-		DynamicColumnFamily dynamicColumnFamilyFields = entityClass.getAnnotation(DynamicColumnFamily.class);
-		List<String> groupedFields = new LinkedList<String>();
-		if (dynamicColumnFamilyFields != null) {
-			String[] groupedFieldsArr = dynamicColumnFamilyFields.fields();
-			for (String field : groupedFieldsArr) {
-				groupedFields.add(field.toLowerCase());
+		boolean snapshotTaken = false;
+
+		try (Admin admin = connection.getAdmin()) {
+			if (SnapshotScans.snapshotExists(admin, snapshotName)) {
+				admin.deleteSnapshot(snapshotName);
 			}
+			admin.snapshot(snapshotName, TableName.valueOf(tablePrefix + table));
+			snapshotTaken = true;
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_TAKING_SNAPSHOT + " Table:" + table + " Snapshot:" + snapshotName
+					+ "\n" + ExceptionUtils.getFullStackTrace(e));
 		}
 
-		Map<String, Object> queryResults = null;
-
-		try {
+		return snapshotTaken;
+	}
 
-			FilterList selectedColFilterList = new FilterList(FilterList.Operator.MUST_PASS_ONE);
+	private <T extends KVPersistable> List<T> decodeAll(Class<T> entityClass, ResultScanner scanner)
+			throws IOException, InstantiationException, IllegalAccessException {
 
-			for (String col : columns) {
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
 
-				if (groupedFields.contains(col)) {
-					String family = col.split(UNDERSCORE, 2)[0];
-					FamilyFilter familyFilter = new FamilyFilter(CompareOp.EQUAL,
-							new BinaryComparator(Bytes.toBytes(family)));
-					selectedColFilterList.addFilter(familyFilter);
-				} else {
-					ColumnPrefixFilter columnPrefixFilter = new ColumnPrefixFilter(Bytes.toBytes(col));
-					selectedColFilterList.addFilter(columnPrefixFilter);
-				}
+		List<T> queryResults = new ArrayList<T>();
+		for (Result result = scanner.next(); result != null; result = scanner.next()) {
+			try {
+				prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults, null, result);
+			} catch (Exception e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
 			}
+		}
+		return queryResults;
+	}
 
-			queryResults = queryColumnOrientedResultForId(row_key, table, entityClass, selectedColFilterList, columns);
+	/*
+	 * Looks up rows whose @Indexed field equals the value through the field's
+	 * index table instead of scanning the table
+	 */
+	public <T extends KVPersistable> List<T> queryByIndex(String table, Class<T> entityClass, String field,
+			Object value) {
+
+		List<T> queryResults = Collections.<T>emptyList();
 
+		try {
+			String indexValue = value.toString();
+			queryResults = queryByIndexForAll(table, entityClass, field, SecondaryIndexes.equalityScan(indexValue),
+					storedValue -> indexValue.equals(storedValue));
 		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Index:" + field + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
 		}
 
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass) {
+	/*
+	 * Looks up rows with fromValue <= field value < toValue (compared in
+	 * byte order, a null bound is open) in value order. Only String fields,
+	 * numbers stored as strings do not sort by value.
+	 */
+	public <T extends KVPersistable> List<T> queryByIndexRange(String table, Class<T> entityClass, String field,
+			String fromValue, String toValue) {
 
 		List<T> queryResults = Collections.<T>emptyList();
 
 		try {
-			queryResults = queryForAll(table, entityClass);
+			SecondaryIndexes.checkRangeField(getIndexedField(entityClass, field));
+			queryResults = queryByIndexForAll(table, entityClass, field,
+					SecondaryIndexes.rangeScan(fromValue, toValue),
+					storedValue -> SecondaryIndexes.inRange(storedValue, fromValue, toValue));
 		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + " Index:" + field + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
 		}
 
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> T query(String row_key, String table, Class<T> entityClass) {
+	/*
+	 * The fields having an index table, listed from the master once per
+	 * hbase.driver.index.tables.cache.ms (60s by default) rather than on every
+	 * delete. rebuildIndex drops the cached list of its table.
+	 */
+	private List<String> getIndexTableFields(String queryTable) throws IOException {
 
-		T queryResults = null;
+		Pair<Long, List<String>> cached = indexTableFields.get(queryTable);
+		if (cached != null && cached.getValue0() - System.nanoTime() > 0) {
+			return cached.getValue1();
+		}
+
+		String indexTablePrefix = tablePrefix + SecondaryIndexes.indexTable(queryTable, "");
+		List<String> fields = new ArrayList<String>();
+		try (Admin admin = connection.getAdmin()) {
+			for (TableName indexTableName : admin
+					.listTableNames(Pattern.compile(Pattern.quote(indexTablePrefix) + ".+"))) {
+				String field = indexTableName.getNameAsString().substring(indexTablePrefix.length());
+				if (field.split(UNDERSCORE, 2).length == 2) {
+					fields.add(field);
+				}
+			}
+		}
+		long cacheMillis = Long.parseLong(environmentProperties.getProperty(INDEX_TABLES_CACHE_PROPERTY, "60000"));
+		indexTableFields.put(queryTable,
+				new Pair<Long, List<String>>(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cacheMillis), fields));
+		return fields;
+	}
+
+	/*
+	 * Rebuilds the index table of an @Indexed field from the existing rows,
+	 * creating it when missing. Entries are rewritten in place and stale ones
+	 * removed afterwards, so lookups keep working during the rebuild. Returns
+	 * the number of indexed rows or -1 on failure.
+	 */
+	public <T extends KVPersistable> long rebuildIndex(String table, Class<T> entityClass, String field) {
+
+		long indexedRows = -1;
 
 		try {
-			queryResults = queryForId(row_key, table, entityClass);
+			FieldMapping<T> indexedField = getIndexedField(entityClass, field);
+			TableName indexTableName = TableName
+					.valueOf(tablePrefix + SecondaryIndexes.indexTable(table, indexedField.getName()));
+
+			try (Admin admin = connection.getAdmin()) {
+				if (!admin.tableExists(indexTableName)) {
+					admin.createTable(SecondaryIndexes.indexTableDescriptor(indexTableName));
+				}
+			}
+			indexTableFields.remove(table);
+
+			Scan scan = new Scan();
+			scan.addColumn(indexedField.getFamilyBytes(), indexedField.getColumnBytes());
+			scan.setCaching(INDEX_LOOKUP_BATCH);
+			scan.setCacheBlocks(false);
+
+			long count = 0;
+			try (Table dataTable = connection.getTable(TableName.valueOf(tablePrefix + table));
+					ResultScanner scanner = dataTable.getScanner(scan);
+					BufferedMutator indexMutator = connection.getBufferedMutator(indexTableName)) {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					requestThrottle.acquire(table, ThrottledOperation.SCAN, 1, Result.getTotalSizeOfCells(result));
+					Put indexPut = SecondaryIndexes.indexPut(getIndexValue(indexedField, result),
+							Bytes.toString(result.getRow()));
+					requestThrottle.acquire(table, ThrottledOperation.WRITE, 1, indexPut.heapSize());
+					indexMutator.mutate(indexPut);
+					count++;
+				}
+			}
+			removeStaleIndexEntries(table, indexedField, indexTableName);
+			indexedRows = count;
 		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
+			logger.error(EXCEPTION_OCCURED_WHILE_REBUILDING_INDEX + " Table:" + table + " Index:" + field + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
 		}
 
-		return queryResults;
+		return indexedRows;
 	}
 
-	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, Filter filter) {
+	/*
+	 * Deletes the index entries whose row is gone or holds another value,
+	 * checking the rows with multi-gets of INDEX_LOOKUP_BATCH rows
+	 */
+	private <T extends KVPersistable> void removeStaleIndexEntries(String table, FieldMapping<T> indexedField,
+			TableName indexTableName) throws IOException {
+
+		Scan indexScan = new Scan().addColumn(SecondaryIndexes.INDEX_FAMILY, SecondaryIndexes.ROW_KEY_COLUMN);
+		indexScan.setCaching(INDEX_LOOKUP_BATCH);
+		indexScan.setCacheBlocks(false);
+
+		try (Table dataTable = connection.getTable(TableName.valueOf(tablePrefix + table));
+				Table indexTable = connection.getTable(indexTableName);
+				ResultScanner scanner = indexTable.getScanner(indexScan)) {
+			for (Result[] entries = scanner.next(INDEX_LOOKUP_BATCH); entries.length > 0; entries = scanner
+					.next(INDEX_LOOKUP_BATCH)) {
+
+				requestThrottle.acquire(table, ThrottledOperation.SCAN, entries.length, getTotalSize(entries));
+				List<Get> gets = new ArrayList<Get>(entries.length);
+				for (Result entry : entries) {
+					gets.add(new Get(entry.getValue(SecondaryIndexes.INDEX_FAMILY, SecondaryIndexes.ROW_KEY_COLUMN))
+							.addColumn(indexedField.getFamilyBytes(), indexedField.getColumnBytes()));
+				}
+				Result[] rows = dataTable.get(gets);
+				requestThrottle.acquire(table, ThrottledOperation.READ, gets.size(), getTotalSize(rows));
+
+				List<Delete> staleEntries = new ArrayList<Delete>();
+				for (int i = 0; i < entries.length; i++) {
+					String row_key = Bytes.toString(gets.get(i).getRow());
+					if (rows[i].isEmpty() || !Bytes.equals(entries[i].getRow(),
+							SecondaryIndexes.indexRow(getIndexValue(indexedField, rows[i]), row_key))) {
+						staleEntries.add(new Delete(entries[i].getRow()));
+					}
+				}
+				if (!staleEntries.isEmpty()) {
+					requestThrottle.acquire(table, ThrottledOperation.DELETE, staleEntries.size(),
+							heapSize(staleEntries));
+					indexTable.delete(staleEntries);
+				}
+			}
+		}
+	}
 
-		List<T> queryResults = Collections.<T>emptyList();
+	private String getIndexValue(FieldMapping<?> indexedField, Result result) {
+		byte[] storedBytes = result.getValue(indexedField.getFamilyBytes(), indexedField.getColumnBytes());
+		return Bytes.toString(ValueCompression.decompress(storedBytes, indexedField.getCompressionThreshold()));
+	}
 
-		try {
-			queryResults = queryForAll(table, entityClass, filter);
-		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
-					+ ExceptionUtils.getFullStackTrace(e));
+	private <T extends KVPersistable> FieldMapping<T> getIndexedField(Class<T> entityClass, String field) {
+		FieldMapping<T> indexedField = getFieldsMap(entityClass).get(field);
+		if (indexedField == null || !SecondaryIndexes.isIndexable(indexedField)) {
+			throw new IllegalArgumentException(FIELD_NOT_INDEXED + entityClass.getName() + " Field:" + field);
+		}
+		return indexedField;
+	}
+
+	/*
+	 * Index scan followed by batched multi-gets. Rows are re-checked against
+	 * the predicate since an index entry may be stale.
+	 */
+	private <T extends KVPersistable> List<T> queryByIndexForAll(String queryTable, Class<T> entityClass,
+			String field, Scan indexScan, Predicate<String> predicate) throws IOException {
+
+		FieldMapping<T> indexedField = getIndexedField(entityClass, field);
+		indexScan.setCaching(INDEX_LOOKUP_BATCH);
+
+		Set<String> rowKeys = new LinkedHashSet<String>();
+		try (Table indexTable = connection
+				.getTable(TableName.valueOf(tablePrefix + SecondaryIndexes.indexTable(queryTable, field)));
+				ResultScanner scanner = indexTable.getScanner(indexScan)) {
+			for (Result result = scanner.next(); result != null; result = scanner.next()) {
+				requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1, Result.getTotalSizeOfCells(result));
+				rowKeys.add(Bytes.toString(
+						result.getValue(SecondaryIndexes.INDEX_FAMILY, SecondaryIndexes.ROW_KEY_COLUMN)));
+			}
 		}
 
+		List<T> queryResults = new ArrayList<T>();
+		for (T t : queryForIds(queryTable, entityClass, rowKeys)) {
+			Object value = indexedField.get(t);
+			if (value != null && predicate.test(value.toString())) {
+				queryResults.add(t);
+			}
+		}
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, Filter filter, String startRow) {
+	/*
+	 * Reads the rows with multi-gets of INDEX_LOOKUP_BATCH rows, in the order
+	 * of the row keys. Rows which do not exist are left out.
+	 */
+	private <T extends KVPersistable> List<T> queryForIds(String queryTable, Class<T> entityClass,
+			Collection<String> rowKeys) throws IOException {
 
-		List<T> queryResults = Collections.<T>emptyList();
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
 
-		try {
-			queryResults = queryForAll(table, entityClass, filter, startRow);
-		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
-					+ ExceptionUtils.getFullStackTrace(e));
-		}
+		List<T> queryResults = new ArrayList<T>();
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + queryTable))) {
+
+			List<Get> gets = new ArrayList<Get>(Math.min(rowKeys.size(), INDEX_LOOKUP_BATCH));
+			Iterator<String> rowKeyIterator = rowKeys.iterator();
+			while (rowKeyIterator.hasNext()) {
+
+				gets.add(new Get(Bytes.toBytes(rowKeyIterator.next())));
+				if (gets.size() < INDEX_LOOKUP_BATCH && rowKeyIterator.hasNext()) {
+					continue;
+				}
 
+				Result[] results = table.get(gets);
+				requestThrottle.acquire(queryTable, ThrottledOperation.READ, gets.size(), getTotalSize(results));
+				for (Result result : results) {
+					if (result.isEmpty()) {
+						continue;
+					}
+					try {
+						prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults, table,
+								result);
+					} catch (Exception e) {
+						logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+								+ ExceptionUtils.getFullStackTrace(e));
+					}
+				}
+				gets.clear();
+			}
+		}
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> T query(String row_key, String table, Class<T> entityClass, Filter filter) {
+	/*
+	 * Resolves the @Reference field of many parent entities at once: the
+	 * referenced row keys are deduplicated and read with multi-gets of
+	 * INDEX_LOOKUP_BATCH rows, the batches in parallel. attach (may be null)
+	 * is called for every parent whose referenced row exists. Returns the
+	 * referenced entities by row key, an empty map on failure.
+	 */
+	public <T extends KVPersistable, C extends KVPersistable> Map<String, C> loadReferences(Iterable<T> parents,
+			Class<T> entityClass, String field, Class<C> referencedClass, BiConsumer<T, C> attach) {
 
-		T queryResults = null;
+		Map<String, C> referencedEntities = Collections.<String, C>emptyMap();
 
 		try {
-			queryResults = queryForId(row_key, table, entityClass, filter);
+			FieldMapping<T> referenceField = getFieldsMap(entityClass).get(field);
+			Reference reference = referenceField == null ? null
+					: entityClass.getDeclaredField(field).getAnnotation(Reference.class);
+			if (reference == null || !reference.entity().equals(referencedClass)) {
+				throw new IllegalArgumentException(NOT_A_REFERENCE_FIELD + entityClass.getName() + " Field:" + field
+						+ " Referenced class:" + referencedClass.getName());
+			}
+
+			// parents may be a one pass iterable (a stream or a scan), so they
+			// are buffered with their references for attaching
+			List<T> referencingParents = new ArrayList<T>();
+			List<String> parentReferences = new ArrayList<String>();
+			Set<String> rowKeys = new LinkedHashSet<String>();
+			for (T parent : parents) {
+				Object rowKey = referenceField.get(parent);
+				if (rowKey != null) {
+					rowKeys.add(rowKey.toString());
+					if (attach != null) {
+						referencingParents.add(parent);
+						parentReferences.add(rowKey.toString());
+					}
+				}
+			}
+
+			List<List<String>> batches = new ArrayList<List<String>>();
+			List<String> batch = null;
+			for (String rowKey : rowKeys) {
+				if (batch == null || batch.size() == INDEX_LOOKUP_BATCH) {
+					batch = new ArrayList<String>(Math.min(rowKeys.size(), INDEX_LOOKUP_BATCH));
+					batches.add(batch);
+				}
+				batch.add(rowKey);
+			}
+
+			List<C> loaded = new ArrayList<C>(rowKeys.size());
+			if (batches.size() == 1) {
+				loaded.addAll(queryForIds(reference.table(), referencedClass, batches.get(0)));
+			} else if (batches.size() > 1) {
+				String priorityClass = requestThrottle.getPriorityClass();
+				List<Future<List<C>>> batchResults = new ArrayList<Future<List<C>>>();
+				for (final List<String> rowKeyBatch : batches) {
+					batchResults.add(getParallelExecutor().submit(() -> {
+						requestThrottle.setPriorityClass(priorityClass);
+						return queryForIds(reference.table(), referencedClass, rowKeyBatch);
+					}));
+				}
+				for (Future<List<C>> batchResult : batchResults) {
+					loaded.addAll(batchResult.get());
+				}
+			}
+
+			Map<String, C> loadedByRowKey = new HashMap<String, C>();
+			for (C referenced : loaded) {
+				loadedByRowKey.put(referenced.getRow_key(), referenced);
+			}
+
+			for (int i = 0; i < referencingParents.size(); i++) {
+				C referenced = loadedByRowKey.get(parentReferences.get(i));
+				if (referenced != null) {
+					attach.accept(referencingParents.get(i), referenced);
+				}
+			}
+			referencedEntities = loadedByRowKey;
 		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
-					+ ExceptionUtils.getFullStackTrace(e));
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Entity:" + entityClass.getName() + " Reference:"
+					+ field + "\n" + ExceptionUtils.getFullStackTrace(e));
 		}
 
-		return queryResults;
+		return referencedEntities;
 	}
 
-	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, FilterList filterlist) {
+	/*
+	 * Returns rows having cells written at or after the given timestamp. Only
+	 * the modified cells are populated in the returned entities.
+	 */
+	public <T extends KVPersistable> List<T> queryModifiedSince(String table, Class<T> entityClass,
+			long sinceTimestamp, Filter filter) {
 
 		List<T> queryResults = Collections.<T>emptyList();
 
 		try {
-			queryResults = queryForAll(table, entityClass, filterlist);
+			queryResults = queryModifiedForAll(table, entityClass, sinceTimestamp, HConstants.LATEST_TIMESTAMP,
+					filter);
 		} catch (Exception e) {
 			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
@@ -541,33 +3626,90 @@ public class HbaseDriver {
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> List<T> query(String table, Class<T> entityClass, FilterList filterlist,
-			String startRow, String endRow) {
+	/*
+	 * Returns rows changed since the consumer's last successful poll and moves
+	 * its checkpoint forward. The checkpoint is left untouched on failure so
+	 * that the next poll reads the same changes again.
+	 */
+	public <T extends KVPersistable> List<T> pollChanges(String table, Class<T> entityClass, String consumer,
+			CheckpointStore checkpointStore, Filter filter) {
 
 		List<T> queryResults = Collections.<T>emptyList();
 
 		try {
-			queryResults = queryForAll(table, entityClass, filterlist, startRow, endRow);
+
+			Long checkpoint = checkpointStore.getCheckpoint(table, consumer);
+			long fromTimestamp = checkpoint == null ? 0L : checkpoint;
+
+			// cells may be stamped slightly in the past by region servers
+			// with lagging clocks, so the newest changes are left for the
+			// next poll
+			long lagMillis = Long.parseLong(environmentProperties.getProperty(CHANGE_SCAN_LAG_PROPERTY, "0"));
+			long toTimestamp = System.currentTimeMillis() - lagMillis;
+
+			if (toTimestamp > fromTimestamp) {
+				queryResults = queryModifiedForAll(table, entityClass, fromTimestamp, toTimestamp, filter);
+				checkpointStore.saveCheckpoint(table, consumer, toTimestamp);
+			}
 		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + " Table:" + table + "\n"
+			logger.error(EXCEPTION_OCCURED_WHILE_POLLING_CHANGES + " Table:" + table + " Consumer:" + consumer + "\n"
 					+ ExceptionUtils.getFullStackTrace(e));
 		}
 
 		return queryResults;
 	}
 
-	public <T extends KVPersistable> T query(String row_key, String table, Class<T> entityClass,
-			FilterList filterlist) {
+	private <T extends KVPersistable> List<T> queryModifiedForAll(String queryTable, Class<T> entityClass,
+			long fromTimestamp, long toTimestamp, Filter filter) throws IOException {
 
-		T queryResults = null;
+		/*
+		 * Store files whose time range lies outside of the scanned range are
+		 * skipped by the region servers
+		 */
+		Scan scan = new Scan();
+		scan.setCaching(20);
+		scan.setCacheBlocks(false);
+		scan.setTimeRange(fromTimestamp, toTimestamp);
+		if (filter != null) {
+			scan.setFilter(filter);
+		}
+
+		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
+		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
+		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
+
+		List<T> queryResults = new ArrayList<T>();
+		Table table = null;
 
 		try {
-			queryResults = queryForId(row_key, table, entityClass, filterlist);
-		} catch (Exception e) {
-			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
-					+ ExceptionUtils.getFullStackTrace(e));
-		}
 
+			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			ScanProfiler profiler = newScanProfiler(queryTable, scan);
+			ResultScanner scanner = table.getScanner(scan);
+			try {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					profiler.rowFetched();
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					try {
+						prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults, table,
+								result);
+					} catch (Exception e) {
+						logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+								+ ExceptionUtils.getFullStackTrace(e));
+					}
+					profiler.rowDecoded();
+				}
+			} finally {
+				scanner.close();
+				lastQueryProfile.set(profiler.finish(scanner.getScanMetrics(), queryResults.size()));
+			}
+		} finally {
+			if (table != null) {
+				table.close();
+			}
+		}
 		return queryResults;
 	}
 
@@ -664,7 +3806,7 @@ public class HbaseDriver {
 		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = getGroupedColumnFamiliesAndFields(entityClass);
 		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
 		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
-		Map<String, Field> fieldsMap = getFieldsMap(entityClass);
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
 
 		List<T> queryResults = new ArrayList<T>();
 		Table table = null;
@@ -672,21 +3814,42 @@ public class HbaseDriver {
 		try {
 
 			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			boolean pipelined = Boolean.valueOf(environmentProperties.getProperty(PIPELINED_SCAN_PROPERTY));
+			int pipelineBatch = Integer.parseInt(environmentProperties.getProperty(PIPELINE_BATCH_PROPERTY, "500"));
+			if (pipelined) {
+				// the client scanner fetches the next batch in the background
+				scan.setAsyncPrefetch(true);
+				scan.setCaching(Math.max(scan.getCaching(), pipelineBatch));
+			}
+			ScanProfiler profiler = newScanProfiler(queryTable, scan);
 			ResultScanner scanner = table.getScanner(scan);
-			Iterator<Result> iterator = scanner.iterator();
 
 			/*
 			 * Iterate over each row and build the associated object
 			 */
-			while (iterator.hasNext()) {
-
-				Result result = iterator.next();
-				try {
-					prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults, table, result);
-				} catch (Exception e) {
-					logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
-							+ ExceptionUtils.getFullStackTrace(e));
+			try {
+				if (pipelined) {
+					queryPipelined(queryTable, entityClass, scanner, pipelineBatch, profiler, groupedFamilies,
+							groupedFields, fieldsMap, queryResults);
+				} else {
+					for (Result result = scanner.next(); result != null; result = scanner.next()) {
+
+						profiler.rowFetched();
+						requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+								Result.getTotalSizeOfCells(result));
+						try {
+							prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults,
+									table, result);
+						} catch (Exception e) {
+							logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+									+ ExceptionUtils.getFullStackTrace(e));
+						}
+						profiler.rowDecoded();
+					}
 				}
+			} finally {
+				scanner.close();
+				lastQueryProfile.set(profiler.finish(scanner.getScanMetrics(), queryResults.size()));
 			}
 		} catch (Exception x) {
 			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + ExceptionUtils.getFullStackTrace(x));
@@ -696,6 +3859,69 @@ public class HbaseDriver {
 		return queryResults;
 	}
 
+	/*
+	 * Batches are taken from a prefetching scanner, so the next batch is
+	 * fetched while the current one is decoded. Batches of at least
+	 * hbase.driver.scan.parallel.decode.rows rows are decoded in ordered
+	 * chunks on the decode pool. The profiler is marked once per batch, the
+	 * fetch and decode totals cover the same time as per row marks would.
+	 */
+	private <T extends KVPersistable> void queryPipelined(String queryTable, Class<T> entityClass,
+			ResultScanner scanner, int batchSize, ScanProfiler profiler, List<String> groupedFamilies,
+			List<String> groupedFields, Map<String, FieldMapping<T>> fieldsMap, List<T> queryResults)
+			throws IOException, InterruptedException, ExecutionException {
+
+		int parallelDecodeRows = Integer
+				.parseInt(environmentProperties.getProperty(PARALLEL_DECODE_THRESHOLD_PROPERTY, "256"));
+		int parallelism = Integer.parseInt(environmentProperties.getProperty(PARALLELISM_PROPERTY,
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+		long mark = System.nanoTime();
+		for (Result[] batch = scanner.next(batchSize); batch.length > 0; batch = scanner.next(batchSize)) {
+
+			long fetched = System.nanoTime();
+			scanPipelineMetrics.recordFetch(batch.length, fetched - mark);
+			profiler.rowFetched();
+
+			requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, batch.length, getTotalSize(batch));
+
+			boolean parallel = parallelism > 1 && batch.length >= parallelDecodeRows;
+			long decodeStart = System.nanoTime();
+			if (parallel) {
+				List<Future<List<T>>> chunks = new ArrayList<Future<List<T>>>();
+				int chunkSize = (batch.length + parallelism - 1) / parallelism;
+				for (int from = 0; from < batch.length; from += chunkSize) {
+					Result[] chunk = Arrays.copyOfRange(batch, from, Math.min(from + chunkSize, batch.length));
+					chunks.add(getDecodeExecutor().submit(
+							() -> decodeBatch(entityClass, chunk, groupedFamilies, groupedFields, fieldsMap)));
+				}
+				for (Future<List<T>> chunk : chunks) {
+					queryResults.addAll(chunk.get());
+				}
+			} else {
+				queryResults.addAll(decodeBatch(entityClass, batch, groupedFamilies, groupedFields, fieldsMap));
+			}
+			mark = System.nanoTime();
+			scanPipelineMetrics.recordDecode(batch.length, mark - decodeStart, parallel);
+			profiler.rowDecoded();
+		}
+	}
+
+	private <T extends KVPersistable> List<T> decodeBatch(Class<T> entityClass, Result[] batch,
+			List<String> groupedFamilies, List<String> groupedFields, Map<String, FieldMapping<T>> fieldsMap) {
+
+		List<T> batchResults = new ArrayList<T>(batch.length);
+		for (Result result : batch) {
+			try {
+				prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, batchResults, null, result);
+			} catch (Exception e) {
+				logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+						+ ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+		return batchResults;
+	}
+
 	private <T extends KVPersistable> List<Map<String, Object>> queryColumnOrientedResultsForAll(String queryTable,
 			Class<T> entityClass, Scan scan, String... columns) throws IOException, InstantiationException,
 			IllegalAccessException, IllegalArgumentException, InvocationTargetException {
@@ -711,22 +3937,30 @@ public class HbaseDriver {
 		try {
 
 			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
+			ScanProfiler profiler = newScanProfiler(queryTable, scan);
 			ResultScanner scanner = table.getScanner(scan);
-			Iterator<Result> iterator = scanner.iterator();
 
 			/*
 			 * Iterate over each row and build the associated object
 			 */
-			while (iterator.hasNext()) {
-
-				Result result = iterator.next();
-				try {
-					prepareColumnOrientedResults(entityClass, groupedFamilies, groupedFields, fieldNamesSet,
-							queryResults, table, result, columns);
-				} catch (Exception e) {
-					logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
-							+ ExceptionUtils.getFullStackTrace(e));
+			try {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+
+					profiler.rowFetched();
+					requestThrottle.acquire(queryTable, ThrottledOperation.SCAN, 1,
+							Result.getTotalSizeOfCells(result));
+					try {
+						prepareColumnOrientedResults(entityClass, groupedFamilies, groupedFields, fieldNamesSet,
+								queryResults, table, result, columns);
+					} catch (Exception e) {
+						logger.error(EXCEPTION_OCCURED_WHILE_BUILDING_OBJECT_FOR + entityClass + "\n"
+								+ ExceptionUtils.getFullStackTrace(e));
+					}
+					profiler.rowDecoded();
 				}
+			} finally {
+				scanner.close();
+				lastQueryProfile.set(profiler.finish(scanner.getScanMetrics(), queryResults.size()));
 			}
 		} catch (Exception x) {
 			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + ExceptionUtils.getFullStackTrace(x));
@@ -743,16 +3977,13 @@ public class HbaseDriver {
 		 * 
 		 */
 
-		DynamicColumnFamily dynamicColumnFamilyFields = entityClass.getAnnotation(DynamicColumnFamily.class);
+		String[] groupedFieldsArr = EntityMappers.forClass(entityClass).getDynamicColumnFamilyFields();
 		List<String> grpdFamilies = new LinkedList<String>();
 		List<String> grpdFields = new LinkedList<String>();
-		if (dynamicColumnFamilyFields != null) {
-			String[] groupedFieldsArr = dynamicColumnFamilyFields.fields();
-			for (String field : groupedFieldsArr) {
-				String family = field.split(UNDERSCORE, 2)[0];
-				grpdFamilies.add(family.toLowerCase());
-				grpdFields.add(field.toLowerCase());
-			}
+		for (String field : groupedFieldsArr) {
+			String family = field.split(UNDERSCORE, 2)[0];
+			grpdFamilies.add(family.toLowerCase());
+			grpdFields.add(field.toLowerCase());
 		}
 		Pair<List<String>, List<String>> groupedFamilyFieldsTuple = new Pair<List<String>, List<String>>(grpdFamilies,
 				grpdFields);
@@ -760,23 +3991,15 @@ public class HbaseDriver {
 	}
 
 	private <T extends KVPersistable> Set<String> getFieldNames(Class<T> entityClass) {
-		Field[] fields = entityClass.getDeclaredFields();
-		Set<String> fieldNamesSet = Arrays.stream(fields).map(m -> m.getName()).collect(Collectors.toSet());
-		return fieldNamesSet;
+		return getFieldsMap(entityClass).keySet();
 	}
 
-	private <T extends KVPersistable> Map<String, Field> getFieldsMap(Class<T> entityClass) {
-
-		Map<String, Field> fieldsMap = new HashMap<String, Field>();
-
-		Field[] fields = entityClass.getDeclaredFields();
-
-		for (Field field : fields) {
-			field.setAccessible(true);
-			fieldsMap.put(field.getName(), field);
-		}
-
-		return fieldsMap;
+	/*
+	 * Fields are resolved through the generated entity mapper when one exists
+	 * and through reflection otherwise
+	 */
+	private <T extends KVPersistable> Map<String, FieldMapping<T>> getFieldsMap(Class<T> entityClass) {
+		return EntityMappers.forClass(entityClass).getFieldMappingsByName();
 	}
 
 	private <T extends KVPersistable> T queryForId(String row_key, String queryTable, Class<T> entityClass,
@@ -787,7 +4010,7 @@ public class HbaseDriver {
 		List<String> groupedFamilies = groupedFamilyFieldsTuple.getValue0();
 		List<String> groupedFields = groupedFamilyFieldsTuple.getValue1();
 
-		Map<String, Field> fieldsMap = getFieldsMap(entityClass);
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
 
 		List<T> queryResults = new ArrayList<T>();
 		Table table = null;
@@ -796,12 +4019,15 @@ public class HbaseDriver {
 
 			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
 			Result result = table.get(getForId);
+			requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1,
+					result == null ? 0 : Result.getTotalSizeOfCells(result));
 
 			if (result == null || result.getMap() == null) {
 				logger.info(String.format(NO_MATCHING_RECORD_FOUND_BY_ID_IN_TABLE, row_key, queryTable));
 				return null;
 			}
 			prepareResults(entityClass, groupedFamilies, groupedFields, fieldsMap, queryResults, table, result);
+			snapshotIfTracking(queryResults.get(0), entityClass);
 		} catch (Exception x) {
 			logger.error(EXCEPTION_OCCURED_WHILE_QUERYING_DATA + "Row Key:" + row_key + "\n"
 					+ ExceptionUtils.getFullStackTrace(x));
@@ -827,6 +4053,8 @@ public class HbaseDriver {
 
 			table = connection.getTable(TableName.valueOf(tablePrefix + queryTable));
 			Result result = table.get(getForId);
+			requestThrottle.acquire(queryTable, ThrottledOperation.READ, 1,
+					result == null ? 0 : Result.getTotalSizeOfCells(result));
 
 			if (result == null || result.getMap() == null) {
 				logger.info(String.format(NO_MATCHING_RECORD_FOUND_BY_ID_IN_TABLE, row_key, queryTable));
@@ -850,6 +4078,7 @@ public class HbaseDriver {
 			throws IOException, InstantiationException, IllegalAccessException {
 
 		Map<String, Object> columnValuesMap = new HashMap<String, Object>();
+		Map<String, FieldMapping<T>> fieldsMap = getFieldsMap(entityClass);
 
 		String rowkey = Bytes.toString(result.getRow());
 		columnValuesMap.put(ROW_KEY, rowkey);
@@ -862,24 +4091,27 @@ public class HbaseDriver {
 			if (groupedFamilies.contains(columnFamily)) {
 
 				String column_name = groupedFields.get(groupedFamilies.indexOf(columnFamily));
+				FieldMapping<T> dynamicField = fieldsMap.get(column_name);
+				int compressionThreshold = dynamicField == null ? -1 : dynamicField.getCompressionThreshold();
 				Map<String, String> groupedColumnValuesMap = new HashMap<String, String>();
 
 				for (Entry<byte[], NavigableMap<Long, byte[]>> versionEntry : columnFamilyMap.getValue().entrySet()) {
 
 					Entry<Long, byte[]> entry = versionEntry.getValue().lastEntry();
 					String column = Bytes.toString(versionEntry.getKey());
-					String value = Bytes.toString(entry.getValue());
 
 					// Special case: if column family contains fixed fields
 					// apart from dynamic fields
 					List<String> askedColsList = Arrays.asList(columns);
 					if (fieldNames.contains(columnFamily + UNDERSCORE + column)) {
 						if (askedColsList.contains(column)) {
-							columnValuesMap.put(column, value);
+							columnValuesMap.put(column,
+									decodeValue(fieldsMap.get(columnFamily + UNDERSCORE + column), entry.getValue()));
 						}
 
 					} else {
-						groupedColumnValuesMap.put(column, value);
+						groupedColumnValuesMap.put(column,
+								Bytes.toString(ValueCompression.decompress(entry.getValue(), compressionThreshold)));
 					}
 
 				}
@@ -894,8 +4126,8 @@ public class HbaseDriver {
 
 					Entry<Long, byte[]> entry = versionEntry.getValue().lastEntry();
 					String column = Bytes.toString(versionEntry.getKey());
-					String value = Bytes.toString(entry.getValue());
-					columnValuesMap.put(column, value);
+					columnValuesMap.put(column,
+							decodeValue(fieldsMap.get(columnFamily + UNDERSCORE + column), entry.getValue()));
 				}
 			}
 
@@ -903,8 +4135,19 @@ public class HbaseDriver {
 		queryResults.add(columnValuesMap);
 	}
 
+	/*
+	 * Only entities loaded by row key are snapshotted, scans would keep a copy
+	 * of every decoded row while the entities are referenced
+	 */
+	private <T extends KVPersistable> void snapshotIfTracking(T t, Class<T> entityClass) {
+		if (changeTracker != null) {
+			changeTracker.snapshot(t, getApplicableFields(entityClass));
+		}
+	}
+
 	private <T extends KVPersistable> void prepareResults(Class<T> entityClass, List<String> groupedFamilies,
-			List<String> groupedFields, Map<String, Field> fieldsMap, List<T> queryResults, Table table, Result result)
+			List<String> groupedFields, Map<String, FieldMapping<T>> fieldsMap, List<T> queryResults, Table table,
+			Result result)
 			throws IOException, InstantiationException, IllegalAccessException {
 
 		Map<String, Object> columnValuesMap = new HashMap<String, Object>();
@@ -921,20 +4164,23 @@ public class HbaseDriver {
 			if (groupedFamilies.contains(columnFamily)) {
 
 				String column_name = groupedFields.get(groupedFamilies.indexOf(columnFamily));
+				FieldMapping<T> dynamicField = fieldsMap.get(column_name);
+				int compressionThreshold = dynamicField == null ? -1 : dynamicField.getCompressionThreshold();
 				Map<String, String> groupedColumnValuesMap = new HashMap<String, String>();
 
 				for (Entry<byte[], NavigableMap<Long, byte[]>> versionEntry : columnFamilyMap.getValue().entrySet()) {
 
 					Entry<Long, byte[]> entry = versionEntry.getValue().lastEntry();
 					String column = Bytes.toString(versionEntry.getKey());
-					String value = Bytes.toString(entry.getValue());
 
 					// Special case: if column family contains fixed fields
 					// apart from dynamic fields
 					if (fieldNameSet.contains(columnFamily + UNDERSCORE + column)) {
-						columnValuesMap.put(columnFamily + UNDERSCORE + column, value);
+						columnValuesMap.put(columnFamily + UNDERSCORE + column,
+								decodeValue(fieldsMap.get(columnFamily + UNDERSCORE + column), entry.getValue()));
 					} else {
-						groupedColumnValuesMap.put(column, value);
+						groupedColumnValuesMap.put(column,
+								Bytes.toString(ValueCompression.decompress(entry.getValue(), compressionThreshold)));
 					}
 				}
 
@@ -948,26 +4194,26 @@ public class HbaseDriver {
 
 					Entry<Long, byte[]> entry = versionEntry.getValue().lastEntry();
 					String column = columnFamily + UNDERSCORE + Bytes.toString(versionEntry.getKey());
-					String value = Bytes.toString(entry.getValue());
-					columnValuesMap.put(column, value);
+					columnValuesMap.put(column, decodeValue(fieldsMap.get(column), entry.getValue()));
 				}
 			}
 
 		}
 
-		T t = (T) entityClass.newInstance();
+		T t = EntityMappers.forClass(entityClass).newInstance();
+		t.setRow_key(rowkey);
 
 		for (String column : columnValuesMap.keySet()) {
 			Object valueToBeSet = columnValuesMap.get(column);
-			Field field = fieldsMap.get(column);
+			FieldMapping<T> field = fieldsMap.get(column);
 
 			if (field != null) {
 
 				Object convertedValue = null;
-				if (valueToBeSet instanceof HashMap) {
+				if (valueToBeSet instanceof HashMap || valueToBeSet instanceof Long) {
 					convertedValue = valueToBeSet;
 				} else {
-					convertedValue = getValueForType((String) valueToBeSet, field.getType().getSimpleName());
+					convertedValue = getValueForType((String) valueToBeSet, field.getTypeName());
 				}
 
 				try {
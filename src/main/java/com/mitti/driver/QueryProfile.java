@@ -0,0 +1,105 @@
+package com.mitti.driver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Cost of one driver scan. Rows scanned, RPCs, bytes and regions come
+ *         from the HBase ScanMetrics of the scan; the elapsed time is split
+ *         between waiting on the scanner (server and network) and building
+ *         results on the client.
+ */
+public class QueryProfile {
+
+	private final String table;
+	private final String filter;
+	private final String startRow;
+	private final String stopRow;
+	private final long rowsScanned;
+	private final long rowsFiltered;
+	private final long rowsReturned;
+	private final long rpcCount;
+	private final long bytes;
+	private final long regions;
+	private final long serverWaitNanos;
+	private final long decodeNanos;
+
+	QueryProfile(String table, String filter, String startRow, String stopRow, ScanMetrics scanMetrics,
+			long rowsReturned, long serverWaitNanos, long decodeNanos) {
+		this.table = table;
+		this.filter = filter;
+		this.startRow = startRow;
+		this.stopRow = stopRow;
+		this.rowsScanned = scanMetrics == null ? 0 : scanMetrics.countOfRowsScanned.get();
+		this.rowsFiltered = scanMetrics == null ? 0 : scanMetrics.countOfRowsFiltered.get();
+		this.rowsReturned = rowsReturned;
+		this.rpcCount = scanMetrics == null ? 0 : scanMetrics.countOfRPCcalls.get();
+		this.bytes = scanMetrics == null ? 0 : scanMetrics.countOfBytesInResults.get();
+		this.regions = scanMetrics == null ? 0 : scanMetrics.countOfRegions.get();
+		this.serverWaitNanos = serverWaitNanos;
+		this.decodeNanos = decodeNanos;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public String getFilter() {
+		return filter;
+	}
+
+	public String getStartRow() {
+		return startRow;
+	}
+
+	public String getStopRow() {
+		return stopRow;
+	}
+
+	public long getRowsScanned() {
+		return rowsScanned;
+	}
+
+	public long getRowsFiltered() {
+		return rowsFiltered;
+	}
+
+	public long getRowsReturned() {
+		return rowsReturned;
+	}
+
+	public long getRpcCount() {
+		return rpcCount;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getRegions() {
+		return regions;
+	}
+
+	public long getServerWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(serverWaitNanos);
+	}
+
+	public long getDecodeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(decodeNanos);
+	}
+
+	public long getTotalMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(serverWaitNanos + decodeNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "table=" + table + " startRow=" + startRow + " stopRow=" + stopRow + " filter=" + filter
+				+ " rowsScanned=" + rowsScanned + " rowsFiltered=" + rowsFiltered + " rowsReturned=" + rowsReturned
+				+ " rpcs=" + rpcCount + " bytes=" + bytes + " regions=" + regions + " totalMs=" + getTotalMillis()
+				+ " serverWaitMs=" + getServerWaitMillis() + " decodeMs=" + getDecodeMillis();
+	}
+}
@@ -0,0 +1,123 @@
+package com.mitti.driver;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.mitti.common.Compressed;
+import com.mitti.common.CompressedFamily;
+import com.mitti.common.Counter;
+import com.mitti.common.DynamicColumnFamily;
+import com.mitti.common.Indexed;
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Entity mapping discovered at runtime through reflection, used for
+ *         entities without a generated mapper.
+ */
+public class ReflectiveEntityMapper<T extends KVPersistable> extends EntityMapper<T> {
+
+	private static final String ROW_KEY = "row_key";
+	private static final String COUNTER_NOT_A_LONG = "@Counter field is not a long/Long: ";
+
+	private final Class<T> entityClass;
+	private final List<FieldMapping<T>> fieldMappings;
+	private final String[] dynamicColumnFamilyFields;
+
+	public ReflectiveEntityMapper(Class<T> entityClass) {
+
+		this.entityClass = entityClass;
+
+		DynamicColumnFamily dynamicColumnFamily = entityClass.getAnnotation(DynamicColumnFamily.class);
+		this.dynamicColumnFamilyFields = dynamicColumnFamily == null ? new String[0] : dynamicColumnFamily.fields();
+
+		CompressedFamily compressedFamily = entityClass.getAnnotation(CompressedFamily.class);
+		List<String> compressedFamilies = compressedFamily == null ? Collections.<String>emptyList()
+				: Arrays.asList(compressedFamily.families());
+
+		List<FieldMapping<T>> mappings = new ArrayList<FieldMapping<T>>();
+		for (Field field : entityClass.getDeclaredFields()) {
+
+			if (field.getName().equals(ROW_KEY) || field.isSynthetic() || Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+
+			// counters are stored as 8 byte longs
+			if (field.isAnnotationPresent(Counter.class) && field.getType() != long.class
+					&& field.getType() != Long.class) {
+				throw new IllegalArgumentException(COUNTER_NOT_A_LONG + entityClass.getName() + "." + field.getName());
+			}
+
+			// field level @Compressed takes precedence over @CompressedFamily
+			int compressionThreshold = -1;
+			Compressed compressed = field.getAnnotation(Compressed.class);
+			if (compressed != null) {
+				compressionThreshold = compressed.thresholdBytes();
+			} else if (compressedFamilies.contains(field.getName().split("_", 2)[0])) {
+				compressionThreshold = compressedFamily.thresholdBytes();
+			}
+
+			field.setAccessible(true);
+			mappings.add(new ReflectiveFieldMapping<T>(field, compressionThreshold));
+		}
+		this.fieldMappings = Collections.unmodifiableList(mappings);
+	}
+
+	@Override
+	public Class<T> getEntityClass() {
+		return entityClass;
+	}
+
+	@Override
+	public T newInstance() {
+		try {
+			return entityClass.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new IllegalStateException("Entity class can not be instantiated: " + entityClass.getName(), e);
+		}
+	}
+
+	@Override
+	public List<FieldMapping<T>> getFieldMappings() {
+		return fieldMappings;
+	}
+
+	@Override
+	public String[] getDynamicColumnFamilyFields() {
+		return dynamicColumnFamilyFields.clone();
+	}
+
+	private static class ReflectiveFieldMapping<T extends KVPersistable> extends FieldMapping<T> {
+
+		private final Field field;
+
+		ReflectiveFieldMapping(Field field, int compressionThreshold) {
+			super(field.getName(), field.getType().getSimpleName(), field.isAnnotationPresent(Counter.class),
+					compressionThreshold, field.isAnnotationPresent(Indexed.class));
+			this.field = field;
+		}
+
+		@Override
+		public Object get(T entity) {
+			try {
+				return field.get(entity);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void set(T entity, Object value) {
+			try {
+				field.set(entity, value);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
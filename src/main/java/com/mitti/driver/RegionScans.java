@@ -0,0 +1,78 @@
+package com.mitti.driver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Splits a scan into one scan per region so that regions can be read
+ *         in parallel. Row ranges of the original scan are preserved.
+ */
+final class RegionScans {
+
+	private RegionScans() {
+	}
+
+	static List<Scan> splitByRegion(Connection connection, TableName tableName, Scan scan) throws IOException {
+
+		try (RegionLocator regionLocator = connection.getRegionLocator(tableName)) {
+			Pair<byte[][], byte[][]> startEndKeys = regionLocator.getStartEndKeys();
+			return splitByKeys(scan, startEndKeys.getFirst(), startEndKeys.getSecond());
+		}
+	}
+
+	/*
+	 * One scan per region given by its start and end key, regions outside the
+	 * row range of the scan are left out
+	 */
+	static List<Scan> splitByKeys(Scan scan, byte[][] startKeys, byte[][] endKeys) throws IOException {
+
+		List<Scan> regionScans = new ArrayList<Scan>();
+
+		byte[] scanStart = scan.getStartRow();
+		byte[] scanStop = scan.getStopRow();
+
+		for (int i = 0; i < startKeys.length; i++) {
+
+			byte[] start = max(scanStart, startKeys[i]);
+			byte[] stop = minStop(scanStop, endKeys[i]);
+
+			if (stop.length > 0 && Bytes.compareTo(start, stop) >= 0) {
+				continue;
+			}
+
+			Scan regionScan = new Scan(scan);
+			regionScan.withStartRow(start);
+			regionScan.withStopRow(stop);
+			regionScans.add(regionScan);
+		}
+
+		return regionScans;
+	}
+
+	private static byte[] max(byte[] first, byte[] second) {
+		return Bytes.compareTo(first, second) >= 0 ? first : second;
+	}
+
+	/*
+	 * An empty stop row means the range is open ended
+	 */
+	private static byte[] minStop(byte[] first, byte[] second) {
+		if (first.length == 0) {
+			return second;
+		}
+		if (second.length == 0) {
+			return first;
+		}
+		return Bytes.compareTo(first, second) <= 0 ? first : second;
+	}
+}
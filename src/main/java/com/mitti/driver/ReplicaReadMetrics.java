@@ -0,0 +1,66 @@
+package com.mitti.driver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Counters of timeline consistent reads. The hedge rate is the share
+ *         of reads for which a replica request was sent and the win rate is
+ *         the share of those hedges answered first by the replica.
+ */
+public class ReplicaReadMetrics {
+
+	private final AtomicLong reads = new AtomicLong();
+	private final AtomicLong hedgedReads = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicLong staleResults = new AtomicLong();
+
+	void recordRead() {
+		reads.incrementAndGet();
+	}
+
+	void recordHedge() {
+		hedgedReads.incrementAndGet();
+	}
+
+	void recordHedgeWin() {
+		hedgeWins.incrementAndGet();
+	}
+
+	void recordStaleResult() {
+		staleResults.incrementAndGet();
+	}
+
+	public long getReads() {
+		return reads.get();
+	}
+
+	public long getHedgedReads() {
+		return hedgedReads.get();
+	}
+
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	public long getStaleResults() {
+		return staleResults.get();
+	}
+
+	public double getHedgeRate() {
+		long readCount = reads.get();
+		return readCount == 0 ? 0.0 : (double) hedgedReads.get() / readCount;
+	}
+
+	public double getHedgeWinRate() {
+		long hedgeCount = hedgedReads.get();
+		return hedgeCount == 0 ? 0.0 : (double) hedgeWins.get() / hedgeCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ReplicaReadMetrics [reads=" + getReads() + ", hedgedReads=" + getHedgedReads() + ", hedgeWins="
+				+ getHedgeWins() + ", staleResults=" + getStaleResults() + "]";
+	}
+}
@@ -0,0 +1,91 @@
+package com.mitti.driver;
+
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Token buckets per priority class, table and operation type. Rates
+ *         are read from
+ *         hbase.driver.throttle.&lt;priorityClass&gt;[.&lt;table&gt;].&lt;write|delete|scan|read&gt;.&lt;ops|bytes&gt;
+ *         (per second); the table specific rate wins, otherwise each table
+ *         gets its own bucket at the class wide rate. Operations without a
+ *         configured rate are not throttled.
+ */
+class RequestThrottle {
+
+	static final String DEFAULT_PRIORITY_CLASS = "default";
+	private static final String THROTTLE_PROPERTY_PREFIX = "hbase.driver.throttle.";
+	private static final String OPS_UNIT = "ops";
+	private static final String BYTES_UNIT = "bytes";
+
+	private final Properties environmentProperties;
+	private final ConcurrentMap<String, Optional<RateLimiter>> rateLimiters = //
+			new ConcurrentHashMap<String, Optional<RateLimiter>>();
+	private final ThreadLocal<String> priorityClass = ThreadLocal.withInitial(() -> DEFAULT_PRIORITY_CLASS);
+	private final ThrottleMetrics throttleMetrics = new ThrottleMetrics();
+	private final boolean configured;
+
+	RequestThrottle(Properties environmentProperties) {
+		this.environmentProperties = environmentProperties;
+		this.configured = environmentProperties.stringPropertyNames().stream()
+				.anyMatch(property -> property.startsWith(THROTTLE_PROPERTY_PREFIX));
+	}
+
+	void setPriorityClass(String priorityClassName) {
+		priorityClass.set(priorityClassName == null ? DEFAULT_PRIORITY_CLASS : priorityClassName);
+	}
+
+	String getPriorityClass() {
+		return priorityClass.get();
+	}
+
+	ThrottleMetrics getThrottleMetrics() {
+		return throttleMetrics;
+	}
+
+	/*
+	 * Blocks until the operations and bytes are permitted for the calling
+	 * thread's priority class
+	 */
+	void acquire(String table, ThrottledOperation operation, int operations, long bytes) {
+
+		// skips building the bucket keys on every call when nothing is
+		// throttled
+		if (!configured) {
+			return;
+		}
+
+		double waitSeconds = 0;
+
+		Optional<RateLimiter> opsLimiter = getRateLimiter(table, operation, OPS_UNIT);
+		if (opsLimiter.isPresent() && operations > 0) {
+			waitSeconds += opsLimiter.get().acquire(operations);
+		}
+
+		Optional<RateLimiter> bytesLimiter = getRateLimiter(table, operation, BYTES_UNIT);
+		if (bytesLimiter.isPresent() && bytes > 0) {
+			waitSeconds += bytesLimiter.get().acquire((int) Math.min(bytes, Integer.MAX_VALUE));
+		}
+
+		throttleMetrics.recordWait(operation, (long) (waitSeconds * 1_000_000_000L));
+	}
+
+	private Optional<RateLimiter> getRateLimiter(String table, ThrottledOperation operation, String unit) {
+
+		String classPrefix = THROTTLE_PROPERTY_PREFIX + priorityClass.get() + ".";
+		String suffix = operation.getPropertyName() + "." + unit;
+
+		return rateLimiters.computeIfAbsent(classPrefix + table + "." + suffix, tableProperty -> {
+			String rate = environmentProperties.getProperty(tableProperty,
+					environmentProperties.getProperty(classPrefix + suffix));
+			return rate == null ? Optional.<RateLimiter>empty()
+					: Optional.of(RateLimiter.create(Double.parseDouble(rate)));
+		});
+	}
+}
@@ -0,0 +1,292 @@
+package com.mitti.driver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Decodes rows straight from the cells of a Result into a reused
+ *         entity instance. Columns are matched against the field mappings
+ *         without copying family/qualifier bytes and integral and boolean
+ *         values are parsed in place, so apart from the values themselves
+ *         (strings, boxed numbers) nothing is allocated per row.
+ */
+final class ReusableEntityDecoder<T extends KVPersistable> {
+
+	private static final byte[] TRUE = Bytes.toBytes("true");
+	// below it, one more digit overflows a negatively accumulated long
+	private static final long MULTIPLY_LIMIT = Long.MIN_VALUE / 10;
+	// powers of ten which are exact doubles
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private final List<FieldMapping<T>> fixedFields;
+	private final Object[] defaultValues;
+	private final List<FieldMapping<T>> dynamicFields;
+	private final byte[][] dynamicFamilies;
+
+	ReusableEntityDecoder(EntityMapper<T> entityMapper) {
+
+		List<String> dynamicFieldNames = new ArrayList<String>();
+		for (String dynamicField : entityMapper.getDynamicColumnFamilyFields()) {
+			dynamicFieldNames.add(dynamicField.toLowerCase());
+		}
+
+		this.fixedFields = new ArrayList<FieldMapping<T>>();
+		this.dynamicFields = new ArrayList<FieldMapping<T>>();
+		for (FieldMapping<T> field : entityMapper.getFieldMappings()) {
+			if (dynamicFieldNames.contains(field.getName().toLowerCase())) {
+				dynamicFields.add(field);
+			} else if (field.getColumn() != null) {
+				fixedFields.add(field);
+			}
+		}
+
+		this.defaultValues = new Object[fixedFields.size()];
+		for (int i = 0; i < fixedFields.size(); i++) {
+			defaultValues[i] = defaultValue(fixedFields.get(i).getTypeName());
+		}
+
+		this.dynamicFamilies = new byte[dynamicFields.size()][];
+		for (int i = 0; i < dynamicFields.size(); i++) {
+			dynamicFamilies[i] = Bytes.toBytes(dynamicFields.get(i).getName().split("_", 2)[0].toLowerCase());
+		}
+	}
+
+	/*
+	 * Resets the entity and fills it from the row. Maps of dynamic column
+	 * families are cleared and refilled instead of being replaced.
+	 */
+	@SuppressWarnings("unchecked")
+	void decode(Result result, T entity) {
+
+		for (int i = 0; i < fixedFields.size(); i++) {
+			fixedFields.get(i).set(entity, defaultValues[i]);
+		}
+		for (FieldMapping<T> dynamicField : dynamicFields) {
+			Map<String, String> columnValues = (Map<String, String>) dynamicField.get(entity);
+			if (columnValues != null) {
+				columnValues.clear();
+			}
+		}
+
+		entity.setRow_key(Bytes.toString(result.getRow()));
+
+		for (Cell cell : result.rawCells()) {
+
+			FieldMapping<T> field = findFixedField(cell);
+			if (field != null) {
+				field.set(entity, decodeValue(field, cell));
+				continue;
+			}
+
+			for (int i = 0; i < dynamicFields.size(); i++) {
+				if (CellUtil.matchingFamily(cell, dynamicFamilies[i])) {
+					FieldMapping<T> dynamicField = dynamicFields.get(i);
+					Map<String, String> columnValues = (Map<String, String>) dynamicField.get(entity);
+					if (columnValues == null) {
+						columnValues = new HashMap<String, String>();
+						dynamicField.set(entity, columnValues);
+					}
+					columnValues.put(
+							Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(),
+									cell.getQualifierLength()),
+							Bytes.toString(ValueCompression.decompress(CellUtil.cloneValue(cell),
+									dynamicField.getCompressionThreshold())));
+					break;
+				}
+			}
+		}
+	}
+
+	private FieldMapping<T> findFixedField(Cell cell) {
+		for (FieldMapping<T> field : fixedFields) {
+			if (CellUtil.matchingFamily(cell, field.getFamilyBytes())
+					&& CellUtil.matchingQualifier(cell, field.getColumnBytes())) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	private Object decodeValue(FieldMapping<T> field, Cell cell) {
+
+		byte[] array = cell.getValueArray();
+		int offset = cell.getValueOffset();
+		int length = cell.getValueLength();
+
+		if (field.isCounter()) {
+			return Bytes.toLong(array, offset, length);
+		}
+		if (field.getCompressionThreshold() >= 0 && ValueCompression.isCompressed(array, offset, length)) {
+			array = ValueCompression.decompress(CellUtil.cloneValue(cell), field.getCompressionThreshold());
+			offset = 0;
+			length = array.length;
+		}
+
+		switch (field.getTypeName()) {
+
+		case "String":
+			return Bytes.toString(array, offset, length);
+
+		case "short":
+		case "Short":
+			return (short) parseLong(array, offset, length, Short.MIN_VALUE, Short.MAX_VALUE);
+
+		case "long":
+		case "Long":
+			return parseLong(array, offset, length);
+
+		case "int":
+		case "Integer":
+			return (int) parseLong(array, offset, length, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+		case "double":
+		case "Double":
+			return parseDouble(array, offset, length);
+
+		case "float":
+		case "Float":
+			return Float.parseFloat(Bytes.toString(array, offset, length));
+
+		case "boolean":
+		case "Boolean":
+			return equalsIgnoreCase(array, offset, length, TRUE);
+
+		default:
+			throw new IllegalArgumentException("Unsupported Field Type: " + field.getTypeName() + " Value: ["
+					+ Bytes.toString(array, offset, length) + "]");
+		}
+	}
+
+	private static boolean equalsIgnoreCase(byte[] array, int offset, int length, byte[] lowerCase) {
+		if (length != lowerCase.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (Character.toLowerCase(array[offset + i]) != lowerCase[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static long parseLong(byte[] array, int offset, int length, long min, long max) {
+		long value = parseLong(array, offset, length);
+		if (value < min || value > max) {
+			throw new NumberFormatException("Value out of range: " + Bytes.toString(array, offset, length));
+		}
+		return value;
+	}
+
+	/*
+	 * Parses a decimal integer written by toString() without creating a
+	 * String. Digits are accumulated negatively, like Long.parseLong, so that
+	 * Long.MIN_VALUE parses and every overflow is detected.
+	 */
+	static long parseLong(byte[] array, int offset, int length) {
+
+		if (length == 0) {
+			throw new NumberFormatException("Empty value");
+		}
+		int i = offset;
+		int end = offset + length;
+		boolean negative = array[i] == '-';
+		if (negative || array[i] == '+') {
+			i++;
+		}
+		if (i == end) {
+			throw new NumberFormatException("No digits: " + Bytes.toString(array, offset, length));
+		}
+
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = array[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("Not a number: " + Bytes.toString(array, offset, length));
+			}
+			if (value < MULTIPLY_LIMIT || value * 10 < Long.MIN_VALUE + digit) {
+				throw new NumberFormatException("Value out of range: " + Bytes.toString(array, offset, length));
+			}
+			value = value * 10 - digit;
+		}
+		if (!negative && value == Long.MIN_VALUE) {
+			throw new NumberFormatException("Value out of range: " + Bytes.toString(array, offset, length));
+		}
+		return negative ? value : -value;
+	}
+
+	/*
+	 * Parses a decimal written by toString() without creating a String when
+	 * it has at most 15 significant digits and no exponent: both the digits
+	 * and the power of ten are exact doubles then, so one division rounds
+	 * correctly. Other values (exponents, NaN, Infinity) go through
+	 * Double.parseDouble.
+	 */
+	static double parseDouble(byte[] array, int offset, int length) {
+
+		int i = offset;
+		int end = offset + length;
+		boolean negative = i < end && array[i] == '-';
+		if (negative || (i < end && array[i] == '+')) {
+			i++;
+		}
+
+		long digits = 0;
+		int significantDigits = 0;
+		int fractionDigits = -1;
+		boolean anyDigit = false;
+		for (; i < end; i++) {
+			int digit = array[i] - '0';
+			if (digit >= 0 && digit <= 9) {
+				anyDigit = true;
+				if (digits > 0 || digit > 0) {
+					significantDigits++;
+				}
+				digits = digits * 10 + digit;
+				if (fractionDigits >= 0) {
+					fractionDigits++;
+				}
+			} else if (array[i] == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else {
+				break;
+			}
+		}
+
+		if (i != end || !anyDigit || significantDigits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+			return Double.parseDouble(Bytes.toString(array, offset, length));
+		}
+		double value = fractionDigits > 0 ? digits / POWERS_OF_TEN[fractionDigits] : digits;
+		return negative ? -value : value;
+	}
+
+	private static Object defaultValue(String typeName) {
+		switch (typeName) {
+		case "short":
+			return (short) 0;
+		case "long":
+			return 0L;
+		case "int":
+			return 0;
+		case "double":
+			return 0d;
+		case "float":
+			return 0f;
+		case "boolean":
+			return false;
+		default:
+			return null;
+		}
+	}
+}
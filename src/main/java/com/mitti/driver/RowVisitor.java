@@ -0,0 +1,19 @@
+package com.mitti.driver;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Receives the rows of a visitor scan. The entity passed in is reused
+ *         for the following rows, so values that should outlive the call have
+ *         to be copied out of it.
+ */
+@FunctionalInterface
+public interface RowVisitor<T extends KVPersistable> {
+
+	/*
+	 * Returns false to stop the scan
+	 */
+	boolean visit(T entity);
+}
@@ -0,0 +1,46 @@
+package com.mitti.driver;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Entities of a sampled query along with the estimated number of rows
+ *         the full query would have returned.
+ */
+public class SampleResult<T extends KVPersistable> {
+
+	private final List<T> entities;
+	private final double samplingFraction;
+	private final Estimate estimatedCount;
+
+	SampleResult(List<T> entities, double samplingFraction, Estimate estimatedCount) {
+		this.entities = entities;
+		this.samplingFraction = samplingFraction;
+		this.estimatedCount = estimatedCount;
+	}
+
+	public List<T> getEntities() {
+		return Collections.unmodifiableList(entities);
+	}
+
+	/*
+	 * Fraction of rows, or of regions, that was read
+	 */
+	public double getSamplingFraction() {
+		return samplingFraction;
+	}
+
+	public Estimate getEstimatedCount() {
+		return estimatedCount;
+	}
+
+	@Override
+	public String toString() {
+		return "SampleResult [entities=" + entities.size() + ", samplingFraction=" + samplingFraction
+				+ ", estimatedCount=" + estimatedCount + "]";
+	}
+}
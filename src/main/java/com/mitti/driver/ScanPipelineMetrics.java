@@ -0,0 +1,84 @@
+package com.mitti.driver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Throughput of the two stages of pipelined scans: fetching batches
+ *         from the (prefetching) scanner and decoding them into entities.
+ */
+public class ScanPipelineMetrics {
+
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong fetchedRows = new AtomicLong();
+	private final AtomicLong fetchNanos = new AtomicLong();
+	private final AtomicLong decodedRows = new AtomicLong();
+	private final AtomicLong decodeNanos = new AtomicLong();
+	private final AtomicLong parallelDecodedBatches = new AtomicLong();
+
+	void recordFetch(int rows, long nanos) {
+		batches.incrementAndGet();
+		fetchedRows.addAndGet(rows);
+		fetchNanos.addAndGet(nanos);
+	}
+
+	void recordDecode(int rows, long nanos, boolean parallel) {
+		decodedRows.addAndGet(rows);
+		decodeNanos.addAndGet(nanos);
+		if (parallel) {
+			parallelDecodedBatches.incrementAndGet();
+		}
+	}
+
+	public long getBatches() {
+		return batches.get();
+	}
+
+	public long getParallelDecodedBatches() {
+		return parallelDecodedBatches.get();
+	}
+
+	public long getFetchedRows() {
+		return fetchedRows.get();
+	}
+
+	public long getDecodedRows() {
+		return decodedRows.get();
+	}
+
+	public long getFetchMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(fetchNanos.get());
+	}
+
+	public long getDecodeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(decodeNanos.get());
+	}
+
+	/*
+	 * Rows per second of time spent waiting on the scanner
+	 */
+	public double getFetchThroughput() {
+		return perSecond(fetchedRows.get(), fetchNanos.get());
+	}
+
+	/*
+	 * Rows per second of time spent decoding (wall clock, so parallel decoding
+	 * raises it)
+	 */
+	public double getDecodeThroughput() {
+		return perSecond(decodedRows.get(), decodeNanos.get());
+	}
+
+	private static double perSecond(long rows, long nanos) {
+		return nanos == 0 ? 0.0 : rows * 1_000_000_000.0 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return "ScanPipelineMetrics [batches=" + getBatches() + ", parallelDecodedBatches="
+				+ getParallelDecodedBatches() + ", fetchedRows=" + getFetchedRows() + ", fetchMs=" + getFetchMillis()
+				+ ", decodedRows=" + getDecodedRows() + ", decodeMs=" + getDecodeMillis() + "]";
+	}
+}
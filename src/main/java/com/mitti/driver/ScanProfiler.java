@@ -0,0 +1,85 @@
+package com.mitti.driver;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Times one driver scan and records its QueryProfile. Scans slower
+ *         than the threshold are written to the slow query log
+ *         (com.mitti.driver.SlowQueryLog) as key=value pairs.
+ */
+class ScanProfiler {
+
+	static final String SLOW_QUERY_LOGGER = "com.mitti.driver.SlowQueryLog";
+	private static final int MAX_FILTER_SUMMARY_LENGTH = 512;
+
+	private static final Logger slowQueryLogger = LoggerFactory.getLogger(SLOW_QUERY_LOGGER);
+
+	private final String table;
+	private final Scan scan;
+	private final long slowQueryThresholdMillis;
+
+	private long serverWaitNanos;
+	private long decodeNanos;
+	private long lastMark;
+
+	/**
+	 * @param slowQueryThresholdMillis
+	 *            scans taking at least this long are logged, negative to
+	 *            disable the slow query log
+	 */
+	ScanProfiler(String table, Scan scan, long slowQueryThresholdMillis) {
+		this.table = table;
+		this.scan = scan;
+		this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+		scan.setScanMetricsEnabled(true);
+		this.lastMark = System.nanoTime();
+	}
+
+	/*
+	 * Called once a row, or a batch of rows, was received from the scanner
+	 */
+	void rowFetched() {
+		long now = System.nanoTime();
+		serverWaitNanos += now - lastMark;
+		lastMark = now;
+	}
+
+	/*
+	 * Called once the received row, or batch, was turned into results
+	 */
+	void rowDecoded() {
+		long now = System.nanoTime();
+		decodeNanos += now - lastMark;
+		lastMark = now;
+	}
+
+	QueryProfile finish(ScanMetrics scanMetrics, long rowsReturned) {
+		serverWaitNanos += System.nanoTime() - lastMark;
+
+		QueryProfile profile = new QueryProfile(table, summarize(scan.getFilter()),
+				Bytes.toStringBinary(scan.getStartRow()), Bytes.toStringBinary(scan.getStopRow()), scanMetrics,
+				rowsReturned, serverWaitNanos, decodeNanos);
+
+		if (slowQueryThresholdMillis >= 0 && profile.getTotalMillis() >= slowQueryThresholdMillis) {
+			slowQueryLogger.warn(profile.toString());
+		}
+		return profile;
+	}
+
+	private static String summarize(Filter filter) {
+		if (filter == null) {
+			return "none";
+		}
+		String summary = filter.toString();
+		return summary.length() > MAX_FILTER_SUMMARY_LENGTH
+				? summary.substring(0, MAX_FILTER_SUMMARY_LENGTH) + "..."
+				: summary;
+	}
+}
@@ -0,0 +1,164 @@
+package com.mitti.driver;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Publishes the rows of a scan as subscribers request them. Every
+ *         subscriber gets its own scanner, opened on first demand; rows are
+ *         pulled from it only while there is outstanding demand, so the next
+ *         scanner RPC waits for the subscriber. Signals are emitted serially
+ *         from the given executor and cancelling closes the scanner.
+ */
+class ScanPublisher<T> implements Publisher<T> {
+
+	/*
+	 * Turns a row into the published element, null to skip the row
+	 */
+	interface RowDecoder<T> {
+		T decode(Result result) throws Exception;
+	}
+
+	private final Connection connection;
+	private final TableName tableName;
+	private final Scan scan;
+	private final RowDecoder<T> decoder;
+	private final Executor executor;
+
+	ScanPublisher(Connection connection, TableName tableName, Scan scan, RowDecoder<T> decoder, Executor executor) {
+		this.connection = connection;
+		this.tableName = tableName;
+		this.scan = scan;
+		this.decoder = decoder;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		subscriber.onSubscribe(new ScanSubscription(subscriber));
+	}
+
+	private class ScanSubscription implements Subscription, Runnable {
+
+		private final Subscriber<? super T> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger pendingSignals = new AtomicInteger();
+
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+
+		// only touched by the draining thread
+		private boolean done;
+		private Table table;
+		private ResultScanner scanner;
+
+		ScanSubscription(Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("Requested " + n + " rows, must be positive");
+			} else {
+				demand.accumulateAndGet(n,
+						(current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (pendingSignals.getAndIncrement() == 0) {
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				drain();
+				missed = pendingSignals.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drain() {
+
+			if (done) {
+				return;
+			}
+
+			try {
+				while (!cancelled && invalidRequest == null && demand.get() > 0) {
+
+					if (scanner == null) {
+						table = connection.getTable(tableName);
+						scanner = table.getScanner(new Scan(scan));
+					}
+
+					Result result = scanner.next();
+					if (result == null) {
+						finish();
+						subscriber.onComplete();
+						return;
+					}
+
+					T element = decoder.decode(result);
+					if (element != null) {
+						if (demand.get() != Long.MAX_VALUE) {
+							demand.decrementAndGet();
+						}
+						subscriber.onNext(element);
+					}
+				}
+
+				if (invalidRequest != null && !cancelled) {
+					finish();
+					subscriber.onError(invalidRequest);
+				} else if (cancelled) {
+					finish();
+				}
+			} catch (Throwable e) {
+				finish();
+				subscriber.onError(e);
+			}
+		}
+
+		private void finish() {
+			done = true;
+			cancelled = true;
+			try {
+				if (scanner != null) {
+					scanner.close();
+				}
+				if (table != null) {
+					table.close();
+				}
+			} catch (IOException e) {
+				// scanner leases expire on the region servers
+			}
+		}
+	}
+}
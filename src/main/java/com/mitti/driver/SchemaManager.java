@@ -0,0 +1,294 @@
+package com.mitti.driver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mitti.common.ColumnFamilySchema;
+import com.mitti.common.PreSplit;
+import com.mitti.common.PreSplit.KeyDistribution;
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Creates or alters the table of an entity. Column families are
+ *         derived from the columnfamily_column field naming and
+ *         {@literal @}DynamicColumnFamily, tuned through
+ *         {@literal @}ColumnFamilySchema and new tables are pre-split either
+ *         from row keys sampled from an existing table or from the entity's
+ *         {@literal @}PreSplit key distribution. Families of existing tables
+ *         are only altered when declared with
+ *         {@literal @}ColumnFamilySchema. Index tables of {@literal @}Indexed
+ *         fields are created along with the table.
+ */
+public class SchemaManager {
+
+	private static final String EXCEPTION_OCCURED_WHILE_CREATING_UPDATING_TABLE = "Exception Occured While Creating/Updating Table: ";
+	private static final String SPLITS_IGNORED_FOR_EXISTING_TABLE = "Table already exists, split keys are ignored for table: ";
+	private static final String EXCEPTION_OCCURED_WHILE_SAMPLING_ROW_KEYS = "Exception Occured While Sampling Row Keys: ";
+	private static final int SAMPLE_SCAN_CACHING = 1000;
+
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private Connection connection = null;
+	private String tablePrefix = "";
+
+	public SchemaManager(Connection connection, Properties env) {
+		this.connection = connection;
+		Boolean useMapRDb = Boolean.valueOf(env.getProperty("hbase.usemaprdb"));
+		if (useMapRDb) {
+			this.tablePrefix = env.getProperty("hbase.maprdb.path");
+		}
+	}
+
+	/*
+	 * New tables are pre-split as declared by @PreSplit on the entity, if any
+	 */
+	public <T extends KVPersistable> boolean createOrUpdateTable(String queryTable, Class<T> entityClass) {
+
+		PreSplit preSplit = entityClass.getAnnotation(PreSplit.class);
+		byte[][] splitKeys = preSplit == null ? null
+				: splitsFromDistribution(preSplit.distribution(), preSplit.regions());
+		return createOrUpdateTable(queryTable, entityClass, splitKeys);
+	}
+
+	public <T extends KVPersistable> boolean createOrUpdateTable(String queryTable, Class<T> entityClass,
+			byte[][] splitKeys) {
+
+		boolean schemaApplied = false;
+		TableName tableName = TableName.valueOf(tablePrefix + queryTable);
+
+		try (Admin admin = connection.getAdmin()) {
+
+			List<ColumnFamilyDescriptor> families = getColumnFamilyDescriptors(entityClass);
+
+			if (!admin.tableExists(tableName)) {
+
+				TableDescriptor tableDescriptor = TableDescriptorBuilder.newBuilder(tableName)
+						.setColumnFamilies(families).build();
+				if (splitKeys == null || splitKeys.length == 0) {
+					admin.createTable(tableDescriptor);
+				} else {
+					admin.createTable(tableDescriptor, splitKeys);
+				}
+
+			} else {
+
+				if (splitKeys != null && splitKeys.length > 0) {
+					logger.warn(SPLITS_IGNORED_FOR_EXISTING_TABLE + queryTable);
+				}
+
+				/*
+				 * Existing families are only altered when their settings are
+				 * declared with @ColumnFamilySchema, hand tuned settings of
+				 * other families are kept
+				 */
+				Set<String> declaredFamilies = getDeclaredFamilies(entityClass);
+				TableDescriptor existingDescriptor = admin.getDescriptor(tableName);
+				for (ColumnFamilyDescriptor family : families) {
+					ColumnFamilyDescriptor existingFamily = existingDescriptor.getColumnFamily(family.getName());
+					if (existingFamily == null) {
+						admin.addColumnFamily(tableName, family);
+					} else if (declaredFamilies.contains(family.getNameAsString())
+							&& !hasSameSettings(existingFamily, family)) {
+						admin.modifyColumnFamily(tableName, applySettings(existingFamily, family));
+					}
+				}
+			}
+
+			for (FieldMapping<T> indexedField : SecondaryIndexes.getIndexedFields(entityClass)) {
+				TableName indexTableName = TableName
+						.valueOf(tablePrefix + SecondaryIndexes.indexTable(queryTable, indexedField.getName()));
+				if (!admin.tableExists(indexTableName)) {
+					admin.createTable(SecondaryIndexes.indexTableDescriptor(indexTableName));
+				}
+			}
+			schemaApplied = true;
+
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_CREATING_UPDATING_TABLE + " Table:" + queryTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return schemaApplied;
+	}
+
+	/*
+	 * Samples a fraction of the row keys of an existing table (key only, on
+	 * the region servers) and picks region boundaries from them, e.g. to
+	 * create a new table for the same keys. Returns null on failure.
+	 */
+	public byte[][] splitsFromTable(String sampleTable, float fraction, int regions) {
+
+		byte[][] splitKeys = null;
+
+		try (Table table = connection.getTable(TableName.valueOf(tablePrefix + sampleTable))) {
+
+			Scan scan = new Scan();
+			scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, new RandomRowFilter(fraction),
+					new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+			scan.setCaching(SAMPLE_SCAN_CACHING);
+			scan.setCacheBlocks(false);
+
+			List<String> sampledRowKeys = new ArrayList<String>();
+			try (ResultScanner scanner = table.getScanner(scan)) {
+				for (Result result = scanner.next(); result != null; result = scanner.next()) {
+					sampledRowKeys.add(Bytes.toString(result.getRow()));
+				}
+			}
+			splitKeys = splitsFromSample(sampledRowKeys, regions);
+		} catch (Exception e) {
+			logger.error(EXCEPTION_OCCURED_WHILE_SAMPLING_ROW_KEYS + " Table:" + sampleTable + "\n"
+					+ ExceptionUtils.getFullStackTrace(e));
+		}
+
+		return splitKeys;
+	}
+
+	private <T extends KVPersistable> Set<String> getDeclaredFamilies(Class<T> entityClass) {
+		Set<String> declaredFamilies = new HashSet<String>();
+		for (ColumnFamilySchema familySchema : entityClass.getAnnotationsByType(ColumnFamilySchema.class)) {
+			declaredFamilies.add(familySchema.family());
+		}
+		return declaredFamilies;
+	}
+
+	<T extends KVPersistable> List<ColumnFamilyDescriptor> getColumnFamilyDescriptors(Class<T> entityClass) {
+
+		EntityMapper<T> entityMapper = EntityMappers.forClass(entityClass);
+
+		Map<String, ColumnFamilySchema> familySchemas = new HashMap<String, ColumnFamilySchema>();
+		for (ColumnFamilySchema familySchema : entityClass.getAnnotationsByType(ColumnFamilySchema.class)) {
+			familySchemas.put(familySchema.family(), familySchema);
+		}
+
+		Map<String, ColumnFamilyDescriptor> families = new LinkedHashMap<String, ColumnFamilyDescriptor>();
+		for (FieldMapping<T> fieldMapping : entityMapper.getFieldMappings()) {
+			families.computeIfAbsent(fieldMapping.getFamily(),
+					family -> buildColumnFamily(family, familySchemas.get(family)));
+		}
+		for (String dynamicField : entityMapper.getDynamicColumnFamilyFields()) {
+			families.computeIfAbsent(dynamicField.split("_", 2)[0].toLowerCase(),
+					family -> buildColumnFamily(family, familySchemas.get(family)));
+		}
+
+		return new ArrayList<ColumnFamilyDescriptor>(families.values());
+	}
+
+	private ColumnFamilyDescriptor buildColumnFamily(String family, ColumnFamilySchema familySchema) {
+
+		ColumnFamilyDescriptorBuilder builder = ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes(family));
+		if (familySchema != null) {
+			builder.setBloomFilterType(familySchema.bloomFilter());
+			builder.setCompressionType(familySchema.compression());
+			builder.setDataBlockEncoding(familySchema.dataBlockEncoding());
+			builder.setBlocksize(familySchema.blockSize());
+			builder.setTimeToLive(familySchema.ttlSeconds());
+		}
+		return builder.build();
+	}
+
+	private boolean hasSameSettings(ColumnFamilyDescriptor existing, ColumnFamilyDescriptor expected) {
+		return existing.getBloomFilterType() == expected.getBloomFilterType()
+				&& existing.getCompressionType() == expected.getCompressionType()
+				&& existing.getDataBlockEncoding() == expected.getDataBlockEncoding()
+				&& existing.getBlocksize() == expected.getBlocksize()
+				&& existing.getTimeToLive() == expected.getTimeToLive();
+	}
+
+	/*
+	 * Other settings of an existing family (versions, in-memory, ...) are left
+	 * as they are
+	 */
+	private ColumnFamilyDescriptor applySettings(ColumnFamilyDescriptor existing, ColumnFamilyDescriptor expected) {
+		return ColumnFamilyDescriptorBuilder.newBuilder(existing).setBloomFilterType(expected.getBloomFilterType())
+				.setCompressionType(expected.getCompressionType())
+				.setDataBlockEncoding(expected.getDataBlockEncoding()).setBlocksize(expected.getBlocksize())
+				.setTimeToLive(expected.getTimeToLive()).build();
+	}
+
+	/*
+	 * Picks evenly spaced keys of the sorted sample as region boundaries
+	 */
+	public static byte[][] splitsFromSample(List<String> sampledRowKeys, int regions) {
+
+		List<String> sortedKeys = new ArrayList<String>(new TreeSet<String>(sampledRowKeys));
+		TreeSet<String> splitPoints = new TreeSet<String>();
+
+		for (int region = 1; region < regions && !sortedKeys.isEmpty(); region++) {
+			String splitPoint = sortedKeys.get((int) ((long) region * sortedKeys.size() / regions));
+			if (!splitPoint.isEmpty()) {
+				splitPoints.add(splitPoint);
+			}
+		}
+
+		return toSplitKeys(splitPoints);
+	}
+
+	/*
+	 * Divides the key space of the leading characters evenly, using as many
+	 * leading characters as the number of regions requires
+	 */
+	public static byte[][] splitsFromDistribution(KeyDistribution distribution, int regions) {
+
+		String alphabet = distribution.getAlphabet();
+		int base = alphabet.length();
+
+		int prefixLength = 1;
+		long keySpace = base;
+		while (keySpace < regions) {
+			keySpace *= base;
+			prefixLength++;
+		}
+
+		TreeSet<String> splitPoints = new TreeSet<String>();
+		for (int region = 1; region < regions; region++) {
+
+			long position = region * keySpace / regions;
+			char[] prefix = new char[prefixLength];
+			for (int i = prefixLength - 1; i >= 0; i--) {
+				prefix[i] = alphabet.charAt((int) (position % base));
+				position /= base;
+			}
+			splitPoints.add(new String(prefix));
+		}
+
+		return toSplitKeys(splitPoints);
+	}
+
+	private static byte[][] toSplitKeys(TreeSet<String> splitPoints) {
+		byte[][] splitKeys = new byte[splitPoints.size()][];
+		int i = 0;
+		for (String splitPoint : splitPoints) {
+			splitKeys[i++] = Bytes.toBytes(splitPoint);
+		}
+		return splitKeys;
+	}
+}
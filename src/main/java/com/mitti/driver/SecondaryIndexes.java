@@ -0,0 +1,266 @@
+package com.mitti.driver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.javatuples.Pair;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Layout of the companion index tables. An index row key is the
+ *         stored field value followed by a 0x00 separator and the row key of
+ *         the indexed row, which is also kept in the single index cell.
+ */
+final class SecondaryIndexes {
+
+	static final String INDEX_TABLE_INFIX = "_idx_";
+	static final byte[] INDEX_FAMILY = Bytes.toBytes("i");
+	static final byte[] ROW_KEY_COLUMN = Bytes.toBytes("r");
+
+	private static final byte SEPARATOR = 0x00;
+	private static final byte SEPARATOR_UPPER_BOUND = 0x01;
+
+	private SecondaryIndexes() {
+	}
+
+	static String indexTable(String queryTable, String field) {
+		return queryTable + INDEX_TABLE_INFIX + field;
+	}
+
+	static TableDescriptor indexTableDescriptor(TableName indexTableName) {
+		return TableDescriptorBuilder.newBuilder(indexTableName)
+				.setColumnFamily(ColumnFamilyDescriptorBuilder.of(INDEX_FAMILY)).build();
+	}
+
+	static <T extends KVPersistable> List<FieldMapping<T>> getIndexedFields(Class<T> entityClass) {
+		List<FieldMapping<T>> indexedFields = new ArrayList<FieldMapping<T>>();
+		for (FieldMapping<T> field : EntityMappers.forClass(entityClass).getFieldMappings()) {
+			if (isIndexable(field)) {
+				indexedFields.add(field);
+			}
+		}
+		return indexedFields;
+	}
+
+	/*
+	 * Counters and dynamic column family maps are not indexed
+	 */
+	static boolean isIndexable(FieldMapping<?> field) {
+		return field.isIndexed() && !field.isCounter() && field.getColumn() != null;
+	}
+
+	/*
+	 * Index rows are keyed by the stored string, which only sorts by value
+	 * for String fields: "10" < "9" and negative numbers are reversed
+	 */
+	static void checkRangeField(FieldMapping<?> field) {
+		if (!"String".equals(field.getTypeName())) {
+			throw new IllegalArgumentException(
+					"Range lookups need a String field, field " + field.getName() + " is " + field.getTypeName());
+		}
+	}
+
+	static byte[] indexRow(String value, String row_key) {
+		return Bytes.add(Bytes.toBytes(value), new byte[] { SEPARATOR }, Bytes.toBytes(row_key));
+	}
+
+	static Put indexPut(String value, String row_key) {
+		return new Put(indexRow(value, row_key)).addColumn(INDEX_FAMILY, ROW_KEY_COLUMN, Bytes.toBytes(row_key));
+	}
+
+	static Delete indexDelete(String value, String row_key) {
+		return new Delete(indexRow(value, row_key));
+	}
+
+	/*
+	 * All entries of one value: [value 0x00, value 0x01)
+	 */
+	static Scan equalityScan(String value) {
+		byte[] valueBytes = Bytes.toBytes(value);
+		return new Scan().withStartRow(Bytes.add(valueBytes, new byte[] { SEPARATOR }))
+				.withStopRow(Bytes.add(valueBytes, new byte[] { SEPARATOR_UPPER_BOUND }))
+				.addColumn(INDEX_FAMILY, ROW_KEY_COLUMN);
+	}
+
+	/*
+	 * Entries with fromValue <= value < toValue, a null bound is open
+	 */
+	static Scan rangeScan(String fromValue, String toValue) {
+		Scan scan = new Scan().addColumn(INDEX_FAMILY, ROW_KEY_COLUMN);
+		if (fromValue != null) {
+			scan.withStartRow(Bytes.toBytes(fromValue));
+		}
+		if (toValue != null) {
+			scan.withStopRow(Bytes.toBytes(toValue));
+		}
+		return scan;
+	}
+
+	/*
+	 * Compared as stored bytes, the order of the index scan
+	 */
+	static boolean inRange(String value, String fromValue, String toValue) {
+		if (value == null) {
+			return false;
+		}
+		byte[] valueBytes = Bytes.toBytes(value);
+		return (fromValue == null || Bytes.compareTo(valueBytes, Bytes.toBytes(fromValue)) >= 0)
+				&& (toValue == null || Bytes.compareTo(valueBytes, Bytes.toBytes(toValue)) < 0);
+	}
+
+	static boolean hasColumn(Put put, FieldMapping<?> field) {
+		return put.has(field.getFamilyBytes(), field.getColumnBytes());
+	}
+
+	static boolean hasColumn(Delete delete, FieldMapping<?> field) {
+		return hasColumn(delete, field.getFamilyBytes(), field.getColumnBytes());
+	}
+
+	/*
+	 * A delete without columns removes the whole row and a family delete all
+	 * columns of the family
+	 */
+	static boolean hasColumn(Delete delete, byte[] family, byte[] column) {
+		if (delete.getFamilyCellMap().isEmpty()) {
+			return true;
+		}
+		List<Cell> cells = delete.getFamilyCellMap().get(family);
+		if (cells != null) {
+			for (Cell cell : cells) {
+				if (cell.getType() == Cell.Type.DeleteFamily || CellUtil.matchingQualifier(cell, column)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Index mutations of one write, grouped by index table. Entries for new
+	 * values are written before the data rows and stale entries are removed
+	 * after them; lookups re-check the data row, so a failure in between only
+	 * leaves entries which are filtered out. Index writes and deletes are
+	 * throttled as writes and deletes of the data table.
+	 */
+	static class IndexMutations {
+
+		private final Map<String, List<Pair<String, Put>>> entries = //
+				new LinkedHashMap<String, List<Pair<String, Put>>>();
+		private final Map<String, List<Pair<String, Delete>>> staleEntries = //
+				new LinkedHashMap<String, List<Pair<String, Delete>>>();
+		private final String table;
+		private final RequestThrottle requestThrottle;
+
+		IndexMutations(String table, RequestThrottle requestThrottle) {
+			this.table = table;
+			this.requestThrottle = requestThrottle;
+		}
+
+		void addEntry(String indexTable, String value, String row_key) {
+			entries.computeIfAbsent(indexTable, k -> new ArrayList<Pair<String, Put>>())
+					.add(new Pair<String, Put>(row_key, indexPut(value, row_key)));
+		}
+
+		void removeEntry(String indexTable, String value, String row_key) {
+			staleEntries.computeIfAbsent(indexTable, k -> new ArrayList<Pair<String, Delete>>())
+					.add(new Pair<String, Delete>(row_key, indexDelete(value, row_key)));
+		}
+
+		/*
+		 * Index mutations of the given data rows only
+		 */
+		IndexMutations forRows(Set<String> rowKeys) {
+			IndexMutations rowMutations = new IndexMutations(table, requestThrottle);
+			for (Entry<String, List<Pair<String, Put>>> indexEntries : entries.entrySet()) {
+				for (Pair<String, Put> entry : indexEntries.getValue()) {
+					if (rowKeys.contains(entry.getValue0())) {
+						rowMutations.entries
+								.computeIfAbsent(indexEntries.getKey(), k -> new ArrayList<Pair<String, Put>>())
+								.add(entry);
+					}
+				}
+			}
+			for (Entry<String, List<Pair<String, Delete>>> indexEntries : staleEntries.entrySet()) {
+				for (Pair<String, Delete> entry : indexEntries.getValue()) {
+					if (rowKeys.contains(entry.getValue0())) {
+						rowMutations.staleEntries
+								.computeIfAbsent(indexEntries.getKey(), k -> new ArrayList<Pair<String, Delete>>())
+								.add(entry);
+					}
+				}
+			}
+			return rowMutations;
+		}
+
+		void writeEntries(Connection connection, String tablePrefix) throws IOException {
+			for (Entry<String, List<Pair<String, Put>>> indexEntries : entries.entrySet()) {
+				List<Put> puts = new ArrayList<Put>();
+				for (Pair<String, Put> entry : indexEntries.getValue()) {
+					puts.add(entry.getValue1());
+				}
+				requestThrottle.acquire(table, ThrottledOperation.WRITE, puts.size(), heapSize(puts));
+				try (Table indexTable = connection.getTable(TableName.valueOf(tablePrefix + indexEntries.getKey()))) {
+					indexTable.put(puts);
+				}
+			}
+		}
+
+		/*
+		 * Undoes writeEntries when the data row was not written
+		 */
+		void removeEntries(Connection connection, String tablePrefix) throws IOException {
+			for (Entry<String, List<Pair<String, Put>>> indexEntries : entries.entrySet()) {
+				List<Delete> deletes = new ArrayList<Delete>();
+				for (Pair<String, Put> entry : indexEntries.getValue()) {
+					deletes.add(new Delete(entry.getValue1().getRow()));
+				}
+				requestThrottle.acquire(table, ThrottledOperation.DELETE, deletes.size(), heapSize(deletes));
+				try (Table indexTable = connection.getTable(TableName.valueOf(tablePrefix + indexEntries.getKey()))) {
+					indexTable.delete(deletes);
+				}
+			}
+		}
+
+		void removeStaleEntries(Connection connection, String tablePrefix) throws IOException {
+			for (Entry<String, List<Pair<String, Delete>>> indexEntries : staleEntries.entrySet()) {
+				List<Delete> deletes = new ArrayList<Delete>();
+				for (Pair<String, Delete> entry : indexEntries.getValue()) {
+					deletes.add(entry.getValue1());
+				}
+				requestThrottle.acquire(table, ThrottledOperation.DELETE, deletes.size(), heapSize(deletes));
+				try (Table indexTable = connection.getTable(TableName.valueOf(tablePrefix + indexEntries.getKey()))) {
+					indexTable.delete(deletes);
+				}
+			}
+		}
+
+		private long heapSize(List<? extends Mutation> mutations) {
+			long size = 0;
+			for (Mutation mutation : mutations) {
+				size += mutation.heapSize();
+			}
+			return size;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.mitti.driver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableSnapshotScanner;
+import org.apache.hadoop.hbase.snapshot.RestoreSnapshotHelper;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.CommonFSUtils;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Scans reading the HFiles of a table snapshot directly instead of
+ *         going through the region servers. The snapshot is restored (as file
+ *         links, no data is copied) below a restore directory which must be
+ *         on the filesystem of hbase.rootdir but not inside it. An instance
+ *         holds one restored snapshot split into region scans; closing it
+ *         removes the restored files.
+ */
+final class SnapshotScans implements Closeable {
+
+	static final String DEFAULT_RESTORE_DIR = "/tmp/mitti-snapshot-restore";
+
+	private final Configuration conf;
+	private final Path rootDir;
+	private final Path restoreDir;
+	private final String snapshotName;
+	private final List<Scan> regionScans;
+
+	private SnapshotScans(Configuration conf, Path rootDir, Path restoreDir, String snapshotName,
+			List<Scan> regionScans) {
+		this.conf = conf;
+		this.rootDir = rootDir;
+		this.restoreDir = restoreDir;
+		this.snapshotName = snapshotName;
+		this.regionScans = regionScans;
+	}
+
+	static boolean snapshotExists(Admin admin, String snapshotName) throws IOException {
+		return !admin.listSnapshots(Pattern.compile(Pattern.quote(snapshotName))).isEmpty();
+	}
+
+	/*
+	 * Scanner over the whole snapshot, it restores into a directory of its
+	 * own and removes it on close
+	 */
+	static ResultScanner open(Configuration conf, String restoreBaseDir, String snapshotName, Scan scan)
+			throws IOException {
+		Path rootDir = CommonFSUtils.getRootDir(conf);
+		return new TableSnapshotScanner(conf, rootDir, qualify(conf, rootDir, restoreBaseDir), snapshotName, scan);
+	}
+
+	/*
+	 * Restores the snapshot once and splits the scan into one scan per
+	 * snapshot region within its row range, in row order
+	 */
+	static SnapshotScans restore(Configuration conf, String restoreBaseDir, String snapshotName, Scan scan)
+			throws IOException {
+
+		Path rootDir = CommonFSUtils.getRootDir(conf);
+		FileSystem fs = rootDir.getFileSystem(conf);
+		Path restoreDir = new Path(qualify(conf, rootDir, restoreBaseDir), snapshotName + "_" + UUID.randomUUID());
+
+		try {
+			List<RegionInfo> scannedRegions = new ArrayList<RegionInfo>();
+			for (RegionInfo region : RestoreSnapshotHelper
+					.copySnapshotForScanner(conf, fs, rootDir, restoreDir, snapshotName).getRegionsToAdd()) {
+				// parents of split regions are kept in the snapshot next to their daughters
+				if (!region.isOffline() || !(region.isSplit() || region.isSplitParent())) {
+					scannedRegions.add(region);
+				}
+			}
+			scannedRegions.sort((first, second) -> Bytes.compareTo(first.getStartKey(), second.getStartKey()));
+
+			byte[][] startKeys = new byte[scannedRegions.size()][];
+			byte[][] endKeys = new byte[scannedRegions.size()][];
+			for (int i = 0; i < scannedRegions.size(); i++) {
+				startKeys[i] = scannedRegions.get(i).getStartKey();
+				endKeys[i] = scannedRegions.get(i).getEndKey();
+			}
+			return new SnapshotScans(conf, rootDir, restoreDir, snapshotName,
+					RegionScans.splitByKeys(scan, startKeys, endKeys));
+		} catch (IOException | RuntimeException e) {
+			fs.delete(restoreDir, true);
+			throw e;
+		}
+	}
+
+	List<Scan> getRegionScans() {
+		return regionScans;
+	}
+
+	/*
+	 * Scanner over one of the region scans, safe to use from several threads
+	 * at once since every scanner opens its own region
+	 */
+	ResultScanner openRegion(Scan regionScan) throws IOException {
+		return new TableSnapshotScanner(conf, rootDir, restoreDir, snapshotName, regionScan, true);
+	}
+
+	@Override
+	public void close() throws IOException {
+		restoreDir.getFileSystem(conf).delete(restoreDir, true);
+	}
+
+	private static Path qualify(Configuration conf, Path rootDir, String dir) throws IOException {
+		return rootDir.getFileSystem(conf).makeQualified(new Path(dir));
+	}
+}
@@ -0,0 +1,11 @@
+package com.mitti.driver;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Order of the rows returned by
+ *         {@link HbaseDriver#topK(String, Class, org.apache.hadoop.hbase.filter.Filter, String, int, SortOrder)}
+ */
+public enum SortOrder {
+	ASC, DESC
+}
@@ -0,0 +1,244 @@
+package com.mitti.driver;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Result list which holds rows in their encoded form: on heap up to a
+ *         memory budget, further rows in temp files which are memory mapped
+ *         once the query is complete. Rows are decoded on every access, so
+ *         repeated access returns new instances and only the encoded rows
+ *         count against the heap. An access to a row which cannot be
+ *         decoded fails with the decoder's exception, the other rows stay
+ *         accessible. Closing deletes the temp files. Mapped files are only unmapped
+ *         once their buffers are garbage collected; where an open mapping
+ *         prevents the delete (Windows) the file is deleted on JVM exit.
+ */
+public class SpillableResultSet<T> extends AbstractList<T> implements RandomAccess, Closeable {
+
+	// rows never straddle two files, so every file can be mapped as a whole
+	static final int SPILL_FILE_BYTES = 256 * 1024 * 1024;
+
+	private final ScanPublisher.RowDecoder<T> decoder;
+	private final long memoryBudget;
+	private final Path spillDirectory;
+
+	private final List<byte[]> heapRows = new ArrayList<byte[]>();
+	private long heapBytes;
+
+	private final List<Path> spillFiles = new ArrayList<Path>();
+	private final List<MappedByteBuffer> spillBuffers = new ArrayList<MappedByteBuffer>();
+	private int[] spillRowFiles = new int[16];
+	private int[] spillRowOffsets = new int[16];
+	private int spilledRows;
+
+	private DataOutputStream spillOutput;
+	private int spillOutputBytes;
+	private boolean sealed;
+	private boolean closed;
+
+	SpillableResultSet(ScanPublisher.RowDecoder<T> decoder, long memoryBudget, Path spillDirectory) {
+		this.decoder = decoder;
+		this.memoryBudget = memoryBudget;
+		this.spillDirectory = spillDirectory;
+	}
+
+	void add(Result result) throws IOException {
+
+		if (sealed) {
+			throw new IllegalStateException("Result set is complete");
+		}
+
+		byte[] row = encode(result);
+		if (spillOutput == null && heapBytes + row.length <= memoryBudget) {
+			heapRows.add(row);
+			heapBytes += row.length;
+			return;
+		}
+
+		if (spillOutput == null || spillOutputBytes + row.length > SPILL_FILE_BYTES) {
+			nextSpillFile();
+		}
+		if (spilledRows == spillRowFiles.length) {
+			spillRowFiles = Arrays.copyOf(spillRowFiles, spilledRows * 2);
+			spillRowOffsets = Arrays.copyOf(spillRowOffsets, spilledRows * 2);
+		}
+		spillRowFiles[spilledRows] = spillFiles.size() - 1;
+		spillRowOffsets[spilledRows] = spillOutputBytes;
+		spilledRows++;
+
+		spillOutput.write(row);
+		spillOutputBytes += row.length;
+	}
+
+	/*
+	 * Ends writing and maps the temp files for reading
+	 */
+	void seal() throws IOException {
+		if (sealed) {
+			return;
+		}
+		sealed = true;
+		if (spillOutput != null) {
+			spillOutput.close();
+			spillOutput = null;
+		}
+		for (Path spillFile : spillFiles) {
+			try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+				spillBuffers.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+		}
+	}
+
+	@Override
+	public T get(int index) {
+
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		if (!sealed || closed) {
+			throw new IllegalStateException(closed ? "Result set is closed" : "Result set is not complete");
+		}
+
+		byte[] row;
+		if (index < heapRows.size()) {
+			row = heapRows.get(index);
+		} else {
+			int spilledRow = index - heapRows.size();
+			ByteBuffer buffer = spillBuffers.get(spillRowFiles[spilledRow]).duplicate();
+			buffer.position(spillRowOffsets[spilledRow]);
+			row = new byte[buffer.getInt(buffer.position())];
+			buffer.get(row);
+		}
+
+		try {
+			return decoder.decode(decode(row));
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to decode row " + index, e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return heapRows.size() + spilledRows;
+	}
+
+	public int getSpilledRows() {
+		return spilledRows;
+	}
+
+	/*
+	 * Bytes of encoded rows held on heap
+	 */
+	public long getHeapBytes() {
+		return heapBytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		heapRows.clear();
+		spillBuffers.clear();
+
+		IOException failure = null;
+		try {
+			if (spillOutput != null) {
+				spillOutput.close();
+			}
+		} catch (IOException e) {
+			failure = e;
+		}
+		for (Path spillFile : spillFiles) {
+			try {
+				Files.deleteIfExists(spillFile);
+			} catch (FileSystemException e) {
+				// e.g. still mapped, the mapping is released with its buffer
+				spillFile.toFile().deleteOnExit();
+			} catch (IOException e) {
+				failure = failure == null ? e : failure;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void nextSpillFile() throws IOException {
+		if (spillOutput != null) {
+			spillOutput.close();
+		}
+		Path spillFile = Files.createTempFile(spillDirectory, "mitti-resultset-", ".spill");
+		spillFiles.add(spillFile);
+		spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile.toFile()), 65536));
+		spillOutputBytes = 0;
+	}
+
+	/*
+	 * Row layout: total length, cell count, then every cell as length and
+	 * KeyValue bytes
+	 */
+	static byte[] encode(Result result) throws IOException {
+
+		Cell[] cells = result.isEmpty() ? new Cell[0] : result.rawCells();
+		byte[][] keyValues = new byte[cells.length][];
+		int length = 2 * Bytes.SIZEOF_INT;
+		for (int i = 0; i < cells.length; i++) {
+			keyValues[i] = KeyValueUtil.copyToNewByteArray(cells[i]);
+			length += Bytes.SIZEOF_INT + keyValues[i].length;
+		}
+		if (length > SPILL_FILE_BYTES) {
+			throw new IOException("Row too large to spill: " + length + " bytes");
+		}
+
+		ByteBuffer row = ByteBuffer.allocate(length);
+		row.putInt(length);
+		row.putInt(cells.length);
+		for (byte[] keyValue : keyValues) {
+			row.putInt(keyValue.length);
+			row.put(keyValue);
+		}
+		return row.array();
+	}
+
+	static Result decode(byte[] row) {
+
+		ByteBuffer buffer = ByteBuffer.wrap(row);
+		buffer.getInt();
+		Cell[] cells = new Cell[buffer.getInt()];
+		for (int i = 0; i < cells.length; i++) {
+			int length = buffer.getInt();
+			cells[i] = new KeyValue(row, buffer.position(), length);
+			buffer.position(buffer.position() + length);
+		}
+		return Result.create(cells);
+	}
+}
@@ -0,0 +1,57 @@
+package com.mitti.driver;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Time spent waiting for throttle permits, per operation type.
+ */
+public class ThrottleMetrics {
+
+	private final Map<ThrottledOperation, AtomicLong> waitNanos = new EnumMap<ThrottledOperation, AtomicLong>(
+			ThrottledOperation.class);
+	private final Map<ThrottledOperation, AtomicLong> throttledCalls = new EnumMap<ThrottledOperation, AtomicLong>(
+			ThrottledOperation.class);
+
+	ThrottleMetrics() {
+		for (ThrottledOperation operation : ThrottledOperation.values()) {
+			waitNanos.put(operation, new AtomicLong());
+			throttledCalls.put(operation, new AtomicLong());
+		}
+	}
+
+	void recordWait(ThrottledOperation operation, long nanos) {
+		if (nanos > 0) {
+			waitNanos.get(operation).addAndGet(nanos);
+			throttledCalls.get(operation).incrementAndGet();
+		}
+	}
+
+	public long getWaitMillis(ThrottledOperation operation) {
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos.get(operation).get());
+	}
+
+	/*
+	 * Number of calls which had to wait for a permit
+	 */
+	public long getThrottledCalls(ThrottledOperation operation) {
+		return throttledCalls.get(operation).get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder metrics = new StringBuilder("ThrottleMetrics [");
+		String separator = "";
+		for (ThrottledOperation operation : ThrottledOperation.values()) {
+			metrics.append(separator).append(operation.getPropertyName()).append("WaitMs=")
+					.append(getWaitMillis(operation)).append(", ").append(operation.getPropertyName())
+					.append("ThrottledCalls=").append(getThrottledCalls(operation));
+			separator = ", ";
+		}
+		return metrics.append("]").toString();
+	}
+}
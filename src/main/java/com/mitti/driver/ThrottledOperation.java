@@ -0,0 +1,16 @@
+package com.mitti.driver;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Operation types which are throttled separately. Rows fetched through
+ *         scanners count as SCAN, gets, multi-gets and existence checks as
+ *         READ.
+ */
+public enum ThrottledOperation {
+	WRITE, DELETE, SCAN, READ;
+
+	String getPropertyName() {
+		return name().toLowerCase();
+	}
+}
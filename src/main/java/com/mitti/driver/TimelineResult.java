@@ -0,0 +1,40 @@
+package com.mitti.driver;
+
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Entity read with timeline consistency along with whether it was
+ *         served by a secondary replica (and so may be stale) and whether a
+ *         hedged request was sent for it.
+ */
+public class TimelineResult<T extends KVPersistable> {
+
+	private final T entity;
+	private final boolean stale;
+	private final boolean hedged;
+
+	public TimelineResult(T entity, boolean stale, boolean hedged) {
+		this.entity = entity;
+		this.stale = stale;
+		this.hedged = hedged;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	public boolean isStale() {
+		return stale;
+	}
+
+	public boolean isHedged() {
+		return hedged;
+	}
+
+	@Override
+	public String toString() {
+		return "TimelineResult [entity=" + entity + ", stale=" + stale + ", hedged=" + hedged + "]";
+	}
+}
@@ -0,0 +1,66 @@
+package com.mitti.driver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.javatuples.Pair;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Keeps the k first row keys by sort key in a bounded heap whose head
+ *         is the entry to evict next. Ties are broken by row key so results
+ *         are stable across region splits. Partial collectors of region
+ *         scans are merged into one.
+ */
+final class TopKCollector {
+
+	private final int k;
+	private final Comparator<Pair<Comparable<Object>, String>> order;
+	private final PriorityQueue<Pair<Comparable<Object>, String>> heap;
+
+	TopKCollector(int k, SortOrder sortOrder) {
+		this.k = k;
+		Comparator<Pair<Comparable<Object>, String>> bySortKey = Comparator
+				.comparing((Pair<Comparable<Object>, String> entry) -> entry.getValue0());
+		if (sortOrder == SortOrder.DESC) {
+			bySortKey = bySortKey.reversed();
+		}
+		this.order = bySortKey.thenComparing(entry -> entry.getValue1());
+		this.heap = new PriorityQueue<Pair<Comparable<Object>, String>>(Math.max(1, k + 1), order.reversed());
+	}
+
+	@SuppressWarnings("unchecked")
+	void add(Comparable<?> sortKey, String rowKey) {
+		Pair<Comparable<Object>, String> entry = new Pair<Comparable<Object>, String>((Comparable<Object>) sortKey,
+				rowKey);
+		if (heap.size() < k) {
+			heap.add(entry);
+		} else if (k > 0 && order.compare(entry, heap.peek()) < 0) {
+			heap.poll();
+			heap.add(entry);
+		}
+	}
+
+	void merge(TopKCollector other) {
+		for (Pair<Comparable<Object>, String> entry : other.heap) {
+			add(entry.getValue0(), entry.getValue1());
+		}
+	}
+
+	/*
+	 * Row keys in sort order
+	 */
+	List<String> getRowKeys() {
+		List<Pair<Comparable<Object>, String>> entries = new ArrayList<Pair<Comparable<Object>, String>>(heap);
+		Collections.sort(entries, order);
+		List<String> rowKeys = new ArrayList<String>(entries.size());
+		for (Pair<Comparable<Object>, String> entry : entries) {
+			rowKeys.add(entry.getValue1());
+		}
+		return rowKeys;
+	}
+}
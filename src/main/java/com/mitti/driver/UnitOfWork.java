@@ -0,0 +1,137 @@
+package com.mitti.driver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.mitti.driver.UnitOfWorkOperation.Type;
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Collects writes, deletes and increments across tables and entity
+ *         types and sends them on commit with one Table.batch call per table,
+ *         tables in parallel. The mutations of all operations on the same row
+ *         of a table are applied atomically as RowMutations; increments are
+ *         sent as separate actions. There is no atomicity across rows.
+ * 
+ *         The mutations of a row share one server timestamp, so a row deleted
+ *         as a whole masks anything written to it in the same unit. Writing a
+ *         row after deleting it in the same unit is therefore rejected; the
+ *         write is reported as failed.
+ * 
+ *         A unit of work is not thread safe. Committing hands the collected
+ *         operations over, so it can be reused for the next unit.
+ */
+public class UnitOfWork {
+
+	private static final String WRITE_AFTER_ROW_DELETE = "Row deleted as a whole can not be written in the same unit of work: ";
+
+	private final HbaseDriver hbaseDriver;
+	private List<UnitOfWorkOperation> operations = new ArrayList<UnitOfWorkOperation>();
+	private Map<String, Set<String>> deletedRows = new HashMap<String, Set<String>>();
+
+	UnitOfWork(HbaseDriver hbaseDriver) {
+		this.hbaseDriver = hbaseDriver;
+	}
+
+	/*
+	 * The entity is turned into mutations right away, later changes to it are
+	 * not part of the unit
+	 */
+	public <T extends KVPersistable> UnitOfWork addUpdate(T t, String queryTable, Class<T> entityClass) {
+		try {
+			if (isDeleted(queryTable, t.getRow_key())) {
+				throw new IllegalArgumentException(
+						WRITE_AFTER_ROW_DELETE + " Table:" + queryTable + " Row Key:" + t.getRow_key());
+			}
+			List<Mutation> mutations = hbaseDriver.prepareMutations(t, entityClass);
+			operations.add(new UnitOfWorkOperation(Type.ADD_UPDATE, queryTable, t.getRow_key(), t, entityClass,
+					mutations, null));
+		} catch (Exception e) {
+			operations.add(UnitOfWorkOperation.unprepared(Type.ADD_UPDATE, queryTable, t.getRow_key(), t, e));
+		}
+		return this;
+	}
+
+	public UnitOfWork deleteById(String row_key, String queryTable) {
+		return deleteById(row_key, queryTable, null);
+	}
+
+	/*
+	 * Also removes the row's entries from the secondary indexes of the entity
+	 */
+	public <T extends KVPersistable> UnitOfWork deleteById(String row_key, String queryTable, Class<T> entityClass) {
+		try {
+			List<Mutation> mutations = new ArrayList<Mutation>();
+			mutations.add(new Delete(Bytes.toBytes(row_key)));
+			operations.add(
+					new UnitOfWorkOperation(Type.DELETE, queryTable, row_key, null, entityClass, mutations, null));
+			deletedRows.computeIfAbsent(queryTable, k -> new HashSet<String>()).add(row_key);
+		} catch (Exception e) {
+			operations.add(UnitOfWorkOperation.unprepared(Type.DELETE, queryTable, row_key, null, e));
+		}
+		return this;
+	}
+
+	public UnitOfWork deleteColumnsById(String row_key, String queryTable, String columnFamily, String... columns) {
+		try {
+			Delete delete = new Delete(Bytes.toBytes(row_key));
+			for (String column : columns) {
+				delete.addColumn(Bytes.toBytes(columnFamily), Bytes.toBytes(column));
+			}
+			List<Mutation> mutations = new ArrayList<Mutation>();
+			mutations.add(delete);
+			operations.add(new UnitOfWorkOperation(Type.DELETE_COLUMNS, queryTable, row_key, null, null, mutations,
+					null));
+			if (columns.length == 0) {
+				deletedRows.computeIfAbsent(queryTable, k -> new HashSet<String>()).add(row_key);
+			}
+		} catch (Exception e) {
+			operations.add(UnitOfWorkOperation.unprepared(Type.DELETE_COLUMNS, queryTable, row_key, null, e));
+		}
+		return this;
+	}
+
+	public <T extends KVPersistable> UnitOfWork increment(String queryTable, String row_key, Class<T> entityClass,
+			String field, long delta) {
+		Map<String, Long> fieldDeltas = new HashMap<String, Long>();
+		fieldDeltas.put(field, delta);
+		return increment(queryTable, row_key, entityClass, fieldDeltas);
+	}
+
+	public <T extends KVPersistable> UnitOfWork increment(String queryTable, String row_key, Class<T> entityClass,
+			Map<String, Long> fieldDeltas) {
+		try {
+			operations.add(new UnitOfWorkOperation(Type.INCREMENT, queryTable, row_key, null, null,
+					new ArrayList<Mutation>(), hbaseDriver.prepareIncrement(row_key, entityClass, fieldDeltas)));
+		} catch (Exception e) {
+			operations.add(UnitOfWorkOperation.unprepared(Type.INCREMENT, queryTable, row_key, null, e));
+		}
+		return this;
+	}
+
+	private boolean isDeleted(String queryTable, String row_key) {
+		Set<String> tableDeletedRows = deletedRows.get(queryTable);
+		return tableDeletedRows != null && tableDeletedRows.contains(row_key);
+	}
+
+	public int size() {
+		return operations.size();
+	}
+
+	public UnitOfWorkResult commit() {
+		List<UnitOfWorkOperation> committedOperations = operations;
+		operations = new ArrayList<UnitOfWorkOperation>();
+		deletedRows = new HashMap<String, Set<String>>();
+		return hbaseDriver.commitUnitOfWork(committedOperations);
+	}
+}
@@ -0,0 +1,118 @@
+package com.mitti.driver;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         One operation collected by a unit of work and, once committed, its
+ *         outcome. Operations which could not be prepared (e.g. an entity
+ *         without row key) are reported as failed without being sent.
+ */
+public class UnitOfWorkOperation {
+
+	public enum Type {
+		ADD_UPDATE, DELETE, DELETE_COLUMNS, INCREMENT
+	}
+
+	private final Type type;
+	private final String table;
+	private final String row_key;
+	private final Object entity;
+	private final Class<?> entityClass;
+	private final List<Mutation> mutations;
+	private final Increment increment;
+
+	private boolean successful;
+	private Throwable cause;
+	private Map<String, Long> incrementedValues;
+
+	UnitOfWorkOperation(Type type, String table, String row_key, Object entity, Class<?> entityClass,
+			List<Mutation> mutations, Increment increment) {
+		this.type = type;
+		this.table = table;
+		this.row_key = row_key;
+		this.entity = entity;
+		this.entityClass = entityClass;
+		this.mutations = mutations;
+		this.increment = increment;
+	}
+
+	static UnitOfWorkOperation unprepared(Type type, String table, String row_key, Object entity, Throwable cause) {
+		UnitOfWorkOperation operation = new UnitOfWorkOperation(type, table, row_key, entity, null,
+				Collections.<Mutation>emptyList(), null);
+		operation.failed(cause);
+		return operation;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public String getRow_key() {
+		return row_key;
+	}
+
+	/*
+	 * The entity written by an ADD_UPDATE operation, null otherwise
+	 */
+	public Object getEntity() {
+		return entity;
+	}
+
+	public boolean isSuccessful() {
+		return successful;
+	}
+
+	public Throwable getCause() {
+		return cause;
+	}
+
+	/*
+	 * Field values after a successful INCREMENT operation, null otherwise
+	 */
+	public Map<String, Long> getIncrementedValues() {
+		return incrementedValues;
+	}
+
+	Class<?> getEntityClass() {
+		return entityClass;
+	}
+
+	List<Mutation> getMutations() {
+		return mutations;
+	}
+
+	Increment getIncrement() {
+		return increment;
+	}
+
+	void succeeded() {
+		this.successful = true;
+		this.cause = null;
+	}
+
+	void failed(Throwable cause) {
+		this.successful = false;
+		this.cause = cause;
+	}
+
+	void setIncrementedValues(Map<String, Long> incrementedValues) {
+		this.incrementedValues = incrementedValues;
+	}
+
+	@Override
+	public String toString() {
+		return "UnitOfWorkOperation [type=" + type + ", table=" + table + ", row_key=" + row_key + ", successful="
+				+ successful + ", cause=" + cause + "]";
+	}
+}
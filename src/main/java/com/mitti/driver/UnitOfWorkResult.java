@@ -0,0 +1,48 @@
+package com.mitti.driver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Outcome of a committed unit of work, one entry per operation in the
+ *         order the operations were added.
+ */
+public class UnitOfWorkResult {
+
+	private final List<UnitOfWorkOperation> operations;
+
+	UnitOfWorkResult(List<UnitOfWorkOperation> operations) {
+		this.operations = operations;
+	}
+
+	public boolean isSuccessful() {
+		for (UnitOfWorkOperation operation : operations) {
+			if (!operation.isSuccessful()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public List<UnitOfWorkOperation> getOperations() {
+		return Collections.unmodifiableList(operations);
+	}
+
+	public List<UnitOfWorkOperation> getFailures() {
+		List<UnitOfWorkOperation> failures = new ArrayList<UnitOfWorkOperation>();
+		for (UnitOfWorkOperation operation : operations) {
+			if (!operation.isSuccessful()) {
+				failures.add(operation);
+			}
+		}
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+		return "UnitOfWorkResult [operations=" + operations.size() + ", failed=" + getFailures().size() + "]";
+	}
+}
@@ -0,0 +1,90 @@
+package com.mitti.driver;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         LZ4 compression of cell values using the pure Java implementation.
+ *         Compressed values are tagged with a magic prefix followed by the
+ *         uncompressed length. Values are only decompressed on read for fields
+ *         mapped as compressed, and only when the tagged value decodes back to
+ *         the recorded length; anything else is returned as stored.
+ */
+final class ValueCompression {
+
+	private static final byte[] MAGIC = new byte[] { 0x00, 'M', 'Z', 0x01 };
+	private static final int HEADER_LENGTH = MAGIC.length + Bytes.SIZEOF_INT;
+	// an LZ4 block can not expand by more than this factor
+	private static final int MAX_COMPRESSION_RATIO = 255;
+
+	private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestJavaInstance();
+	private static final LZ4Compressor COMPRESSOR = LZ4_FACTORY.fastCompressor();
+	private static final LZ4FastDecompressor DECOMPRESSOR = LZ4_FACTORY.fastDecompressor();
+
+	private ValueCompression() {
+	}
+
+	/*
+	 * Values are kept as is when not above the threshold or when compression
+	 * does not make them smaller
+	 */
+	static byte[] compressIfLarger(byte[] value, int thresholdBytes) {
+
+		if (thresholdBytes < 0 || value.length <= thresholdBytes) {
+			return value;
+		}
+
+		byte[] compressed = new byte[HEADER_LENGTH + COMPRESSOR.maxCompressedLength(value.length)];
+		System.arraycopy(MAGIC, 0, compressed, 0, MAGIC.length);
+		Bytes.putInt(compressed, MAGIC.length, value.length);
+		int compressedLength = COMPRESSOR.compress(value, 0, value.length, compressed, HEADER_LENGTH);
+
+		if (HEADER_LENGTH + compressedLength >= value.length) {
+			return value;
+		}
+		return Bytes.copy(compressed, 0, HEADER_LENGTH + compressedLength);
+	}
+
+	static boolean isCompressed(byte[] value) {
+		return value != null && value.length > HEADER_LENGTH && Bytes.startsWith(value, MAGIC);
+	}
+
+	static boolean isCompressed(byte[] array, int offset, int length) {
+		return length > HEADER_LENGTH && Bytes.equals(array, offset, MAGIC.length, MAGIC, 0, MAGIC.length);
+	}
+
+	/*
+	 * Values of fields without a compression threshold are returned as
+	 * stored, even when they start with the tag. A tagged value whose
+	 * recorded length is not plausible or which does not decode exactly was
+	 * written by someone else and is returned as stored as well.
+	 */
+	static byte[] decompress(byte[] value, int thresholdBytes) {
+
+		if (thresholdBytes < 0 || !isCompressed(value)) {
+			return value;
+		}
+
+		int compressedLength = value.length - HEADER_LENGTH;
+		int originalLength = Bytes.toInt(value, MAGIC.length);
+		if (originalLength <= 0 || originalLength > (long) compressedLength * MAX_COMPRESSION_RATIO) {
+			return value;
+		}
+
+		byte[] decompressed = new byte[originalLength];
+		try {
+			if (DECOMPRESSOR.decompress(value, HEADER_LENGTH, decompressed, 0, originalLength) != compressedLength) {
+				return value;
+			}
+		} catch (LZ4Exception e) {
+			return value;
+		}
+		return decompressed;
+	}
+}
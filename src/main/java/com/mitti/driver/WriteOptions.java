@@ -0,0 +1,117 @@
+package com.mitti.driver;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Options of a write or delete: WAL durability, an explicit cell
+ *         timestamp (for idempotent replays), a cell TTL for puts and the
+ *         number of rows addUpdateAll sends per call. Options are immutable,
+ *         every with* method returns a copy.
+ */
+public final class WriteOptions {
+
+	public static final WriteOptions DEFAULT = new WriteOptions(Durability.USE_DEFAULT, HConstants.LATEST_TIMESTAMP,
+			-1, 0);
+
+	private final Durability durability;
+	private final long timestamp;
+	private final long ttlMillis;
+	private final int batchSize;
+
+	private WriteOptions(Durability durability, long timestamp, long ttlMillis, int batchSize) {
+		this.durability = durability;
+		this.timestamp = timestamp;
+		this.ttlMillis = ttlMillis;
+		this.batchSize = batchSize;
+	}
+
+	/*
+	 * ASYNC_WAL or SKIP_WAL only for data which can be re-created, edits not
+	 * yet in the WAL are lost when a region server dies
+	 */
+	public WriteOptions withDurability(Durability durability) {
+		if (durability == null) {
+			throw new IllegalArgumentException("Durability must not be null");
+		}
+		return new WriteOptions(durability, timestamp, ttlMillis, batchSize);
+	}
+
+	/*
+	 * Timestamp of all written cells; deletes remove the versions up to it
+	 */
+	public WriteOptions withTimestamp(long timestamp) {
+		if (timestamp < 0) {
+			throw new IllegalArgumentException("Timestamp must not be negative: " + timestamp);
+		}
+		return new WriteOptions(durability, timestamp, ttlMillis, batchSize);
+	}
+
+	/*
+	 * Cells written expire after ttlMillis, -1 to keep the column family TTL
+	 */
+	public WriteOptions withTtlMillis(long ttlMillis) {
+		if (ttlMillis == 0 || ttlMillis < -1) {
+			throw new IllegalArgumentException("TTL must be positive or -1: " + ttlMillis);
+		}
+		return new WriteOptions(durability, timestamp, ttlMillis, batchSize);
+	}
+
+	/*
+	 * Rows sent per call by addUpdateAll, 0 to send all rows at once
+	 */
+	public WriteOptions withBatchSize(int batchSize) {
+		if (batchSize < 0) {
+			throw new IllegalArgumentException("Batch size must not be negative: " + batchSize);
+		}
+		return new WriteOptions(durability, timestamp, ttlMillis, batchSize);
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/*
+	 * Cells added to the put afterwards get the timestamp of the options
+	 */
+	Put newPut(byte[] row) {
+		return apply(new Put(row, timestamp));
+	}
+
+	Delete newDelete(byte[] row) {
+		return apply(new Delete(row, timestamp));
+	}
+
+	<M extends Mutation> M apply(M mutation) {
+		if (durability != Durability.USE_DEFAULT) {
+			mutation.setDurability(durability);
+		}
+		if (ttlMillis > 0 && mutation instanceof Put) {
+			mutation.setTTL(ttlMillis);
+		}
+		return mutation;
+	}
+
+	@Override
+	public String toString() {
+		return "WriteOptions [durability=" + durability + ", timestamp=" + timestamp + ", ttlMillis=" + ttlMillis
+				+ ", batchSize=" + batchSize + "]";
+	}
+}
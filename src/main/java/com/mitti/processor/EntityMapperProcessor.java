@@ -0,0 +1,307 @@
+package com.mitti.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.mitti.common.Compressed;
+import com.mitti.common.CompressedFamily;
+import com.mitti.common.Counter;
+import com.mitti.common.DynamicColumnFamily;
+import com.mitti.common.Indexed;
+import com.mitti.driver.EntityMapper;
+import com.mitti.models.KVPersistable;
+
+/**
+ * @author Manoj Kumar Vohra
+ * 
+ *         Generates an {@link EntityMapper} next to every concrete
+ *         {@link KVPersistable} class being compiled. The generated mapper
+ *         calls getters/setters directly, so the driver does not need
+ *         reflection for the entity. Entities whose fields can not be
+ *         accessed without reflection are skipped and keep using the
+ *         reflective mapper.
+ */
+@SupportedAnnotationTypes("*")
+public class EntityMapperProcessor extends AbstractProcessor {
+
+	private static final String ROW_KEY = "row_key";
+
+	private final Set<String> generatedMappers = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+		TypeElement kvPersistable = processingEnv.getElementUtils().getTypeElement(KVPersistable.class.getName());
+		if (kvPersistable == null) {
+			return false;
+		}
+
+		for (TypeElement typeElement : ElementFilter.typesIn(roundEnv.getRootElements())) {
+			if (isMappableEntity(typeElement, kvPersistable.asType())
+					&& generatedMappers.add(typeElement.getQualifiedName().toString())) {
+				generateMapper(typeElement);
+			}
+		}
+
+		// other processors may still be interested in the same annotations
+		return false;
+	}
+
+	private boolean isMappableEntity(TypeElement typeElement, TypeMirror kvPersistable) {
+		return typeElement.getKind() == ElementKind.CLASS && typeElement.getNestingKind() == NestingKind.TOP_LEVEL
+				&& !typeElement.getModifiers().contains(Modifier.ABSTRACT)
+				&& processingEnv.getTypeUtils().isAssignable(typeElement.asType(), kvPersistable);
+	}
+
+	private void generateMapper(TypeElement entity) {
+
+		if (!hasAccessibleNoArgConstructor(entity)) {
+			note(entity, "no accessible no-arg constructor, entity will be mapped through reflection");
+			return;
+		}
+
+		CompressedFamily compressedFamily = entity.getAnnotation(CompressedFamily.class);
+		List<String> compressedFamilies = compressedFamily == null ? Collections.<String>emptyList()
+				: Arrays.asList(compressedFamily.families());
+
+		List<String> fieldMappings = new ArrayList<String>();
+		String entityName = entity.getSimpleName().toString();
+
+		for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+
+			String fieldName = field.getSimpleName().toString();
+			if (fieldName.equals(ROW_KEY) || field.getModifiers().contains(Modifier.STATIC)) {
+				continue;
+			}
+
+			// counters are stored as 8 byte longs
+			if (field.getAnnotation(Counter.class) != null && !isLong(field.asType())) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+						"@Counter field " + fieldName + " of " + entity + " is not a long/Long", field);
+				return;
+			}
+
+			String getter = findGetter(entity, field);
+			String setter = findSetter(entity, field);
+			if (getter == null || setter == null) {
+				note(entity, "field " + fieldName + " has no getter/setter, entity will be mapped through reflection");
+				return;
+			}
+
+			int compressionThreshold = -1;
+			Compressed compressed = field.getAnnotation(Compressed.class);
+			if (compressed != null) {
+				compressionThreshold = compressed.thresholdBytes();
+			} else if (compressedFamilies.contains(fieldName.split("_", 2)[0])) {
+				compressionThreshold = compressedFamily.thresholdBytes();
+			}
+
+			fieldMappings.add(fieldMapping(entityName, field, getter, setter, compressionThreshold));
+		}
+
+		DynamicColumnFamily dynamicColumnFamily = entity.getAnnotation(DynamicColumnFamily.class);
+		String[] dynamicFields = dynamicColumnFamily == null ? new String[0] : dynamicColumnFamily.fields();
+
+		writeMapper(entity, fieldMappings, dynamicFields);
+	}
+
+	private String fieldMapping(String entityName, VariableElement field, String getter, String setter,
+			int compressionThreshold) {
+
+		TypeMirror type = field.asType();
+		String typeName = type.getKind().isPrimitive() ? type.toString()
+				: processingEnv.getTypeUtils().asElement(type).getSimpleName().toString();
+		String castType = type.getKind().isPrimitive()
+				? processingEnv.getTypeUtils().boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind()))
+						.getQualifiedName().toString()
+				: type.toString();
+		boolean counter = field.getAnnotation(Counter.class) != null;
+		boolean indexed = field.getAnnotation(Indexed.class) != null;
+
+		StringBuilder mapping = new StringBuilder();
+		mapping.append("\t\t\tnew FieldMapping<").append(entityName).append(">(\"").append(field.getSimpleName())
+				.append("\", \"").append(typeName).append("\", ").append(counter).append(", ")
+				.append(compressionThreshold).append(", ").append(indexed).append(") {\n");
+		mapping.append("\t\t\t\t@Override\n");
+		mapping.append("\t\t\t\tpublic Object get(").append(entityName).append(" entity) {\n");
+		mapping.append("\t\t\t\t\treturn entity.").append(getter).append(";\n");
+		mapping.append("\t\t\t\t}\n\n");
+		mapping.append("\t\t\t\t@Override\n");
+		mapping.append("\t\t\t\tpublic void set(").append(entityName).append(" entity, Object value) {\n");
+		mapping.append("\t\t\t\t\tentity.").append(String.format(setter, "(" + castType + ") value")).append(";\n");
+		mapping.append("\t\t\t\t}\n");
+		mapping.append("\t\t\t}");
+		return mapping.toString();
+	}
+
+	private void writeMapper(TypeElement entity, List<String> fieldMappings, String[] dynamicFields) {
+
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(entity);
+		String packageName = packageElement.isUnnamed() ? null : packageElement.getQualifiedName().toString();
+		String entityName = entity.getSimpleName().toString();
+		String mapperName = entityName + EntityMapper.GENERATED_MAPPER_SUFFIX;
+
+		StringBuilder dynamicFieldsLiteral = new StringBuilder();
+		for (String dynamicField : dynamicFields) {
+			dynamicFieldsLiteral.append(dynamicFieldsLiteral.length() == 0 ? " " : ", ").append("\"")
+					.append(dynamicField).append("\"");
+		}
+
+		try {
+			JavaFileObject sourceFile = processingEnv.getFiler()
+					.createSourceFile(packageName == null ? mapperName : packageName + "." + mapperName, entity);
+			try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+
+				if (packageName != null) {
+					out.println("package " + packageName + ";");
+					out.println();
+				}
+				out.println("import java.util.Arrays;");
+				out.println("import java.util.Collections;");
+				out.println("import java.util.List;");
+				out.println();
+				out.println("import com.mitti.driver.EntityMapper;");
+				out.println("import com.mitti.driver.FieldMapping;");
+				out.println();
+				out.println("/**");
+				out.println(" * Generated by " + EntityMapperProcessor.class.getName() + ", do not edit.");
+				out.println(" */");
+				out.println("@SuppressWarnings(\"unchecked\")");
+				out.println("public final class " + mapperName + " extends EntityMapper<" + entityName + "> {");
+				out.println();
+				out.println("\tprivate static final String[] DYNAMIC_COLUMN_FAMILY_FIELDS = {" + dynamicFieldsLiteral
+						+ (dynamicFields.length == 0 ? "" : " ") + "};");
+				out.println();
+				out.println("\tprivate static final List<FieldMapping<" + entityName
+						+ ">> FIELD_MAPPINGS = Collections.unmodifiableList(Arrays.<FieldMapping<" + entityName
+						+ ">>asList(");
+				out.println(String.join(",\n", fieldMappings));
+				out.println("\t\t));");
+				out.println();
+				out.println("\t@Override");
+				out.println("\tpublic Class<" + entityName + "> getEntityClass() {");
+				out.println("\t\treturn " + entityName + ".class;");
+				out.println("\t}");
+				out.println();
+				out.println("\t@Override");
+				out.println("\tpublic " + entityName + " newInstance() {");
+				out.println("\t\treturn new " + entityName + "();");
+				out.println("\t}");
+				out.println();
+				out.println("\t@Override");
+				out.println("\tpublic List<FieldMapping<" + entityName + ">> getFieldMappings() {");
+				out.println("\t\treturn FIELD_MAPPINGS;");
+				out.println("\t}");
+				out.println();
+				out.println("\t@Override");
+				out.println("\tpublic String[] getDynamicColumnFamilyFields() {");
+				out.println("\t\treturn DYNAMIC_COLUMN_FAMILY_FIELDS.clone();");
+				out.println("\t}");
+				out.println("}");
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Failed to generate entity mapper " + mapperName + ": " + e.getMessage(), entity);
+		}
+	}
+
+	private boolean hasAccessibleNoArgConstructor(TypeElement entity) {
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(entity.getEnclosedElements());
+		for (ExecutableElement constructor : constructors) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Returns the expression reading the field: its getter call or, for a
+	 * non-private field without getter, the field itself
+	 */
+	private String findGetter(TypeElement entity, VariableElement field) {
+
+		String capitalized = capitalize(field.getSimpleName().toString());
+		List<String> getterNames = new ArrayList<String>();
+		getterNames.add("get" + capitalized);
+		if (field.asType().getKind() == TypeKind.BOOLEAN) {
+			getterNames.add("is" + capitalized);
+		}
+
+		for (ExecutableElement method : ElementFilter
+				.methodsIn(processingEnv.getElementUtils().getAllMembers(entity))) {
+			if (getterNames.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty()
+					&& !method.getModifiers().contains(Modifier.PRIVATE)
+					&& !method.getModifiers().contains(Modifier.STATIC)
+					&& processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+				return method.getSimpleName() + "()";
+			}
+		}
+		return field.getModifiers().contains(Modifier.PRIVATE) ? null : field.getSimpleName().toString();
+	}
+
+	/*
+	 * Returns a format string assigning the value: its setter call or, for a
+	 * non-private field without setter, an assignment
+	 */
+	private String findSetter(TypeElement entity, VariableElement field) {
+
+		String setterName = "set" + capitalize(field.getSimpleName().toString());
+
+		for (ExecutableElement method : ElementFilter
+				.methodsIn(processingEnv.getElementUtils().getAllMembers(entity))) {
+			if (method.getSimpleName().contentEquals(setterName) && method.getParameters().size() == 1
+					&& !method.getModifiers().contains(Modifier.PRIVATE)
+					&& !method.getModifiers().contains(Modifier.STATIC) && processingEnv.getTypeUtils()
+							.isSameType(method.getParameters().get(0).asType(), field.asType())) {
+				return setterName + "(%s)";
+			}
+		}
+		if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL)) {
+			return null;
+		}
+		return field.getSimpleName() + " = %s";
+	}
+
+	private static String capitalize(String name) {
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	private boolean isLong(TypeMirror type) {
+		return type.getKind() == TypeKind.LONG || type.toString().equals(Long.class.getName());
+	}
+
+	private void note(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+				"Entity mapper not generated for " + element + ": " + message, element);
+	}
+}
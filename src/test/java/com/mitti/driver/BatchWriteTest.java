@@ -0,0 +1,156 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Runs addUpdateAll against an in-memory table which rejects chosen rows a
+ * given number of times
+ */
+public class BatchWriteTest {
+
+	private static final String ENTITY_TABLE = "tbl_entity";
+
+	private Map<String, Integer> rowFailuresLeft;
+	private List<List<String>> putAttempts;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+
+		rowFailuresLeft = new HashMap<String, Integer>();
+		putAttempts = new ArrayList<List<String>>();
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.retry.backoff.ms", "1");
+		hBaseDriver = new HbaseDriver(newConnection(), properties);
+	}
+
+	/*
+	 * TESTING ONLY REJECTED ROWS ARE RETRIED
+	 */
+	@Test
+	public void shouldRetryOnlyFailedRows() {
+
+		rowFailuresLeft.put("2", 1);
+
+		BatchResult<SampleEntity> result = hBaseDriver.addUpdateAll(entities("1", "2", "3"), ENTITY_TABLE,
+				SampleEntity.class, 2);
+
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(result.getSucceeded().size(), is(3));
+		assertThat(result.getAttempts(), is(2));
+		assertThat(putAttempts.get(0), is(Arrays.asList("1", "2", "3")));
+		assertThat(putAttempts.get(1), is(Arrays.asList("2")));
+	}
+
+	/*
+	 * TESTING ROWS STILL REJECTED AFTER THE LAST RETRY ARE REPORTED WITH THEIR
+	 * CAUSE
+	 */
+	@Test
+	public void shouldReportRowsFailingAllRetries() {
+
+		rowFailuresLeft.put("3", 5);
+
+		BatchResult<SampleEntity> result = hBaseDriver.addUpdateAll(entities("1", "2", "3"), ENTITY_TABLE,
+				SampleEntity.class, 1);
+
+		assertThat(result.isSuccessful(), is(false));
+		assertThat(result.getAttempts(), is(2));
+		assertThat(result.getSucceeded().size(), is(2));
+		assertThat(result.getFailures().size(), is(1));
+
+		BatchFailure<SampleEntity> failure = result.getFailures().get(0);
+		assertThat(failure.getRow_key(), is("3"));
+		assertThat(failure.getStage(), is(BatchFailure.Stage.WRITE));
+		assertThat(failure.getCause(), instanceOf(IOException.class));
+		assertThat(hBaseDriver.addUpdateAll(entities("3"), ENTITY_TABLE, SampleEntity.class), is(false));
+	}
+
+	/*
+	 * TESTING AN ENTITY WHICH CAN NOT BE MAPPED DOES NOT ABORT THE BATCH
+	 */
+	@Test
+	public void shouldIsolateMappingFailures() {
+
+		List<SampleEntity> entities = entities("1", "2");
+		entities.add(1, new SampleEntity());
+
+		BatchResult<SampleEntity> result = hBaseDriver.addUpdateAll(entities, ENTITY_TABLE, SampleEntity.class, 0);
+
+		assertThat(result.getSucceeded().size(), is(2));
+		assertThat(result.getFailures().size(), is(1));
+		assertThat(result.getFailures().get(0).getStage(), is(BatchFailure.Stage.MAPPING));
+		assertThat(result.getFailedEntities().get(0), is(entities.get(1)));
+		assertThat(putAttempts.get(0), is(Arrays.asList("1", "2")));
+	}
+
+	private List<SampleEntity> entities(String... rowKeys) {
+		List<SampleEntity> entities = new ArrayList<SampleEntity>();
+		for (String rowKey : rowKeys) {
+			SampleEntity entity = new SampleEntity();
+			entity.setRow_key(rowKey);
+			entity.setBasic_age(30);
+			entities.add(entity);
+		}
+		return entities;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get")) {
+				return FakeHbase.emptyResults((List<?>) args[0]);
+			}
+			if (method.equals("put") && tableName.equals(ENTITY_TABLE)) {
+				putRows((List<Put>) args[0]);
+			}
+			return null;
+		}));
+	}
+
+	private void putRows(List<Put> puts) throws RetriesExhaustedWithDetailsException {
+
+		List<String> rowKeys = new ArrayList<String>();
+		List<Throwable> causes = new ArrayList<Throwable>();
+		List<Row> failedRows = new ArrayList<Row>();
+
+		for (Put put : puts) {
+			String rowKey = Bytes.toString(put.getRow());
+			rowKeys.add(rowKey);
+			int failuresLeft = rowFailuresLeft.getOrDefault(rowKey, 0);
+			if (failuresLeft > 0) {
+				rowFailuresLeft.put(rowKey, failuresLeft - 1);
+				causes.add(new IOException("region server rejected row " + rowKey));
+				failedRows.add(put);
+			}
+		}
+		putAttempts.add(rowKeys);
+
+		if (!failedRows.isEmpty()) {
+			throw new RetriesExhaustedWithDetailsException(causes, failedRows,
+					Collections.nCopies(failedRows.size(), "localhost:16020"));
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+public class ChangeTrackerTest {
+
+	/*
+	 * TESTING SNAPSHOTS ARE KEPT BY IDENTITY, NOT BY EQUALS
+	 */
+	@Test
+	public void shouldTrackEntitiesByIdentity() {
+
+		ChangeTracker changeTracker = new ChangeTracker();
+		SampleEntity loaded = entity("1", "Sonu");
+		SampleEntity equal = entity("1", "Sonu");
+		assertThat(loaded.equals(equal), is(true));
+
+		changeTracker.snapshot(loaded, EntityMappers.forClass(SampleEntity.class).getFieldMappings());
+		loaded.setBasic_name("Monu");
+
+		assertThat(changeTracker.getSnapshot(loaded).get("basic_name"), is((Object) "Sonu"));
+		assertThat(changeTracker.getSnapshot(equal), is(nullValue()));
+
+		changeTracker.forget(loaded);
+		assertThat(changeTracker.getSnapshot(loaded), is(nullValue()));
+	}
+
+	private SampleEntity entity(String rowKey, String name) {
+		SampleEntity entity = new SampleEntity();
+		entity.setRow_key(rowKey);
+		entity.setBasic_name(name);
+		return entity;
+	}
+}
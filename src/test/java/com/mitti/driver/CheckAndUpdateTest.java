@@ -0,0 +1,103 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.ProfileEntity;
+
+/**
+ * Runs conditional updates against an in-memory table whose checks pass
+ */
+public class CheckAndUpdateTest {
+
+	private static final String PROFILE_TABLE = "tbl_profile";
+
+	private List<Put> sentPuts;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+		sentPuts = new ArrayList<Put>();
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.trackchanges", "true");
+		hBaseDriver = new HbaseDriver(newConnection(), properties);
+	}
+
+	/*
+	 * TESTING COUNTERS ARE LEFT OUT OF THE CONDITIONAL PUT
+	 */
+	@Test
+	public void shouldNotOverwriteCounters() {
+
+		ProfileEntity profile = new ProfileEntity();
+		profile.setRow_key("1");
+		profile.setBasic_name("new");
+		profile.setStats_visits(5L);
+
+		assertThat(hBaseDriver.checkAndUpdate(profile, PROFILE_TABLE, ProfileEntity.class, "basic_name", null),
+				is(true));
+		assertThat(sentPuts.size(), is(1));
+		assertThat(sentPuts.get(0).has(Bytes.toBytes("basic"), Bytes.toBytes("name")), is(true));
+		assertThat(sentPuts.get(0).has(Bytes.toBytes("stats"), Bytes.toBytes("visits")), is(false));
+	}
+
+	/*
+	 * TESTING A TRACKED ENTITY IS DIFFED AGAINST WHAT THE CONDITIONAL PUT WROTE
+	 */
+	@Test
+	public void shouldRefreshSnapshotOfTrackedEntity() {
+
+		ProfileEntity profile = hBaseDriver.query("1", PROFILE_TABLE, ProfileEntity.class);
+		profile.setBasic_name("new");
+		assertThat(hBaseDriver.checkAndUpdate(profile, PROFILE_TABLE, ProfileEntity.class, "basic_name", "old"),
+				is(true));
+
+		profile.setBasic_age(31);
+		assertThat(hBaseDriver.addUpdate(profile, PROFILE_TABLE, ProfileEntity.class), is(true));
+
+		Put update = sentPuts.get(1);
+		assertThat(update.has(Bytes.toBytes("basic"), Bytes.toBytes("age")), is(true));
+		assertThat(update.has(Bytes.toBytes("basic"), Bytes.toBytes("name")), is(false));
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get")) {
+				return args[0] instanceof Get
+						? FakeHbase.row("1", "basic", "name", "old", "basic", "age", "30", "basic", "active", "true")
+						: FakeHbase.emptyResults((List<?>) args[0]);
+			}
+			if (method.equals("checkAndMutate")) {
+				return newCheckAndMutateBuilder();
+			}
+			if (method.equals("put") && args[0] instanceof Put && tableName.equals(PROFILE_TABLE)) {
+				sentPuts.add((Put) args[0]);
+			}
+			return null;
+		}));
+	}
+
+	private Table.CheckAndMutateBuilder newCheckAndMutateBuilder() {
+		Table.CheckAndMutateBuilder[] builder = new Table.CheckAndMutateBuilder[1];
+		builder[0] = FakeHbase.fake(Table.CheckAndMutateBuilder.class, (method, args) -> {
+			if (method.equals("thenPut")) {
+				sentPuts.add((Put) args[0]);
+				return true;
+			}
+			return builder[0];
+		});
+		return builder[0];
+	}
+}
@@ -0,0 +1,177 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Reads the dynamic columns of a wide row held by an in-memory table which
+ * evaluates the column filters of gets
+ */
+public class DynamicColumnsTest {
+
+	private static final String ROW_KEY = "wide";
+	private static final int COLUMNS = 21;
+
+	private List<Cell> rowCells;
+	private Scan submittedScan;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+
+		// sorted as stored: the fixed column sits between dynamic ones
+		rowCells = new ArrayList<Cell>();
+		for (int i = 0; i < COLUMNS - 1; i++) {
+			rowCells.add(cell(String.format("c%02d", i), "v" + i));
+		}
+		rowCells.add(cell("fixed_value", "fixed"));
+		rowCells.add(cell("g20", "v20"));
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.dynamic.column.batch", "7");
+		hBaseDriver = new HbaseDriver(newConnection(), properties);
+	}
+
+	/*
+	 * TESTING PAGES FOLLOW EACH OTHER WITHOUT GAPS OR OVERLAPS
+	 */
+	@Test
+	public void shouldReadDynamicColumnsInPages() {
+
+		List<String> columns = new ArrayList<String>();
+		String fromColumn = null;
+		int pages = 0;
+		do {
+			DynamicColumnPage page = hBaseDriver.queryDynamicColumnPage(ROW_KEY, "tbl_entity", SampleEntity.class,
+					"varcf", fromColumn, 10);
+			columns.addAll(page.getColumns().keySet());
+			fromColumn = page.getNextColumn();
+			pages++;
+		} while (fromColumn != null);
+
+		assertThat(pages, is(3));
+		assertThat(columns.size(), is(COLUMNS));
+		assertThat(columns.get(0), is("c00"));
+		assertThat(columns.get(COLUMNS - 2), is("c19"));
+		assertThat(columns.get(COLUMNS - 1), is("g20"));
+	}
+
+	/*
+	 * TESTING KEY, PREFIX AND RANGE READS ONLY RETURN THE REQUESTED COLUMNS
+	 */
+	@Test
+	public void shouldPushDownColumnSelection() {
+
+		assertThat(hBaseDriver.queryDynamicColumns(ROW_KEY, "tbl_entity", SampleEntity.class, "varcf", "c03", "c11")
+				.keySet(), is(new LinkedHashSet<String>(Arrays.asList("c03", "c11"))));
+		assertThat(hBaseDriver.queryDynamicColumnsByPrefix(ROW_KEY, "tbl_entity", SampleEntity.class, "varcf", "c1")
+				.size(), is(10));
+		assertThat(hBaseDriver.queryDynamicColumnRange(ROW_KEY, "tbl_entity", SampleEntity.class, "varcf", "c05",
+				"c08").keySet().toString(), is("[c05, c06, c07]"));
+		assertThat(hBaseDriver.queryDynamicColumnsByPrefix(ROW_KEY, "tbl_entity", SampleEntity.class, "basic_name",
+				"c"), nullValue());
+	}
+
+	/*
+	 * TESTING A ROW'S COLUMNS ARE STREAMED FROM PARTIAL RESULTS
+	 */
+	@Test
+	public void shouldIterateDynamicColumnsInBatches() throws Exception {
+
+		List<String> columns = new ArrayList<String>();
+		try (DynamicColumnIterator iterator = hBaseDriver.iterateDynamicColumns(ROW_KEY, "tbl_entity",
+				SampleEntity.class, "varcf")) {
+			while (iterator.hasNext()) {
+				Entry<String, String> column = iterator.next();
+				assertThat(column.getValue(), is("v" + Integer.parseInt(column.getKey().substring(1))));
+				columns.add(column.getKey());
+			}
+		}
+
+		assertThat(submittedScan.getBatch(), is(7));
+		assertThat(submittedScan.getAllowPartialResults(), is(true));
+		assertThat(columns.size(), is(COLUMNS));
+	}
+
+	private Cell cell(String column, String value) {
+		return new KeyValue(Bytes.toBytes(ROW_KEY), Bytes.toBytes("varcf"), Bytes.toBytes(column),
+				Bytes.toBytes(value));
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get") && args[0] instanceof Get) {
+				return get((Get) args[0]);
+			}
+			if (method.equals("getScanner")) {
+				submittedScan = (Scan) args[0];
+				return newScanner(submittedScan.getBatch());
+			}
+			return null;
+		}));
+	}
+
+	private Result get(Get get) throws Exception {
+
+		NavigableSet<byte[]> columns = get.getFamilyMap().get(Bytes.toBytes("varcf"));
+		Filter filter = get.getFilter();
+		List<Cell> cells = new ArrayList<Cell>();
+
+		for (Cell cell : rowCells) {
+			if (columns != null && !columns.contains(CellUtil.cloneQualifier(cell))) {
+				continue;
+			}
+			if (filter != null) {
+				Filter.ReturnCode returnCode = filter.filterCell(cell);
+				if (returnCode == Filter.ReturnCode.NEXT_ROW) {
+					break;
+				}
+				if (returnCode != Filter.ReturnCode.INCLUDE && returnCode != Filter.ReturnCode.INCLUDE_AND_NEXT_COL) {
+					continue;
+				}
+			}
+			cells.add(cell);
+		}
+		return Result.create(cells);
+	}
+
+	private ResultScanner newScanner(int batch) {
+		int[] position = new int[1];
+		return FakeHbase.fake(ResultScanner.class, (method, args) -> {
+			if (method.equals("next") && args == null) {
+				if (position[0] >= rowCells.size()) {
+					return null;
+				}
+				int end = Math.min(position[0] + batch, rowCells.size());
+				List<Cell> cells = rowCells.subList(position[0], end);
+				position[0] = end;
+				return Result.create(cells, null, false, end < rowCells.size());
+			}
+			return null;
+		});
+	}
+}
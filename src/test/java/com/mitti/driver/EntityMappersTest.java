@@ -0,0 +1,174 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mitti.common.Counter;
+import com.mitti.models.KVPersistable;
+import com.mitti.models.ProfileEntity;
+import com.mitti.models.SampleEntity;
+import com.mitti.processor.EntityMapperProcessor;
+
+public class EntityMappersTest {
+
+	@Rule
+	public TemporaryFolder classesFolder = new TemporaryFolder();
+
+	/*
+	 * TESTING GENERATED MAPPER IS PICKED UP FOR ENTITIES COMPILED WITH THE
+	 * PROCESSOR
+	 */
+	@Test
+	public void shouldUseGeneratedMapperWhenAvailable() {
+
+		EntityMapper<ProfileEntity> mapper = EntityMappers.forClass(ProfileEntity.class);
+		assertThat(mapper, not(instanceOf(ReflectiveEntityMapper.class)));
+		assertThat(mapper.getClass().getName(), is(ProfileEntity.class.getName() + "_EntityMapper"));
+		assertThat(EntityMappers.forClass(SampleEntity.class), instanceOf(ReflectiveEntityMapper.class));
+	}
+
+	/*
+	 * TESTING GENERATED MAPPER DESCRIBES THE ENTITY THE SAME WAY AS REFLECTION
+	 */
+	@Test
+	public void shouldMapFieldsLikeReflectiveMapper() {
+
+		EntityMapper<ProfileEntity> generated = EntityMappers.forClass(ProfileEntity.class);
+		EntityMapper<ProfileEntity> reflective = new ReflectiveEntityMapper<ProfileEntity>(ProfileEntity.class);
+
+		assertThat(generated.getDynamicColumnFamilyFields(), is(reflective.getDynamicColumnFamilyFields()));
+		assertThat(generated.getFieldMappingsByName().keySet(), is(reflective.getFieldMappingsByName().keySet()));
+
+		for (FieldMapping<ProfileEntity> expected : reflective.getFieldMappings()) {
+			FieldMapping<ProfileEntity> actual = generated.getFieldMappingsByName().get(expected.getName());
+			assertThat(actual.getFamily(), is(expected.getFamily()));
+			assertThat(actual.getColumn(), is(expected.getColumn()));
+			assertThat(actual.getTypeName(), is(expected.getTypeName()));
+			assertThat(actual.isCounter(), is(expected.isCounter()));
+			assertThat(actual.getCompressionThreshold(), is(expected.getCompressionThreshold()));
+			assertThat(actual.isIndexed(), is(expected.isIndexed()));
+		}
+	}
+
+	/*
+	 * TESTING GENERATED ACCESSORS READ AND WRITE THROUGH GETTERS/SETTERS
+	 */
+	@Test
+	public void shouldGetAndSetFieldsThroughGeneratedMapper() {
+
+		EntityMapper<ProfileEntity> mapper = EntityMappers.forClass(ProfileEntity.class);
+		Map<String, FieldMapping<ProfileEntity>> fields = mapper.getFieldMappingsByName();
+		Map<String, String> attrs = Collections.singletonMap("k", "v");
+
+		ProfileEntity entity = mapper.newInstance();
+		fields.get("basic_name").set(entity, "name");
+		fields.get("basic_age").set(entity, 42);
+		fields.get("basic_active").set(entity, true);
+		fields.get("stats_visits").set(entity, 7L);
+		fields.get("attrs").set(entity, attrs);
+
+		assertThat(entity.getBasic_name(), is("name"));
+		assertThat(entity.getBasic_age(), is(42));
+		assertThat(entity.isBasic_active(), is(true));
+		assertThat(entity.getStats_visits(), is(7L));
+		assertThat(entity.getAttrs(), is(attrs));
+
+		assertThat(fields.get("basic_name").get(entity), is((Object) "name"));
+		assertThat(fields.get("basic_age").get(entity), is((Object) 42));
+		assertThat(fields.get("basic_active").get(entity), is((Object) true));
+	}
+
+	/*
+	 * TESTING @Counter ON A FIELD WHICH IS NOT A LONG IS REJECTED BY REFLECTION
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNonLongCounterThroughReflection() {
+		new ReflectiveEntityMapper<IntCounterEntity>(IntCounterEntity.class);
+	}
+
+	/*
+	 * TESTING @Counter ON A FIELD WHICH IS NOT A LONG FAILS THE COMPILATION
+	 */
+	@Test
+	public void shouldReportNonLongCounterAtCompileTime() throws Exception {
+
+		String source = "package com.mitti.models;\n" + "public class IntCounterEntity implements KVPersistable {\n"
+				+ "	private String row_key;\n" + "	@com.mitti.common.Counter private int other_visits;\n"
+				+ "	public String getRow_key() { return row_key; }\n"
+				+ "	public void setRow_key(String row_key) { this.row_key = row_key; }\n"
+				+ "	public int getOther_visits() { return other_visits; }\n"
+				+ "	public void setOther_visits(int other_visits) { this.other_visits = other_visits; }\n" + "}\n";
+		JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///IntCounterEntity.java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		String classPath = Paths.get(KVPersistable.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+				.toString();
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+				Arrays.asList("-classpath", classPath, "-d", classesFolder.getRoot().getPath()), null,
+				Collections.singletonList(sourceFile));
+		task.setProcessors(Collections.singletonList(new EntityMapperProcessor()));
+
+		assertThat(task.call(), is(false));
+		boolean reported = false;
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			reported |= diagnostic.getKind() == Diagnostic.Kind.ERROR
+					&& diagnostic.getMessage(null).contains("@Counter field other_visits");
+		}
+		assertThat(reported, is(true));
+		assertThat(new File(classesFolder.getRoot(), "com/mitti/models/IntCounterEntity_EntityMapper.class").exists(),
+				is(false));
+	}
+
+	public static class IntCounterEntity implements KVPersistable {
+
+		private String row_key;
+
+		@Counter
+		private int other_visits;
+
+		@Override
+		public String getRow_key() {
+			return row_key;
+		}
+
+		@Override
+		public void setRow_key(String row_key) {
+			this.row_key = row_key;
+		}
+
+		public int getOther_visits() {
+			return other_visits;
+		}
+
+		public void setOther_visits(int other_visits) {
+			this.other_visits = other_visits;
+		}
+	}
+}
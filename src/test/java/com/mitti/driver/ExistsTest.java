@@ -0,0 +1,170 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Runs existence checks and insert-if-absent batches against an in-memory
+ * table
+ */
+public class ExistsTest {
+
+	private static final String ENTITY_TABLE = "tbl_entity";
+
+	private Set<String> storedRows;
+	private List<Integer> existsCallSizes;
+	private List<String> putRows;
+	private List<String> checkedColumns;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+		storedRows = new HashSet<String>();
+		existsCallSizes = new ArrayList<Integer>();
+		putRows = new ArrayList<String>();
+		checkedColumns = new ArrayList<String>();
+		hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+	}
+
+	/*
+	 * TESTING EXISTENCE IS REPORTED PER KEY IN CHUNKS OF 1000
+	 */
+	@Test
+	public void shouldCheckExistenceInChunks() {
+
+		List<String> rowKeys = new ArrayList<String>();
+		for (int i = 0; i < 2500; i++) {
+			rowKeys.add("row" + i);
+			if (i % 3 == 0) {
+				storedRows.add("row" + i);
+			}
+		}
+
+		Map<String, Boolean> existingRows = hBaseDriver.exists(ENTITY_TABLE, rowKeys);
+
+		assertThat(existsCallSizes, is(Arrays.asList(1000, 1000, 500)));
+		assertThat(existingRows.size(), is(2500));
+		assertThat(existingRows.get("row3"), is(true));
+		assertThat(existingRows.get("row4"), is(false));
+		assertThat(new ArrayList<String>(existingRows.keySet()).get(2499), is("row2499"));
+	}
+
+	/*
+	 * TESTING ONLY NEW ROWS ARE WRITTEN AND THE OTHERS SKIPPED
+	 */
+	@Test
+	public void shouldWriteOnlyAbsentEntities() {
+
+		storedRows.add("2");
+		storedRows.add("4");
+
+		BatchResult<SampleEntity> result = hBaseDriver.addIfAbsent(entities("1", "2", "3", "4", "5", "1"),
+				ENTITY_TABLE, SampleEntity.class, WriteOptions.DEFAULT.withBatchSize(3));
+
+		assertThat(existsCallSizes, is(Arrays.asList(3, 2)));
+		assertThat(putRows, is(Arrays.asList("1", "3", "5")));
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(result.getSucceeded().size(), is(3));
+		assertThat(result.getSkipped().size(), is(3));
+		assertThat(result.getSkipped().get(0).getRow_key(), is("1"));
+	}
+
+	/*
+	 * TESTING EACH ROW IS CHECKED AND INSERTED ATOMICALLY AND A ROW CREATED
+	 * CONCURRENTLY IS NOT OVERWRITTEN
+	 */
+	@Test
+	public void shouldInsertAbsentEntitiesAtomically() {
+
+		storedRows.add("2");
+
+		BatchResult<SampleEntity> result = hBaseDriver.addIfAbsentAtomically(entities("1", "2", "3", "1"),
+				ENTITY_TABLE, SampleEntity.class, WriteOptions.DEFAULT);
+
+		assertThat(checkedColumns, is(Arrays.asList("1:basic", "2:basic", "3:basic")));
+		assertThat(putRows, is(Arrays.asList("1", "3")));
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(result.getSucceeded().size(), is(2));
+		assertThat(result.getSkipped().size(), is(2));
+		assertThat(result.getSkipped().get(0).getRow_key(), is("1"));
+		assertThat(result.getSkipped().get(1).getRow_key(), is("2"));
+	}
+
+	private List<SampleEntity> entities(String... rowKeys) {
+		List<SampleEntity> entities = new ArrayList<SampleEntity>();
+		for (String rowKey : rowKeys) {
+			SampleEntity entity = new SampleEntity();
+			entity.setRow_key(rowKey);
+			entity.setBasic_age(30);
+			entities.add(entity);
+		}
+		return entities;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("exists") && args[0] instanceof List) {
+				List<Get> gets = (List<Get>) args[0];
+				existsCallSizes.add(gets.size());
+				boolean[] exists = new boolean[gets.size()];
+				for (int i = 0; i < exists.length; i++) {
+					exists[i] = storedRows.contains(Bytes.toString(gets.get(i).getRow()));
+				}
+				return exists;
+			}
+			if (method.equals("get")) {
+				return FakeHbase.emptyResults((List<?>) args[0]);
+			}
+			if (method.equals("checkAndMutate")) {
+				return newCheckAndMutateBuilder(Bytes.toString((byte[]) args[0]), Bytes.toString((byte[]) args[1]));
+			}
+			if (method.equals("put") && tableName.equals(ENTITY_TABLE)) {
+				for (Put put : (List<Put>) args[0]) {
+					putRows.add(Bytes.toString(put.getRow()));
+					storedRows.add(Bytes.toString(put.getRow()));
+				}
+			}
+			return null;
+		}));
+	}
+
+	/*
+	 * Inserts the row only if it is not stored when the mutation is applied
+	 */
+	private Table.CheckAndMutateBuilder newCheckAndMutateBuilder(String rowKey, String family) {
+		checkedColumns.add(rowKey + ":" + family);
+		Table.CheckAndMutateBuilder[] builder = new Table.CheckAndMutateBuilder[1];
+		builder[0] = FakeHbase.fake(Table.CheckAndMutateBuilder.class, (method, args) -> {
+			if (method.equals("thenMutate")) {
+				if (storedRows.contains(rowKey)) {
+					return false;
+				}
+				putRows.add(Bytes.toString(((RowMutations) args[0]).getRow()));
+				storedRows.add(rowKey);
+				return true;
+			}
+			return builder[0];
+		});
+		return builder[0];
+	}
+}
@@ -0,0 +1,120 @@
+package com.mitti.driver;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * In-memory stand-ins for the HBase client interfaces, shared by the driver
+ * tests. A fake answers the calls its handler knows; other calls return null,
+ * or the default value of a primitive return type.
+ */
+final class FakeHbase {
+
+	/*
+	 * Answers a call to a fake by method name
+	 */
+	@FunctionalInterface
+	interface Handler {
+		Object handle(String method, Object[] args) throws Throwable;
+	}
+
+	private FakeHbase() {
+	}
+
+	static <T> T fake(Class<T> type, Handler handler) {
+		return type.cast(Proxy.newProxyInstance(FakeHbase.class.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+					Object value = handler.handle(method.getName(), args);
+					if (value == null && method.getReturnType().isPrimitive()
+							&& method.getReturnType() != void.class) {
+						return Array.get(Array.newInstance(method.getReturnType(), 1), 0);
+					}
+					return value;
+				}));
+	}
+
+	/*
+	 * A connection whose tables are looked up by name (with the table prefix)
+	 */
+	static Connection connection(Function<String, Table> tables) {
+		return connection(tables, null);
+	}
+
+	static Connection connection(Function<String, Table> tables, Admin admin) {
+		return fake(Connection.class, (method, args) -> {
+			if (method.equals("getTable")) {
+				return tables.apply(args[0].toString());
+			}
+			return method.equals("getAdmin") ? admin : null;
+		});
+	}
+
+	static Table table(Handler handler) {
+		return fake(Table.class, handler);
+	}
+
+	static Admin admin(Handler handler) {
+		return fake(Admin.class, handler);
+	}
+
+	/*
+	 * A scanner returning the rows of nextRow until it returns null, one by
+	 * one through next() or in batches through next(int)
+	 */
+	static ResultScanner scanner(Supplier<Result> nextRow) {
+		return fake(ResultScanner.class, (method, args) -> {
+			if (!method.equals("next")) {
+				return null;
+			}
+			if (args == null) {
+				return nextRow.get();
+			}
+			List<Result> batch = new ArrayList<Result>();
+			for (Result row = null; batch.size() < (Integer) args[0] && (row = nextRow.get()) != null;) {
+				batch.add(row);
+			}
+			return batch.toArray(new Result[batch.size()]);
+		});
+	}
+
+	static ResultScanner scanner(List<Result> rows) {
+		Iterator<Result> iterator = rows.iterator();
+		return scanner(() -> iterator.hasNext() ? iterator.next() : null);
+	}
+
+	/*
+	 * A row of the cells given as family, column, value triples
+	 */
+	static Result row(String rowKey, String... familyColumnValues) {
+		List<Cell> cells = new ArrayList<Cell>();
+		for (int i = 0; i < familyColumnValues.length; i += 3) {
+			cells.add(new KeyValue(Bytes.toBytes(rowKey), Bytes.toBytes(familyColumnValues[i]),
+					Bytes.toBytes(familyColumnValues[i + 1]), Bytes.toBytes(familyColumnValues[i + 2])));
+		}
+		return Result.create(cells);
+	}
+
+	/*
+	 * The answer of a multi-get finding none of the rows
+	 */
+	static Result[] emptyResults(List<?> gets) {
+		Result[] results = new Result[gets.size()];
+		Arrays.fill(results, Result.EMPTY_RESULT);
+		return results;
+	}
+}
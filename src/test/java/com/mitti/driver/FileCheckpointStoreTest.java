@@ -0,0 +1,39 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileCheckpointStoreTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	/*
+	 * TESTING CHECKPOINTS ARE KEPT PER TABLE AND CONSUMER ACROSS STORE INSTANCES
+	 */
+	@Test
+	public void shouldPersistCheckpointsPerTableAndConsumer() throws IOException {
+
+		Path checkpointFile = temporaryFolder.getRoot().toPath().resolve("checkpoints").resolve("changes.properties");
+
+		FileCheckpointStore checkpointStore = new FileCheckpointStore(checkpointFile);
+		assertNull(checkpointStore.getCheckpoint("tbl_entity", "indexer"));
+
+		checkpointStore.saveCheckpoint("tbl_entity", "indexer", 1000L);
+		checkpointStore.saveCheckpoint("tbl_entity", "exporter", 2000L);
+		checkpointStore.saveCheckpoint("tbl_entity", "indexer", 3000L);
+
+		FileCheckpointStore reopenedStore = new FileCheckpointStore(checkpointFile);
+		assertThat(reopenedStore.getCheckpoint("tbl_entity", "indexer"), is(3000L));
+		assertThat(reopenedStore.getCheckpoint("tbl_entity", "exporter"), is(2000L));
+		assertNull(reopenedStore.getCheckpoint("tbl_other", "indexer"));
+	}
+}
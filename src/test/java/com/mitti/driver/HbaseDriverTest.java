@@ -8,11 +8,15 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
@@ -20,17 +24,23 @@ import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
 import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Before;
 import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
+import com.mitti.models.IndexedEntity;
 import com.mitti.models.SampleEntity;
+import com.mitti.models.VisitsEntity;
 
 @SuppressWarnings("deprecation")
 public class HbaseDriverTest {
 
 	private static final String ENTITY_TABLE = "tbl_entity";
+	private static final String INDEXED_ENTITY_TABLE = "tbl_indexed_entity";
 	private static SampleEntity testEntity1 = null;
 	private static SampleEntity testEntity2 = null;
 	private static SampleEntity testEntity3 = null;
@@ -38,12 +48,14 @@ public class HbaseDriverTest {
 	private static SampleEntity testEntity5 = null;
 
 	private HbaseDriver hBaseDriver;
+	private Connection connection;
+	private Properties properties;
 
 	private boolean isEntityAlreadyCreated = false;
 
 	private void prepareHbaseDriver() throws IOException {
 
-		Properties properties = new Properties();
+		properties = new Properties();
 		properties.load(HbaseDriverTest.class.getResourceAsStream("/application.properties"));
 
 		Configuration config = HBaseConfiguration.create();
@@ -51,7 +63,7 @@ public class HbaseDriverTest {
 		config.set("hbase.zookeeper.property.clientPort",
 				properties.getProperty("hbase.zookeeper.property.clientPort"));
 
-		Connection connection = ConnectionFactory.createConnection(config);
+		connection = ConnectionFactory.createConnection(config);
 		this.hBaseDriver = new HbaseDriver(connection, properties);
 	}
 
@@ -207,6 +219,11 @@ public class HbaseDriverTest {
 		List<SampleEntity> actualEntities = hBaseDriver.query(ENTITY_TABLE, SampleEntity.class, nameFilter);
 		assertThat(actualEntities.size(), is(1));
 		assertThat(actualEntities, hasItems(testEntity1));
+
+		QueryProfile profile = hBaseDriver.getLastQueryProfile();
+		assertThat(profile.getTable(), is(ENTITY_TABLE));
+		assertThat(profile.getRowsReturned(), is(1L));
+		assertThat(profile.getRowsScanned(), is(5L));
 	}
 
 	/*
@@ -294,4 +311,249 @@ public class HbaseDriverTest {
 		SampleEntity actualEntity = hBaseDriver.query("1", ENTITY_TABLE, SampleEntity.class);
 		assertThat(actualEntity.getOther_entity_score(), is(new_score));
 	}
-}
\ No newline at end of file
+
+	/*
+	 * TESTING ROW COUNT WITHOUT BUILDING ENTITIES
+	 */
+	@Test
+	public void shouldCountSampleTestEntities() {
+
+		assertThat(hBaseDriver.count(ENTITY_TABLE, null), is(5L));
+
+		SingleColumnValueFilter flagFilter = new SingleColumnValueFilter(Bytes.toBytes("other"),
+				Bytes.toBytes("done_flag"), CompareOp.EQUAL, Bytes.toBytes("true"));
+		flagFilter.setFilterIfMissing(true);
+		assertThat(hBaseDriver.count(ENTITY_TABLE, flagFilter), is(3L));
+	}
+
+	/*
+	 * TESTING AGGREGATION OVER A SINGLE PROJECTED COLUMN (rows missing the
+	 * column, here entity 5, are skipped)
+	 */
+	@Test
+	public void shouldAggregateSampleTestEntityField() {
+
+		assertThat(hBaseDriver.deleteColumnsById("5", ENTITY_TABLE, "basic", "age"), is(true));
+
+		assertThat(hBaseDriver.aggregate(ENTITY_TABLE, SampleEntity.class, "basic_age", AggFn.COUNT, null), is(4.0));
+		assertThat(hBaseDriver.aggregate(ENTITY_TABLE, SampleEntity.class, "basic_age", AggFn.SUM, null), is(126.0));
+		assertThat(hBaseDriver.aggregate(ENTITY_TABLE, SampleEntity.class, "basic_age", AggFn.MIN, null, true),
+				is(18.0));
+		assertThat(hBaseDriver.aggregate(ENTITY_TABLE, SampleEntity.class, "basic_age", AggFn.MAX, null, true),
+				is(55.0));
+
+		SingleColumnValueFilter flagFilter = new SingleColumnValueFilter(Bytes.toBytes("other"),
+				Bytes.toBytes("done_flag"), CompareOp.EQUAL, Bytes.toBytes("true"));
+		flagFilter.setFilterIfMissing(true);
+		assertThat(hBaseDriver.aggregate(ENTITY_TABLE, SampleEntity.class, "basic_age", AggFn.AVG, flagFilter),
+				is(23.0));
+	}
+
+	/*
+	 * TESTING ATOMIC MULTI-FIELD INCREMENTS
+	 */
+	@Test
+	public void shouldIncrementCounterColumns() {
+
+		Long visits = hBaseDriver.increment(ENTITY_TABLE, "2", VisitsEntity.class, "other_visits", 3);
+		assertThat(visits, is(3L));
+
+		Map<String, Long> fieldDeltas = new HashMap<String, Long>();
+		fieldDeltas.put("other_visits", 2L);
+		fieldDeltas.put("other_clicks", 7L);
+		Map<String, Long> incrementedValues = hBaseDriver.increment(ENTITY_TABLE, "2", VisitsEntity.class,
+				fieldDeltas);
+		assertThat(incrementedValues.get("other_visits"), is(5L));
+		assertThat(incrementedValues.get("other_clicks"), is(7L));
+
+		hBaseDriver.deleteColumnsById("2", ENTITY_TABLE, "other", "visits", "clicks");
+	}
+
+	/*
+	 * TESTING CONDITIONAL UPDATE AGAINST EXPECTED FIELD VALUE
+	 */
+	@Test
+	public void shouldUpdateSampleEntityOnlyWhenExpectedValueMatches() {
+
+		testEntity2.setBasic_age(26);
+		boolean staleUpdate = hBaseDriver.checkAndUpdate(testEntity2, ENTITY_TABLE, SampleEntity.class,
+				"basic_name", "Someone Else");
+		assertThat(staleUpdate, is(false));
+		assertThat(hBaseDriver.query("2", ENTITY_TABLE, SampleEntity.class).getBasic_age(), is(25));
+
+		boolean update = hBaseDriver.checkAndUpdate(testEntity2, ENTITY_TABLE, SampleEntity.class, "basic_name",
+				"Arijit Singh");
+		assertThat(update, is(true));
+		assertThat(hBaseDriver.query("2", ENTITY_TABLE, SampleEntity.class).getBasic_age(), is(26));
+		testEntity2.setBasic_age(25);
+	}
+
+	/*
+	 * TESTING UPDATE OF ONLY CHANGED COLUMNS FOR ENTITIES LOADED WITH CHANGE
+	 * TRACKING ENABLED
+	 */
+	@Test
+	public void shouldUpdateOnlyChangedColumnsOfTrackedEntity() {
+
+		Properties trackingProperties = new Properties();
+		trackingProperties.putAll(properties);
+		trackingProperties.setProperty("hbase.driver.trackchanges", "true");
+		HbaseDriver trackingDriver = new HbaseDriver(connection, trackingProperties);
+
+		SampleEntity trackedEntity = trackingDriver.query("3", ENTITY_TABLE, SampleEntity.class);
+		trackedEntity.setVarcf_fixed_value(null);
+		trackedEntity.getVarcf().remove("43");
+		trackedEntity.getVarcf().put("65", "Patna");
+
+		// concurrent change to an untouched column must survive the update
+		hBaseDriver.increment(ENTITY_TABLE, "3", VisitsEntity.class, "other_visits", 1);
+
+		boolean updateResult = trackingDriver.addUpdate(trackedEntity, ENTITY_TABLE, SampleEntity.class);
+		assertThat(updateResult, is(true));
+
+		SampleEntity actualEntity = hBaseDriver.query("3", ENTITY_TABLE, SampleEntity.class);
+		assertNull(actualEntity.getVarcf_fixed_value());
+		assertNull(actualEntity.getVarcf().get("43"));
+		assertThat(actualEntity.getVarcf().get("65"), is("Patna"));
+		assertThat(actualEntity.getVarcf().get("54"), is("Dilli"));
+		assertThat(hBaseDriver.increment(ENTITY_TABLE, "3", VisitsEntity.class, "other_visits", 0), is(1L));
+	}
+
+	/*
+	 * TESTING INCREMENTAL SCAN OF CHANGED ROWS WITH CHECKPOINTS
+	 */
+	@Test
+	public void shouldPollOnlyChangedSampleTestEntities() throws Exception {
+
+		FileCheckpointStore checkpointStore = new FileCheckpointStore(Files.createTempFile("mitti", ".checkpoints"));
+
+		List<SampleEntity> initialChanges = hBaseDriver.pollChanges(ENTITY_TABLE, SampleEntity.class, "test",
+				checkpointStore, null);
+		assertThat(initialChanges.size(), is(5));
+
+		Thread.sleep(5);
+		long beforeUpdate = System.currentTimeMillis();
+		hBaseDriver.increment(ENTITY_TABLE, "4", VisitsEntity.class, "other_visits", 1);
+
+		List<SampleEntity> changes = hBaseDriver.pollChanges(ENTITY_TABLE, SampleEntity.class, "test",
+				checkpointStore, null);
+		assertThat(changes.size(), is(1));
+		assertThat(changes.get(0).getRow_key(), is("4"));
+
+		assertThat(hBaseDriver.queryModifiedSince(ENTITY_TABLE, SampleEntity.class, beforeUpdate, null).size(),
+				is(1));
+	}
+
+	/*
+	 * TESTING TIMELINE CONSISTENT READ BY ID (served by primary when the table
+	 * has no read replicas)
+	 */
+	@Test
+	public void shouldGetSampleTestEntityWithTimelineConsistency() {
+
+		TimelineResult<SampleEntity> timelineResult = hBaseDriver.queryTimeline("2", ENTITY_TABLE,
+				SampleEntity.class);
+		assertThat(timelineResult.getEntity(), is(testEntity2));
+		assertThat(timelineResult.isStale(), is(false));
+		assertThat(hBaseDriver.getReplicaReadMetrics().getReads(), is(1L));
+
+		List<TimelineResult<SampleEntity>> timelineResults = hBaseDriver.queryTimeline(ENTITY_TABLE,
+				SampleEntity.class, null);
+		assertThat(timelineResults.size(), is(5));
+	}
+
+	/*
+	 * TESTING ENTITY FETCH BY SECONDARY INDEX
+	 */
+	@Test
+	public void shouldGetIndexedEntitiesByName() {
+
+		// TESTING: TABLE AND INDEX TABLE CREATION
+		assertThat(new SchemaManager(connection, properties).createOrUpdateTable(INDEXED_ENTITY_TABLE,
+				IndexedEntity.class), is(true));
+
+		String[] names = { "Kishore Kumar", "Arijit Singh", "Mohammed Rafi", "Mohammed Shami" };
+		for (int i = 0; i < names.length; i++) {
+			IndexedEntity indexedEntity = new IndexedEntity();
+			indexedEntity.setRow_key(String.valueOf(i + 1));
+			indexedEntity.setBasic_name(names[i]);
+			indexedEntity.setBasic_age(20 + i);
+			assertThat(hBaseDriver.addUpdate(indexedEntity, INDEXED_ENTITY_TABLE, IndexedEntity.class), is(true));
+		}
+
+		List<IndexedEntity> actualEntities = hBaseDriver.queryByIndex(INDEXED_ENTITY_TABLE, IndexedEntity.class,
+				"basic_name", "Kishore Kumar");
+		assertThat(actualEntities.size(), is(1));
+		assertThat(actualEntities.get(0).getRow_key(), is("1"));
+
+		actualEntities = hBaseDriver.queryByIndexRange(INDEXED_ENTITY_TABLE, IndexedEntity.class, "basic_name",
+				"Mohammed", "Mohammee");
+		assertThat(actualEntities.size(), is(2));
+		assertThat(actualEntities.get(0).getRow_key(), is("3"));
+		assertThat(actualEntities.get(1).getRow_key(), is("4"));
+
+		// a renamed entity is only found under its new name
+		IndexedEntity renamedEntity = hBaseDriver.query("1", INDEXED_ENTITY_TABLE, IndexedEntity.class);
+		renamedEntity.setBasic_name("Kishore Da");
+		assertThat(hBaseDriver.addUpdate(renamedEntity, INDEXED_ENTITY_TABLE, IndexedEntity.class), is(true));
+		assertThat(hBaseDriver.queryByIndex(INDEXED_ENTITY_TABLE, IndexedEntity.class, "basic_name", "Kishore Kumar")
+				.size(), is(0));
+		assertThat(hBaseDriver.queryByIndex(INDEXED_ENTITY_TABLE, IndexedEntity.class, "basic_name", "Kishore Da")
+				.size(), is(1));
+
+		// rows deleted without the entity class leave no index entries
+		assertThat(hBaseDriver.deleteColumnsById("2", INDEXED_ENTITY_TABLE, "basic", "name"), is(true));
+		assertThat(hBaseDriver.deleteById("4", INDEXED_ENTITY_TABLE), is(true));
+
+		assertThat(hBaseDriver.rebuildIndex(INDEXED_ENTITY_TABLE, IndexedEntity.class, "basic_name"), is(2L));
+		assertThat(hBaseDriver.queryByIndex(INDEXED_ENTITY_TABLE, IndexedEntity.class, "basic_name", "Kishore Da")
+				.size(), is(1));
+		assertThat(hBaseDriver.queryByIndexRange(INDEXED_ENTITY_TABLE, IndexedEntity.class, "basic_name", null, null)
+				.size(), is(2));
+
+		for (String row_key : new String[] { "1", "2", "3" }) {
+			hBaseDriver.deleteById(row_key, INDEXED_ENTITY_TABLE, IndexedEntity.class);
+		}
+	}
+
+	/*
+	 * TESTING ENTITIES PUBLISHED ON DEMAND
+	 */
+	@Test
+	public void shouldPublishSampleTestEntitiesOnDemand() throws Exception {
+
+		List<SampleEntity> publishedEntities = new CopyOnWriteArrayList<SampleEntity>();
+		CountDownLatch completed = new CountDownLatch(1);
+
+		hBaseDriver.publish(ENTITY_TABLE, SampleEntity.class, (Filter) null).subscribe(new Subscriber<SampleEntity>() {
+
+			private Subscription subscription;
+
+			@Override
+			public void onSubscribe(Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(SampleEntity entity) {
+				publishedEntities.add(entity);
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				fail("Should not have failed while publishing entities: " + t);
+			}
+
+			@Override
+			public void onComplete() {
+				completed.countDown();
+			}
+		});
+
+		assertThat(completed.await(30, TimeUnit.SECONDS), is(true));
+		assertThat(publishedEntities, hasItems(testEntity1, testEntity2, testEntity3, testEntity4));
+		assertThat(publishedEntities.size(), is(5));
+	}
+}
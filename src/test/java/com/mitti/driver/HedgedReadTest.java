@@ -0,0 +1,121 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Issues hedged timeline gets against an in-memory table whose primary and
+ * replica reads are scripted
+ */
+public class HedgedReadTest {
+
+	private Callable<Result> primaryRead;
+	private Callable<Result> replicaRead;
+
+	/*
+	 * TESTING A PRIMARY FAILING BEFORE THE HEDGE DELAY IS HEDGED TO THE REPLICA
+	 */
+	@Test
+	public void shouldHedgeWhenPrimaryFailsEarly() {
+
+		primaryRead = () -> {
+			throw new IOException("primary region server unavailable");
+		};
+		replicaRead = () -> row(true);
+		HbaseDriver hBaseDriver = newHbaseDriver(60000);
+
+		TimelineResult<SampleEntity> timelineResult = hBaseDriver.queryTimeline("1", "tbl_entity",
+				SampleEntity.class);
+
+		assertThat(timelineResult.getEntity().getBasic_name(), is("replica"));
+		assertThat(timelineResult.isStale(), is(true));
+		assertThat(timelineResult.isHedged(), is(true));
+		assertThat(hBaseDriver.getReplicaReadMetrics().getHedgedReads(), is(1L));
+	}
+
+	/*
+	 * TESTING THE LOSING READ IS CANCELLED ONCE AN ANSWER IS TAKEN
+	 */
+	@Test
+	public void shouldCancelLosingRead() throws Exception {
+
+		CountDownLatch primaryCancelled = new CountDownLatch(1);
+		primaryRead = () -> {
+			try {
+				Thread.sleep(60000);
+			} catch (InterruptedException e) {
+				primaryCancelled.countDown();
+				throw e;
+			}
+			return row(false);
+		};
+		replicaRead = () -> row(true);
+		HbaseDriver hBaseDriver = newHbaseDriver(0);
+
+		TimelineResult<SampleEntity> timelineResult = hBaseDriver.queryTimeline("1", "tbl_entity",
+				SampleEntity.class);
+
+		assertThat(timelineResult.isStale(), is(true));
+		assertThat(primaryCancelled.await(10, TimeUnit.SECONDS), is(true));
+		assertThat(hBaseDriver.getReplicaReadMetrics().getHedgeWins(), is(1L));
+	}
+
+	/*
+	 * TESTING CLOSING THE DRIVER STOPS THE HEDGE THREADS
+	 */
+	@Test
+	public void shouldStopHedgeThreadsOnClose() throws Exception {
+
+		List<Thread> readThreads = new ArrayList<Thread>();
+		primaryRead = () -> {
+			readThreads.add(Thread.currentThread());
+			return row(false);
+		};
+		HbaseDriver hBaseDriver = newHbaseDriver(60000);
+		hBaseDriver.queryTimeline("1", "tbl_entity", SampleEntity.class);
+
+		hBaseDriver.close();
+
+		readThreads.get(0).join(10000);
+		assertThat(readThreads.get(0).isAlive(), is(false));
+	}
+
+	private HbaseDriver newHbaseDriver(long hedgeDelayMillis) {
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.hedge.delay.ms", String.valueOf(hedgeDelayMillis));
+		return new HbaseDriver(newConnection(), properties);
+	}
+
+	private Result row(boolean stale) {
+		byte[] rowKey = Bytes.toBytes("1");
+		return Result.create(new Cell[] { new KeyValue(rowKey, Bytes.toBytes("basic"), Bytes.toBytes("name"),
+				Bytes.toBytes(stale ? "replica" : "primary")) }, null, stale);
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get") && args[0] instanceof Get) {
+				return ((Get) args[0]).getReplicaId() == 0 ? primaryRead.call() : replicaRead.call();
+			}
+			return null;
+		}));
+	}
+}
@@ -0,0 +1,73 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Runs pipelined queries against an in-memory scanner
+ */
+public class PipelinedScanTest {
+
+	private static final int ROWS = 25;
+
+	private int nextRow;
+	private Scan submittedScan;
+
+	/*
+	 * TESTING BATCHES ARE DECODED IN PARALLEL WITHOUT LOSING ROW ORDER
+	 */
+	@Test
+	public void shouldDecodeBatchesInParallelInRowOrder() {
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.scan.pipelined", "true");
+		properties.setProperty("hbase.driver.scan.pipeline.batch", "10");
+		properties.setProperty("hbase.driver.scan.parallel.decode.rows", "8");
+		properties.setProperty("hbase.driver.parallelism", "4");
+		HbaseDriver hBaseDriver = new HbaseDriver(newConnection(), properties);
+
+		List<SampleEntity> entities = hBaseDriver.query("tbl_entity", SampleEntity.class);
+
+		assertThat(submittedScan.isAsyncPrefetch(), is(true));
+		assertThat(submittedScan.getCaching(), is(20));
+		assertThat(entities.size(), is(ROWS));
+		for (int i = 0; i < ROWS; i++) {
+			assertThat(entities.get(i).getRow_key(), is(rowKey(i)));
+			assertThat(entities.get(i).getBasic_age(), is(i));
+		}
+
+		ScanPipelineMetrics metrics = hBaseDriver.getScanPipelineMetrics();
+		assertThat(metrics.getBatches(), is(3L));
+		assertThat(metrics.getParallelDecodedBatches(), is(2L));
+		assertThat(metrics.getFetchedRows(), is((long) ROWS));
+		assertThat(metrics.getDecodedRows(), is((long) ROWS));
+	}
+
+	private String rowKey(int row) {
+		return String.format("%03d", row);
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("getScanner")) {
+				submittedScan = (Scan) args[0];
+				return FakeHbase.scanner(() -> nextRow < ROWS ? row(nextRow++) : null);
+			}
+			return null;
+		}));
+	}
+
+	private Result row(int row) {
+		return FakeHbase.row(rowKey(row), "basic", "age", String.valueOf(row), "basic", "name", "name" + row);
+	}
+}
@@ -0,0 +1,142 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.OrderEntity;
+import com.mitti.models.SampleEntity;
+
+/**
+ * Loads referenced entities of a page of parents against an in-memory table
+ */
+public class ReferenceLoadingTest {
+
+	private List<Integer> multiGetSizes;
+	private List<String> gotRowKeys;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+		multiGetSizes = Collections.synchronizedList(new ArrayList<Integer>());
+		gotRowKeys = Collections.synchronizedList(new ArrayList<String>());
+		hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+	}
+
+	/*
+	 * TESTING A PAGE OF 1000 ORDERS COSTS ONE MULTI-GET OF DISTINCT CUSTOMERS
+	 */
+	@Test
+	public void shouldLoadDistinctReferencesWithOneMultiGet() {
+
+		List<OrderEntity> orders = new ArrayList<OrderEntity>();
+		for (int i = 0; i < 1000; i++) {
+			orders.add(order("order" + i, i == 7 ? null : "customer" + (i % 50)));
+		}
+		orders.add(order("orphan", "missing"));
+
+		Map<OrderEntity, SampleEntity> attached = new IdentityHashMap<OrderEntity, SampleEntity>();
+		Map<String, SampleEntity> customers = hBaseDriver.loadReferences(orders, OrderEntity.class,
+				"basic_customer", SampleEntity.class, attached::put);
+
+		assertThat(multiGetSizes, is(Collections.singletonList(51)));
+		assertThat(customers.size(), is(50));
+		assertThat(attached.size(), is(999));
+		assertThat(attached.get(orders.get(123)).getBasic_name(), is("name of customer23"));
+	}
+
+	/*
+	 * TESTING MORE DISTINCT KEYS THAN A MULTI-GET BATCH ARE CHUNKED
+	 */
+	@Test
+	public void shouldChunkLargeReferenceSets() {
+
+		List<OrderEntity> orders = new ArrayList<OrderEntity>();
+		for (int i = 0; i < 2500; i++) {
+			orders.add(order("order" + i, "customer" + i));
+		}
+
+		Map<String, SampleEntity> customers = hBaseDriver.loadReferences(orders, OrderEntity.class,
+				"basic_customer", SampleEntity.class, null);
+
+		List<Integer> sortedSizes = new ArrayList<Integer>(multiGetSizes);
+		Collections.sort(sortedSizes);
+		assertThat(sortedSizes.toString(), is("[500, 1000, 1000]"));
+		assertThat(customers.size(), is(2500));
+		assertThat(gotRowKeys.size(), is(2500));
+	}
+
+	/*
+	 * TESTING PARENTS WHICH CAN ONLY BE ITERATED ONCE ARE ATTACHED
+	 */
+	@Test
+	public void shouldAttachParentsOfOnePassIterable() {
+
+		List<OrderEntity> orders = new ArrayList<OrderEntity>();
+		for (int i = 0; i < 10; i++) {
+			orders.add(order("order" + i, "customer" + (i % 3)));
+		}
+		Iterable<OrderEntity> onePass = orders.stream()::iterator;
+
+		Map<OrderEntity, SampleEntity> attached = new IdentityHashMap<OrderEntity, SampleEntity>();
+		Map<String, SampleEntity> customers = hBaseDriver.loadReferences(onePass, OrderEntity.class,
+				"basic_customer", SampleEntity.class, attached::put);
+
+		assertThat(customers.size(), is(3));
+		assertThat(attached.size(), is(10));
+		assertThat(attached.get(orders.get(5)).getBasic_name(), is("name of customer2"));
+	}
+
+	/*
+	 * TESTING FIELDS WITHOUT @Reference ARE REJECTED
+	 */
+	@Test
+	public void shouldRejectNonReferenceFields() {
+
+		Map<String, SampleEntity> customers = hBaseDriver.loadReferences(
+				Collections.singletonList(order("order", "customer")), OrderEntity.class, "basic_quantity",
+				SampleEntity.class, null);
+
+		assertThat(customers.isEmpty(), is(true));
+		assertThat(multiGetSizes.isEmpty(), is(true));
+	}
+
+	private OrderEntity order(String rowKey, String customer) {
+		OrderEntity order = new OrderEntity();
+		order.setRow_key(rowKey);
+		order.setBasic_customer(customer);
+		return order;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get") && args[0] instanceof List) {
+				List<Get> gets = (List<Get>) args[0];
+				multiGetSizes.add(gets.size());
+				Result[] results = new Result[gets.size()];
+				for (int i = 0; i < results.length; i++) {
+					String rowKey = Bytes.toString(gets.get(i).getRow());
+					gotRowKeys.add(rowKey);
+					results[i] = rowKey.equals("missing") ? Result.EMPTY_RESULT
+							: FakeHbase.row(rowKey, "basic", "name", "name of " + rowKey);
+				}
+				return results;
+			}
+			return null;
+		}));
+	}
+}
@@ -0,0 +1,113 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Table;
+import org.junit.Test;
+
+import com.mitti.driver.SecondaryIndexes.IndexMutations;
+
+public class RequestThrottleTest {
+
+	/*
+	 * TESTING ONLY THE TAGGED PRIORITY CLASS IS THROTTLED
+	 */
+	@Test
+	public void shouldThrottleConfiguredPriorityClass() {
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.throttle.bulk.write.ops", "10");
+		RequestThrottle throttle = new RequestThrottle(properties);
+
+		for (int i = 0; i < 50; i++) {
+			throttle.acquire("tbl_entity", ThrottledOperation.WRITE, 1, 100);
+		}
+		assertThat(throttle.getThrottleMetrics().getThrottledCalls(ThrottledOperation.WRITE), is(0L));
+
+		throttle.setPriorityClass("bulk");
+		throttle.acquire("tbl_entity", ThrottledOperation.WRITE, 5, 100);
+		throttle.acquire("tbl_entity", ThrottledOperation.WRITE, 1, 100);
+		throttle.acquire("tbl_entity", ThrottledOperation.DELETE, 100, 100);
+
+		ThrottleMetrics metrics = throttle.getThrottleMetrics();
+		assertThat(metrics.getThrottledCalls(ThrottledOperation.WRITE), is(1L));
+		assertThat(metrics.getWaitMillis(ThrottledOperation.WRITE) >= 400, is(true));
+		assertThat(metrics.getThrottledCalls(ThrottledOperation.DELETE), is(0L));
+	}
+
+	/*
+	 * TESTING TABLE SPECIFIC RATES OVERRIDE THE CLASS WIDE RATE
+	 */
+	@Test
+	public void shouldPreferTableSpecificRate() {
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.throttle.default.scan.bytes", "1000");
+		properties.setProperty("hbase.driver.throttle.default.tbl_fast.scan.bytes", "100000000");
+		RequestThrottle throttle = new RequestThrottle(properties);
+
+		throttle.acquire("tbl_fast", ThrottledOperation.SCAN, 1, 1000);
+		throttle.acquire("tbl_fast", ThrottledOperation.SCAN, 1, 1000);
+		assertThat(throttle.getThrottleMetrics().getWaitMillis(ThrottledOperation.SCAN) < 100, is(true));
+
+		throttle.acquire("tbl_slow", ThrottledOperation.SCAN, 1, 500);
+		throttle.acquire("tbl_slow", ThrottledOperation.SCAN, 1, 10);
+		assertThat(throttle.getThrottleMetrics().getWaitMillis(ThrottledOperation.SCAN) >= 400, is(true));
+	}
+
+	/*
+	 * TESTING INDEX ENTRIES ARE THROTTLED AS WRITES OF THE DATA TABLE
+	 */
+	@Test
+	public void shouldThrottleIndexWritesOfDataTable() throws Exception {
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.throttle.default.tbl_entity.write.ops", "10");
+		RequestThrottle throttle = new RequestThrottle(properties);
+		Connection connection = newConnection();
+
+		IndexMutations indexMutations = new IndexMutations("tbl_entity", throttle);
+		for (int i = 0; i < 5; i++) {
+			indexMutations.addEntry("tbl_entity_idx_basic_name", "name" + i, "row" + i);
+		}
+		indexMutations.writeEntries(connection, "");
+		assertThat(throttle.getThrottleMetrics().getThrottledCalls(ThrottledOperation.WRITE), is(0L));
+
+		indexMutations.writeEntries(connection, "");
+		assertThat(throttle.getThrottleMetrics().getThrottledCalls(ThrottledOperation.WRITE), is(1L));
+		assertThat(throttle.getThrottleMetrics().getWaitMillis(ThrottledOperation.WRITE) >= 400, is(true));
+	}
+
+	/*
+	 * TESTING EXISTENCE CHECKS ARE THROTTLED AS READS, NOT AS SCANS
+	 */
+	@Test
+	public void shouldThrottleExistenceChecksAsReads() {
+
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.throttle.default.read.ops", "10");
+		properties.setProperty("hbase.driver.throttle.default.scan.ops", "1");
+		HbaseDriver hBaseDriver = new HbaseDriver(FakeHbase.connection(tableName -> FakeHbase.table(
+				(method, args) -> method.equals("exists") ? new boolean[((List<?>) args[0]).size()] : null)),
+				properties);
+		List<String> rowKeys = Arrays.asList("1", "2", "3", "4", "5");
+
+		hBaseDriver.exists("tbl_entity", rowKeys);
+		hBaseDriver.exists("tbl_entity", rowKeys);
+
+		ThrottleMetrics metrics = hBaseDriver.getThrottleMetrics();
+		assertThat(metrics.getThrottledCalls(ThrottledOperation.READ), is(1L));
+		assertThat(metrics.getThrottledCalls(ThrottledOperation.SCAN), is(0L));
+	}
+
+	private Connection newConnection() {
+		Table table = FakeHbase.table((method, args) -> null);
+		return FakeHbase.connection(tableName -> table);
+	}
+}
@@ -0,0 +1,149 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Samples an in-memory table of four regions holding five rows each
+ */
+public class SamplingTest {
+
+	private static final String[] REGION_STARTS = { "", "b", "c", "d" };
+	private static final String[] REGION_ENDS = { "b", "c", "d", "" };
+	private static final int ROWS_PER_REGION = 5;
+
+	private List<Scan> submittedScans;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+		submittedScans = Collections.synchronizedList(new ArrayList<Scan>());
+		hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+	}
+
+	/*
+	 * TESTING ROWS ARE SAMPLED ON THE REGION SERVERS BEFORE THE FILTER
+	 */
+	@Test
+	public void shouldSampleRowsWithRandomRowFilter() {
+
+		SampleResult<SampleEntity> sample = hBaseDriver.sample("tbl_entity", SampleEntity.class,
+				new PrefixFilter(Bytes.toBytes("a")), 0.25f);
+
+		FilterList filterList = (FilterList) submittedScans.get(0).getFilter();
+		assertThat(filterList.getFilters().get(0), instanceOf(RandomRowFilter.class));
+		assertThat(((RandomRowFilter) filterList.getFilters().get(0)).getChance(), is(0.25f));
+		assertThat(filterList.getFilters().get(1), instanceOf(PrefixFilter.class));
+
+		// the fake table ignores filters and returns a whole region
+		assertThat(sample.getEntities().size(), is(ROWS_PER_REGION));
+		assertEquals(20, sample.getEstimatedCount().getValue(), 0.001);
+		assertThat(hBaseDriver.sample("tbl_entity", SampleEntity.class, null, 1.5f), nullValue());
+	}
+
+	/*
+	 * TESTING REGION SAMPLES ARE SCALED BY THE FRACTION OF REGIONS READ
+	 */
+	@Test
+	public void shouldScaleRegionSamples() {
+
+		SampleResult<SampleEntity> sample = hBaseDriver.sampleRegions("tbl_entity", SampleEntity.class, null, 2);
+
+		assertThat(submittedScans.size(), is(2));
+		assertThat(sample.getEntities().size(), is(2 * ROWS_PER_REGION));
+		assertEquals(0.5, sample.getSamplingFraction(), 0.001);
+		assertEquals(20, sample.getEstimatedCount().getValue(), 0.001);
+		assertEquals(20, sample.getEstimatedCount().getUpperBound(), 0.001);
+	}
+
+	/*
+	 * TESTING CONFIDENCE BOUNDS OF THE ESTIMATES
+	 */
+	@Test
+	public void shouldBoundEstimates() {
+
+		Estimate count = Estimate.ofSampledCount(100, 0.1);
+		assertEquals(1000, count.getValue(), 0.001);
+		assertEquals(1000 - 1.96 * Math.sqrt(90) / 0.1, count.getLowerBound(), 0.001);
+		assertEquals(30, Estimate.ofSampledCount(0, 0.1).getUpperBound(), 0.001);
+
+		Estimate regions = Estimate.ofSampledRegions(new long[] { 8, 12 }, 4);
+		assertEquals(40, regions.getValue(), 0.001);
+		assertEquals(40 + 1.96 * 4 * Math.sqrt(2), regions.getUpperBound(), 0.001);
+
+		Aggregation aggregation = new Aggregation();
+		aggregation.add(2);
+		aggregation.add(4);
+		Estimate mean = Estimate.ofSampledMean(aggregation);
+		assertEquals(3, mean.getValue(), 0.001);
+		assertEquals(3 - 1.96, mean.getLowerBound(), 0.001);
+		assertEquals(Double.NEGATIVE_INFINITY, Estimate.ofSampledExtreme(aggregation, AggFn.MIN).getLowerBound(),
+				0.001);
+		assertEquals(60, Estimate.ofSampledSum(aggregation, 0.1).getValue(), 0.001);
+	}
+
+	private Connection newConnection() {
+		Table table = FakeHbase.table((method, args) -> {
+			if (method.equals("getScanner")) {
+				Scan scan = (Scan) args[0];
+				submittedScans.add(scan);
+				String start = Bytes.toString(scan.getStartRow());
+				return newScanner(start.isEmpty() ? "a" : start);
+			}
+			return null;
+		});
+		return FakeHbase.fake(Connection.class, (method, args) -> {
+			if (method.equals("getTable")) {
+				return table;
+			}
+			if (method.equals("getRegionLocator")) {
+				return newRegionLocator();
+			}
+			return null;
+		});
+	}
+
+	private RegionLocator newRegionLocator() {
+		return FakeHbase.fake(RegionLocator.class, (method, args) -> {
+			if (method.equals("getStartEndKeys")) {
+				byte[][] starts = new byte[REGION_STARTS.length][];
+				byte[][] ends = new byte[REGION_ENDS.length][];
+				for (int i = 0; i < starts.length; i++) {
+					starts[i] = Bytes.toBytes(REGION_STARTS[i]);
+					ends[i] = Bytes.toBytes(REGION_ENDS[i]);
+				}
+				return new Pair<byte[][], byte[][]>(starts, ends);
+			}
+			return null;
+		});
+	}
+
+	private ResultScanner newScanner(String region) {
+		int[] nextRow = new int[1];
+		return FakeHbase.scanner(
+				() -> nextRow[0] < ROWS_PER_REGION ? FakeHbase.row(region + nextRow[0]++, "basic", "age", "30") : null);
+	}
+}
@@ -0,0 +1,60 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.metrics.ScanMetrics;
+import org.apache.hadoop.hbase.filter.PrefixFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class ScanProfilerTest {
+
+	/*
+	 * TESTING PROFILE CARRIES SCAN METRICS, ROW RANGE AND FILTER SUMMARY
+	 */
+	@Test
+	public void shouldBuildProfileFromScanMetrics() {
+
+		Scan scan = new Scan().withStartRow(Bytes.toBytes("a")).withStopRow(Bytes.toBytes("m"))
+				.setFilter(new PrefixFilter(Bytes.toBytes("b")));
+		ScanProfiler profiler = new ScanProfiler("tbl_entity", scan, -1);
+		assertThat(scan.isScanMetricsEnabled(), is(true));
+
+		ScanMetrics scanMetrics = new ScanMetrics();
+		scanMetrics.countOfRowsScanned.set(1000);
+		scanMetrics.countOfRowsFiltered.set(990);
+		scanMetrics.countOfRPCcalls.set(3);
+		scanMetrics.countOfBytesInResults.set(4096);
+		scanMetrics.countOfRegions.set(2);
+
+		profiler.rowFetched();
+		profiler.rowDecoded();
+		QueryProfile profile = profiler.finish(scanMetrics, 10);
+
+		assertThat(profile.getTable(), is("tbl_entity"));
+		assertThat(profile.getStartRow(), is("a"));
+		assertThat(profile.getStopRow(), is("m"));
+		assertThat(profile.getFilter(), is(scan.getFilter().toString()));
+		assertThat(profile.getRowsScanned(), is(1000L));
+		assertThat(profile.getRowsFiltered(), is(990L));
+		assertThat(profile.getRowsReturned(), is(10L));
+		assertThat(profile.getRpcCount(), is(3L));
+		assertThat(profile.getBytes(), is(4096L));
+		assertThat(profile.getRegions(), is(2L));
+		assertThat(profile.getTotalMillis() >= profile.getServerWaitMillis(), is(true));
+	}
+
+	/*
+	 * TESTING PROFILE WITHOUT FILTER OR METRICS
+	 */
+	@Test
+	public void shouldBuildProfileWithoutMetrics() {
+
+		QueryProfile profile = new ScanProfiler("tbl_entity", new Scan(), 0).finish(null, 0);
+		assertThat(profile.getFilter(), is("none"));
+		assertThat(profile.getRowsScanned(), is(0L));
+		assertThat(profile.getStartRow(), is(""));
+	}
+}
@@ -0,0 +1,127 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes rows of an in-memory scanner, signalling on the calling thread
+ */
+public class ScanPublisherTest {
+
+	private List<String> rows;
+	private int fetchedRows;
+	private boolean scannerClosed;
+	private ScanPublisher<String> publisher;
+
+	private List<String> received;
+	private Throwable error;
+	private boolean completed;
+	private Subscription subscription;
+
+	@Before
+	public void preparePublisher() {
+
+		rows = Arrays.asList("1", "2", "3", "4", "5");
+		received = new ArrayList<String>();
+		publisher = new ScanPublisher<String>(newConnection(), TableName.valueOf("tbl_entity"), new Scan(),
+				result -> Bytes.toString(result.getRow()), Runnable::run);
+		publisher.subscribe(new Subscriber<String>() {
+
+			@Override
+			public void onSubscribe(Subscription s) {
+				subscription = s;
+			}
+
+			@Override
+			public void onNext(String row) {
+				received.add(row);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				error = t;
+			}
+
+			@Override
+			public void onComplete() {
+				completed = true;
+			}
+		});
+	}
+
+	/*
+	 * TESTING ROWS ARE ONLY FETCHED WHEN REQUESTED
+	 */
+	@Test
+	public void shouldFetchRowsOnDemand() {
+
+		assertThat(fetchedRows, is(0));
+
+		subscription.request(2);
+		assertThat(received, is(Arrays.asList("1", "2")));
+		assertThat(fetchedRows, is(2));
+
+		subscription.request(10);
+		assertThat(received, is(rows));
+		assertThat(completed, is(true));
+		assertThat(scannerClosed, is(true));
+	}
+
+	/*
+	 * TESTING CANCELLING CLOSES THE SCANNER
+	 */
+	@Test
+	public void shouldCloseScannerOnCancel() {
+
+		subscription.request(1);
+		subscription.cancel();
+		subscription.request(1);
+
+		assertThat(received, is(Arrays.asList("1")));
+		assertThat(scannerClosed, is(true));
+		assertThat(completed, is(false));
+	}
+
+	/*
+	 * TESTING NON POSITIVE REQUESTS ARE SIGNALLED AS ERROR
+	 */
+	@Test
+	public void shouldRejectNonPositiveRequest() {
+
+		subscription.request(0);
+
+		assertThat(error, instanceOf(IllegalArgumentException.class));
+		assertThat(received.size(), is(0));
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table(
+				(method, args) -> method.equals("getScanner") ? newScanner() : null));
+	}
+
+	private ResultScanner newScanner() {
+		ResultScanner scanner = FakeHbase.scanner(() -> fetchedRows == rows.size() ? null
+				: FakeHbase.row(rows.get(fetchedRows++), "basic", "name", "name" + fetchedRows));
+		return FakeHbase.fake(ResultScanner.class, (method, args) -> {
+			if (method.equals("close")) {
+				scannerClosed = true;
+			}
+			return method.equals("next") ? scanner.next() : null;
+		});
+	}
+}
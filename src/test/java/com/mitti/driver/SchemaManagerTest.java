@@ -0,0 +1,173 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.RandomRowFilter;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.mitti.common.PreSplit.KeyDistribution;
+import com.mitti.models.ProfileEntity;
+
+/**
+ * Derives column families and split keys, and alters an existing table
+ * through an in-memory admin
+ */
+public class SchemaManagerTest {
+
+	private final List<String> addedFamilies = new ArrayList<String>();
+	private final List<ColumnFamilyDescriptor> modifiedFamilies = new ArrayList<ColumnFamilyDescriptor>();
+	private final List<Scan> sampleScans = new ArrayList<Scan>();
+
+	/*
+	 * TESTING SPLIT KEYS DIVIDE THE DECLARED KEY SPACE EVENLY
+	 */
+	@Test
+	public void shouldSplitFromDistribution() {
+
+		assertThat(toStrings(SchemaManager.splitsFromDistribution(KeyDistribution.HEX, 4)),
+				is(Arrays.asList("4", "8", "c")));
+
+		byte[][] splitKeys = SchemaManager.splitsFromDistribution(KeyDistribution.DECIMAL, 20);
+		assertThat(splitKeys.length, is(19));
+		assertThat(Bytes.toString(splitKeys[0]), is("05"));
+		assertThat(Bytes.toString(splitKeys[18]), is("95"));
+	}
+
+	/*
+	 * TESTING SPLIT KEYS ARE EVENLY SPACED KEYS OF THE SORTED SAMPLE
+	 */
+	@Test
+	public void shouldSplitFromSample() {
+
+		List<String> sample = Arrays.asList("h", "a", "c", "b", "e", "d", "g", "f", "a");
+		assertThat(toStrings(SchemaManager.splitsFromSample(sample, 4)), is(Arrays.asList("c", "e", "g")));
+
+		assertThat(toStrings(SchemaManager.splitsFromSample(Arrays.asList("a"), 4)), is(Arrays.asList("a")));
+	}
+
+	/*
+	 * TESTING ROW KEYS OF AN EXISTING TABLE ARE SAMPLED FOR SPLIT KEYS
+	 */
+	@Test
+	public void shouldSplitFromSampledTable() {
+
+		SchemaManager schemaManager = new SchemaManager(newConnection(null), new Properties());
+		byte[][] splitKeys = schemaManager.splitsFromTable("tbl_profile", 0.5f, 4);
+
+		assertThat(toStrings(splitKeys), is(Arrays.asList("c", "e", "g")));
+		FilterList sampleFilter = (FilterList) sampleScans.get(0).getFilter();
+		assertThat(((RandomRowFilter) sampleFilter.getFilters().get(0)).getChance(), is(0.5f));
+	}
+
+	/*
+	 * TESTING FAMILIES FOLLOW THE FIELD NAMING AND @ColumnFamilySchema
+	 */
+	@Test
+	public void shouldDeriveColumnFamilies() {
+
+		SchemaManager schemaManager = new SchemaManager(null, new Properties());
+		List<ColumnFamilyDescriptor> families = schemaManager.getColumnFamilyDescriptors(ProfileEntity.class);
+
+		assertThat(families.stream().map(f -> f.getNameAsString()).collect(Collectors.toList()),
+				is(Arrays.asList("basic", "stats", "doc", "attrs")));
+
+		ColumnFamilyDescriptor doc = families.get(2);
+		assertThat(doc.getBloomFilterType(), is(BloomType.NONE));
+		assertThat(doc.getCompressionType(), is(Compression.Algorithm.GZ));
+		assertThat(doc.getTimeToLive(), is(86400));
+
+		ColumnFamilyDescriptor stats = families.get(1);
+		assertThat(stats.getBlocksize(), is(16384));
+		assertThat(stats.getBloomFilterType(), is(BloomType.ROW));
+
+		ColumnFamilyDescriptor basic = families.get(0);
+		assertThat(basic.getBlocksize(), is(HConstants.DEFAULT_BLOCKSIZE));
+		assertThat(basic.getNameAsString(), is("basic"));
+	}
+
+	/*
+	 * TESTING ONLY DECLARED FAMILIES OF AN EXISTING TABLE ARE ALTERED AND
+	 * HAND TUNED FAMILIES ARE LEFT AS THEY ARE
+	 */
+	@Test
+	public void shouldKeepUndeclaredFamiliesOfExistingTable() {
+
+		TableDescriptor existingTable = TableDescriptorBuilder.newBuilder(TableName.valueOf("tbl_profile"))
+				.setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes("basic"))
+						.setCompressionType(Compression.Algorithm.SNAPPY).setTimeToLive(3600).build())
+				.setColumnFamily(ColumnFamilyDescriptorBuilder.of("doc"))
+				.setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes("attrs"))
+						.setBlocksize(8192).build())
+				.build();
+
+		SchemaManager schemaManager = new SchemaManager(newConnection(existingTable), new Properties());
+
+		assertThat(schemaManager.createOrUpdateTable("tbl_profile", ProfileEntity.class), is(true));
+		assertThat(addedFamilies, is(Arrays.asList("stats")));
+		assertThat(modifiedFamilies.size(), is(1));
+		assertThat(modifiedFamilies.get(0).getNameAsString(), is("doc"));
+		assertThat(modifiedFamilies.get(0).getCompressionType(), is(Compression.Algorithm.GZ));
+	}
+
+	private List<String> toStrings(byte[][] splitKeys) {
+		return Arrays.stream(splitKeys).map(Bytes::toString).collect(Collectors.toList());
+	}
+
+	private Connection newConnection(TableDescriptor existingTable) {
+		return FakeHbase.connection(tableName -> newSampledTable(), newAdmin(existingTable));
+	}
+
+	private Admin newAdmin(TableDescriptor existingTable) {
+		return FakeHbase.admin((method, args) -> {
+			switch (method) {
+			case "tableExists":
+				return true;
+			case "getDescriptor":
+				return existingTable;
+			case "addColumnFamily":
+				addedFamilies.add(((ColumnFamilyDescriptor) args[1]).getNameAsString());
+				return null;
+			case "modifyColumnFamily":
+				modifiedFamilies.add((ColumnFamilyDescriptor) args[1]);
+				return null;
+			default:
+				return null;
+			}
+		});
+	}
+
+	private Table newSampledTable() {
+		List<String> sampledRowKeys = Arrays.asList("h", "a", "c", "b", "e", "d", "g", "f");
+		return FakeHbase.table((method, args) -> {
+			if (method.equals("getScanner")) {
+				sampleScans.add((Scan) args[0]);
+				int[] nextRow = new int[1];
+				return FakeHbase.scanner(() -> nextRow[0] < sampledRowKeys.size()
+						? FakeHbase.row(sampledRowKeys.get(nextRow[0]++), "basic", "name", "")
+						: null);
+			}
+			return null;
+		});
+	}
+}
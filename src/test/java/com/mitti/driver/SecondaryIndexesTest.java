@@ -0,0 +1,180 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.mitti.models.IndexedEntity;
+import com.mitti.models.OrderEntity;
+import com.mitti.models.ProfileEntity;
+
+public class SecondaryIndexesTest {
+
+	/*
+	 * TESTING ONLY @Indexed FIXED FIELDS ARE INDEXED
+	 */
+	@Test
+	public void shouldFindIndexedFields() {
+
+		List<FieldMapping<ProfileEntity>> indexedFields = SecondaryIndexes.getIndexedFields(ProfileEntity.class);
+		assertThat(indexedFields.size(), is(1));
+		assertThat(indexedFields.get(0).getName(), is("basic_name"));
+		assertThat(SecondaryIndexes.indexTable("tbl_profile", "basic_name"), is("tbl_profile_idx_basic_name"));
+	}
+
+	/*
+	 * TESTING EQUALITY SCAN COVERS EXACTLY THE ENTRIES OF ONE VALUE
+	 */
+	@Test
+	public void shouldBoundEqualityScanToValue() {
+
+		Scan scan = SecondaryIndexes.equalityScan("Sonu");
+
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("Sonu", "1")), is(true));
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("Sonu", "zzz")), is(true));
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("Sonu Nigam", "1")), is(false));
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("Son", "u")), is(false));
+	}
+
+	/*
+	 * TESTING RANGE SCAN INCLUDES LOWER AND EXCLUDES UPPER BOUND
+	 */
+	@Test
+	public void shouldBoundRangeScanToValues() {
+
+		Scan scan = SecondaryIndexes.rangeScan("b", "d");
+
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("b", "1")), is(true));
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("cat", "1")), is(true));
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("a", "z")), is(false));
+		assertThat(inScan(scan, SecondaryIndexes.indexRow("d", "1")), is(false));
+
+		assertThat(SecondaryIndexes.inRange("b", "b", "d"), is(true));
+		assertThat(SecondaryIndexes.inRange("d", "b", "d"), is(false));
+		assertThat(SecondaryIndexes.inRange("x", "b", null), is(true));
+		assertThat(SecondaryIndexes.inRange(null, null, null), is(false));
+	}
+
+	/*
+	 * TESTING RANGE CHECK FOLLOWS THE BYTE ORDER OF THE INDEX SCAN
+	 */
+	@Test
+	public void shouldCheckRangeInByteOrder() {
+
+		// U+1F600 sorts before U+FFFD in UTF-16 but after it in UTF-8
+		String emoji = new String(Character.toChars(0x1F600));
+
+		assertThat(SecondaryIndexes.inRange(emoji, "\uFFFD", null), is(true));
+		assertThat(SecondaryIndexes.inRange(emoji, null, "\uFFFD"), is(false));
+		assertThat(inScan(SecondaryIndexes.rangeScan("\uFFFD", null), SecondaryIndexes.indexRow(emoji, "1")),
+				is(true));
+	}
+
+	/*
+	 * TESTING RANGE LOOKUPS ARE ONLY ACCEPTED ON STRING FIELDS
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectRangeOnNumericField() {
+
+		SecondaryIndexes.checkRangeField(SecondaryIndexes.getIndexedFields(ProfileEntity.class).get(0));
+		SecondaryIndexes.checkRangeField(SecondaryIndexes.getIndexedFields(OrderEntity.class).get(0));
+	}
+
+	/*
+	 * TESTING INDEXED COLUMNS ARE DETECTED IN WRITES AND DELETES
+	 */
+	@Test
+	public void shouldDetectIndexedColumnInMutations() {
+
+		FieldMapping<ProfileEntity> nameField = SecondaryIndexes.getIndexedFields(ProfileEntity.class).get(0);
+
+		Put put = new Put(Bytes.toBytes("1")).addColumn(Bytes.toBytes("basic"), Bytes.toBytes("name"),
+				Bytes.toBytes("Sonu"));
+		assertThat(SecondaryIndexes.hasColumn(put, nameField), is(true));
+		assertThat(SecondaryIndexes.hasColumn(new Delete(Bytes.toBytes("1")).addColumns(Bytes.toBytes("basic"),
+				Bytes.toBytes("age")), nameField), is(false));
+		assertThat(SecondaryIndexes.hasColumn(new Delete(Bytes.toBytes("1")).addColumns(Bytes.toBytes("basic"),
+				Bytes.toBytes("name")), nameField), is(true));
+	}
+
+	/*
+	 * TESTING ENTRIES WRITTEN FOR A ROW WHICH FAILS TO BE WRITTEN ARE REMOVED
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldRemoveIndexEntriesOfFailedWrite() {
+
+		List<Mutation> indexMutations = new ArrayList<Mutation>();
+		Connection connection = FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get") && !(args[0] instanceof Get)) {
+				return FakeHbase.emptyResults((List<?>) args[0]);
+			}
+			if (!method.equals("put") && !method.equals("delete")) {
+				return null;
+			}
+			if (!tableName.equals("tbl_indexed_idx_basic_name")) {
+				throw new IOException("region unavailable");
+			}
+			indexMutations.addAll((List<Mutation>) args[0]);
+			return null;
+		}));
+
+		IndexedEntity entity = new IndexedEntity();
+		entity.setRow_key("1");
+		entity.setBasic_name("Sonu");
+		HbaseDriver hBaseDriver = new HbaseDriver(connection, new Properties());
+
+		assertThat(hBaseDriver.addUpdate(entity, "tbl_indexed", IndexedEntity.class), is(false));
+		assertThat(indexMutations.size(), is(2));
+		assertThat(indexMutations.get(0) instanceof Put, is(true));
+		assertThat(indexMutations.get(1) instanceof Delete, is(true));
+		assertThat(Bytes.equals(indexMutations.get(0).getRow(), indexMutations.get(1).getRow()), is(true));
+	}
+
+	/*
+	 * TESTING INDEX TABLES OF DELETES WITHOUT ENTITY CLASS ARE LISTED ONCE
+	 */
+	@Test
+	public void shouldCacheIndexTablesOfDeletes() {
+
+		AtomicInteger listings = new AtomicInteger();
+		Admin admin = FakeHbase.admin((method, args) -> {
+			if (!method.equals("listTableNames")) {
+				return null;
+			}
+			listings.incrementAndGet();
+			return new TableName[] { TableName.valueOf("tbl_indexed_idx_basic_name") };
+		});
+		Table table = FakeHbase.table((method, args) -> method.equals("get") ? Result.EMPTY_RESULT : null);
+		Connection connection = FakeHbase.connection(tableName -> table, admin);
+		HbaseDriver hBaseDriver = new HbaseDriver(connection, new Properties());
+
+		assertThat(hBaseDriver.deleteById("1", "tbl_indexed"), is(true));
+		assertThat(hBaseDriver.deleteById("2", "tbl_indexed"), is(true));
+		assertThat(hBaseDriver.deleteColumnsById("3", "tbl_indexed", "basic", "name"), is(true));
+		assertThat(listings.get(), is(1));
+	}
+
+	private boolean inScan(Scan scan, byte[] row) {
+		return Bytes.compareTo(row, scan.getStartRow()) >= 0
+				&& (scan.getStopRow().length == 0 || Bytes.compareTo(row, scan.getStopRow()) < 0);
+	}
+}
@@ -0,0 +1,186 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.SnapshotDescription;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.errorhandling.ForeignExceptionDispatcher;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.SnapshotProtos;
+import org.apache.hadoop.hbase.snapshot.SnapshotDescriptionUtils;
+import org.apache.hadoop.hbase.snapshot.SnapshotManifest;
+import org.apache.hadoop.hbase.snapshot.SnapshotManifestV2;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.CommonFSUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Reads a two region snapshot written to the local filesystem with the
+ * region server classes, so no cluster is needed
+ */
+@SuppressWarnings("deprecation")
+public class SnapshotScanTest {
+
+	private static final String ENTITY_TABLE = "tbl_entity";
+	private static final String SNAPSHOT = "tbl_entity_snapshot";
+	private static final int ROWS = 20;
+
+	private File hbaseDir;
+	private Configuration conf;
+	private List<String> snapshotsTaken;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void writeSnapshot() throws Exception {
+
+		hbaseDir = Files.createTempDirectory("mitti-snapshot").toFile();
+		conf = HBaseConfiguration.create();
+		// the memstore chunk pool is only set up by region servers
+		conf.setBoolean("hbase.hregion.memstore.mslab.enabled", false);
+		Path rootDir = new Path(new File(hbaseDir, "root").toURI());
+		CommonFSUtils.setRootDir(conf, rootDir);
+		FileSystem fs = rootDir.getFileSystem(conf);
+
+		TableDescriptor tableDescriptor = TableDescriptorBuilder.newBuilder(TableName.valueOf(ENTITY_TABLE))
+				.setColumnFamily(ColumnFamilyDescriptorBuilder.of("basic"))
+				.setColumnFamily(ColumnFamilyDescriptorBuilder.of("other")).build();
+
+		SnapshotProtos.SnapshotDescription snapshot = SnapshotProtos.SnapshotDescription.newBuilder()
+				.setName(SNAPSHOT).setTable(ENTITY_TABLE).setType(SnapshotProtos.SnapshotDescription.Type.FLUSH)
+				.setVersion(SnapshotManifestV2.DESCRIPTOR_VERSION).build();
+		Path workingDir = SnapshotDescriptionUtils.getWorkingSnapshotDir(snapshot, rootDir, conf);
+		SnapshotDescriptionUtils.writeSnapshotInfo(snapshot, workingDir, fs);
+		SnapshotManifest manifest = SnapshotManifest.create(conf, fs, workingDir, snapshot,
+				new ForeignExceptionDispatcher(SNAPSHOT));
+		manifest.addTableDescriptor(tableDescriptor);
+
+		byte[][] splits = { new byte[0], Bytes.toBytes("010"), new byte[0] };
+		for (int r = 0; r < 2; r++) {
+			RegionInfo regionInfo = RegionInfoBuilder.newBuilder(tableDescriptor.getTableName())
+					.setStartKey(splits[r]).setEndKey(splits[r + 1]).build();
+			HRegion region = HRegion.createHRegion(regionInfo, rootDir, conf, tableDescriptor, null);
+			for (int i = 0; i < ROWS; i++) {
+				String rowKey = String.format("%03d", i);
+				if (regionInfo.containsRow(Bytes.toBytes(rowKey))) {
+					Put put = new Put(Bytes.toBytes(rowKey));
+					put.setDurability(Durability.SKIP_WAL);
+					put.addColumn(Bytes.toBytes("basic"), Bytes.toBytes("name"), Bytes.toBytes("name" + rowKey));
+					put.addColumn(Bytes.toBytes("basic"), Bytes.toBytes("age"), Bytes.toBytes(String.valueOf(i)));
+					region.put(put);
+				}
+			}
+			region.flush(true);
+			manifest.addRegion(region);
+			region.close();
+		}
+		manifest.consolidate();
+		fs.rename(workingDir, SnapshotDescriptionUtils.getCompletedSnapshotDir(snapshot, rootDir));
+
+		snapshotsTaken = new ArrayList<String>();
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.snapshot.restore.dir", new File(hbaseDir, "restore").getPath());
+		hBaseDriver = new HbaseDriver(newConnection(), properties);
+	}
+
+	@After
+	public void deleteSnapshot() throws Exception {
+		FileUtils.deleteDirectory(hbaseDir);
+	}
+
+	/*
+	 * TESTING ALL ROWS ARE READ FROM THE SNAPSHOT FILES AND DECODED
+	 */
+	@Test
+	public void shouldReadSnapshotRows() {
+
+		List<SampleEntity> entities = hBaseDriver.querySnapshot(ENTITY_TABLE, SampleEntity.class, null, SNAPSHOT);
+
+		assertThat(entities.size(), is(ROWS));
+		assertThat(entities.get(12).getRow_key(), is("012"));
+		assertThat(entities.get(12).getBasic_name(), is("name012"));
+		assertThat(entities.get(12).getBasic_age(), is(12));
+		assertThat(snapshotsTaken.isEmpty(), is(true));
+		assertThat(new File(hbaseDir, "restore").list().length, is(0));
+	}
+
+	/*
+	 * TESTING REGIONS ARE READ IN PARALLEL AND MERGED IN ROW ORDER
+	 */
+	@Test
+	public void shouldReadRegionsInParallel() {
+
+		SingleColumnValueFilter filter = new SingleColumnValueFilter(Bytes.toBytes("basic"), Bytes.toBytes("name"),
+				CompareOp.NOT_EQUAL, Bytes.toBytes("name005"));
+		List<SampleEntity> entities = hBaseDriver.querySnapshot(ENTITY_TABLE, SampleEntity.class, filter, SNAPSHOT,
+				true);
+
+		List<String> rowKeys = new ArrayList<String>();
+		for (SampleEntity entity : entities) {
+			rowKeys.add(entity.getRow_key());
+		}
+		assertThat(rowKeys.size(), is(ROWS - 1));
+		assertThat(rowKeys.subList(8, 11), is(Arrays.asList("009", "010", "011")));
+		assertThat(rowKeys.contains("005"), is(false));
+		assertThat(new File(hbaseDir, "restore").list().length, is(0));
+	}
+
+	/*
+	 * TESTING A SNAPSHOT IS TAKEN WHEN NONE EXISTS WITH THE NAME
+	 */
+	@Test
+	public void shouldTakeMissingSnapshot() {
+
+		hBaseDriver.querySnapshot(ENTITY_TABLE, SampleEntity.class, null, "other_snapshot");
+
+		assertThat(snapshotsTaken, is(Collections.singletonList("other_snapshot")));
+	}
+
+	private Connection newConnection() {
+		Admin admin = FakeHbase.admin((method, args) -> {
+			if (method.equals("listSnapshots")) {
+				return args[0].toString().contains(SNAPSHOT)
+						? Collections.singletonList(new SnapshotDescription(SNAPSHOT))
+						: Collections.emptyList();
+			}
+			if (method.equals("snapshot")) {
+				snapshotsTaken.add((String) args[0]);
+			}
+			return null;
+		});
+		return FakeHbase.fake(Connection.class, (method, args) -> {
+			if (method.equals("getConfiguration")) {
+				return conf;
+			}
+			return method.equals("getAdmin") ? admin : null;
+		});
+	}
+}
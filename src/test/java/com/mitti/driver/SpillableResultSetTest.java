@@ -0,0 +1,133 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Reads an in-memory table into result sets with a small memory budget
+ */
+public class SpillableResultSetTest {
+
+	private static final int ROWS = 50;
+
+	@Rule
+	public TemporaryFolder spillFolder = new TemporaryFolder();
+
+	private HbaseDriver hBaseDriver;
+	private int badRow = -1;
+
+	@Before
+	public void prepareHbaseDriver() {
+		Properties properties = new Properties();
+		properties.setProperty("hbase.driver.resultset.memory.bytes", "1000");
+		properties.setProperty("hbase.driver.resultset.spill.dir", spillFolder.getRoot().getAbsolutePath());
+		hBaseDriver = new HbaseDriver(newConnection(), properties);
+	}
+
+	/*
+	 * TESTING ROWS BEYOND THE MEMORY BUDGET ARE SPILLED AND STILL ACCESSIBLE
+	 */
+	@Test
+	public void shouldSpillRowsBeyondMemoryBudget() throws Exception {
+
+		SpillableResultSet<SampleEntity> resultSet = hBaseDriver.queryResultSet("tbl_entity", SampleEntity.class,
+				(Filter) null);
+
+		assertThat(resultSet.size(), is(ROWS));
+		assertTrue(resultSet.getSpilledRows() > 0);
+		assertTrue(resultSet.getHeapBytes() <= 1000);
+		assertThat(spillFolder.getRoot().listFiles().length, is(1));
+
+		// random access on both sides of the budget
+		assertThat(resultSet.get(0).getBasic_name(), is("name0"));
+		assertThat(resultSet.get(ROWS - 1).getBasic_age(), is(ROWS - 1));
+
+		// repeated iteration and sorting a copy
+		for (int pass = 0; pass < 2; pass++) {
+			int row = 0;
+			for (SampleEntity entity : resultSet) {
+				assertThat(entity.getRow_key(), is(rowKey(row++)));
+			}
+			assertThat(row, is(ROWS));
+		}
+		List<SampleEntity> sorted = new ArrayList<SampleEntity>(resultSet);
+		sorted.sort(Comparator.comparing(SampleEntity::getBasic_age).reversed());
+		assertThat(sorted.get(0).getBasic_age(), is(ROWS - 1));
+
+		resultSet.close();
+		File[] spillFiles = spillFolder.getRoot().listFiles();
+		assertThat(spillFiles.length, is(0));
+	}
+
+	/*
+	 * TESTING A ROW WHICH CANNOT BE DECODED ONLY FAILS ITS OWN ACCESS
+	 */
+	@Test
+	public void shouldFailAccessOfUndecodableRowOnly() throws Exception {
+
+		badRow = 30;
+		SpillableResultSet<SampleEntity> resultSet = hBaseDriver.queryResultSet("tbl_entity", SampleEntity.class,
+				(Filter) null);
+
+		assertThat(resultSet.size(), is(ROWS));
+		assertThat(resultSet.get(29).getRow_key(), is(rowKey(29)));
+		assertThat(resultSet.get(31).getRow_key(), is(rowKey(31)));
+		try {
+			resultSet.get(30);
+			fail("Undecodable row was accessed");
+		} catch (RuntimeException e) {
+			// the decoder's exception is surfaced
+		}
+		resultSet.close();
+	}
+
+	/*
+	 * TESTING ROWS SURVIVE THE ENCODING
+	 */
+	@Test
+	public void shouldDecodeEncodedRows() throws Exception {
+		Result row = row(7);
+		Result decoded = SpillableResultSet.decode(SpillableResultSet.encode(row));
+		assertThat(decoded.rawCells().length, is(2));
+		assertThat(Bytes.toString(decoded.getRow()), is(rowKey(7)));
+		assertThat(Bytes.toString(decoded.getValue(Bytes.toBytes("basic"), Bytes.toBytes("name"))), is("name7"));
+	}
+
+	private String rowKey(int row) {
+		return String.format("%03d", row);
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("getScanner")) {
+				int[] nextRow = new int[1];
+				return FakeHbase.scanner(() -> nextRow[0] < ROWS ? row(nextRow[0]++) : null);
+			}
+			return null;
+		}));
+	}
+
+	private Result row(int row) {
+		return FakeHbase.row(rowKey(row), "basic", "age", row == badRow ? "not a number" : String.valueOf(row),
+				"basic", "name", "name" + row);
+	}
+}
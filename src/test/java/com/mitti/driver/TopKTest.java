@@ -0,0 +1,179 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.OrderEntity;
+import com.mitti.models.SampleEntity;
+
+/**
+ * Runs top-K queries against an in-memory table of two regions
+ */
+public class TopKTest {
+
+	private static final int ROWS = 20;
+	private static final String REGION_SPLIT = "010";
+
+	private NavigableMap<String, Float> scores;
+	private List<Scan> submittedScans;
+	private List<Integer> multiGetSizes;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+
+		// scores are not ordered like row keys, row 003 has no score
+		scores = new TreeMap<String, Float>();
+		for (int i = 0; i < ROWS; i++) {
+			if (i != 3) {
+				scores.put(String.format("%03d", i), (float) ((i * 7) % ROWS));
+			}
+		}
+		submittedScans = Collections.synchronizedList(new ArrayList<Scan>());
+		multiGetSizes = new ArrayList<Integer>();
+		hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+	}
+
+	/*
+	 * TESTING ONLY THE SORT FIELD IS SCANNED AND ONLY K ROWS ARE READ
+	 */
+	@Test
+	public void shouldReturnHighestScores() {
+
+		List<SampleEntity> top = hBaseDriver.topK("tbl_entity", SampleEntity.class, null, "other_entity_score", 3,
+				SortOrder.DESC);
+
+		assertThat(submittedScans.get(0).getFamilyMap().get(Bytes.toBytes("other")).size(), is(1));
+		assertThat(multiGetSizes, is(Arrays.asList(3)));
+		assertThat(scoresOf(top), is(Arrays.asList(19f, 18f, 17f)));
+		assertThat(top.get(0).getBasic_name(), is("name017"));
+	}
+
+	/*
+	 * TESTING REGION PARTIALS ARE MERGED INTO ONE ORDERED RESULT
+	 */
+	@Test
+	public void shouldMergeRegionPartials() {
+
+		List<SampleEntity> bottom = hBaseDriver.topK("tbl_entity", SampleEntity.class, null, "other_entity_score", 4,
+				SortOrder.ASC, true);
+
+		assertThat(submittedScans.size(), is(2));
+		assertThat(scoresOf(bottom), is(Arrays.asList(0f, 2f, 3f, 4f)));
+	}
+
+	/*
+	 * TESTING TIES ARE BROKEN BY ROW KEY
+	 */
+	@Test
+	public void shouldBreakTiesByRowKey() {
+
+		TopKCollector collector = new TopKCollector(2, SortOrder.DESC);
+		collector.add(5L, "c");
+		collector.add(5L, "a");
+		collector.add(1L, "d");
+		collector.add(5L, "b");
+		assertThat(collector.getRowKeys(), is(Arrays.asList("a", "b")));
+
+		TopKCollector other = new TopKCollector(2, SortOrder.DESC);
+		other.add(9L, "z");
+		collector.merge(other);
+		assertThat(collector.getRowKeys(), is(Arrays.asList("z", "a")));
+	}
+
+	/*
+	 * TESTING INTEGRAL SORT VALUES ABOVE 2^53 ARE NOT COLLAPSED
+	 */
+	@Test
+	public void shouldCompareLongSortValuesExactly() {
+
+		FieldMapping<OrderEntity> placedAt = EntityMappers.forClass(OrderEntity.class).getFieldMappingsByName()
+				.get("basic_placed_at");
+		TopKCollector collector = new TopKCollector(1, SortOrder.DESC);
+		collector.add(HbaseDriver.getSortKey(placedAt, Bytes.toBytes("9007199254740993")), "b");
+		collector.add(HbaseDriver.getSortKey(placedAt, Bytes.toBytes("9007199254740992")), "a");
+		assertThat(collector.getRowKeys(), is(Arrays.asList("b")));
+	}
+
+	private List<Float> scoresOf(List<SampleEntity> entities) {
+		List<Float> entityScores = new ArrayList<Float>();
+		for (SampleEntity entity : entities) {
+			entityScores.add(entity.getOther_entity_score());
+		}
+		return entityScores;
+	}
+
+	private Result row(String rowKey, boolean full) {
+		byte[] row = Bytes.toBytes(rowKey);
+		List<Cell> cells = new ArrayList<Cell>();
+		if (full) {
+			cells.add(new KeyValue(row, Bytes.toBytes("basic"), Bytes.toBytes("name"), Bytes.toBytes("name" + rowKey)));
+		}
+		cells.add(new KeyValue(row, Bytes.toBytes("other"), Bytes.toBytes("entity_score"),
+				Bytes.toBytes(String.valueOf(scores.get(rowKey)))));
+		return Result.create(cells);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Connection newConnection() {
+		Table table = FakeHbase.table((method, args) -> {
+			if (method.equals("getScanner")) {
+				Scan scan = (Scan) args[0];
+				submittedScans.add(scan);
+				return newScanner(scan);
+			}
+			if (method.equals("get") && args[0] instanceof List) {
+				List<Get> gets = (List<Get>) args[0];
+				multiGetSizes.add(gets.size());
+				Result[] results = new Result[gets.size()];
+				for (int i = 0; i < results.length; i++) {
+					results[i] = row(Bytes.toString(gets.get(i).getRow()), true);
+				}
+				return results;
+			}
+			return null;
+		});
+		RegionLocator regionLocator = FakeHbase.fake(RegionLocator.class,
+				(method, args) -> method.equals("getStartEndKeys")
+						? new Pair<byte[][], byte[][]>(new byte[][] { new byte[0], Bytes.toBytes(REGION_SPLIT) },
+								new byte[][] { Bytes.toBytes(REGION_SPLIT), new byte[0] })
+						: null);
+		return FakeHbase.fake(Connection.class, (method, args) -> {
+			if (method.equals("getTable")) {
+				return table;
+			}
+			return method.equals("getRegionLocator") ? regionLocator : null;
+		});
+	}
+
+	private ResultScanner newScanner(Scan scan) {
+		String start = Bytes.toString(scan.getStartRow());
+		String stop = Bytes.toString(scan.getStopRow());
+		List<String> rowKeys = new ArrayList<String>(
+				stop.isEmpty() ? scores.tailMap(start, true).keySet() : scores.subMap(start, stop).keySet());
+		int[] nextRow = new int[1];
+		return FakeHbase.scanner(() -> nextRow[0] < rowKeys.size() ? row(rowKeys.get(nextRow[0]++), false) : null);
+	}
+}
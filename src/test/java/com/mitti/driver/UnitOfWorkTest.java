@@ -0,0 +1,254 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.RowMutations;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.IndexedEntity;
+import com.mitti.models.ProfileEntity;
+import com.mitti.models.SampleEntity;
+
+/**
+ * Commits units of work against in-memory tables recording the batches they
+ * receive
+ */
+public class UnitOfWorkTest {
+
+	private Map<String, List<List<Row>>> batches;
+	private Set<String> rejectedRows;
+	private Map<String, String> storedNames;
+	private List<Delete> indexDeletes;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+		batches = new ConcurrentHashMap<String, List<List<Row>>>();
+		rejectedRows = new HashSet<String>();
+		storedNames = new HashMap<String, String>();
+		indexDeletes = new ArrayList<Delete>();
+		hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+	}
+
+	/*
+	 * TESTING MIXED OPERATIONS ARE SENT AS ONE BATCH PER TABLE
+	 */
+	@Test
+	public void shouldBatchOperationsPerTable() {
+
+		UnitOfWorkResult result = hBaseDriver.newUnitOfWork()
+				.addUpdate(entity("1"), "tbl_entity", SampleEntity.class)
+				.deleteColumnsById("1", "tbl_entity", "other", "done_flag")
+				.deleteById("7", "tbl_entity")
+				.increment("tbl_stats", "1", ProfileEntity.class, "stats_visits", 2)
+				.deleteById("9", "tbl_archive")
+				.commit();
+
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(batches.get("tbl_entity").size(), is(1));
+		assertThat(batches.get("tbl_stats").size(), is(1));
+		assertThat(batches.get("tbl_archive").size(), is(1));
+
+		// write and column delete of row 1 are applied atomically
+		List<Row> entityActions = batches.get("tbl_entity").get(0);
+		assertThat(entityActions.size(), is(2));
+		assertThat(entityActions.get(0), instanceOf(RowMutations.class));
+		assertThat(((RowMutations) entityActions.get(0)).getMutations().size(), is(2));
+		assertThat(entityActions.get(1), instanceOf(Delete.class));
+
+		assertThat(batches.get("tbl_stats").get(0).get(0), instanceOf(Increment.class));
+		assertThat(result.getOperations().get(3).getIncrementedValues().get("stats_visits"), is(2L));
+		assertThat(result.getOperations().get(0).getIncrementedValues(), nullValue());
+	}
+
+	/*
+	 * TESTING FAILURES ARE REPORTED PER OPERATION
+	 */
+	@Test
+	public void shouldReportFailedOperations() {
+
+		rejectedRows.add("2");
+
+		UnitOfWork unitOfWork = hBaseDriver.newUnitOfWork()
+				.addUpdate(entity("1"), "tbl_entity", SampleEntity.class)
+				.addUpdate(entity("2"), "tbl_entity", SampleEntity.class)
+				.addUpdate(new SampleEntity(), "tbl_entity", SampleEntity.class)
+				.increment("tbl_stats", "1", ProfileEntity.class, "basic_age", 1);
+		assertThat(unitOfWork.size(), is(4));
+
+		UnitOfWorkResult result = unitOfWork.commit();
+
+		assertThat(unitOfWork.size(), is(0));
+		assertThat(result.isSuccessful(), is(false));
+		assertThat(result.getFailures().size(), is(3));
+
+		List<UnitOfWorkOperation> operations = result.getOperations();
+		assertThat(operations.get(0).isSuccessful(), is(true));
+		assertThat(operations.get(1).getCause(), instanceOf(IOException.class));
+		assertThat(operations.get(2).getCause(), instanceOf(IllegalArgumentException.class));
+		assertThat(operations.get(3).getCause(), instanceOf(IllegalArgumentException.class));
+
+		// operations which could not be prepared are never sent
+		assertThat(batches.get("tbl_entity").get(0).size(), is(2));
+		assertThat(batches.containsKey("tbl_stats"), is(false));
+	}
+
+	/*
+	 * TESTING ONLY @Counter FIELDS ARE INCREMENTED
+	 */
+	@Test
+	public void shouldRejectIncrementOfNonCounterFields() {
+
+		assertThat(hBaseDriver.increment("tbl_stats", "1", ProfileEntity.class, "basic_age", 1), nullValue());
+		assertThat(hBaseDriver.increment("tbl_stats", "1", ProfileEntity.class, "stats_clicks", 1), nullValue());
+		assertThat(batches.containsKey("tbl_stats"), is(false));
+
+		assertThat(hBaseDriver.increment("tbl_stats", "1", ProfileEntity.class, "stats_visits", 3), is(3L));
+		assertThat(batches.get("tbl_stats").size(), is(1));
+	}
+
+	/*
+	 * TESTING A ROW CAN NOT BE WRITTEN AFTER BEING DELETED IN THE SAME UNIT
+	 */
+	@Test
+	public void shouldRejectWriteAfterRowDelete() {
+
+		UnitOfWorkResult result = hBaseDriver.newUnitOfWork()
+				.deleteById("1", "tbl_entity")
+				.addUpdate(entity("1"), "tbl_entity", SampleEntity.class)
+				.addUpdate(entity("2"), "tbl_entity", SampleEntity.class)
+				.deleteById("2", "tbl_entity")
+				.commit();
+
+		List<UnitOfWorkOperation> operations = result.getOperations();
+		assertThat(operations.get(0).isSuccessful(), is(true));
+		assertThat(operations.get(1).getCause(), instanceOf(IllegalArgumentException.class));
+		assertThat(operations.get(2).isSuccessful(), is(true));
+		assertThat(operations.get(3).isSuccessful(), is(true));
+
+		// the delete of row 1 is sent alone, a write followed by a delete is kept
+		List<Row> entityActions = batches.get("tbl_entity").get(0);
+		assertThat(entityActions.size(), is(2));
+		assertThat(entityActions.get(0), instanceOf(Delete.class));
+		assertThat(((RowMutations) entityActions.get(1)).getMutations().size(), is(2));
+	}
+
+	/*
+	 * TESTING DELETES WITH AN ENTITY CLASS REMOVE THE ROW'S INDEX ENTRIES
+	 */
+	@Test
+	public void shouldRemoveIndexEntriesOfDeletedRows() {
+
+		storedNames.put("1", "Sonu");
+
+		UnitOfWorkResult result = hBaseDriver.newUnitOfWork()
+				.deleteById("1", "tbl_indexed", IndexedEntity.class)
+				.commit();
+
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(indexDeletes.size(), is(1));
+		assertThat(indexDeletes.get(0).getRow(), is(SecondaryIndexes.indexRow("Sonu", "1")));
+	}
+
+	private SampleEntity entity(String rowKey) {
+		SampleEntity entity = new SampleEntity();
+		entity.setRow_key(rowKey);
+		entity.setBasic_age(30);
+		return entity;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get")) {
+				return get((List<Get>) args[0]);
+			}
+			if (method.equals("delete") && tableName.endsWith("_idx_basic_name")) {
+				indexDeletes.addAll((List<Delete>) args[0]);
+			}
+			if (method.equals("batch")) {
+				batch(tableName, (List<Row>) args[0], (Object[]) args[1]);
+			}
+			if (method.equals("increment")) {
+				Object[] results = new Object[1];
+				batch(tableName, Collections.<Row>singletonList((Increment) args[0]), results);
+				return results[0];
+			}
+			return null;
+		}));
+	}
+
+	private Result[] get(List<Get> gets) {
+		Result[] results = FakeHbase.emptyResults(gets);
+		for (int i = 0; i < gets.size(); i++) {
+			String rowKey = Bytes.toString(gets.get(i).getRow());
+			if (storedNames.get(rowKey) != null) {
+				results[i] = FakeHbase.row(rowKey, "basic", "name", storedNames.get(rowKey));
+			}
+		}
+		return results;
+	}
+
+	private void batch(String tableName, List<Row> actions, Object[] results)
+			throws RetriesExhaustedWithDetailsException {
+
+		batches.computeIfAbsent(tableName, k -> Collections.synchronizedList(new ArrayList<List<Row>>()))
+				.add(new ArrayList<Row>(actions));
+
+		List<Throwable> causes = new ArrayList<Throwable>();
+		List<Row> failedActions = new ArrayList<Row>();
+
+		for (int i = 0; i < actions.size(); i++) {
+			Row action = actions.get(i);
+			String rowKey = Bytes.toString(action.getRow());
+			if (rejectedRows.contains(rowKey)) {
+				IOException cause = new IOException("region server rejected row " + rowKey);
+				results[i] = cause;
+				causes.add(cause);
+				failedActions.add(action);
+			} else if (action instanceof Increment) {
+				List<Cell> cells = new ArrayList<Cell>();
+				for (List<Cell> familyCells : ((Increment) action).getFamilyCellMap().values()) {
+					for (Cell cell : familyCells) {
+						cells.add(new KeyValue(action.getRow(), CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell),
+								CellUtil.cloneValue(cell)));
+					}
+				}
+				results[i] = Result.create(cells);
+			} else {
+				results[i] = Result.EMPTY_RESULT;
+			}
+		}
+
+		if (!failedActions.isEmpty()) {
+			throw new RetriesExhaustedWithDetailsException(causes, failedActions,
+					Collections.nCopies(failedActions.size(), "localhost:16020"));
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.mitti.driver;
+
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Measures the CPU cost against the bytes saved by value compression for JSON
+ * like values of increasing size. Run with:
+ * 
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.mitti.driver.ValueCompressionBenchmark
+ */
+public class ValueCompressionBenchmark {
+
+	private static final int ITERATIONS = 20000;
+
+	public static void main(String[] args) {
+
+		System.out.println(String.format("%10s %12s %8s %14s %14s", "raw bytes", "stored bytes", "ratio",
+				"compress MB/s", "decompress MB/s"));
+
+		for (int size : new int[] { 512, 2048, 8192, 32768, 131072 }) {
+
+			byte[] value = Bytes.toBytes(sampleJson(size));
+			byte[] compressed = ValueCompression.compressIfLarger(value, 0);
+
+			// warm up
+			for (int i = 0; i < ITERATIONS / 10; i++) {
+				ValueCompression.decompress(ValueCompression.compressIfLarger(value, 0), 0);
+			}
+
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				ValueCompression.compressIfLarger(value, 0);
+			}
+			long compressNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				ValueCompression.decompress(compressed, 0);
+			}
+			long decompressNanos = System.nanoTime() - start;
+
+			System.out.println(String.format("%10d %12d %8.2f %14.1f %14.1f", value.length, compressed.length,
+					(double) value.length / compressed.length, throughput(value.length, compressNanos),
+					throughput(value.length, decompressNanos)));
+		}
+	}
+
+	private static double throughput(int valueLength, long nanos) {
+		return ((double) valueLength * ITERATIONS / (1024 * 1024)) / (nanos / 1e9);
+	}
+
+	private static String sampleJson(int size) {
+		Random random = new Random(size);
+		StringBuilder json = new StringBuilder("[");
+		while (json.length() < size) {
+			json.append("{\"id\":").append(random.nextInt(100000)).append(",\"name\":\"user")
+					.append(random.nextInt(1000)).append("\",\"score\":").append(random.nextDouble())
+					.append(",\"active\":").append(random.nextBoolean()).append("},");
+		}
+		json.setLength(size - 1);
+		return json.append("]").toString();
+	}
+}
@@ -0,0 +1,86 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+public class ValueCompressionTest {
+
+	private static final String JSON_VALUE = "{\"city\":\"Calcutta\",\"state\":\"West Bengal\",\"pin\":\"700001\"}";
+
+	private static String repeatedJson(int times) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < times; i++) {
+			json.append(i == 0 ? "" : ",").append(JSON_VALUE);
+		}
+		return json.append("]").toString();
+	}
+
+	/*
+	 * TESTING LARGE VALUES ARE COMPRESSED, TAGGED AND RESTORED
+	 */
+	@Test
+	public void shouldCompressAndRestoreValuesAboveThreshold() {
+
+		byte[] value = Bytes.toBytes(repeatedJson(100));
+		byte[] compressed = ValueCompression.compressIfLarger(value, 1024);
+
+		assertTrue(compressed.length < value.length);
+		assertThat(ValueCompression.isCompressed(compressed), is(true));
+		assertThat(ValueCompression.decompress(compressed, 1024), is(value));
+	}
+
+	/*
+	 * TESTING SMALL, INCOMPRESSIBLE AND UNTAGGED VALUES ARE LEFT AS IS
+	 */
+	@Test
+	public void shouldLeaveOtherValuesUntouched() {
+
+		byte[] smallValue = Bytes.toBytes(JSON_VALUE);
+		assertThat(ValueCompression.compressIfLarger(smallValue, 1024), sameInstance(smallValue));
+		assertThat(ValueCompression.compressIfLarger(smallValue, -1), sameInstance(smallValue));
+
+		byte[] randomValue = new byte[4096];
+		new Random(7).nextBytes(randomValue);
+		assertThat(ValueCompression.compressIfLarger(randomValue, 1024), sameInstance(randomValue));
+
+		assertThat(ValueCompression.decompress(smallValue, 1024), sameInstance(smallValue));
+	}
+
+	/*
+	 * TESTING TAGGED VALUES ARE ONLY RESTORED FOR COMPRESSED FIELDS
+	 */
+	@Test
+	public void shouldKeepTaggedValuesOfUncompressedFields() {
+
+		byte[] compressed = ValueCompression.compressIfLarger(Bytes.toBytes(repeatedJson(100)), 1024);
+
+		assertThat(ValueCompression.decompress(compressed, -1), sameInstance(compressed));
+	}
+
+	/*
+	 * TESTING TAGGED VALUES WITH A BOGUS LENGTH OR PAYLOAD ARE KEPT AS STORED
+	 */
+	@Test
+	public void shouldKeepForeignTaggedValues() {
+
+		byte[] compressed = ValueCompression.compressIfLarger(Bytes.toBytes(repeatedJson(100)), 1024);
+
+		byte[] negativeLength = Bytes.copy(compressed);
+		Bytes.putInt(negativeLength, 4, -1);
+		assertThat(ValueCompression.decompress(negativeLength, 1024), sameInstance(negativeLength));
+
+		byte[] hugeLength = Bytes.copy(compressed);
+		Bytes.putInt(hugeLength, 4, Integer.MAX_VALUE);
+		assertThat(ValueCompression.decompress(hugeLength, 1024), sameInstance(hugeLength));
+
+		byte[] plainText = Bytes.add(Bytes.copy(compressed, 0, 4), Bytes.toBytes(JSON_VALUE));
+		assertThat(ValueCompression.decompress(plainText, 1024), sameInstance(plainText));
+	}
+}
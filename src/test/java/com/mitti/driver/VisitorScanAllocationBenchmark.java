@@ -0,0 +1,84 @@
+package com.mitti.driver;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Compares the bytes allocated per row by query() and by a visitor scan over
+ * the same in-memory rows. The rows are built up front, so only decoding is
+ * measured. Run with:
+ * 
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.mitti.driver.VisitorScanAllocationBenchmark
+ */
+public class VisitorScanAllocationBenchmark {
+
+	private static final int ROWS = 100000;
+	private static final int ROUNDS = 5;
+
+	private static Result[] rows;
+	private static int nextRow;
+
+	public static void main(String[] args) {
+
+		rows = new Result[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			rows[i] = row(i);
+		}
+
+		HbaseDriver hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		System.out.println(String.format("%6s %16s %16s %14s %14s", "round", "query B/row", "visitor B/row",
+				"query ms", "visitor ms"));
+
+		long[] ageSum = new long[1];
+		for (int round = 1; round <= ROUNDS; round++) {
+
+			nextRow = 0;
+			long allocated = threadBean.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			List<SampleEntity> entities = hBaseDriver.query("tbl_entity", SampleEntity.class);
+			long queryNanos = System.nanoTime() - start;
+			long queryBytes = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+			if (entities.size() != ROWS) {
+				throw new IllegalStateException("Expected " + ROWS + " rows, got " + entities.size());
+			}
+			entities = null;
+
+			nextRow = 0;
+			allocated = threadBean.getThreadAllocatedBytes(threadId);
+			start = System.nanoTime();
+			hBaseDriver.scan("tbl_entity", SampleEntity.class, null, entity -> {
+				ageSum[0] += entity.getBasic_age();
+				return true;
+			});
+			long visitorNanos = System.nanoTime() - start;
+			long visitorBytes = threadBean.getThreadAllocatedBytes(threadId) - allocated;
+
+			System.out.println(String.format("%6d %16.1f %16.1f %14.1f %14.1f", round, (double) queryBytes / ROWS,
+					(double) visitorBytes / ROWS, queryNanos / 1e6, visitorNanos / 1e6));
+		}
+
+		System.out.println("checksum " + ageSum[0]);
+	}
+
+	private static Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> method.equals("getScanner")
+				? FakeHbase.scanner(() -> nextRow < ROWS ? rows[nextRow++] : null)
+				: null));
+	}
+
+	private static Result row(int row) {
+		return FakeHbase.row(String.format("%08d", row), "basic", "age", String.valueOf(row % 100), "basic", "name",
+				"name" + row, "other", "done_flag", "true", "other", "entity_score", String.valueOf(row / 7f));
+	}
+}
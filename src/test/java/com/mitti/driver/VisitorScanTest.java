@@ -0,0 +1,185 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Runs visitor scans against an in-memory scanner
+ */
+public class VisitorScanTest {
+
+	private final List<Result> rows = new ArrayList<Result>();
+	private int nextRow;
+
+	/*
+	 * TESTING ONE ENTITY INSTANCE IS REFILLED FOR EVERY ROW
+	 */
+	@Test
+	public void shouldReuseEntityAndResetFieldsBetweenRows() {
+
+		rows.add(row("001", "name1", "1", "1.5", "TRUE", "fixed1", "k1", "v1"));
+		rows.add(row("002", null, "2", null, null, null, "k2", "v2"));
+
+		HbaseDriver hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+
+		List<SampleEntity> visited = new ArrayList<SampleEntity>();
+		List<String> names = new ArrayList<String>();
+		List<Float> scores = new ArrayList<Float>();
+		List<Boolean> flags = new ArrayList<Boolean>();
+		List<Map<String, String>> dynamicColumns = new ArrayList<Map<String, String>>();
+
+		long visitedRows = hBaseDriver.scan("tbl_entity", SampleEntity.class, null, entity -> {
+			visited.add(entity);
+			names.add(entity.getBasic_name());
+			scores.add(entity.getOther_entity_score());
+			flags.add(entity.getOther_done_flag());
+			dynamicColumns.add(new HashMap<String, String>(entity.getVarcf()));
+			assertThat(entity.getBasic_age(), is(Integer.parseInt(entity.getRow_key())));
+			return true;
+		});
+
+		assertThat(visitedRows, is(2L));
+		assertThat(visited.get(1), sameInstance(visited.get(0)));
+		assertThat(names.get(0), is("name1"));
+		assertThat(names.get(1), nullValue());
+		assertThat(scores.get(0), is(1.5f));
+		assertThat(scores.get(1), is(0f));
+		assertThat(flags.get(0), is(true));
+		assertThat(flags.get(1), nullValue());
+		assertThat(dynamicColumns.get(0).size(), is(1));
+		assertThat(dynamicColumns.get(0).get("k1"), is("v1"));
+		assertThat(dynamicColumns.get(1).size(), is(1));
+		assertThat(dynamicColumns.get(1).get("k2"), is("v2"));
+		assertThat(visited.get(0).getVarcf_fixed_value(), nullValue());
+	}
+
+	/*
+	 * TESTING A VISITOR RETURNING FALSE STOPS THE SCAN
+	 */
+	@Test
+	public void shouldStopWhenVisitorReturnsFalse() {
+
+		for (int i = 1; i <= 5; i++) {
+			rows.add(row(String.valueOf(i), "name" + i, String.valueOf(i), null, null, null, "k", "v"));
+		}
+
+		HbaseDriver hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+
+		long visitedRows = hBaseDriver.scan("tbl_entity", SampleEntity.class, null,
+				entity -> entity.getBasic_age() < 3);
+
+		assertThat(visitedRows, is(3L));
+		assertThat(hBaseDriver.getLastQueryProfile().getRowsReturned(), is(3L));
+	}
+
+	/*
+	 * TESTING INTEGRAL VALUES ARE PARSED WITHOUT INTERMEDIATE STRINGS
+	 */
+	@Test
+	public void shouldParseSignedIntegralValues() {
+		byte[] value = Bytes.toBytes("x-1234567890123");
+		assertThat(ReusableEntityDecoder.parseLong(value, 1, value.length - 1), is(-1234567890123L));
+		assertThat(ReusableEntityDecoder.parseLong(Bytes.toBytes("+42"), 0, 3), is(42L));
+	}
+
+	/*
+	 * TESTING DECIMAL VALUES ARE PARSED LIKE Double.parseDouble
+	 */
+	@Test
+	public void shouldParseDecimalValues() {
+		for (String decimal : new String[] { "0.1", "-12.5", "+3", "123456789.012345", "0.30000000000000004",
+				"9007199254740993", "1.0E10", "-4.9E-324", "NaN", "-Infinity", "007.250", "-0.0" }) {
+			byte[] value = Bytes.toBytes("x" + decimal);
+			assertThat(decimal, ReusableEntityDecoder.parseDouble(value, 1, value.length - 1),
+					is(Double.parseDouble(decimal)));
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void shouldRejectNonNumericDecimalValues() {
+		ReusableEntityDecoder.parseDouble(Bytes.toBytes("4.x2"), 0, 4);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void shouldRejectNonNumericValues() {
+		ReusableEntityDecoder.parseLong(Bytes.toBytes("4x2"), 0, 3);
+	}
+
+	/*
+	 * TESTING INTEGRAL VALUES BEYOND THE FIELD TYPE'S RANGE ARE REJECTED
+	 */
+	@Test
+	public void shouldRejectOutOfRangeIntegralValues() {
+		for (long bound : new long[] { Long.MIN_VALUE, Long.MAX_VALUE }) {
+			byte[] value = Bytes.toBytes(String.valueOf(bound));
+			assertThat(ReusableEntityDecoder.parseLong(value, 0, value.length), is(bound));
+		}
+		for (String outOfRange : new String[] { "9223372036854775808", "-9223372036854775809",
+				"99999999999999999999" }) {
+			assertRejected(outOfRange, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+		assertRejected("2147483648", Integer.MIN_VALUE, Integer.MAX_VALUE);
+		assertRejected("-32769", Short.MIN_VALUE, Short.MAX_VALUE);
+		byte[] value = Bytes.toBytes("-2147483648");
+		assertThat(ReusableEntityDecoder.parseLong(value, 0, value.length, Integer.MIN_VALUE, Integer.MAX_VALUE),
+				is((long) Integer.MIN_VALUE));
+	}
+
+	private void assertRejected(String outOfRange, long min, long max) {
+		byte[] value = Bytes.toBytes(outOfRange);
+		try {
+			ReusableEntityDecoder.parseLong(value, 0, value.length, min, max);
+			fail(outOfRange);
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	private Connection newConnection() {
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> method.equals("getScanner")
+				? FakeHbase.scanner(() -> nextRow < rows.size() ? rows.get(nextRow++) : null)
+				: null));
+	}
+
+	private Result row(String rowKey, String name, String age, String score, String flag, String fixedValue,
+			String dynamicColumn, String dynamicValue) {
+
+		byte[] row = Bytes.toBytes(rowKey);
+		List<Cell> cells = new ArrayList<Cell>();
+		cells.add(new KeyValue(row, Bytes.toBytes("basic"), Bytes.toBytes("age"), Bytes.toBytes(age)));
+		if (name != null) {
+			cells.add(new KeyValue(row, Bytes.toBytes("basic"), Bytes.toBytes("name"), Bytes.toBytes(name)));
+		}
+		if (flag != null) {
+			cells.add(new KeyValue(row, Bytes.toBytes("other"), Bytes.toBytes("done_flag"), Bytes.toBytes(flag)));
+		}
+		if (score != null) {
+			cells.add(new KeyValue(row, Bytes.toBytes("other"), Bytes.toBytes("entity_score"), Bytes.toBytes(score)));
+		}
+		cells.add(new KeyValue(row, Bytes.toBytes("varcf"), Bytes.toBytes(dynamicColumn),
+				Bytes.toBytes(dynamicValue)));
+		if (fixedValue != null) {
+			cells.add(new KeyValue(row, Bytes.toBytes("varcf"), Bytes.toBytes("fixed_value"),
+					Bytes.toBytes(fixedValue)));
+		}
+		return Result.create(cells);
+	}
+}
@@ -0,0 +1,97 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.KVPersistable;
+import com.mitti.models.ProfileEntity;
+import com.mitti.models.SampleEntity;
+
+/**
+ * Warms up region locations and table handles of an in-memory connection
+ */
+public class WarmUpTest {
+
+	private List<String> locatedTables;
+	private List<String> openedTables;
+
+	@Before
+	public void prepareConnection() {
+		locatedTables = new ArrayList<String>();
+		openedTables = new ArrayList<String>();
+	}
+
+	/*
+	 * TESTING REGION LOCATIONS ARE PREFETCHED AND TABLES OPENED
+	 */
+	@Test
+	public void shouldPrefetchRegionLocations() {
+
+		HbaseDriver hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+		List<Class<? extends KVPersistable>> entityClasses = Arrays.<Class<? extends KVPersistable>>asList(
+				SampleEntity.class, ProfileEntity.class);
+		long elapsedMillis = hBaseDriver.warmUp(Arrays.asList("tbl_entity", "tbl_profile"), entityClasses);
+
+		assertTrue(elapsedMillis >= 0);
+		assertThat(locatedTables, is(Arrays.asList("tbl_entity", "tbl_profile")));
+		assertThat(openedTables, is(Arrays.asList("tbl_entity", "tbl_profile")));
+	}
+
+	/*
+	 * TESTING WARM UP RUNS ON CONSTRUCTION WHEN CONFIGURED
+	 */
+	@Test
+	public void shouldWarmUpOnConstruction() {
+
+		Properties env = new Properties();
+		env.setProperty("hbase.driver.warmup.tables", "tbl_entity, tbl_profile");
+		env.setProperty("hbase.driver.warmup.entities",
+				SampleEntity.class.getName() + ",com.mitti.models.MissingEntity," + String.class.getName());
+		new HbaseDriver(newConnection(), env);
+
+		assertThat(locatedTables, is(Arrays.asList("tbl_entity", "tbl_profile")));
+	}
+
+	/*
+	 * TESTING NOTHING IS LOOKED UP WHEN WARM UP IS NOT CONFIGURED
+	 */
+	@Test
+	public void shouldSkipWarmUpByDefault() {
+
+		new HbaseDriver(newConnection(), new Properties());
+
+		assertTrue(locatedTables.isEmpty());
+	}
+
+	private Connection newConnection() {
+		RegionLocator regionLocator = FakeHbase.fake(RegionLocator.class,
+				(method, args) -> method.equals("getAllRegionLocations")
+						? new ArrayList<HRegionLocation>(Collections.<HRegionLocation>nCopies(3, null))
+						: null);
+		return FakeHbase.fake(Connection.class, (method, args) -> {
+			if (method.equals("getRegionLocator")) {
+				locatedTables.add(((TableName) args[0]).getNameAsString());
+				return regionLocator;
+			}
+			if (method.equals("getTable")) {
+				openedTables.add(((TableName) args[0]).getNameAsString());
+				return FakeHbase.table((tableMethod, tableArgs) -> null);
+			}
+			return null;
+		});
+	}
+}
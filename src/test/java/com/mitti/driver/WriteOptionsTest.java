@@ -0,0 +1,162 @@
+package com.mitti.driver;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellScanner;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mitti.models.SampleEntity;
+
+/**
+ * Checks write options end up on the mutations sent to an in-memory table
+ */
+public class WriteOptionsTest {
+
+	private static final String ENTITY_TABLE = "tbl_entity";
+	private static final long REPLAY_TIMESTAMP = 1500000000000L;
+
+	private List<Mutation> sentMutations;
+	private List<Integer> putCallSizes;
+	private HbaseDriver hBaseDriver;
+
+	@Before
+	public void prepareHbaseDriver() {
+		sentMutations = new ArrayList<Mutation>();
+		putCallSizes = new ArrayList<Integer>();
+		hBaseDriver = new HbaseDriver(newConnection(), new Properties());
+	}
+
+	/*
+	 * TESTING DURABILITY, TIMESTAMP AND TTL ARE SET ON THE PUT
+	 */
+	@Test
+	public void shouldApplyOptionsToPut() throws Exception {
+
+		WriteOptions writeOptions = WriteOptions.DEFAULT.withDurability(Durability.SKIP_WAL)
+				.withTimestamp(REPLAY_TIMESTAMP).withTtlMillis(60000);
+		boolean written = hBaseDriver.addUpdate(entities("1").get(0), ENTITY_TABLE, SampleEntity.class,
+				writeOptions);
+
+		assertThat(written, is(true));
+		Put put = (Put) sentMutations.get(0);
+		assertThat(put.getDurability(), is(Durability.SKIP_WAL));
+		assertThat(put.getTTL(), is(60000L));
+		CellScanner cells = put.cellScanner();
+		while (cells.advance()) {
+			Cell cell = cells.current();
+			assertThat(cell.getTimestamp(), is(REPLAY_TIMESTAMP));
+		}
+	}
+
+	/*
+	 * TESTING DEFAULT OPTIONS LEAVE THE PUT UNCHANGED
+	 */
+	@Test
+	public void shouldKeepDefaultsWithoutOptions() {
+
+		hBaseDriver.addUpdate(entities("1").get(0), ENTITY_TABLE, SampleEntity.class);
+
+		Put put = (Put) sentMutations.get(0);
+		assertThat(put.getDurability(), is(Durability.USE_DEFAULT));
+		assertThat(put.getTimestamp(), is(HConstants.LATEST_TIMESTAMP));
+		assertThat(put.getTTL(), is(Long.MAX_VALUE));
+	}
+
+	/*
+	 * TESTING addUpdateAll SENDS THE ROWS IN CHUNKS OF THE BATCH SIZE
+	 */
+	@Test
+	public void shouldChunkBatchWrites() {
+
+		BatchResult<SampleEntity> result = hBaseDriver.addUpdateAll(entities("1", "2", "3", "4", "5"),
+				ENTITY_TABLE, SampleEntity.class, 0,
+				WriteOptions.DEFAULT.withBatchSize(2).withDurability(Durability.ASYNC_WAL));
+
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(putCallSizes, is(Arrays.asList(2, 2, 1)));
+		for (Mutation mutation : sentMutations) {
+			assertThat(mutation.getDurability(), is(Durability.ASYNC_WAL));
+		}
+	}
+
+	/*
+	 * TESTING DELETES GET THE DURABILITY AND TIMESTAMP
+	 */
+	@Test
+	public void shouldApplyOptionsToDeletes() {
+
+		WriteOptions writeOptions = WriteOptions.DEFAULT.withDurability(Durability.SKIP_WAL)
+				.withTimestamp(REPLAY_TIMESTAMP);
+		assertThat(hBaseDriver.deleteById("1", ENTITY_TABLE, SampleEntity.class, writeOptions), is(true));
+		assertThat(hBaseDriver.deleteColumnsById("2", ENTITY_TABLE, writeOptions, "basic", "age"), is(true));
+
+		for (Mutation mutation : sentMutations) {
+			assertThat(mutation.getDurability(), is(Durability.SKIP_WAL));
+			assertThat(mutation.getTimestamp(), is(REPLAY_TIMESTAMP));
+		}
+		assertThat(sentMutations.size(), is(2));
+	}
+
+	/*
+	 * TESTING OPTIONS ARE IMMUTABLE AND VALIDATED
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvalidOptions() {
+
+		WriteOptions batched = WriteOptions.DEFAULT.withBatchSize(100);
+		assertThat(WriteOptions.DEFAULT.getBatchSize(), is(0));
+		assertThat(batched.getBatchSize(), is(100));
+		batched.withTtlMillis(0);
+	}
+
+	private List<SampleEntity> entities(String... rowKeys) {
+		List<SampleEntity> entities = new ArrayList<SampleEntity>();
+		for (String rowKey : rowKeys) {
+			SampleEntity entity = new SampleEntity();
+			entity.setRow_key(rowKey);
+			entity.setBasic_age(30);
+			entities.add(entity);
+		}
+		return entities;
+	}
+
+	// the tables have no index tables
+	@SuppressWarnings("unchecked")
+	private Connection newConnection() {
+		Admin admin = FakeHbase.admin(
+				(method, args) -> method.equals("listTableNames") ? new TableName[0] : null);
+		return FakeHbase.connection(tableName -> FakeHbase.table((method, args) -> {
+			if (method.equals("get")) {
+				return args[0] instanceof Get ? Result.EMPTY_RESULT : FakeHbase.emptyResults((List<?>) args[0]);
+			}
+			if (!tableName.equals(ENTITY_TABLE)) {
+				return null;
+			}
+			if (method.equals("put") && args[0] instanceof List) {
+				putCallSizes.add(((List<Put>) args[0]).size());
+				sentMutations.addAll((List<Put>) args[0]);
+			} else if (method.equals("put") || method.equals("delete") && args[0] instanceof Delete) {
+				sentMutations.add((Mutation) args[0]);
+			}
+			return null;
+		}), admin);
+	}
+}
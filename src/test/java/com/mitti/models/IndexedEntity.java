@@ -0,0 +1,43 @@
+package com.mitti.models;
+
+import com.mitti.common.Indexed;
+
+/**
+ * Entity looked up by name through the index table
+ * <table>_idx_basic_name
+ */
+public class IndexedEntity implements KVPersistable {
+
+	private String row_key;
+
+	@Indexed
+	private String basic_name;
+
+	private int basic_age;
+
+	@Override
+	public String getRow_key() {
+		return row_key;
+	}
+
+	@Override
+	public void setRow_key(String row_key) {
+		this.row_key = row_key;
+	}
+
+	public String getBasic_name() {
+		return basic_name;
+	}
+
+	public void setBasic_name(String basic_name) {
+		this.basic_name = basic_name;
+	}
+
+	public int getBasic_age() {
+		return basic_age;
+	}
+
+	public void setBasic_age(int basic_age) {
+		this.basic_age = basic_age;
+	}
+}
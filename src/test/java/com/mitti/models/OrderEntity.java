@@ -0,0 +1,54 @@
+package com.mitti.models;
+
+import com.mitti.common.Indexed;
+import com.mitti.common.Reference;
+
+/**
+ * Entity referencing a SampleEntity row by key
+ */
+public class OrderEntity implements KVPersistable {
+
+	private String row_key;
+
+	@Reference(table = "tbl_entity", entity = SampleEntity.class)
+	private String basic_customer;
+
+	@Indexed
+	private int basic_quantity;
+
+	private long basic_placed_at;
+
+	@Override
+	public String getRow_key() {
+		return row_key;
+	}
+
+	@Override
+	public void setRow_key(String row_key) {
+		this.row_key = row_key;
+	}
+
+	public String getBasic_customer() {
+		return basic_customer;
+	}
+
+	public void setBasic_customer(String basic_customer) {
+		this.basic_customer = basic_customer;
+	}
+
+	public int getBasic_quantity() {
+		return basic_quantity;
+	}
+
+	public void setBasic_quantity(int basic_quantity) {
+		this.basic_quantity = basic_quantity;
+	}
+
+	public long getBasic_placed_at() {
+		return basic_placed_at;
+	}
+
+	public void setBasic_placed_at(long basic_placed_at) {
+		this.basic_placed_at = basic_placed_at;
+	}
+}
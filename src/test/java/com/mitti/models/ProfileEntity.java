@@ -0,0 +1,99 @@
+package com.mitti.models;
+
+import java.util.Map;
+
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+
+import com.mitti.common.ColumnFamilySchema;
+import com.mitti.common.Compressed;
+import com.mitti.common.Counter;
+import com.mitti.common.DynamicColumnFamily;
+import com.mitti.common.Indexed;
+import com.mitti.common.PreSplit;
+import com.mitti.common.PreSplit.KeyDistribution;
+
+/**
+ * Entity compiled with the entity mapper processor in tests
+ */
+@DynamicColumnFamily(fields = { "attrs" })
+@ColumnFamilySchema(family = "doc", bloomFilter = BloomType.NONE, compression = Compression.Algorithm.GZ, ttlSeconds = 86400)
+@ColumnFamilySchema(family = "stats", blockSize = 16384)
+@PreSplit(regions = 4, distribution = KeyDistribution.HEX)
+public class ProfileEntity implements KVPersistable {
+
+	private String row_key;
+
+	@Indexed
+	private String basic_name;
+
+	private int basic_age;
+
+	private boolean basic_active;
+
+	@Counter
+	private Long stats_visits;
+
+	@Compressed(thresholdBytes = 256)
+	private String doc_json;
+
+	private Map<String, String> attrs;
+
+	@Override
+	public String getRow_key() {
+		return row_key;
+	}
+
+	@Override
+	public void setRow_key(String row_key) {
+		this.row_key = row_key;
+	}
+
+	public String getBasic_name() {
+		return basic_name;
+	}
+
+	public void setBasic_name(String basic_name) {
+		this.basic_name = basic_name;
+	}
+
+	public int getBasic_age() {
+		return basic_age;
+	}
+
+	public void setBasic_age(int basic_age) {
+		this.basic_age = basic_age;
+	}
+
+	public boolean isBasic_active() {
+		return basic_active;
+	}
+
+	public void setBasic_active(boolean basic_active) {
+		this.basic_active = basic_active;
+	}
+
+	public Long getStats_visits() {
+		return stats_visits;
+	}
+
+	public void setStats_visits(Long stats_visits) {
+		this.stats_visits = stats_visits;
+	}
+
+	public String getDoc_json() {
+		return doc_json;
+	}
+
+	public void setDoc_json(String doc_json) {
+		this.doc_json = doc_json;
+	}
+
+	public Map<String, String> getAttrs() {
+		return attrs;
+	}
+
+	public void setAttrs(Map<String, String> attrs) {
+		this.attrs = attrs;
+	}
+}
@@ -0,0 +1,43 @@
+package com.mitti.models;
+
+import com.mitti.common.Counter;
+
+/**
+ * Counters kept in the rows of the sample entity table
+ */
+public class VisitsEntity implements KVPersistable {
+
+	private String row_key;
+
+	@Counter
+	private Long other_visits;
+
+	@Counter
+	private Long other_clicks;
+
+	@Override
+	public String getRow_key() {
+		return row_key;
+	}
+
+	@Override
+	public void setRow_key(String row_key) {
+		this.row_key = row_key;
+	}
+
+	public Long getOther_visits() {
+		return other_visits;
+	}
+
+	public void setOther_visits(Long other_visits) {
+		this.other_visits = other_visits;
+	}
+
+	public Long getOther_clicks() {
+		return other_clicks;
+	}
+
+	public void setOther_clicks(Long other_clicks) {
+		this.other_clicks = other_clicks;
+	}
+}